@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.HeapIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.MultiIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the k-way merge done by {@link HeapIterator} (through {@link MultiIterator}) when a
+ * tablet is read from many files at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeapIteratorBenchmark {
+
+  private static final int NUM_KEYS = 1 << 16;
+
+  /** number of sources being merged, analogous to the number of files in a tablet */
+  @Param({"1", "4", "16", "64"})
+  public int numSources;
+
+  private List<TreeMap<Key,Value>> sources;
+
+  @Setup
+  public void setup() {
+    Key[] keys = KeyData.sortedKeys(NUM_KEYS, 4, 11);
+    Value[] values = KeyData.values(NUM_KEYS, 16, 11);
+    sources = new ArrayList<>(numSources);
+    for (int i = 0; i < numSources; i++) {
+      sources.add(new TreeMap<>());
+    }
+    // round robin the keys so every source overlaps the whole range, the worst case for the heap
+    for (int i = 0; i < NUM_KEYS; i++) {
+      sources.get(i % numSources).put(keys[i], values[i]);
+    }
+  }
+
+  private MultiIterator newIterator() {
+    List<SortedKeyValueIterator<Key,Value>> iters = new ArrayList<>(numSources);
+    for (TreeMap<Key,Value> source : sources) {
+      iters.add(new SortedMapIterator(source));
+    }
+    return new MultiIterator(iters, true);
+  }
+
+  @Benchmark
+  public void mergeAll(Blackhole bh) throws IOException {
+    MultiIterator iter = newIterator();
+    iter.seek(new Range(), Set.of(), false);
+    while (iter.hasTop()) {
+      bh.consume(iter.getTopKey());
+      bh.consume(iter.getTopValue());
+      iter.next();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link Key#compareTo(Key)} and {@link Key#compareTo(Key, PartialKey)} on adjacent keys,
+ * which is the comparison pattern seen in merges, index lookups and the in-memory map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyBenchmark {
+
+  private static final int NUM_KEYS = 1 << 14;
+
+  @Param({"1", "16"})
+  public int colsPerRow;
+
+  private Key[] keys;
+
+  @Setup
+  public void setup() {
+    keys = KeyData.sortedKeys(NUM_KEYS, colsPerRow, 42);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS - 1)
+  public void compareTo(Blackhole bh) {
+    for (int i = 1; i < keys.length; i++) {
+      bh.consume(keys[i - 1].compareTo(keys[i]));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS - 1)
+  public void compareToRowColQual(Blackhole bh) {
+    for (int i = 1; i < keys.length; i++) {
+      bh.consume(keys[i - 1].compareTo(keys[i], PartialKey.ROW_COLFAM_COLQUAL));
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+
+/**
+ * Generates deterministic, sorted key/value data shaped like a typical wide table: monotonically
+ * increasing rows, a handful of column families, many qualifiers and a few visibilities.
+ */
+final class KeyData {
+
+  static final String[] FAMILIES = {"attr", "data", "idx", "meta"};
+  static final String[] VISIBILITIES = {"", "A", "A&B", "(A|B)&C", "B|C"};
+
+  private KeyData() {}
+
+  static Key[] sortedKeys(int count, int colsPerRow, long seed) {
+    Random random = new Random(seed);
+    Key[] keys = new Key[count];
+    for (int i = 0; i < count; i++) {
+      int row = i / colsPerRow;
+      int col = i % colsPerRow;
+      keys[i] = new Key(String.format("r%08d", row).getBytes(UTF_8),
+          FAMILIES[col % FAMILIES.length].getBytes(UTF_8),
+          String.format("q%05d", col).getBytes(UTF_8),
+          VISIBILITIES[random.nextInt(VISIBILITIES.length)].getBytes(UTF_8),
+          1_600_000_000_000L + random.nextInt(1000));
+    }
+    Arrays.sort(keys);
+    return keys;
+  }
+
+  static Value[] values(int count, int size, long seed) {
+    Random random = new Random(seed);
+    Value[] values = new Value[count];
+    for (int i = 0; i < count; i++) {
+      byte[] val = new byte[size];
+      random.nextBytes(val);
+      values[i] = new Value(val);
+    }
+    return values;
+  }
+}
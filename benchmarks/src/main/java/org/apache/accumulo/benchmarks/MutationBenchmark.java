@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.dataImpl.thrift.TMutation;
+import org.apache.accumulo.core.file.blockfile.impl.SeekableByteArrayInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building a {@link Mutation} and the serialization paths it takes through the client
+ * (Thrift) and the write-ahead log (Writable).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutationBenchmark {
+
+  @Param({"1", "16", "128"})
+  public int updatesPerMutation;
+
+  @Param({"32"})
+  public int valueSize;
+
+  private Key[] keys;
+  private Value[] values;
+  private Mutation mutation;
+  private TMutation tmutation;
+  private byte[] serialized;
+  private ByteArrayOutputStream baos;
+
+  @Setup
+  public void setup() throws IOException {
+    keys = KeyData.sortedKeys(updatesPerMutation, updatesPerMutation, 7);
+    values = KeyData.values(updatesPerMutation, valueSize, 7);
+    mutation = build();
+    tmutation = mutation.toThrift();
+    baos = new ByteArrayOutputStream();
+    serialized = write(mutation);
+  }
+
+  private Mutation build() {
+    Mutation m = new Mutation(keys[0].getRowData().toArray());
+    for (int i = 0; i < keys.length; i++) {
+      Key k = keys[i];
+      m.at().family(k.getColumnFamilyData().toArray())
+          .qualifier(k.getColumnQualifierData().toArray())
+          .visibility(k.getColumnVisibilityData().toArray()).timestamp(k.getTimestamp())
+          .put(values[i]);
+    }
+    return m;
+  }
+
+  private byte[] write(Mutation m) throws IOException {
+    baos.reset();
+    DataOutputStream out = new DataOutputStream(baos);
+    m.write(out);
+    out.flush();
+    return baos.toByteArray();
+  }
+
+  @Benchmark
+  public Mutation buildMutation() {
+    return build();
+  }
+
+  @Benchmark
+  public byte[] writeMutation() throws IOException {
+    return write(build());
+  }
+
+  @Benchmark
+  public Mutation readMutation() throws IOException {
+    Mutation m = new Mutation();
+    m.readFields(new DataInputStream(new SeekableByteArrayInputStream(serialized)));
+    return m;
+  }
+
+  @Benchmark
+  public TMutation toThrift() {
+    return build().toThrift();
+  }
+
+  @Benchmark
+  public int fromThrift() {
+    return new Mutation(tmutation).getUpdates().size();
+  }
+
+  @Benchmark
+  public int getUpdates() {
+    return new Mutation(mutation).getUpdates().size();
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachableBuilder;
+import org.apache.accumulo.core.file.rfile.RFile;
+import org.apache.accumulo.core.file.rfile.bcfile.BCFile;
+import org.apache.accumulo.core.spi.crypto.NoCryptoServiceFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures writing and reading an in-memory RFile, parameterized by data block size and compression
+ * codec so that changes to those settings can be compared between releases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RFileBenchmark {
+
+  private static final int NUM_KEYS = 1 << 16;
+  private static final int NUM_SEEKS = 256;
+
+  @Param({"none", "gz"})
+  public String compression;
+
+  @Param({"16384", "102400"})
+  public int blockSize;
+
+  @Param({"64"})
+  public int valueSize;
+
+  private final Configuration conf = new Configuration();
+  private Key[] keys;
+  private Value[] values;
+  private Key[] seekKeys;
+  private byte[] fileData;
+  private RFile.Reader reader;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    keys = KeyData.sortedKeys(NUM_KEYS, 8, 17);
+    values = KeyData.values(NUM_KEYS, valueSize, 17);
+    Random random = new Random(17);
+    seekKeys = new Key[NUM_SEEKS];
+    for (int i = 0; i < NUM_SEEKS; i++) {
+      seekKeys[i] = keys[random.nextInt(NUM_KEYS)];
+    }
+    fileData = write();
+    reader = openReader();
+  }
+
+  @TearDown(Level.Trial)
+  public void teardown() throws IOException {
+    reader.close();
+  }
+
+  private byte[] write() throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(NUM_KEYS * (valueSize + 48));
+    try (FSDataOutputStream dos = new FSDataOutputStream(baos, new FileSystem.Statistics("bm"))) {
+      BCFile.Writer bcw =
+          new BCFile.Writer(dos, null, compression, conf, NoCryptoServiceFactory.NONE);
+      RFile.Writer writer = new RFile.Writer(bcw, blockSize);
+      writer.startDefaultLocalityGroup();
+      for (int i = 0; i < NUM_KEYS; i++) {
+        writer.append(keys[i], values[i]);
+      }
+      writer.close();
+    }
+    return baos.toByteArray();
+  }
+
+  private RFile.Reader openReader() throws IOException {
+    FSDataInputStream in = new FSDataInputStream(new SeekableByteArrayInputStream(fileData));
+    CachableBuilder cb = new CachableBuilder().input(in, "benchmark").length(fileData.length)
+        .conf(conf).cryptoService(NoCryptoServiceFactory.NONE);
+    return new RFile.Reader(cb);
+  }
+
+  @Benchmark
+  public byte[] append() throws IOException {
+    return write();
+  }
+
+  @Benchmark
+  public void scanAll(Blackhole bh) throws IOException {
+    reader.seek(new Range(), Set.of(), false);
+    while (reader.hasTop()) {
+      bh.consume(reader.getTopKey());
+      bh.consume(reader.getTopValue());
+      reader.next();
+    }
+  }
+
+  @Benchmark
+  public void seekAndNext(Blackhole bh) throws IOException {
+    for (Key seekKey : seekKeys) {
+      reader.seek(new Range(seekKey, null), Set.of(), false);
+      for (int i = 0; i < 10 && reader.hasTop(); i++) {
+        bh.consume(reader.getTopKey());
+        reader.next();
+      }
+    }
+  }
+}
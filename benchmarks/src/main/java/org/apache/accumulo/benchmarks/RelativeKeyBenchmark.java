@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.file.blockfile.impl.SeekableByteArrayInputStream;
+import org.apache.accumulo.core.file.rfile.RelativeKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the prefix/delta encoding that RFile data blocks use for every key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelativeKeyBenchmark {
+
+  private static final int NUM_KEYS = 1 << 14;
+
+  @Param({"1", "16"})
+  public int colsPerRow;
+
+  private Key[] keys;
+  private byte[] encoded;
+  private ByteArrayOutputStream baos;
+
+  @Setup
+  public void setup() throws IOException {
+    keys = KeyData.sortedKeys(NUM_KEYS, colsPerRow, 42);
+    baos = new ByteArrayOutputStream(NUM_KEYS * 64);
+    encoded = encode();
+  }
+
+  private byte[] encode() throws IOException {
+    baos.reset();
+    DataOutputStream out = new DataOutputStream(baos);
+    Key prev = null;
+    for (Key key : keys) {
+      new RelativeKey(prev, key).write(out);
+      prev = key;
+    }
+    out.flush();
+    return baos.toByteArray();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public byte[] encodeKeys() throws IOException {
+    return encode();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public void decodeKeys(Blackhole bh) throws IOException {
+    DataInputStream in = new DataInputStream(new SeekableByteArrayInputStream(encoded));
+    RelativeKey rk = new RelativeKey();
+    for (int i = 0; i < NUM_KEYS; i++) {
+      rk.readFields(in);
+      bh.consume(rk.getKey());
+    }
+  }
+}
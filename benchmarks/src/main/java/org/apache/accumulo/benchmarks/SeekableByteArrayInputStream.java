@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.hadoop.fs.PositionedReadable;
+import org.apache.hadoop.fs.Seekable;
+
+/**
+ * A byte array backed stream that can be wrapped by an FSDataInputStream, so RFiles can be read
+ * from memory without a file system.
+ */
+class SeekableByteArrayInputStream extends ByteArrayInputStream
+    implements Seekable, PositionedReadable {
+
+  SeekableByteArrayInputStream(byte[] buf) {
+    super(buf);
+  }
+
+  @Override
+  public long getPos() {
+    return pos;
+  }
+
+  @Override
+  public void seek(long pos) throws IOException {
+    if (pos < 0 || pos > buf.length)
+      throw new IOException("Invalid seek position " + pos);
+    this.pos = (int) pos;
+  }
+
+  @Override
+  public boolean seekToNewSource(long targetPos) {
+    return false;
+  }
+
+  @Override
+  public int read(long position, byte[] buffer, int offset, int length) {
+    if (position + length > buf.length)
+      throw new IllegalArgumentException();
+    System.arraycopy(buf, (int) position, buffer, offset, length);
+    return length;
+  }
+
+  @Override
+  public void readFully(long position, byte[] buffer) {
+    read(position, buffer, 0, buffer.length);
+  }
+
+  @Override
+  public void readFully(long position, byte[] buffer, int offset, int length) {
+    read(position, buffer, offset, length);
+  }
+}
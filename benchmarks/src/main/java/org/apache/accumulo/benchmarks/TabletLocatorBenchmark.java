@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.clientImpl.ClientContext;
+import org.apache.accumulo.core.clientImpl.TabletLocator;
+import org.apache.accumulo.core.clientImpl.TabletLocator.TabletLocation;
+import org.apache.accumulo.core.clientImpl.TabletLocator.TabletLocations;
+import org.apache.accumulo.core.clientImpl.TabletLocator.TabletServerMutations;
+import org.apache.accumulo.core.clientImpl.TabletLocatorImpl;
+import org.apache.accumulo.core.clientImpl.TabletLocatorImpl.TabletLocationObtainer;
+import org.apache.accumulo.core.clientImpl.TabletLocatorImpl.TabletServerLockChecker;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.metadata.MetadataTable;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many batches of mutations and ranges {@link TabletLocatorImpl} can bin per second
+ * from its cache as the number of threads binning at once grows. The locations are served by an in
+ * memory metadata table, so only the cost of the cache and its locking is measured. One benchmark
+ * also invalidates a tablet location with each batch, the way a writer does after a tablet moves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TabletLocatorBenchmark {
+
+  private static final TableId TABLE_ID = TableId.of("1");
+
+  @Param({"1000"})
+  public int tablets;
+
+  @Param({"1000"})
+  public int batchSize;
+
+  private List<TabletLocation> locations;
+  private TabletLocatorImpl locator;
+  private List<Mutation> mutations;
+  private List<Range> ranges;
+
+  private static Text row(int i) {
+    return new Text(String.format("r%08d", i));
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    int rowsPerTablet = 1000;
+    locations = new ArrayList<>(tablets);
+    for (int i = 0; i < tablets; i++) {
+      Text prevEndRow = i == 0 ? null : row(i * rowsPerTablet);
+      Text endRow = i == tablets - 1 ? null : row((i + 1) * rowsPerTablet);
+      locations.add(new TabletLocation(new KeyExtent(TABLE_ID, endRow, prevEndRow),
+          "tserver" + (i % 64) + ":9997", "1"));
+    }
+
+    TabletLocation metadataLocation =
+        new TabletLocation(new KeyExtent(MetadataTable.ID, null, null), "tserver0:9997", "1");
+
+    TabletLocator parent = new TabletLocator() {
+      @Override
+      public TabletLocation locateTablet(ClientContext context, Text row, boolean skipRow,
+          boolean retry) {
+        return metadataLocation;
+      }
+
+      @Override
+      public <T extends Mutation> void binMutations(ClientContext context, List<T> mutations,
+          Map<String,TabletServerMutations<T>> binnedMutations, List<T> failures) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public List<Range> binRanges(ClientContext context, List<Range> ranges,
+          Map<String,Map<KeyExtent,List<Range>>> binnedRanges) {
+        binnedRanges.computeIfAbsent(metadataLocation.tablet_location, k -> new HashMap<>())
+            .computeIfAbsent(metadataLocation.tablet_extent, k -> new ArrayList<>()).addAll(ranges);
+        return List.of();
+      }
+
+      @Override
+      public void invalidateCache(KeyExtent failedExtent) {}
+
+      @Override
+      public void invalidateCache(Collection<KeyExtent> keySet) {}
+
+      @Override
+      public void invalidateCache() {}
+
+      @Override
+      public void invalidateCache(ClientContext context, String server) {}
+    };
+
+    TabletLocationObtainer obtainer = new TabletLocationObtainer() {
+      @Override
+      public TabletLocations lookupTablet(ClientContext context, TabletLocation src, Text row,
+          Text stopRow, TabletLocator parent) {
+        return new TabletLocations(locations, List.of());
+      }
+
+      @Override
+      public List<TabletLocation> lookupTablets(ClientContext context, String tserver,
+          Map<KeyExtent,List<Range>> map, TabletLocator parent) {
+        List<TabletLocation> found = new ArrayList<>();
+        for (List<Range> metaRanges : map.values()) {
+          for (TabletLocation location : locations) {
+            Key metaRow = new Key(location.tablet_extent.toMetaRow());
+            if (metaRanges.stream().anyMatch(range -> range.contains(metaRow))) {
+              found.add(location);
+            }
+          }
+        }
+        return found;
+      }
+    };
+
+    TabletServerLockChecker lockChecker = new TabletServerLockChecker() {
+      @Override
+      public boolean isLockHeld(String tserver, String session) {
+        return true;
+      }
+
+      @Override
+      public void invalidateCache(String server) {}
+    };
+
+    locator = new TabletLocatorImpl(TABLE_ID, parent, obtainer, lockChecker);
+
+    Random random = new Random(7);
+    mutations = new ArrayList<>(batchSize);
+    ranges = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++) {
+      Text row = row(random.nextInt(tablets * rowsPerTablet));
+      Mutation m = new Mutation(row);
+      m.put("f", "q", "v");
+      mutations.add(m);
+      ranges.add(new Range(row));
+    }
+
+    // load every location into the cache
+    binMutations();
+  }
+
+  private Map<String,TabletServerMutations<Mutation>> binMutations() throws Exception {
+    Map<String,TabletServerMutations<Mutation>> binned = new HashMap<>();
+    List<Mutation> failures = new ArrayList<>();
+    locator.binMutations(null, mutations, binned, failures);
+    if (!failures.isEmpty()) {
+      throw new IllegalStateException("Failed to bin " + failures.size() + " mutations");
+    }
+    return binned;
+  }
+
+  private Map<String,Map<KeyExtent,List<Range>>> binRanges() throws Exception {
+    Map<String,Map<KeyExtent,List<Range>>> binned = new HashMap<>();
+    List<Range> failures = locator.binRanges(null, ranges, binned);
+    if (!failures.isEmpty()) {
+      throw new IllegalStateException("Failed to bin " + failures.size() + " ranges");
+    }
+    return binned;
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object binMutations01Thread() throws Exception {
+    return binMutations();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object binMutations04Threads() throws Exception {
+    return binMutations();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public Object binMutations16Threads() throws Exception {
+    return binMutations();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public Object binMutations64Threads() throws Exception {
+    return binMutations();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Object binRanges01Thread() throws Exception {
+    return binRanges();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object binRanges04Threads() throws Exception {
+    return binRanges();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public Object binRanges16Threads() throws Exception {
+    return binRanges();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public Object binRanges64Threads() throws Exception {
+    return binRanges();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public Object binMutationsWhileInvalidating16Threads() throws Exception {
+    locator.invalidateCache(
+        locations.get(ThreadLocalRandom.current().nextInt(locations.size())).tablet_extent);
+    return binMutations();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.benchmarks;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.VisibilityFilter;
+import org.apache.accumulo.core.security.Authorizations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the system {@link VisibilityFilter} that every scan goes through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisibilityFilterBenchmark {
+
+  private static final int NUM_KEYS = 1 << 16;
+
+  /** comma separated authorizations, empty means the scan has no authorizations */
+  @Param({"", "A", "A,B,C"})
+  public String auths;
+
+  private TreeMap<Key,Value> data;
+  private Authorizations authorizations;
+
+  @Setup
+  public void setup() {
+    Key[] keys = KeyData.sortedKeys(NUM_KEYS, 8, 13);
+    Value[] values = KeyData.values(NUM_KEYS, 16, 13);
+    data = new TreeMap<>();
+    for (int i = 0; i < NUM_KEYS; i++) {
+      data.put(keys[i], values[i]);
+    }
+    authorizations = auths.isEmpty() ? Authorizations.EMPTY : new Authorizations(auths.split(","));
+  }
+
+  @Benchmark
+  public void filter(Blackhole bh) throws IOException {
+    SortedKeyValueIterator<Key,Value> iter =
+        VisibilityFilter.wrap(new SortedMapIterator(data), authorizations, new byte[0]);
+    iter.seek(new Range(), Set.of(), false);
+    while (iter.hasTop()) {
+      bh.consume(iter.getTopKey());
+      iter.next();
+    }
+  }
+}
@@ -319,6 +319,21 @@ public interface AccumuloClient extends AutoCloseable {
    */
   InstanceOperations instanceOperations();
 
+  /**
+   * Retrieves an AsyncOperations object to read and write data without blocking the calling thread.
+   * Clients created with {@link Accumulo#newClient()} support this. The default implementation
+   * throws {@link UnsupportedOperationException}.
+   *
+   * @return an object to asynchronously read and write data
+   * @throws UnsupportedOperationException
+   *           if this client does not support asynchronous operations
+   * @since 2.1.0
+   */
+  default AsyncOperations asyncOperations() {
+    throw new UnsupportedOperationException(
+        getClass().getName() + " does not support asynchronous operations");
+  }
+
   /**
    * Retrieves a ReplicationOperations object to manage replication configuration.
    *
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.client;
+
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+
+/**
+ * Reads and writes data without blocking the calling thread. Work is done on a small pool of
+ * threads shared by everything submitted through a client, so a large number of operations can be
+ * in flight at once without a thread waiting on each of them.
+ *
+ * <p>
+ * Lookups submitted while others for the same table and authorizations are in progress are gathered
+ * and sent together as a single batch scan. Likewise, mutations submitted while a write to the same
+ * table is in progress are sent and flushed together. The size of the shared pool is set by the
+ * {@code async.threads.max} client property.
+ *
+ * @since 2.1.0
+ */
+public interface AsyncOperations {
+
+  /**
+   * Reads all of the entries in a range.
+   *
+   * @param tableName
+   *          the name of the table to read
+   * @param authorizations
+   *          the authorizations to read with
+   * @param range
+   *          the range to read
+   * @return a future that completes with the entries in the range in sorted order, or exceptionally
+   *         if the read fails. A {@link TableNotFoundException} is reported through the future.
+   */
+  CompletableFuture<List<Entry<Key,Value>>> lookup(String tableName, Authorizations authorizations,
+      Range range);
+
+  /**
+   * Writes a mutation.
+   *
+   * @param tableName
+   *          the name of the table to write to
+   * @param mutation
+   *          the mutation to write, which must not be changed after it is passed to this method
+   * @return a future that completes once the mutation has been written to the tablet server, or
+   *         exceptionally if the write fails. A {@link TableNotFoundException} or
+   *         {@link MutationsRejectedException} is reported through the future.
+   */
+  CompletableFuture<Void> write(String tableName, Mutation mutation);
+
+  /**
+   * Publishes the entries read by a scanner. Each subscription iterates the scanner once, reading
+   * only as many entries as the subscriber has requested. Entries are delivered in the order the
+   * scanner returns them. The scanner must not be used or closed while a subscription is active.
+   *
+   * @param scanner
+   *          a configured {@link Scanner} or {@link BatchScanner}
+   * @return a publisher of the entries read by the scanner
+   */
+  Flow.Publisher<Entry<Key,Value>> scan(ScannerBase scanner);
+}
@@ -73,4 +73,32 @@ public interface BatchScanner extends ScannerBase {
    */
   @Override
   void setTimeout(long timeout, TimeUnit timeUnit);
+
+  /**
+   * When enabled, the iterator returns entries in sorted order, so the BatchScanner can be used
+   * where sorted output is needed without sorting on the client. Tablets are still looked up in
+   * parallel, but only a bounded window of tablets after the one being returned is read ahead and
+   * buffered. The memory used by the buffered entries is bounded by the client property
+   * {@code batch.scanner.ordered.buffer.max}.
+   *
+   * <p>
+   * Ordered results are read from tablet servers only, so this can not be combined with
+   * {@link ConsistencyLevel#EVENTUAL}. By default results are not ordered.
+   *
+   * @param ordered
+   *          true to return entries in sorted order
+   * @since 2.1.0
+   */
+  default void setOrdered(boolean ordered) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * @return true if entries are returned in sorted order
+   * @see #setOrdered(boolean)
+   * @since 2.1.0
+   */
+  default boolean isOrdered() {
+    return false;
+  }
 }
@@ -22,6 +22,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.apache.accumulo.core.conf.ClientProperty.BATCH_WRITER_LATENCY_MAX;
 import static org.apache.accumulo.core.conf.ClientProperty.BATCH_WRITER_MEMORY_MAX;
+import static org.apache.accumulo.core.conf.ClientProperty.BATCH_WRITER_PIPELINE_DEPTH;
 import static org.apache.accumulo.core.conf.ClientProperty.BATCH_WRITER_THREADS_MAX;
 import static org.apache.accumulo.core.conf.ClientProperty.BATCH_WRITER_TIMEOUT_MAX;
 
@@ -60,6 +61,10 @@ public class BatchWriterConfig implements Writable {
       Integer.parseInt(BATCH_WRITER_THREADS_MAX.getDefaultValue());
   private Integer maxWriteThreads = null;
 
+  private static final Integer DEFAULT_PIPELINE_DEPTH =
+      Integer.parseInt(BATCH_WRITER_PIPELINE_DEPTH.getDefaultValue());
+  private Integer pipelineDepth = null;
+
   private Durability durability = Durability.DEFAULT;
   private boolean isDurabilitySet = false;
 
@@ -183,6 +188,32 @@ public class BatchWriterConfig implements Writable {
     return this;
   }
 
+  /**
+   * Sets the maximum number of batches of mutations sent to a tablet server in a single update
+   * session before waiting for the tablet server to acknowledge them. While a batch is being sent
+   * to a tablet server, mutations for it keep accumulating, and with a depth greater than one they
+   * are sent as further batches in the same session instead of waiting a round trip for the session
+   * to close first. This helps throughput on high latency links, at the cost of holding the memory
+   * of the mutations in the session until it is acknowledged.
+   *
+   * <p>
+   * <b>Default:</b> 1
+   *
+   * @param pipelineDepth
+   *          the maximum number of batches per update session
+   * @throws IllegalArgumentException
+   *           if {@code pipelineDepth} is non-positive
+   * @return {@code this} to allow chaining of set methods
+   * @since 2.1.0
+   */
+  public BatchWriterConfig setPipelineDepth(int pipelineDepth) {
+    if (pipelineDepth <= 0)
+      throw new IllegalArgumentException("Pipeline depth must be positive " + pipelineDepth);
+
+    this.pipelineDepth = pipelineDepth;
+    return this;
+  }
+
   public long getMaxMemory() {
     return maxMemory != null ? maxMemory : DEFAULT_MAX_MEMORY;
   }
@@ -199,6 +230,14 @@ public class BatchWriterConfig implements Writable {
     return maxWriteThreads != null ? maxWriteThreads : DEFAULT_MAX_WRITE_THREADS;
   }
 
+  /**
+   * @since 2.1.0
+   * @return the maximum number of batches sent to a tablet server in a single update session
+   */
+  public int getPipelineDepth() {
+    return pipelineDepth != null ? pipelineDepth : DEFAULT_PIPELINE_DEPTH;
+  }
+
   /**
    * @since 1.7.0
    * @return the durability to be used by the BatchWriter
@@ -233,6 +272,8 @@ public class BatchWriterConfig implements Writable {
       addField(fields, "maxLatency", maxLatency);
     if (maxWriteThreads != null)
       addField(fields, "maxWriteThreads", maxWriteThreads);
+    if (pipelineDepth != null)
+      addField(fields, "pipelineDepth", pipelineDepth);
     if (timeout != null)
       addField(fields, "timeout", timeout);
     if (durability != Durability.DEFAULT)
@@ -276,6 +317,8 @@ public class BatchWriterConfig implements Writable {
         maxLatency = Long.valueOf(value);
       } else if ("maxWriteThreads".equals(key)) {
         maxWriteThreads = Integer.valueOf(value);
+      } else if ("pipelineDepth".equals(key)) {
+        pipelineDepth = Integer.valueOf(value);
       } else if ("timeout".equals(key)) {
         timeout = Long.valueOf(value);
       } else if ("durability".equals(key)) {
@@ -321,6 +364,16 @@ public class BatchWriterConfig implements Writable {
         }
       }
 
+      if (pipelineDepth != null) {
+        if (!pipelineDepth.equals(other.pipelineDepth)) {
+          return false;
+        }
+      } else {
+        if (other.pipelineDepth != null) {
+          return false;
+        }
+      }
+
       if (timeout != null) {
         if (!timeout.equals(other.timeout)) {
           return false;
@@ -357,6 +410,7 @@ public class BatchWriterConfig implements Writable {
     result.maxLatency = merge(this.maxLatency, other.maxLatency);
     result.timeout = merge(this.timeout, other.timeout);
     result.maxWriteThreads = merge(this.maxWriteThreads, other.maxWriteThreads);
+    result.pipelineDepth = merge(this.pipelineDepth, other.pipelineDepth);
     if (this.isDurabilitySet) {
       result.durability = this.durability;
     } else if (other.isDurabilitySet) {
@@ -368,8 +422,8 @@ public class BatchWriterConfig implements Writable {
   @Override
   public int hashCode() {
     HashCodeBuilder hcb = new HashCodeBuilder();
-    hcb.append(maxMemory).append(maxLatency).append(maxWriteThreads).append(timeout)
-        .append(durability);
+    hcb.append(maxMemory).append(maxLatency).append(maxWriteThreads).append(pipelineDepth)
+        .append(timeout).append(durability);
     return hcb.toHashCode();
   }
 
@@ -378,8 +432,9 @@ public class BatchWriterConfig implements Writable {
     StringBuilder sb = new StringBuilder(32);
     sb.append("[maxMemory=").append(getMaxMemory()).append(", maxLatency=")
         .append(getMaxLatency(MILLISECONDS)).append(", maxWriteThreads=")
-        .append(getMaxWriteThreads()).append(", timeout=").append(getTimeout(MILLISECONDS))
-        .append(", durability=").append(durability).append("]");
+        .append(getMaxWriteThreads()).append(", pipelineDepth=").append(getPipelineDepth())
+        .append(", timeout=").append(getTimeout(MILLISECONDS)).append(", durability=")
+        .append(durability).append("]");
     return sb.toString();
   }
 }
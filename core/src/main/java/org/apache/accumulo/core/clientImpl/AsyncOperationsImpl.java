@@ -0,0 +1,523 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.AsyncOperations;
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.MutationsRejectedException;
+import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.conf.ClientProperty;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.core.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class AsyncOperationsImpl implements AsyncOperations {
+
+  private static final Logger log = LoggerFactory.getLogger(AsyncOperationsImpl.class);
+
+  // the most lookups sent in one batch scan
+  static final int MAX_LOOKUP_BATCH = 1000;
+  // the most entries a scan subscription delivers before giving up its thread
+  static final int MAX_ENTRIES_PER_TASK = 1000;
+
+  interface ScannerFactory {
+    BatchScanner create(String tableName, Authorizations authorizations)
+        throws TableNotFoundException;
+  }
+
+  interface WriterFactory {
+    BatchWriter create(String tableName) throws TableNotFoundException;
+  }
+
+  private final ScannerFactory scannerFactory;
+  private final WriterFactory writerFactory;
+  private final Executor executor;
+  private final ThreadPoolExecutor ownedPool;
+
+  private final ConcurrentHashMap<Pair<String,Authorizations>,LookupQueue> lookupQueues =
+      new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String,WriteQueue> writeQueues = new ConcurrentHashMap<>();
+  private volatile boolean closed = false;
+
+  AsyncOperationsImpl(ClientContext context) {
+    this.scannerFactory = context::createBatchScanner;
+    this.writerFactory = context::createBatchWriter;
+    int threads = ClientProperty.ASYNC_THREADS_MAX.getInteger(context.getProperties());
+    this.ownedPool = context.threadPools().createFixedThreadPool(threads, 3, SECONDS,
+        "Accumulo async client thread", true);
+    this.executor = ownedPool;
+  }
+
+  AsyncOperationsImpl(ScannerFactory scannerFactory, WriterFactory writerFactory,
+      Executor executor) {
+    this.scannerFactory = scannerFactory;
+    this.writerFactory = writerFactory;
+    this.executor = executor;
+    this.ownedPool = null;
+  }
+
+  @Override
+  public CompletableFuture<List<Entry<Key,Value>>> lookup(String tableName,
+      Authorizations authorizations, Range range) {
+    Objects.requireNonNull(tableName, "tableName is null");
+    Objects.requireNonNull(authorizations, "authorizations is null");
+    Objects.requireNonNull(range, "range is null");
+    Lookup lookup = new Lookup(range);
+    lookupQueues.computeIfAbsent(new Pair<>(tableName, authorizations), LookupQueue::new)
+        .add(lookup);
+    return lookup.future;
+  }
+
+  @Override
+  public CompletableFuture<Void> write(String tableName, Mutation mutation) {
+    Objects.requireNonNull(tableName, "tableName is null");
+    Objects.requireNonNull(mutation, "mutation is null");
+    PendingWrite write = new PendingWrite(mutation);
+    writeQueues.computeIfAbsent(tableName, WriteQueue::new).add(write);
+    return write.future;
+  }
+
+  @Override
+  public Flow.Publisher<Entry<Key,Value>> scan(ScannerBase scanner) {
+    Objects.requireNonNull(scanner, "scanner is null");
+    return subscriber -> {
+      Objects.requireNonNull(subscriber, "subscriber is null");
+      subscriber.onSubscribe(new ScanSubscription(scanner, subscriber));
+    };
+  }
+
+  /**
+   * Closes the writers held for tables and stops the threads used by these operations. Operations
+   * that were not started, or are started after this, fail.
+   */
+  void close() {
+    closed = true;
+    if (ownedPool != null) {
+      ownedPool.shutdownNow();
+    }
+    lookupQueues.values().forEach(LookupQueue::close);
+    writeQueues.values().forEach(WriteQueue::close);
+  }
+
+  private static IllegalStateException closedException() {
+    return new IllegalStateException("This client was closed.");
+  }
+
+  private static class Lookup {
+    final Range range;
+    final List<Entry<Key,Value>> entries = new ArrayList<>();
+    final CompletableFuture<List<Entry<Key,Value>>> future = new CompletableFuture<>();
+
+    Lookup(Range range) {
+      this.range = range;
+    }
+  }
+
+  /**
+   * Runs queued lookups for a table and set of authorizations, one batch scan at a time. Lookups
+   * queued while a batch scan is running are sent together in the next batch scan.
+   */
+  private class LookupQueue {
+    private final String tableName;
+    private final Authorizations authorizations;
+    private final ArrayDeque<Lookup> pending = new ArrayDeque<>();
+    private boolean running = false;
+
+    LookupQueue(Pair<String,Authorizations> key) {
+      this.tableName = key.getFirst();
+      this.authorizations = key.getSecond();
+    }
+
+    void add(Lookup lookup) {
+      synchronized (this) {
+        if (closed) {
+          lookup.future.completeExceptionally(closedException());
+          return;
+        }
+        pending.add(lookup);
+        if (running) {
+          return;
+        }
+        running = true;
+      }
+      try {
+        executor.execute(this::run);
+      } catch (RejectedExecutionException e) {
+        failPending(e);
+      }
+    }
+
+    /**
+     * Fails the lookups that have not been sent, and lets the next lookup added start a new task.
+     */
+    private synchronized void failPending(Exception e) {
+      running = false;
+      pending.forEach(lookup -> lookup.future.completeExceptionally(e));
+      pending.clear();
+    }
+
+    void close() {
+      failPending(closedException());
+    }
+
+    private void run() {
+      while (true) {
+        List<Lookup> batch;
+        synchronized (this) {
+          if (pending.isEmpty()) {
+            running = false;
+            return;
+          }
+          batch = new ArrayList<>(Math.min(pending.size(), MAX_LOOKUP_BATCH));
+          while (!pending.isEmpty() && batch.size() < MAX_LOOKUP_BATCH) {
+            batch.add(pending.poll());
+          }
+        }
+        runBatch(batch);
+      }
+    }
+
+    private void runBatch(List<Lookup> batch) {
+      try {
+        LookupRouter router = new LookupRouter(batch);
+        try (BatchScanner scanner = scannerFactory.create(tableName, authorizations)) {
+          List<Range> ranges = new ArrayList<>(batch.size());
+          batch.forEach(lookup -> ranges.add(lookup.range));
+          scanner.setRanges(ranges);
+          for (Entry<Key,Value> entry : scanner) {
+            router.route(entry);
+          }
+        }
+        Comparator<Entry<Key,Value>> order = Entry.comparingByKey();
+        for (Lookup lookup : batch) {
+          lookup.entries.sort(order);
+          lookup.future.complete(Collections.unmodifiableList(lookup.entries));
+        }
+      } catch (Exception e) {
+        log.debug("Failed lookups on table {}", tableName, e);
+        batch.forEach(lookup -> lookup.future.completeExceptionally(e));
+      }
+    }
+  }
+
+  /**
+   * Finds the lookups whose ranges contain each entry returned by a batch scan. The ranges are
+   * sorted by start key, and for each range the range with the greatest end key at or before it is
+   * tracked, so the search for containing ranges can stop as soon as no earlier range could reach
+   * the entry.
+   */
+  static class LookupRouter {
+    private final Lookup[] lookups;
+    // the index of the range with the greatest end key among lookups[0..i]
+    private final int[] furthestEnd;
+
+    LookupRouter(List<Lookup> batch) {
+      lookups = batch.toArray(new Lookup[0]);
+      Arrays.sort(lookups, Comparator.comparing(lookup -> lookup.range));
+      furthestEnd = new int[lookups.length];
+      for (int i = 0; i < lookups.length; i++) {
+        furthestEnd[i] =
+            i == 0 || compareEnds(lookups[i].range, lookups[furthestEnd[i - 1]].range) > 0 ? i
+                : furthestEnd[i - 1];
+      }
+    }
+
+    private static int compareEnds(Range r1, Range r2) {
+      if (r1.isInfiniteStopKey() || r2.isInfiniteStopKey()) {
+        return Boolean.compare(r1.isInfiniteStopKey(), r2.isInfiniteStopKey());
+      }
+      int result = r1.getEndKey().compareTo(r2.getEndKey());
+      if (result == 0) {
+        result = Boolean.compare(r1.isEndKeyInclusive(), r2.isEndKeyInclusive());
+      }
+      return result;
+    }
+
+    void route(Entry<Key,Value> entry) {
+      Key key = entry.getKey();
+      // find the last range that starts at or before the key
+      int low = 0;
+      int high = lookups.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (lookups[mid].range.beforeStartKey(key)) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      for (int i = low - 1; i >= 0; i--) {
+        if (lookups[furthestEnd[i]].range.afterEndKey(key)) {
+          break;
+        }
+        if (lookups[i].range.contains(key)) {
+          lookups[i].entries.add(entry);
+        }
+      }
+    }
+  }
+
+  private static class PendingWrite {
+    final Mutation mutation;
+    final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    PendingWrite(Mutation mutation) {
+      this.mutation = mutation;
+    }
+  }
+
+  /**
+   * Writes queued mutations for a table. Mutations queued while a flush is running are added and
+   * flushed together once it finishes.
+   */
+  private class WriteQueue {
+    private final String tableName;
+    private final ArrayDeque<PendingWrite> pending = new ArrayDeque<>();
+    private boolean running = false;
+    // guards the writer, separate from the lock on the queue so writes can be added while the
+    // writer flushes
+    private final Object writerLock = new Object();
+    private BatchWriter writer;
+
+    WriteQueue(String tableName) {
+      this.tableName = tableName;
+    }
+
+    void add(PendingWrite write) {
+      synchronized (this) {
+        if (closed) {
+          write.future.completeExceptionally(closedException());
+          return;
+        }
+        pending.add(write);
+        if (running) {
+          return;
+        }
+        running = true;
+      }
+      try {
+        executor.execute(this::run);
+      } catch (RejectedExecutionException e) {
+        failPending(e);
+      }
+    }
+
+    /**
+     * Fails the writes that have not been added to the writer, and lets the next write added start
+     * a new task.
+     */
+    private synchronized void failPending(Exception e) {
+      running = false;
+      pending.forEach(write -> write.future.completeExceptionally(e));
+      pending.clear();
+    }
+
+    private void run() {
+      while (true) {
+        List<PendingWrite> batch;
+        synchronized (this) {
+          if (pending.isEmpty()) {
+            running = false;
+            return;
+          }
+          batch = new ArrayList<>(pending);
+          pending.clear();
+        }
+        runBatch(batch);
+      }
+    }
+
+    private void runBatch(List<PendingWrite> batch) {
+      synchronized (writerLock) {
+        if (closed) {
+          batch.forEach(write -> write.future.completeExceptionally(closedException()));
+          return;
+        }
+        writeBatch(batch);
+      }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+      List<PendingWrite> added = new ArrayList<>(batch.size());
+      try {
+        if (writer == null) {
+          writer = writerFactory.create(tableName);
+        }
+        for (PendingWrite write : batch) {
+          try {
+            writer.addMutation(write.mutation);
+            added.add(write);
+          } catch (IllegalArgumentException e) {
+            // an invalid mutation, such as one without any changes
+            write.future.completeExceptionally(e);
+          }
+        }
+        writer.flush();
+        added.forEach(write -> write.future.complete(null));
+      } catch (Exception e) {
+        log.debug("Failed writes to table {}", tableName, e);
+        // a writer that failed will not accept more mutations, so start again with a new one
+        closeWriter();
+        batch.forEach(write -> write.future.completeExceptionally(e));
+      }
+    }
+
+    private void closeWriter() {
+      if (writer != null) {
+        try {
+          writer.close();
+        } catch (MutationsRejectedException | RuntimeException e) {
+          log.debug("Failed to close writer for table {}", tableName, e);
+        } finally {
+          writer = null;
+        }
+      }
+    }
+
+    void close() {
+      failPending(closedException());
+      synchronized (writerLock) {
+        closeWriter();
+      }
+    }
+  }
+
+  /**
+   * Delivers the entries of a scanner to a subscriber as they are requested. Delivery happens on
+   * the shared executor, never on more than one thread at a time, and a task hands its thread back
+   * after {@link #MAX_ENTRIES_PER_TASK} entries so long scans can not hold threads other operations
+   * need.
+   */
+  private class ScanSubscription implements Flow.Subscription {
+    private final ScannerBase scanner;
+    private final Flow.Subscriber<? super Entry<Key,Value>> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    // the number of requests to deliver that have not been seen by a delivery task
+    private final AtomicInteger work = new AtomicInteger();
+    private volatile boolean done = false;
+    private Iterator<Entry<Key,Value>> iterator;
+
+    ScanSubscription(ScannerBase scanner, Flow.Subscriber<? super Entry<Key,Value>> subscriber) {
+      this.scanner = scanner;
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        fail(new IllegalArgumentException("Requested " + n + " entries, must request at least 1"));
+        return;
+      }
+      demand.accumulateAndGet(n, (current, added) -> {
+        long sum = current + added;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+      });
+      if (work.getAndIncrement() == 0) {
+        execute();
+      }
+    }
+
+    private void execute() {
+      try {
+        executor.execute(this::deliver);
+      } catch (RejectedExecutionException e) {
+        fail(e);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      done = true;
+    }
+
+    private void fail(Throwable t) {
+      if (!done) {
+        done = true;
+        subscriber.onError(t);
+      }
+    }
+
+    private void deliver() {
+      int seen = work.get();
+      while (true) {
+        long requested = demand.get();
+        long delivered = 0;
+        try {
+          if (iterator == null && !done) {
+            iterator = scanner.iterator();
+          }
+          while (delivered < requested && delivered < MAX_ENTRIES_PER_TASK && !done) {
+            if (!iterator.hasNext()) {
+              done = true;
+              subscriber.onComplete();
+              return;
+            }
+            subscriber.onNext(iterator.next());
+            delivered++;
+          }
+        } catch (RuntimeException e) {
+          fail(e);
+          return;
+        }
+        if (done) {
+          return;
+        }
+        if (requested != Long.MAX_VALUE) {
+          demand.addAndGet(-delivered);
+        }
+        if (delivered == MAX_ENTRIES_PER_TASK) {
+          // keep the work count so no other task starts, and continue in a new task
+          execute();
+          return;
+        }
+        seen = work.addAndGet(-seen);
+        if (seen == 0) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the observed latency and result size of the multi scans a batch reader sends to each
+ * server. The estimates are exponentially weighted moving averages that are kept for the life of
+ * the batch reader, so later iterators benefit from what earlier ones observed. They are used to
+ * decide how many concurrent requests each server is sent and how far ahead an ordered batch reader
+ * reads.
+ */
+final class BatchReaderServerStats {
+
+  // the weight given to the newest observation
+  static final double ALPHA = 0.3;
+
+  private static class Estimate {
+    double millisPerTablet;
+    double bytesPerTablet;
+    double latestMillisPerTablet;
+
+    Estimate(double millisPerTablet, double bytesPerTablet) {
+      this.millisPerTablet = millisPerTablet;
+      this.bytesPerTablet = bytesPerTablet;
+      this.latestMillisPerTablet = millisPerTablet;
+    }
+  }
+
+  private final Map<String,Estimate> estimates = new ConcurrentHashMap<>();
+
+  /**
+   * Record a completed multi scan.
+   *
+   * @param server
+   *          the server that was scanned
+   * @param tablets
+   *          the number of tablets in the request
+   * @param elapsedMillis
+   *          the time spent waiting on the server, excluding time spent blocked on the consumer
+   * @param bytes
+   *          the size of the keys and values returned
+   */
+  void record(String server, int tablets, long elapsedMillis, long bytes) {
+    if (tablets <= 0) {
+      return;
+    }
+    double millis = (double) elapsedMillis / tablets;
+    double size = (double) bytes / tablets;
+    estimates.merge(server, new Estimate(millis, size), (old, latest) -> {
+      latest.millisPerTablet = ALPHA * millis + (1 - ALPHA) * old.millisPerTablet;
+      latest.bytesPerTablet = ALPHA * size + (1 - ALPHA) * old.bytesPerTablet;
+      return latest;
+    });
+  }
+
+  /**
+   * @return the estimated time to scan a tablet on the server, or -1 if nothing has been observed
+   */
+  double getMillisPerTablet(String server) {
+    Estimate estimate = estimates.get(server);
+    return estimate == null ? -1 : estimate.millisPerTablet;
+  }
+
+  /**
+   * @return the time per tablet used to size requests to the server, or -1 if nothing has been
+   *         observed. This is the larger of the average and the latest observation, so requests to
+   *         a server whose latency is rising shrink right away instead of waiting for the average
+   *         to catch up.
+   */
+  double getRequestMillisPerTablet(String server) {
+    Estimate estimate = estimates.get(server);
+    return estimate == null ? -1
+        : Math.max(estimate.millisPerTablet, estimate.latestMillisPerTablet);
+  }
+
+  /**
+   * @return the estimated size of the data returned for a tablet averaged over all servers, or -1
+   *         if nothing has been observed
+   */
+  double getBytesPerTablet() {
+    return estimates.values().stream().mapToDouble(e -> e.bytesPerTablet).average().orElse(-1);
+  }
+
+  /**
+   * Determine the maximum number of tablets to send to each server in a single request. Each server
+   * is given a share of the query threads in proportion to the estimated time needed to scan all of
+   * its tablets, rounded up, so a request to any server is expected to take no longer than the
+   * total work divided by the number of threads. The slower a server gets, the fewer tablets each
+   * request to it contains, while fast servers are not split up needlessly. Servers that have not
+   * been observed are assumed to be as fast as the average observed server.
+   *
+   * @param tabletsPerServer
+   *          the number of tablets to scan on each server
+   * @param numThreads
+   *          the number of query threads available
+   * @return the maximum number of tablets per request for each server
+   */
+  Map<String,Integer> getMaxTabletsPerRequest(Map<String,Integer> tabletsPerServer,
+      int numThreads) {
+    Map<String,Integer> maxTablets = new HashMap<>();
+
+    if (numThreads / Math.max(1, tabletsPerServer.size()) <= 1) {
+      // not enough threads to split up the requests to servers
+      tabletsPerServer.keySet().forEach(server -> maxTablets.put(server, Integer.MAX_VALUE));
+      return maxTablets;
+    }
+
+    double defaultMillis =
+        tabletsPerServer.keySet().stream().mapToDouble(this::getRequestMillisPerTablet)
+            .filter(millis -> millis >= 0).average().orElse(1);
+    // guard against servers that returned so quickly nothing could be measured
+    defaultMillis = Math.max(defaultMillis, Double.MIN_NORMAL);
+
+    Map<String,Double> costs = new HashMap<>();
+    double totalCost = 0;
+    for (Map.Entry<String,Integer> entry : tabletsPerServer.entrySet()) {
+      double millis = getRequestMillisPerTablet(entry.getKey());
+      double cost =
+          entry.getValue() * Math.max(millis < 0 ? defaultMillis : millis, Double.MIN_NORMAL);
+      costs.put(entry.getKey(), cost);
+      totalCost += cost;
+    }
+
+    for (Map.Entry<String,Integer> entry : tabletsPerServer.entrySet()) {
+      int tablets = entry.getValue();
+      int requests = (int) Math.ceil(numThreads * costs.get(entry.getKey()) / totalCost);
+      requests = Math.max(1, Math.min(tablets, requests));
+      maxTablets.put(entry.getKey(), (tablets + requests - 1) / requests);
+    }
+
+    return maxTablets;
+  }
+}
@@ -49,6 +49,7 @@ import org.apache.accumulo.core.Constants;
 import org.apache.accumulo.core.client.AccumuloClient;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.AsyncOperations;
 import org.apache.accumulo.core.client.BatchDeleter;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.BatchWriter;
@@ -144,6 +145,7 @@ public class ClientContext implements AccumuloClient {
 
   private SecurityOperations secops = null;
   private final TableOperationsImpl tableops;
+  private AsyncOperationsImpl asyncops = null;
   private final NamespaceOperations namespaceops;
   private InstanceOperations instanceops = null;
   @SuppressWarnings("deprecation")
@@ -381,6 +383,10 @@ public class ClientContext implements AccumuloClient {
     if (maxThreads != null) {
       batchWriterConfig.setMaxWriteThreads(maxThreads);
     }
+    Integer pipelineDepth = ClientProperty.BATCH_WRITER_PIPELINE_DEPTH.getInteger(props);
+    if (pipelineDepth != null) {
+      batchWriterConfig.setPipelineDepth(pipelineDepth);
+    }
     String durability = ClientProperty.BATCH_WRITER_DURABILITY.getValue(props);
     if (!durability.isEmpty()) {
       batchWriterConfig.setDurability(Durability.valueOf(durability.toUpperCase()));
@@ -846,6 +852,15 @@ public class ClientContext implements AccumuloClient {
     return instanceops;
   }
 
+  @Override
+  public synchronized AsyncOperations asyncOperations() {
+    ensureOpen();
+    if (asyncops == null)
+      asyncops = new AsyncOperationsImpl(this);
+
+    return asyncops;
+  }
+
   @Override
   @Deprecated
   public synchronized org.apache.accumulo.core.client.admin.ReplicationOperations
@@ -890,6 +905,9 @@ public class ClientContext implements AccumuloClient {
     if (cleanupThreadPool != null) {
       cleanupThreadPool.shutdown(); // wait for shutdown tasks to execute
     }
+    if (asyncops != null) {
+      asyncops.close();
+    }
     singletonReservation.close();
   }
 
@@ -1117,10 +1135,22 @@ public class ClientContext implements AccumuloClient {
     return ClientProperty.RPC_TRANSPORT_IDLE_TIMEOUT.getTimeInMillis(getProperties());
   }
 
+  protected int getTransportPoolMaxConnectionsPerServer() {
+    ensureOpen();
+    return ClientProperty.RPC_TRANSPORT_MAX_CONNECTIONS_PER_SERVER.getInteger(getProperties());
+  }
+
+  protected long getTransportPoolMaxConnectionsWaitMillis() {
+    ensureOpen();
+    return ClientProperty.RPC_TRANSPORT_MAX_CONNECTIONS_WAIT.getTimeInMillis(getProperties());
+  }
+
   public synchronized ThriftTransportPool getTransportPool() {
     ensureOpen();
     if (thriftTransportPool == null) {
-      thriftTransportPool = ThriftTransportPool.startNew(this::getTransportPoolMaxAgeMillis);
+      thriftTransportPool = ThriftTransportPool.startNew(this::getTransportPoolMaxAgeMillis,
+          this::getTransportPoolMaxConnectionsPerServer,
+          this::getTransportPoolMaxConnectionsWaitMillis);
     }
     return thriftTransportPool;
   }
@@ -32,11 +32,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
@@ -55,8 +55,6 @@ import org.apache.hadoop.io.WritableComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-
 public class TabletLocatorImpl extends TabletLocator {
 
   private static final Logger log = LoggerFactory.getLogger(TabletLocatorImpl.class);
@@ -78,15 +76,21 @@ public class TabletLocatorImpl extends TabletLocator {
 
   protected TableId tableId;
   protected TabletLocator parent;
-  protected TreeMap<Text,TabletLocation> metaCache = new TreeMap<>(END_ROW_COMPARATOR);
+  // Lookups in the cache do not lock. Changes to the cache are made while holding updateLock, and
+  // always remove overlapping extents before adding a new one, so a lookup sees either the old
+  // location, the new location, or nothing and falls back to the locked path.
+  protected ConcurrentSkipListMap<Text,TabletLocation> metaCache =
+      new ConcurrentSkipListMap<>(END_ROW_COMPARATOR);
   protected TabletLocationObtainer locationObtainer;
   private TabletServerLockChecker lockChecker;
   protected Text lastTabletRow;
 
-  private TreeSet<KeyExtent> badExtents = new TreeSet<>();
-  private ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
-  private final Lock rLock = rwLock.readLock();
-  private final Lock wLock = rwLock.writeLock();
+  // Invalidated extents are collected without locking and processed together by the next thread
+  // that bins or locates using the cache. Each is tagged with the value of invalidations when it
+  // was recorded, so a metadata read only clears the invalidations that happened before it started.
+  private final ConcurrentSkipListMap<KeyExtent,Long> badExtents = new ConcurrentSkipListMap<>();
+  private final AtomicLong invalidations = new AtomicLong();
+  private final ReentrantLock updateLock = new ReentrantLock();
 
   public interface TabletLocationObtainer {
     /**
@@ -173,33 +177,28 @@ public class TabletLocatorImpl extends TabletLocator {
 
     LockCheckerSession lcSession = new LockCheckerSession();
 
-    rLock.lock();
-    try {
-      processInvalidated(context, lcSession);
+    processInvalidated(context, lcSession);
 
-      // for this to be efficient rows need to be in sorted order, but always sorting is slow...
-      // therefore only sort the
-      // stuff not in the cache.... it is most efficient to pass _locateTablet rows in sorted order
+    // for this to be efficient rows need to be in sorted order, but always sorting is slow...
+    // therefore only sort the
+    // stuff not in the cache.... it is most efficient to pass _locateTablet rows in sorted order
 
-      // For this to be efficient, need to avoid fine grained synchronization and fine grained
-      // logging.
-      // Therefore methods called by this are not synchronized and should not log.
+    // For this to be efficient, need to avoid fine grained synchronization and fine grained
+    // logging.
+    // Therefore methods called by this are not synchronized and should not log.
 
-      for (T mutation : mutations) {
-        row.set(mutation.getRow());
-        TabletLocation tl = locateTabletInCache(row);
-        if (tl == null || !addMutation(binnedMutations, mutation, tl, lcSession))
-          notInCache.add(mutation);
-      }
-    } finally {
-      rLock.unlock();
+    for (T mutation : mutations) {
+      row.set(mutation.getRow());
+      TabletLocation tl = locateTabletInCache(row);
+      if (tl == null || !addMutation(binnedMutations, mutation, tl, lcSession))
+        notInCache.add(mutation);
     }
 
     if (!notInCache.isEmpty()) {
       notInCache.sort((o1, o2) -> WritableComparator.compareBytes(o1.getRow(), 0,
           o1.getRow().length, o2.getRow(), 0, o2.getRow().length));
 
-      wLock.lock();
+      updateLock.lock();
       try {
         boolean failed = false;
         for (T mutation : notInCache) {
@@ -220,7 +219,7 @@ public class TabletLocatorImpl extends TabletLocator {
           }
         }
       } finally {
-        wLock.unlock();
+        updateLock.unlock();
       }
     }
 
@@ -342,31 +341,25 @@ public class TabletLocatorImpl extends TabletLocator {
 
     LockCheckerSession lcSession = new LockCheckerSession();
 
-    List<Range> failures;
-    rLock.lock();
-    try {
-      processInvalidated(context, lcSession);
+    processInvalidated(context, lcSession);
 
-      // for this to be optimal, need to look ranges up in sorted order when
-      // ranges are not present in cache... however do not want to always
-      // sort ranges... therefore try binning ranges using only the cache
-      // and sort whatever fails and retry
+    // for this to be optimal, need to look ranges up in sorted order when
+    // ranges are not present in cache... however do not want to always
+    // sort ranges... therefore try binning ranges using only the cache
+    // and sort whatever fails and retry
 
-      failures = binRanges(context, ranges, binnedRanges, true, lcSession);
-    } finally {
-      rLock.unlock();
-    }
+    List<Range> failures = binRanges(context, ranges, binnedRanges, true, lcSession);
 
     if (!failures.isEmpty()) {
       // sort failures by range start key
       Collections.sort(failures);
 
       // try lookups again
-      wLock.lock();
+      updateLock.lock();
       try {
         failures = binRanges(context, failures, binnedRanges, false, lcSession);
       } finally {
-        wLock.unlock();
+        updateLock.unlock();
       }
     }
 
@@ -382,24 +375,16 @@ public class TabletLocatorImpl extends TabletLocator {
 
   @Override
   public void invalidateCache(KeyExtent failedExtent) {
-    wLock.lock();
-    try {
-      badExtents.add(failedExtent);
-    } finally {
-      wLock.unlock();
-    }
+    badExtents.put(failedExtent, invalidations.incrementAndGet());
     if (log.isTraceEnabled())
       log.trace("Invalidated extent={}", failedExtent);
   }
 
   @Override
   public void invalidateCache(Collection<KeyExtent> keySet) {
-    wLock.lock();
-    try {
-      badExtents.addAll(keySet);
-    } finally {
-      wLock.unlock();
-    }
+    long invalidation = invalidations.incrementAndGet();
+    for (KeyExtent ke : keySet)
+      badExtents.put(ke, invalidation);
     if (log.isTraceEnabled())
       log.trace("Invalidated {} cache entries for table {}", keySet.size(), tableId);
   }
@@ -407,17 +392,13 @@ public class TabletLocatorImpl extends TabletLocator {
   @Override
   public void invalidateCache(ClientContext context, String server) {
     int invalidatedCount = 0;
+    long invalidation = invalidations.incrementAndGet();
 
-    wLock.lock();
-    try {
-      for (TabletLocation cacheEntry : metaCache.values())
-        if (cacheEntry.tablet_location.equals(server)) {
-          badExtents.add(cacheEntry.tablet_extent);
-          invalidatedCount++;
-        }
-    } finally {
-      wLock.unlock();
-    }
+    for (TabletLocation cacheEntry : metaCache.values())
+      if (cacheEntry.tablet_location.equals(server)) {
+        badExtents.put(cacheEntry.tablet_extent, invalidation);
+        invalidatedCount++;
+      }
 
     lockChecker.invalidateCache(server);
 
@@ -430,12 +411,12 @@ public class TabletLocatorImpl extends TabletLocator {
   @Override
   public void invalidateCache() {
     int invalidatedCount;
-    wLock.lock();
+    updateLock.lock();
     try {
       invalidatedCount = metaCache.size();
       metaCache.clear();
     } finally {
-      wLock.unlock();
+      updateLock.unlock();
     }
     if (log.isTraceEnabled())
       log.trace("invalidated all {} cache entries for table={}", invalidatedCount, tableId);
@@ -480,6 +461,7 @@ public class TabletLocatorImpl extends TabletLocator {
   private void lookupTabletLocation(ClientContext context, Text row, boolean retry,
       LockCheckerSession lcSession)
       throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+    long readStart = invalidations.get();
     Text metadataRow = new Text(tableId.canonical());
     metadataRow.append(new byte[] {';'}, 0, 1);
     metadataRow.append(row.getBytes(), 0, row.getLength());
@@ -529,13 +511,20 @@ public class TabletLocatorImpl extends TabletLocator {
         // save endRow for next iteration
         lastEndRow = locToCache.tablet_extent.endRow();
 
-        updateCache(locToCache, lcSession);
+        updateCache(locToCache, lcSession, readStart);
       }
     }
 
   }
 
-  private void updateCache(TabletLocation tabletLocation, LockCheckerSession lcSession) {
+  /**
+   * @param readStart
+   *          value of invalidations before the metadata read that produced tabletLocation began.
+   *          Extents invalidated after that may have been invalidated because of a change the read
+   *          did not see, so they stay invalid.
+   */
+  private void updateCache(TabletLocation tabletLocation, LockCheckerSession lcSession,
+      long readStart) {
     if (!tabletLocation.tablet_extent.tableId().equals(tableId)) {
       // sanity check
       throw new IllegalStateException(
@@ -562,10 +551,10 @@ public class TabletLocatorImpl extends TabletLocator {
     metaCache.put(er, tabletLocation);
 
     if (!badExtents.isEmpty())
-      removeOverlapping(badExtents, tabletLocation.tablet_extent);
+      removeOverlapping(badExtents, tabletLocation.tablet_extent, readStart);
   }
 
-  static void removeOverlapping(TreeMap<Text,TabletLocation> metaCache, KeyExtent nke) {
+  static void removeOverlapping(NavigableMap<Text,TabletLocation> metaCache, KeyExtent nke) {
     Iterator<Entry<Text,TabletLocation>> iter = null;
 
     if (nke.prevEndRow() == null) {
@@ -600,9 +589,13 @@ public class TabletLocatorImpl extends TabletLocator {
     return row;
   }
 
-  static void removeOverlapping(TreeSet<KeyExtent> extents, KeyExtent nke) {
+  static void removeOverlapping(ConcurrentSkipListMap<KeyExtent,Long> extents, KeyExtent nke,
+      long readStart) {
     for (KeyExtent overlapping : KeyExtent.findOverlapping(nke, extents)) {
-      extents.remove(overlapping);
+      Long invalidation = extents.get(overlapping);
+      // conditional remove, the extent may have been invalidated again since it was read
+      if (invalidation != null && invalidation <= readStart)
+        extents.remove(overlapping, invalidation);
     }
   }
 
@@ -628,27 +621,19 @@ public class TabletLocatorImpl extends TabletLocator {
       row.append(new byte[] {0}, 0, 1);
     }
 
-    TabletLocation tl;
-
-    if (lock) {
-      rLock.lock();
-      try {
-        tl = processInvalidatedAndCheckLock(context, lcSession, row);
-      } finally {
-        rLock.unlock();
-      }
-    } else {
-      tl = processInvalidatedAndCheckLock(context, lcSession, row);
-    }
+    TabletLocation tl = processInvalidatedAndCheckLock(context, lcSession, row);
 
     if (tl == null) {
       // not in cache, so obtain info
       if (lock) {
-        wLock.lock();
+        updateLock.lock();
         try {
-          tl = lookupTabletLocationAndCheckLock(context, row, retry, lcSession);
+          // another thread may have added the location while this one waited for the lock
+          tl = lcSession.checkLock(locateTabletInCache(row));
+          if (tl == null)
+            tl = lookupTabletLocationAndCheckLock(context, row, retry, lcSession);
         } finally {
-          wLock.unlock();
+          updateLock.unlock();
         }
       } else {
         tl = lookupTabletLocationAndCheckLock(context, row, retry, lcSession);
@@ -672,26 +657,24 @@ public class TabletLocatorImpl extends TabletLocator {
     return lcSession.checkLock(locateTabletInCache(row));
   }
 
-  @SuppressFBWarnings(value = {"UL_UNRELEASED_LOCK", "UL_UNRELEASED_LOCK_EXCEPTION_PATH"},
-      justification = "locking is confusing, but probably correct")
   private void processInvalidated(ClientContext context, LockCheckerSession lcSession)
       throws AccumuloSecurityException, AccumuloException, TableNotFoundException {
 
     if (badExtents.isEmpty())
       return;
 
-    final boolean writeLockHeld = rwLock.isWriteLockedByCurrentThread();
+    final boolean lockHeld = updateLock.isHeldByCurrentThread();
+    if (!lockHeld) {
+      updateLock.lock();
+    }
     try {
-      if (!writeLockHeld) {
-        rLock.unlock();
-        wLock.lock();
-        if (badExtents.isEmpty())
-          return;
-      }
+      if (badExtents.isEmpty())
+        return;
 
+      long readStart = invalidations.get();
       List<Range> lookups = new ArrayList<>(badExtents.size());
 
-      for (KeyExtent be : badExtents) {
+      for (KeyExtent be : badExtents.keySet()) {
         lookups.add(be.toMetaRange());
         removeOverlapping(metaCache, be);
       }
@@ -711,13 +694,12 @@ public class TabletLocatorImpl extends TabletLocator {
             locationObtainer.lookupTablets(context, tserver, binnedRanges.get(tserver), parent);
 
         for (TabletLocation tabletLocation : locations) {
-          updateCache(tabletLocation, lcSession);
+          updateCache(tabletLocation, lcSession, readStart);
         }
       }
     } finally {
-      if (!writeLockHeld) {
-        rLock.lock();
-        wLock.unlock();
+      if (!lockHeld) {
+        updateLock.unlock();
       }
     }
   }
@@ -30,6 +30,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.conf.ClientProperty;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.TableId;
@@ -52,8 +53,10 @@ public class TabletServerBatchReader extends ScannerOptions implements BatchScan
   private final Authorizations authorizations;
   private final AtomicBoolean closed = new AtomicBoolean(false);
   private final Cleanable cleanable;
+  private final BatchReaderServerStats serverStats = new BatchReaderServerStats();
 
   private ArrayList<Range> ranges = null;
+  private boolean ordered = false;
 
   public TabletServerBatchReader(ClientContext context, TableId tableId, String tableName,
       Authorizations authorizations, int numQueryThreads) {
@@ -105,6 +108,16 @@ public class TabletServerBatchReader extends ScannerOptions implements BatchScan
     this.ranges = new ArrayList<>(ranges);
   }
 
+  @Override
+  public void setOrdered(boolean ordered) {
+    this.ordered = ordered;
+  }
+
+  @Override
+  public boolean isOrdered() {
+    return ordered;
+  }
+
   @Override
   public Iterator<Entry<Key,Value>> iterator() {
     if (ranges == null) {
@@ -115,7 +128,17 @@ public class TabletServerBatchReader extends ScannerOptions implements BatchScan
       throw new IllegalStateException("batch reader closed");
     }
 
+    if (ordered) {
+      if (getConsistencyLevel() == ConsistencyLevel.EVENTUAL) {
+        throw new IllegalStateException("ordered results can not be read from scan servers");
+      }
+      long maxBufferedBytes =
+          ClientProperty.BATCH_SCANNER_ORDERED_BUFFER_MAX.getBytes(context.getProperties());
+      return new TabletServerOrderedBatchReaderIterator(context, tableId, tableName, authorizations,
+          ranges, numThreads, queryThreadPool, this, timeOut, maxBufferedBytes, serverStats);
+    }
+
     return new TabletServerBatchReaderIterator(context, tableId, tableName, authorizations, ranges,
-        numThreads, queryThreadPool, this, timeOut);
+        numThreads, queryThreadPool, this, timeOut, serverStats);
   }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.accumulo.core.clientImpl;
 
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.io.IOException;
@@ -111,6 +112,8 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
 
   private TabletLocator locator;
 
+  private final BatchReaderServerStats serverStats;
+
   private ScanServerAttemptsImpl scanAttempts = new ScanServerAttemptsImpl();
 
   public interface ResultReceiver {
@@ -120,6 +123,14 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
   public TabletServerBatchReaderIterator(ClientContext context, TableId tableId, String tableName,
       Authorizations authorizations, ArrayList<Range> ranges, int numThreads,
       ExecutorService queryThreadPool, ScannerOptions scannerOptions, long timeout) {
+    this(context, tableId, tableName, authorizations, ranges, numThreads, queryThreadPool,
+        scannerOptions, timeout, new BatchReaderServerStats());
+  }
+
+  TabletServerBatchReaderIterator(ClientContext context, TableId tableId, String tableName,
+      Authorizations authorizations, ArrayList<Range> ranges, int numThreads,
+      ExecutorService queryThreadPool, ScannerOptions scannerOptions, long timeout,
+      BatchReaderServerStats serverStats) {
 
     this.context = context;
     this.tableId = tableId;
@@ -128,6 +139,7 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     this.numThreads = numThreads;
     this.queryThreadPool = queryThreadPool;
     this.options = new ScannerOptions(scannerOptions);
+    this.serverStats = serverStats;
     resultsQueue = new ArrayBlockingQueue<>(numThreads);
 
     this.locator = new TimeoutTabletLocator(timeout, context, tableId);
@@ -230,12 +242,13 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
 
     Map<String,Map<KeyExtent,List<Range>>> binnedRanges = new HashMap<>();
 
-    binRanges(locator, ranges, binnedRanges);
+    binRanges(context, tableId, tableName, locator, ranges, binnedRanges);
 
     doLookups(binnedRanges, receiver, columns);
   }
 
-  private void binRanges(TabletLocator tabletLocator, List<Range> ranges,
+  static void binRanges(ClientContext context, TableId tableId, String tableName,
+      TabletLocator tabletLocator, List<Range> ranges,
       Map<String,Map<KeyExtent,List<Range>>> binnedRanges)
       throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
 
@@ -325,7 +338,7 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     // since the first call to binRanges clipped the ranges to within a tablet, we should not get
     // only
     // bin to the set of failed tablets
-    binRanges(locator, allRanges, binnedRanges);
+    binRanges(context, tableId, tableName, locator, allRanges, binnedRanges);
 
     doLookups(binnedRanges, receiver, columns);
   }
@@ -334,6 +347,39 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     return context.getPrintableTableInfoFromId(tableId);
   }
 
+  /**
+   * Measures the size of the results passed to another receiver and the time spent blocked on it,
+   * so the time spent waiting on a server can be separated from the time spent waiting on the
+   * consumer of the results.
+   */
+  private static class MeasuringReceiver implements ResultReceiver {
+    private final ResultReceiver receiver;
+    private long bytes = 0;
+    private long blockedNanos = 0;
+
+    MeasuringReceiver(ResultReceiver receiver) {
+      this.receiver = receiver;
+    }
+
+    @Override
+    public void receive(List<Entry<Key,Value>> entries) {
+      for (Entry<Key,Value> entry : entries) {
+        bytes += entry.getKey().getSize() + entry.getValue().getSize();
+      }
+      long start = System.nanoTime();
+      receiver.receive(entries);
+      blockedNanos += System.nanoTime() - start;
+    }
+
+    long getBytes() {
+      return bytes;
+    }
+
+    long getBlockedNanos() {
+      return blockedNanos;
+    }
+  }
+
   private class QueryTask implements Runnable {
 
     private String tsLocation;
@@ -380,8 +426,13 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
           timeoutTracker = new TimeoutTracker(tsLocation, timedoutServers, timeout);
           timeoutTrackers.put(tsLocation, timeoutTracker);
         }
-        doLookup(context, tsLocation, tabletsRanges, tsFailures, unscanned, receiver, columns,
-            options, authorizations, timeoutTracker, busyTimeout);
+        MeasuringReceiver measuringReceiver = new MeasuringReceiver(receiver);
+        long start = System.nanoTime();
+        doLookup(context, tsLocation, tabletsRanges, tsFailures, unscanned, measuringReceiver,
+            columns, options, authorizations, timeoutTracker, busyTimeout);
+        serverStats.record(tsLocation, tabletsRanges.size(),
+            NANOSECONDS.toMillis(System.nanoTime() - start - measuringReceiver.getBlockedNanos()),
+            measuringReceiver.getBytes());
 
         if (!tsFailures.isEmpty()) {
           locator.invalidateCache(tsFailures.keySet());
@@ -483,7 +534,7 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
   private void doLookups(Map<String,Map<KeyExtent,List<Range>>> binnedRanges,
       final ResultReceiver receiver, List<Column> columns) {
 
-    int maxTabletsPerRequest = Integer.MAX_VALUE;
+    Map<String,Integer> maxTabletsPerRequest = Map.of();
 
     long busyTimeout = 0;
     Duration scanServerSelectorDelay = null;
@@ -496,20 +547,12 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
       scanServerSelectorDelay = scanServerData.actions.getDelay();
       binnedRanges = scanServerData.binnedRanges;
     } else {
-      // when there are lots of threads and a few tablet servers
-      // it is good to break request to tablet servers up, the
-      // following code determines if this is the case
-      if (numThreads / binnedRanges.size() > 1) {
-        int totalNumberOfTablets = 0;
-        for (Entry<String,Map<KeyExtent,List<Range>>> entry : binnedRanges.entrySet()) {
-          totalNumberOfTablets += entry.getValue().size();
-        }
-
-        maxTabletsPerRequest = totalNumberOfTablets / numThreads;
-        if (maxTabletsPerRequest == 0) {
-          maxTabletsPerRequest = 1;
-        }
-      }
+      // when there are lots of threads and a few tablet servers it is good to break requests to
+      // tablet servers up. How much each server's requests are broken up depends on how long its
+      // tablets have been observed to take to scan.
+      Map<String,Integer> tabletsPerServer = new HashMap<>();
+      binnedRanges.forEach((server, tablets) -> tabletsPerServer.put(server, tablets.size()));
+      maxTabletsPerRequest = serverStats.getMaxTabletsPerRequest(tabletsPerServer, numThreads);
     }
 
     log.debug("timed out servers: {}", timedoutServers);
@@ -543,7 +586,8 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     for (final String tsLocation : locations) {
 
       final Map<KeyExtent,List<Range>> tabletsRanges = binnedRanges.get(tsLocation);
-      if (maxTabletsPerRequest == Integer.MAX_VALUE || tabletsRanges.size() == 1) {
+      final int maxTablets = maxTabletsPerRequest.getOrDefault(tsLocation, Integer.MAX_VALUE);
+      if (maxTablets == Integer.MAX_VALUE || tabletsRanges.size() == 1) {
         QueryTask queryTask = new QueryTask(tsLocation, tabletsRanges, failures, receiver, columns,
             busyTimeout, reporters.getOrDefault(tsLocation, r -> {}), scanServerSelectorDelay);
         queryTasks.add(queryTask);
@@ -551,7 +595,7 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
         HashMap<KeyExtent,List<Range>> tabletSubset = new HashMap<>();
         for (Entry<KeyExtent,List<Range>> entry : tabletsRanges.entrySet()) {
           tabletSubset.put(entry.getKey(), entry.getValue());
-          if (tabletSubset.size() >= maxTabletsPerRequest) {
+          if (tabletSubset.size() >= maxTablets) {
             QueryTask queryTask =
                 new QueryTask(tsLocation, tabletSubset, failures, receiver, columns, busyTimeout,
                     reporters.getOrDefault(tsLocation, r -> {}), scanServerSelectorDelay);
@@ -695,7 +739,7 @@ public class TabletServerBatchReaderIterator implements Iterator<Entry<Key,Value
     }
   }
 
-  private static class TimeoutTracker {
+  static class TimeoutTracker {
 
     String server;
     Set<String> badServers;
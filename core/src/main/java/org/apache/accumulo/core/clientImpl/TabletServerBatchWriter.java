@@ -37,6 +37,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.SynchronousQueue;
@@ -65,6 +66,7 @@ import org.apache.accumulo.core.dataImpl.KeyExtent;
 import org.apache.accumulo.core.dataImpl.TabletIdImpl;
 import org.apache.accumulo.core.dataImpl.thrift.TMutation;
 import org.apache.accumulo.core.dataImpl.thrift.UpdateErrors;
+import org.apache.accumulo.core.metrics.MetricsProducer;
 import org.apache.accumulo.core.rpc.ThriftUtil;
 import org.apache.accumulo.core.rpc.clients.ThriftClientTypes;
 import org.apache.accumulo.core.tabletserver.thrift.ConstraintViolationException;
@@ -84,6 +86,8 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Scope;
 
@@ -111,12 +115,18 @@ public class TabletServerBatchWriter implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(TabletServerBatchWriter.class);
 
+  private static final DistributionSummary IN_FLIGHT_BYTES =
+      DistributionSummary.builder(MetricsProducer.METRICS_CLIENT_BATCH_WRITER_IN_FLIGHT)
+          .description("Bytes sent to a tablet server and not yet acknowledged").baseUnit("bytes")
+          .register(Metrics.globalRegistry);
+
   // basic configuration
   private final ClientContext context;
   private final long maxMem;
   private final long maxLatency;
   private final long timeout;
   private final Durability durability;
+  private final int pipelineDepth;
 
   // state
   private boolean flushing;
@@ -153,6 +163,9 @@ public class TabletServerBatchWriter implements AutoCloseable {
   private AtomicInteger minTabletBatch = new AtomicInteger(Integer.MAX_VALUE);
   private AtomicInteger minTabletServersBatch = new AtomicInteger(Integer.MAX_VALUE);
   private AtomicInteger maxTabletServersBatch = new AtomicInteger(Integer.MIN_VALUE);
+  // the size of the mutations sent to each tablet server that it has not acknowledged yet
+  private final Map<String,AtomicLong> inFlightBytes = new ConcurrentHashMap<>();
+  private final Map<String,Long> maxInFlightBytes = new ConcurrentHashMap<>();
 
   // error handling
   private final Violations violations = new Violations();
@@ -213,6 +226,7 @@ public class TabletServerBatchWriter implements AutoCloseable {
     this.mutations = new MutationSet();
     this.lastProcessingStartTime = System.currentTimeMillis();
     this.durability = config.getDurability();
+    this.pipelineDepth = config.getPipelineDepth();
 
     this.writer = new MutationWriter(config.getMaxWriteThreads());
 
@@ -420,6 +434,8 @@ public class TabletServerBatchWriter implements AutoCloseable {
       log.trace(String.format("tablets per batch    : %,8.2f avg  %,6d min %,6d max",
           (float) (numBatches.get() != 0 ? (tabletBatchSum.get() / numBatches.get()) : 0),
           minTabletBatch.get(), maxTabletBatch.get()));
+      maxInFlightBytes.forEach((server, max) -> log
+          .trace(String.format("Max in flight bytes  : %,10d bytes at %s", max, server)));
       log.trace("");
       log.trace("SYSTEM STATISTICS");
       log.trace(String.format("JVM GC Time          : %,10.2f secs",
@@ -438,6 +454,12 @@ public class TabletServerBatchWriter implements AutoCloseable {
     totalSendTime.addAndGet(time);
   }
 
+  private void addInFlightBytes(String server, long bytes) {
+    long current = inFlightBytes.computeIfAbsent(server, k -> new AtomicLong()).addAndGet(bytes);
+    maxInFlightBytes.merge(server, current, Math::max);
+    IN_FLIGHT_BYTES.record(current);
+  }
+
   public void updateBinningStats(int count, long time,
       Map<String,TabletServerMutations<Mutation>> binnedMutations) {
     if (log.isTraceEnabled()) {
@@ -799,6 +821,24 @@ public class TabletServerBatchWriter implements AutoCloseable {
       return tsmuts;
     }
 
+    /**
+     * Take any mutations that accumulated for a server while it was being sent a batch, leaving the
+     * server queued so no other thread starts sending to it. Mutations for tablets already sent to
+     * in the current session are left for the next session.
+     */
+    private synchronized TabletServerMutations<Mutation> pollMutationsToSend(String server,
+        Set<KeyExtent> sessionExtents) {
+      TabletServerMutations<Mutation> pending = serversMutations.get(server);
+      if (pending == null) {
+        return null;
+      }
+      TabletServerMutations<Mutation> more = removeNewExtents(pending, sessionExtents);
+      if (pending.getMutations().isEmpty()) {
+        serversMutations.remove(server);
+      }
+      return more.getMutations().isEmpty() ? null : more;
+    }
+
     class SendTask implements Runnable {
 
       private final String location;
@@ -829,6 +869,7 @@ public class TabletServerBatchWriter implements AutoCloseable {
 
         String oldName = Thread.currentThread().getName();
 
+        // more mutations for the server may be added to this while it is being sent
         Map<KeyExtent,List<Mutation>> mutationBatch = tsm.getMutations();
         try {
 
@@ -855,20 +896,23 @@ public class TabletServerBatchWriter implements AutoCloseable {
             }
 
             long st1 = System.currentTimeMillis();
-            failures = sendMutationsToTabletServer(location, mutationBatch, timeoutTracker);
+            failures = sendMutationsToTabletServer(location, tsm, timeoutTracker);
             long st2 = System.currentTimeMillis();
-            if (log.isTraceEnabled())
-              log.trace("sent " + String.format("%,d", count) + " mutations to " + location + " in "
-                  + String.format("%.2f secs (%,.2f mutations/sec) with %,d failures",
-                      (st2 - st1) / 1000.0, count / ((st2 - st1) / 1000.0), failures.size()));
 
             long successBytes = 0;
+            count = 0;
             for (Entry<KeyExtent,List<Mutation>> entry : mutationBatch.entrySet()) {
+              count += entry.getValue().size();
               for (Mutation mutation : entry.getValue()) {
                 successBytes += mutation.estimatedMemoryUsed();
               }
             }
 
+            if (log.isTraceEnabled())
+              log.trace("sent " + String.format("%,d", count) + " mutations to " + location + " in "
+                  + String.format("%.2f secs (%,.2f mutations/sec) with %,d failures",
+                      (st2 - st1) / 1000.0, count / ((st2 - st1) / 1000.0), failures.size()));
+
             if (failures.size() > 0) {
               failedMutations.add(failures);
               successBytes -= failures.getMemoryUsed();
@@ -901,9 +945,40 @@ public class TabletServerBatchWriter implements AutoCloseable {
       }
     }
 
+    private void applyUpdates(TabletClientService.Iface client, TInfo tinfo, long usid,
+        String location, Map<KeyExtent,List<Mutation>> tabMuts) throws TException {
+      List<TMutation> updates = new ArrayList<>();
+      for (Entry<KeyExtent,List<Mutation>> entry : tabMuts.entrySet()) {
+        long size = 0;
+        long bytes = 0;
+        Iterator<Mutation> iter = entry.getValue().iterator();
+        while (iter.hasNext()) {
+          while (size < MUTATION_BATCH_SIZE && iter.hasNext()) {
+            Mutation mutation = iter.next();
+            updates.add(mutation.toThrift());
+            size += mutation.numBytes();
+            bytes += mutation.estimatedMemoryUsed();
+          }
+
+          addInFlightBytes(location, bytes);
+          client.applyUpdates(tinfo, usid, entry.getKey().toThrift(), updates);
+          updates.clear();
+          size = 0;
+          bytes = 0;
+        }
+      }
+    }
+
+    /**
+     * Send mutations to a tablet server in one update session. Up to the pipeline depth, mutations
+     * that accumulate for the server while the session is open are sent in the same session without
+     * waiting for the previous ones to be acknowledged, and are added to the given mutations so
+     * that failures are accounted for against everything sent in the session.
+     */
     private MutationSet sendMutationsToTabletServer(String location,
-        Map<KeyExtent,List<Mutation>> tabMuts, TimeoutTracker timeoutTracker)
+        TabletServerMutations<Mutation> tsm, TimeoutTracker timeoutTracker)
         throws IOException, AccumuloSecurityException, AccumuloServerException {
+      Map<KeyExtent,List<Mutation>> tabMuts = tsm.getMutations();
       if (tabMuts.isEmpty()) {
         return new MutationSet();
       }
@@ -943,24 +1018,29 @@ public class TabletServerBatchWriter implements AutoCloseable {
             long usid =
                 client.startUpdate(tinfo, context.rpcCreds(), DurabilityImpl.toThrift(durability));
 
-            List<TMutation> updates = new ArrayList<>();
-            for (Entry<KeyExtent,List<Mutation>> entry : tabMuts.entrySet()) {
-              long size = 0;
-              Iterator<Mutation> iter = entry.getValue().iterator();
-              while (iter.hasNext()) {
-                while (size < MUTATION_BATCH_SIZE && iter.hasNext()) {
-                  Mutation mutation = iter.next();
-                  updates.add(mutation.toThrift());
-                  size += mutation.numBytes();
-                }
+            UpdateErrors updateErrors;
+            try {
+              applyUpdates(client, tinfo, usid, location, tabMuts);
 
-                client.applyUpdates(tinfo, usid, entry.getKey().toThrift(), updates);
-                updates.clear();
-                size = 0;
+              for (int batches = 1; batches < pipelineDepth; batches++) {
+                TabletServerMutations<Mutation> more =
+                    pollMutationsToSend(location, tsm.getMutations().keySet());
+                if (more == null) {
+                  break;
+                }
+                // add the mutations to the session before sending them, so they are retried if
+                // sending fails
+                more.getMutations().forEach(
+                    (extent, mutations) -> mutations.forEach(m -> tsm.addMutation(extent, m)));
+                applyUpdates(client, tinfo, usid, location, more.getMutations());
               }
-            }
 
-            UpdateErrors updateErrors = client.closeUpdate(tinfo, usid);
+              updateErrors = client.closeUpdate(tinfo, usid);
+            } finally {
+              // only one thread sends to a server at a time, so nothing is in flight once it is
+              // done
+              inFlightBytes.computeIfAbsent(location, k -> new AtomicLong()).set(0);
+            }
 
             // @formatter:off
             Map<KeyExtent,Long> failures = updateErrors.failedExtents.entrySet().stream().collect(toMap(
@@ -1019,6 +1099,28 @@ public class TabletServerBatchWriter implements AutoCloseable {
     }
   }
 
+  /**
+   * Moves the mutations for tablets that are not in the given set out of the pending mutations. The
+   * commit counts a tablet server returns for an update session are per tablet, and a tablet server
+   * does not remember a tablet that went offline during a session once other tablets were written.
+   * So only tablets new to a session may be pipelined into it.
+   *
+   * @return the mutations that were removed from pending
+   */
+  static TabletServerMutations<Mutation> removeNewExtents(TabletServerMutations<Mutation> pending,
+      Set<KeyExtent> sessionExtents) {
+    TabletServerMutations<Mutation> removed = new TabletServerMutations<>(pending.getSession());
+    Iterator<Entry<KeyExtent,List<Mutation>>> iter = pending.getMutations().entrySet().iterator();
+    while (iter.hasNext()) {
+      Entry<KeyExtent,List<Mutation>> entry = iter.next();
+      if (!sessionExtents.contains(entry.getKey())) {
+        removed.getMutations().put(entry.getKey(), entry.getValue());
+        iter.remove();
+      }
+    }
+    return removed;
+  }
+
   // END code for sending mutations to tablet servers using background threads
 
   private static class MutationSet {
@@ -0,0 +1,440 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.TableDeletedException;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.TimedOutException;
+import org.apache.accumulo.core.clientImpl.TabletServerBatchReaderIterator.ResultReceiver;
+import org.apache.accumulo.core.clientImpl.TabletServerBatchReaderIterator.TimeoutTracker;
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.security.Authorizations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Returns the entries of a batch scan in sorted order. Each tablet is looked up with its own
+ * request and the tablets are looked up concurrently, but only a window of tablets following the
+ * tablet currently being returned is read. Entries of the current tablet are returned as they
+ * arrive, while entries of the tablets after it are buffered until it is finished. The window is
+ * limited by the number of query threads and by an estimate of the memory its buffered entries will
+ * use, based on the result sizes observed so far. Because that estimate can be wrong, lookups also
+ * stop reading from their server while the buffered entries are at the limit, and continue once the
+ * consumer catches up.
+ *
+ * <p>
+ * Tablets that fail are retried before any entries following them are returned, so unlike the
+ * unordered iterator a {@link TimedOutException} is thrown as soon as any needed server times out.
+ */
+class TabletServerOrderedBatchReaderIterator implements Iterator<Entry<Key,Value>> {
+
+  private static final Logger log =
+      LoggerFactory.getLogger(TabletServerOrderedBatchReaderIterator.class);
+
+  private static class Batch {
+    static final Batch LAST = new Batch(List.of(), 0);
+
+    final List<Entry<Key,Value>> entries;
+    final long size;
+
+    Batch(List<Entry<Key,Value>> entries, long size) {
+      this.entries = entries;
+      this.size = size;
+    }
+  }
+
+  private final ClientContext context;
+  private final TableId tableId;
+  private final String tableName;
+  private final Authorizations authorizations;
+  private final int numThreads;
+  private final ExecutorService queryThreadPool;
+  private final ScannerOptions options;
+  private final List<Column> columns;
+  private final long timeout;
+  private final long maxBufferedBytes;
+  private final BatchReaderServerStats serverStats;
+  private final TabletLocator locator;
+  private final TabletServerLookup tabletServerLookup;
+
+  private final Map<String,TimeoutTracker> timeoutTrackers = new ConcurrentHashMap<>();
+  private final Set<String> timedoutServers = Collections.synchronizedSet(new HashSet<>());
+
+  // tablets that have not been looked up yet, in sorted order
+  private final ArrayDeque<TabletLookup> pending = new ArrayDeque<>();
+  // tablets being looked up in sorted order, the first is the tablet being returned
+  private final ArrayDeque<TabletLookup> window = new ArrayDeque<>();
+  // the size of the entries received from servers that have not been returned yet
+  private final AtomicLong bufferedBytes = new AtomicLong();
+  // lookups wait on this while the buffer is full, it guards head and changes to bufferedBytes
+  private final Object bufferLock = new Object();
+  // the lookup whose entries are being returned, it is only blocked by the buffer limit while the
+  // consumer has not taken what it already received
+  private TabletLookup head = null;
+
+  private Iterator<Entry<Key,Value>> batchIterator = Collections.emptyIterator();
+  private long failSleepTime = 100;
+
+  /**
+   * Looks up the ranges of tablets on a server, see
+   * {@link TabletServerBatchReaderIterator#doLookup}.
+   */
+  interface TabletServerLookup {
+    void lookup(String server, Map<KeyExtent,List<Range>> requested,
+        Map<KeyExtent,List<Range>> failures, Map<KeyExtent,List<Range>> unscanned,
+        ResultReceiver receiver, TimeoutTracker timeoutTracker)
+        throws IOException, AccumuloSecurityException, AccumuloServerException;
+  }
+
+  TabletServerOrderedBatchReaderIterator(ClientContext context, TableId tableId, String tableName,
+      Authorizations authorizations, List<Range> ranges, int numThreads,
+      ExecutorService queryThreadPool, ScannerOptions scannerOptions, long timeout,
+      long maxBufferedBytes, BatchReaderServerStats serverStats) {
+    this(context, tableId, tableName, authorizations, ranges, numThreads, queryThreadPool,
+        scannerOptions, timeout, maxBufferedBytes, serverStats,
+        new TimeoutTabletLocator(timeout, context, tableId), null);
+  }
+
+  TabletServerOrderedBatchReaderIterator(ClientContext context, TableId tableId, String tableName,
+      Authorizations authorizations, List<Range> ranges, int numThreads,
+      ExecutorService queryThreadPool, ScannerOptions scannerOptions, long timeout,
+      long maxBufferedBytes, BatchReaderServerStats serverStats, TabletLocator locator,
+      TabletServerLookup tabletServerLookup) {
+    this.context = context;
+    this.tableId = tableId;
+    this.tableName = tableName;
+    this.authorizations = authorizations;
+    this.numThreads = numThreads;
+    this.queryThreadPool = queryThreadPool;
+    this.options = new ScannerOptions(scannerOptions);
+    this.columns = new ArrayList<>(options.fetchedColumns);
+    this.timeout = timeout;
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.serverStats = serverStats;
+    this.locator = locator;
+    this.tabletServerLookup = tabletServerLookup != null ? tabletServerLookup
+        : (server, requested, failures, unscanned, receiver,
+            timeoutTracker) -> TabletServerBatchReaderIterator.doLookup(context, server, requested,
+                failures, unscanned, receiver, columns, options, authorizations, timeoutTracker,
+                0L);
+
+    if (!options.fetchedColumns.isEmpty()) {
+      List<Range> ranges2 = new ArrayList<>(ranges.size());
+      for (Range range : ranges) {
+        ranges2.add(range.bound(options.fetchedColumns.first(), options.fetchedColumns.last()));
+      }
+      ranges = ranges2;
+    }
+
+    try {
+      pending.addAll(createLookups(Range.mergeOverlapping(ranges)));
+    } catch (AccumuloException | TableNotFoundException e) {
+      throw new RuntimeException("Failed to create iterator", e);
+    } catch (AccumuloSecurityException e) {
+      e.setTableInfo(context.getPrintableTableInfoFromId(tableId));
+      throw new RuntimeException("Failed to create iterator", e);
+    }
+
+    fill();
+  }
+
+  @Override
+  public synchronized boolean hasNext() {
+    while (!batchIterator.hasNext()) {
+      TabletLookup current = window.peekFirst();
+      if (current == null) {
+        return false;
+      }
+
+      if (current != head) {
+        synchronized (bufferLock) {
+          head = current;
+          bufferLock.notifyAll();
+        }
+      }
+
+      Batch batch = current.take();
+      if (batch == Batch.LAST) {
+        window.removeFirst();
+        current.finish();
+      } else {
+        synchronized (bufferLock) {
+          bufferedBytes.addAndGet(-batch.size);
+          bufferLock.notifyAll();
+        }
+        batchIterator = batch.entries.iterator();
+      }
+
+      fill();
+    }
+    return true;
+  }
+
+  @Override
+  public synchronized Entry<Key,Value> next() {
+    if (hasNext()) {
+      return batchIterator.next();
+    }
+    throw new NoSuchElementException();
+  }
+
+  /**
+   * Bin ranges to tablets and create a lookup for each tablet, in the order of the tablets.
+   */
+  private List<TabletLookup> createLookups(List<Range> ranges)
+      throws AccumuloException, AccumuloSecurityException, TableNotFoundException {
+    Map<String,Map<KeyExtent,List<Range>>> binnedRanges = new HashMap<>();
+    TabletServerBatchReaderIterator.binRanges(context, tableId, tableName, locator, ranges,
+        binnedRanges);
+
+    TreeMap<KeyExtent,TabletLookup> lookups = new TreeMap<>();
+    binnedRanges.forEach((server, tablets) -> tablets.forEach((extent, tabletRanges) -> lookups
+        .put(extent, new TabletLookup(server, extent, tabletRanges))));
+    return new ArrayList<>(lookups.values());
+  }
+
+  /**
+   * Start looking up pending tablets while there are free query threads and the entries buffered by
+   * the window, plus the estimated size of the entries that running lookups will still return, fit
+   * in memory. A tablet is always started when the window is empty.
+   */
+  private void fill() {
+    double bytesPerTablet = Math.max(0, serverStats.getBytesPerTablet());
+    while (!pending.isEmpty()) {
+      if (!window.isEmpty()) {
+        long running = window.stream().filter(lookup -> !lookup.done).count();
+        if (window.size() >= numThreads
+            || bufferedBytes.get() + bytesPerTablet * running >= maxBufferedBytes) {
+          break;
+        }
+      }
+      TabletLookup lookup = pending.removeFirst();
+      window.addLast(lookup);
+      queryThreadPool.execute(lookup);
+    }
+  }
+
+  private class TabletLookup implements Runnable {
+    private final String server;
+    private final KeyExtent extent;
+    private final List<Range> ranges;
+    private final LinkedBlockingQueue<Batch> results = new LinkedBlockingQueue<>();
+
+    // these are only read by the consumer after the last batch was taken
+    private final Map<KeyExtent,List<Range>> failures = new HashMap<>();
+    private final Map<KeyExtent,List<Range>> unscanned = new HashMap<>();
+    private Throwable exception = null;
+
+    private volatile boolean done = false;
+    // time spent waiting for the consumer, which is not counted as server latency
+    private long blockedNanos = 0;
+
+    TabletLookup(String server, KeyExtent extent, List<Range> ranges) {
+      this.server = server;
+      this.extent = extent;
+      this.ranges = ranges;
+    }
+
+    @Override
+    public void run() {
+      String threadName = Thread.currentThread().getName();
+      Thread.currentThread().setName(threadName + " looking up " + extent + " at " + server);
+      long[] bytes = new long[1];
+      ResultReceiver receiver = entries -> {
+        long size = 0;
+        for (Entry<Key,Value> entry : entries) {
+          size += entry.getKey().getSize() + entry.getValue().getSize();
+        }
+        bytes[0] += size;
+        reserve(size);
+        results.add(new Batch(entries, size));
+      };
+
+      try {
+        TimeoutTracker timeoutTracker = timeoutTrackers.computeIfAbsent(server,
+            s -> new TimeoutTracker(s, timedoutServers, timeout));
+        long start = System.nanoTime();
+        tabletServerLookup.lookup(server, Map.of(extent, ranges), failures, unscanned, receiver,
+            timeoutTracker);
+        long elapsed = System.nanoTime() - start - blockedNanos;
+        serverStats.record(server, 1, NANOSECONDS.toMillis(elapsed), bytes[0]);
+
+        if (!failures.isEmpty()) {
+          locator.invalidateCache(failures.keySet());
+        }
+      } catch (IOException e) {
+        log.debug("IOException thrown", e);
+        if (!queryThreadPool.isShutdown()) {
+          locator.invalidateCache(context, server);
+        }
+      } catch (Exception e) {
+        if (queryThreadPool.isShutdown()) {
+          log.debug("Caught exception, but queryThreadPool is shutdown", e);
+        } else {
+          log.warn("Caught exception, but queryThreadPool is not shutdown", e);
+        }
+        exception = e;
+      } catch (Throwable t) {
+        exception = t;
+        throw t; // let uncaught exception handler deal with the Error
+      } finally {
+        done = true;
+        results.add(Batch.LAST);
+        Thread.currentThread().setName(threadName);
+      }
+    }
+
+    /**
+     * Add entries that were received to the buffered size, first waiting while they would push the
+     * buffer over its limit. The lookup being returned only waits while the consumer still has
+     * entries of its own to take, and any other lookup only while something is buffered, so the
+     * consumer can always make progress. The server keeps the scan open while this waits, so a
+     * consumer that stalls for longer than the server's session idle time causes the tablet to be
+     * looked up again from where it stopped.
+     */
+    private void reserve(long size) {
+      synchronized (bufferLock) {
+        long startWait = System.nanoTime();
+        while (bufferedBytes.get() + size > maxBufferedBytes
+            && (head == this ? !results.isEmpty() : bufferedBytes.get() > 0)) {
+          if (queryThreadPool.isShutdown()) {
+            throw new IllegalStateException("batch reader closed while looking up " + extent);
+          }
+          try {
+            bufferLock.wait(1000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while looking up " + extent, e);
+          }
+        }
+        blockedNanos += System.nanoTime() - startWait;
+        bufferedBytes.addAndGet(size);
+      }
+    }
+
+    Batch take() {
+      try {
+        Batch batch = null;
+        while (batch == null && !queryThreadPool.isShutdown()) {
+          batch = results.poll(1, SECONDS);
+        }
+
+        if (batch == null) {
+          String shortMsg =
+              "The BatchScanner was unexpectedly closed while this Iterator was still in use.";
+          log.error("{} Ensure that a reference to the BatchScanner is retained"
+              + " so that it can be closed when this Iterator is exhausted.", shortMsg);
+          throw new RuntimeException(shortMsg + " Ensure proper handling of the BatchScanner.");
+        }
+        return batch;
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    /**
+     * Called by the consumer once all entries of this lookup have been returned. Throws any fatal
+     * exception seen by the lookup, and queues lookups of whatever was not scanned at the front of
+     * the window so they are returned before anything that follows this tablet.
+     */
+    void finish() {
+      if (exception instanceof AccumuloSecurityException) {
+        AccumuloSecurityException ase = (AccumuloSecurityException) exception;
+        ase.setTableInfo(context.getPrintableTableInfoFromId(tableId));
+        context.clearTableListCache();
+        if (context.tableNodeExists(tableId)) {
+          throw new RuntimeException(ase);
+        }
+        throw new TableDeletedException(tableId.canonical());
+      } else if (exception instanceof RuntimeException) {
+        throw (RuntimeException) exception;
+      } else if (exception != null) {
+        throw new RuntimeException(exception);
+      }
+
+      List<Range> remaining = new ArrayList<>();
+      failures.values().forEach(remaining::addAll);
+      unscanned.values().forEach(remaining::addAll);
+      if (remaining.isEmpty()) {
+        return;
+      }
+
+      log.trace("Failed to look up {} ranges of {} at {}, retrying...", remaining.size(), extent,
+          server);
+
+      try {
+        Thread.sleep(failSleepTime);
+      } catch (InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      failSleepTime = Math.min(5000, failSleepTime * 2);
+
+      List<TabletLookup> retries;
+      try {
+        retries = createLookups(Range.mergeOverlapping(remaining));
+      } catch (AccumuloException | TableNotFoundException e) {
+        throw new RuntimeException(e);
+      } catch (AccumuloSecurityException e) {
+        e.setTableInfo(context.getPrintableTableInfoFromId(tableId));
+        throw new RuntimeException(e);
+      }
+
+      for (TabletLookup retry : retries) {
+        if (timedoutServers.contains(retry.server)) {
+          synchronized (timedoutServers) {
+            throw new TimedOutException(Set.copyOf(timedoutServers));
+          }
+        }
+      }
+
+      for (int i = retries.size() - 1; i >= 0; i--) {
+        window.addFirst(retries.get(i));
+        queryThreadPool.execute(retries.get(i));
+      }
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.accumulo.core.clientImpl;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import java.security.SecureRandom;
 import java.util.ArrayDeque;
@@ -34,9 +35,11 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
@@ -69,9 +72,14 @@ public class ThriftTransportPool {
   private final Thread checkThread;
 
   private final LongSupplier maxAgeMillis;
+  private final IntSupplier maxConnectionsPerServer;
+  private final LongSupplier maxConnectionsWaitMillis;
 
-  private ThriftTransportPool(LongSupplier maxAgeMillis) {
+  private ThriftTransportPool(LongSupplier maxAgeMillis, IntSupplier maxConnectionsPerServer,
+      LongSupplier maxConnectionsWaitMillis) {
     this.maxAgeMillis = maxAgeMillis;
+    this.maxConnectionsPerServer = maxConnectionsPerServer;
+    this.maxConnectionsWaitMillis = maxConnectionsWaitMillis;
     this.checkThread = Threads.createThread("Thrift Connection Pool Checker", () -> {
       try {
         final long minNanos = MILLISECONDS.toNanos(250);
@@ -102,10 +110,18 @@ public class ThriftTransportPool {
    *
    * @param maxAgeMillis
    *          the supplier for the max age of idle transports before they are cleaned up
+   * @param maxConnectionsPerServer
+   *          the supplier for the max number of connections to open to a single server, or 0 for no
+   *          limit
+   * @param maxConnectionsWaitMillis
+   *          the supplier for the max time to wait for a connection to a server that has the max
+   *          number of connections, before opening another one anyway
    * @return a new instance with its checker thread started to clean up idle transports
    */
-  static ThriftTransportPool startNew(LongSupplier maxAgeMillis) {
-    var pool = new ThriftTransportPool(maxAgeMillis);
+  static ThriftTransportPool startNew(LongSupplier maxAgeMillis,
+      IntSupplier maxConnectionsPerServer, LongSupplier maxConnectionsWaitMillis) {
+    var pool =
+        new ThriftTransportPool(maxAgeMillis, maxConnectionsPerServer, maxConnectionsWaitMillis);
     log.debug("Set thrift transport pool idle time to {}ms", maxAgeMillis.getAsLong());
     pool.checkThread.start();
     return pool;
@@ -113,15 +129,39 @@ public class ThriftTransportPool {
 
   public TTransport getTransport(HostAndPort location, long milliseconds, ClientContext context)
       throws TTransportException {
-    ThriftTransportKey cacheKey = new ThriftTransportKey(location, milliseconds, context);
+    return getTransport(new ThriftTransportKey(location, milliseconds, context));
+  }
+
+  @VisibleForTesting
+  TTransport getTransport(ThriftTransportKey cacheKey) throws TTransportException {
+    int maxConnections = maxConnectionsPerServer.getAsInt();
+    if (maxConnections <= 0) {
+      CachedConnection connection = connectionPool.reserveAny(cacheKey);
+
+      if (connection != null) {
+        log.trace("Using existing connection to {}", cacheKey.getServer());
+        return connection.transport;
+      } else {
+        return createNewTransport(cacheKey);
+      }
+    }
 
-    CachedConnection connection = connectionPool.reserveAny(cacheKey);
+    // Share a bounded number of connections to the server between all of the threads using it,
+    // rather than opening a connection per concurrent thread. Only wait briefly for one to be
+    // returned, since a connection may be held for the whole of a long running RPC.
+    long waitMillis = Math.min(maxConnectionsWaitMillis.getAsLong(), cacheKey.getTimeout());
+    CachedConnection connection =
+        connectionPool.reserveAnyOrWait(cacheKey, maxConnections, waitMillis);
 
     if (connection != null) {
       log.trace("Using existing connection to {}", cacheKey.getServer());
       return connection.transport;
-    } else {
+    }
+
+    try {
       return createNewTransport(cacheKey);
+    } finally {
+      connectionPool.openFinished(cacheKey);
     }
   }
 
@@ -302,6 +342,12 @@ public class ThriftTransportPool {
      */
     Deque<CachedConnection> unreserved = new ArrayDeque<>(); // stack - LIFO
     Map<CachedTTransport,CachedConnection> reserved = new HashMap<>();
+    // connections being opened by threads that waited for the per server limit
+    int opening = 0;
+
+    int size() {
+      return unreserved.size() + reserved.size() + opening;
+    }
 
     public CachedConnection reserveAny() {
       CachedConnection cachedConnection = unreserved.pollFirst(); // safe pop
@@ -354,6 +400,8 @@ public class ThriftTransportPool {
 
   private static class ConnectionPool {
     final Lock[] locks;
+    // signaled when a connection is returned or closed, for threads waiting on the per server limit
+    final Condition[] connectionsReturned;
     final ConcurrentHashMap<ThriftTransportKey,CachedConnections> connections =
         new ConcurrentHashMap<>();
     private volatile boolean shutdown = false;
@@ -361,8 +409,10 @@ public class ThriftTransportPool {
     ConnectionPool() {
       // intentionally using a prime number, don't use 31
       locks = new Lock[37];
+      connectionsReturned = new Condition[locks.length];
       for (int i = 0; i < locks.length; i++) {
         locks[i] = new ReentrantLock();
+        connectionsReturned[i] = locks[i].newCondition();
       }
     }
 
@@ -392,6 +442,73 @@ public class ThriftTransportPool {
       return executeWithinLock(key, connections::reserveAny);
     }
 
+    /**
+     * Reserve and return a {@link CachedConnection} from the {@link CachedConnections} mapped to
+     * the specified transport key. If none are unreserved and the server already has the maximum
+     * number of connections, wait up to the timeout for one to be returned. If null is returned,
+     * the caller must open a new connection and then call
+     * {@link #openFinished(ThriftTransportKey)}.
+     *
+     * @param key
+     *          the transport key
+     * @param maxConnections
+     *          the maximum number of connections to the server
+     * @param timeoutMillis
+     *          the maximum time to wait for a connection, if 0 or less open a new connection rather
+     *          than wait
+     * @return the reserved {@link CachedConnection}, or null if a new connection should be opened
+     */
+    CachedConnection reserveAnyOrWait(final ThriftTransportKey key, final int maxConnections,
+        final long timeoutMillis) {
+      var connections = getOrCreateCachedConnections(key);
+      Lock lock = getLock(key);
+      try {
+        Condition returned = connectionsReturned[lockIndex(key)];
+        long remainingNanos = MILLISECONDS.toNanos(timeoutMillis);
+        CachedConnection connection = connections.reserveAny();
+        while (connection == null && connections.size() >= maxConnections && remainingNanos > 0) {
+          try {
+            remainingNanos = returned.awaitNanos(remainingNanos);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            break;
+          }
+          if (shutdown) {
+            throw new TransportPoolShutdownException(
+                "The Accumulo singleton for connection pooling is disabled.");
+          }
+          connection = connections.reserveAny();
+        }
+        if (connection == null) {
+          if (connections.size() >= maxConnections) {
+            log.debug("Timed out waiting {}ms for a connection to {}, opening another",
+                timeoutMillis - NANOSECONDS.toMillis(Math.max(remainingNanos, 0)), key.getServer());
+          }
+          connections.opening++;
+        }
+        return connection;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Called after opening a new connection for which
+     * {@link #reserveAnyOrWait(ThriftTransportKey, int, long)} returned null, whether or not the
+     * connection was opened successfully.
+     */
+    void openFinished(final ThriftTransportKey key) {
+      var connections = getOrCreateCachedConnections(key);
+      Lock lock = locks[lockIndex(key)];
+      lock.lock();
+      try {
+        connections.opening--;
+        connectionsReturned[lockIndex(key)].signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
     /**
      * Reserve and return a new {@link CachedConnection} from the {@link CachedConnections} mapped
      * to the specified transport key. If a {@link CachedConnections} is not found, null will be
@@ -482,6 +599,9 @@ public class ThriftTransportPool {
         }
         shutdown = true;
         connections.values().forEach(CachedConnections::closeAllTransports);
+        for (Condition returned : connectionsReturned) {
+          returned.signalAll();
+        }
       } finally {
         for (Lock lock : locks) {
           lock.unlock();
@@ -507,8 +627,12 @@ public class ThriftTransportPool {
       }
     }
 
+    int lockIndex(final ThriftTransportKey key) {
+      return (key.hashCode() & Integer.MAX_VALUE) % locks.length;
+    }
+
     Lock getLock(final ThriftTransportKey key) {
-      Lock lock = locks[(key.hashCode() & Integer.MAX_VALUE) % locks.length];
+      Lock lock = locks[lockIndex(key)];
 
       lock.lock();
 
@@ -540,6 +664,7 @@ public class ThriftTransportPool {
           } else {
             returnConnectionToUnreserved(connections, connection);
           }
+          connectionsReturned[lockIndex(transport.getCacheKey())].signalAll();
           return true;
         }
       }
@@ -69,6 +69,10 @@ public enum ClientProperty {
       "2.0.0", false),
   BATCH_WRITER_THREADS_MAX("batch.writer.threads.max", "3", PropertyType.COUNT,
       "Maximum number of threads to use for writing data to tablet servers.", "2.0.0", false),
+  BATCH_WRITER_PIPELINE_DEPTH("batch.writer.pipeline.depth", "1", PropertyType.COUNT,
+      "Maximum number of batches sent to a tablet server in a single update session before"
+          + " waiting for the server to acknowledge them.",
+      "2.1.0", false),
   BATCH_WRITER_DURABILITY("batch.writer.durability", "default", PropertyType.DURABILITY,
       Property.TABLE_DURABILITY.getDescription() + " Setting this property will "
           + "change the durability for the BatchWriter session. A value of \"default\" will"
@@ -102,6 +106,15 @@ public enum ClientProperty {
   // BatchScanner
   BATCH_SCANNER_NUM_QUERY_THREADS("batch.scanner.num.query.threads", "3", PropertyType.COUNT,
       "Number of concurrent query threads to spawn for querying", "2.0.0", false),
+  BATCH_SCANNER_ORDERED_BUFFER_MAX("batch.scanner.ordered.buffer.max", "16M", PropertyType.BYTES,
+      "Max memory (in bytes) an ordered batch scanner uses to buffer entries of the tablets"
+          + " following the tablet it is returning",
+      "2.1.0", false),
+
+  // Async operations
+  ASYNC_THREADS_MAX("async.threads.max", "16", PropertyType.COUNT,
+      "Maximum number of threads shared by the asynchronous operations of a client", "2.1.0",
+      false),
 
   // Bulk load
   BULK_LOAD_THREADS("bulk.threads", ImportMappingOptions.BULK_LOAD_THREADS_DEFAULT,
@@ -134,6 +147,19 @@ public enum ClientProperty {
   RPC_TRANSPORT_IDLE_TIMEOUT("rpc.transport.idle.timeout", "3s", PropertyType.TIMEDURATION,
       "The maximum duration to leave idle transports open in the client's transport pool", "2.1.0",
       false),
+  RPC_TRANSPORT_MAX_CONNECTIONS_PER_SERVER("rpc.transport.max.connections.per.server", "0",
+      PropertyType.COUNT,
+      "The maximum number of connections the client's transport pool opens to a single server."
+          + " When the limit is reached, threads wait for a pooled connection to be returned"
+          + " for up to rpc.transport.max.connections.wait before opening a new one anyway."
+          + " 0 means no limit.",
+      "2.1.0", false),
+  RPC_TRANSPORT_MAX_CONNECTIONS_WAIT("rpc.transport.max.connections.wait", "100ms",
+      PropertyType.TIMEDURATION,
+      "The maximum duration a thread waits for a pooled connection to a server that has reached"
+          + " rpc.transport.max.connections.per.server. After that the thread opens a new"
+          + " connection, so a busy server delays an RPC by at most this long.",
+      "2.1.0", false),
 
   // Trace
   @Deprecated(since = "2.1.0", forRemoval = true)
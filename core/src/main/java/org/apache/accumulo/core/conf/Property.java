@@ -472,8 +472,10 @@ public enum Property {
   TSERV_CACHE_MANAGER_IMPL("tserver.cache.manager.class",
       "org.apache.accumulo.core.file.blockfile.cache.lru.LruBlockCacheManager", PropertyType.STRING,
       "Specifies the class name of the block cache factory implementation."
-          + " Alternative implementation is"
-          + " org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCacheManager",
+          + " Alternative implementations are"
+          + " org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCacheManager"
+          + " and org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCacheManager,"
+          + " which keeps cached blocks in direct memory outside the Java heap",
       "2.0.0"),
   TSERV_DATACACHE_SIZE("tserver.cache.data.size", "10%", PropertyType.MEMORY,
       "Specifies the size of the cache for RFile data blocks.", "1.3.5"),
@@ -481,6 +483,31 @@ public enum Property {
       "Specifies the size of the cache for RFile index blocks.", "1.3.5"),
   TSERV_SUMMARYCACHE_SIZE("tserver.cache.summary.size", "10%", PropertyType.MEMORY,
       "Specifies the size of the cache for summary data on each tablet server.", "2.0.0"),
+  TSERV_SCAN_RESULTS_CACHE_SIZE("tserver.cache.scan.results.size", "32M", PropertyType.MEMORY,
+      "Specifies the size of the cache for the scan results of tables that enable it with"
+          + " table.cache.scan.results.enable on each tablet server.",
+      "2.1.0"),
+  TSERV_CACHE_L2_DIR("tserver.cache.l2.dir", "", PropertyType.ABSOLUTEPATH,
+      "A directory on a local disk used as a second tier for the index and data block caches."
+          + " Blocks read from the file system are also written to a file in this directory, and"
+          + " blocks missing from memory are read from it before going to the file system. The"
+          + " index of the stored blocks is saved periodically so a restarted server can use"
+          + " them. This should be on a disk that is much faster than the file system, like a"
+          + " local SSD. If blank, no second tier is used. Cached blocks are decrypted, so no"
+          + " second tier is used when instance.crypto.opts.factory is set.",
+      "2.1.0"),
+  TSERV_CACHE_L2_SIZE("tserver.cache.l2.size", "10G", PropertyType.BYTES,
+      "The size of the file used by the second tier block cache configured by "
+          + "tserver.cache.l2.dir. Changing the size discards the blocks stored in the file.",
+      "2.1.0"),
+  TSERV_FILE_READ_AHEAD_MEMORY("tserver.file.readahead.memory", "64M", PropertyType.BYTES,
+      "The most memory used by data blocks that are read ahead of sequential scans and"
+          + " compactions, and not used yet. Blocks are read ahead into the data cache when the"
+          + " read uses it, and otherwise held in memory until read. Setting this to 0 disables"
+          + " read ahead. See table.file.readahead.blocks.",
+      "2.1.0"),
+  TSERV_FILE_READ_AHEAD_THREADS("tserver.file.readahead.threads", "8", PropertyType.COUNT,
+      "The number of threads used to read data blocks ahead of sequential reads.", "2.1.0"),
   TSERV_PORTSEARCH("tserver.port.search", "false", PropertyType.BOOLEAN,
       "if the ports above are in use, search higher ports until one is available", "1.3.5"),
   TSERV_CLIENTPORT("tserver.port.client", "9997", PropertyType.PORT,
@@ -571,6 +598,21 @@ public enum Property {
       "An in-memory data store for accumulo implemented in c++ that increases"
           + " the amount of data accumulo can hold in memory and avoids Java GC pauses.",
       "1.3.5"),
+  TSERV_OFFHEAP_MAP_ENABLED("tserver.memory.maps.offheap.enabled", "false", PropertyType.BOOLEAN,
+      "An in-memory data store for accumulo implemented in Java that keeps data in"
+          + " direct memory instead of the Java heap, avoiding Java GC pauses without"
+          + " requiring the native library. When enabled it is used instead of the native"
+          + " map. The JVM must allow enough direct memory (-XX:MaxDirectMemorySize) to"
+          + " hold tserver.memory.maps.max.",
+      "2.1.0"),
+  TSERV_MEMORY_MAP_CONCURRENT_WRITES("tserver.memory.maps.concurrent.writes.enabled", "false",
+      PropertyType.BOOLEAN,
+      "When enabled, writes to a tablet's in-memory map from different sessions are"
+          + " applied concurrently instead of one at a time. Writes to different locality"
+          + " groups, and all writes when using the default Java map, can then use"
+          + " multiple cores. Isolation is unchanged, a write becomes visible only after"
+          + " all writes that started before it have finished.",
+      "2.1.0"),
   TSERV_MAXMEM("tserver.memory.maps.max", "33%", PropertyType.MEMORY,
       "Maximum amount of memory that can be used to buffer data written to a"
           + " tablet server. There are two other properties that can effectively limit"
@@ -778,6 +820,13 @@ public enum Property {
   @ReplacedBy(property = Property.TSERV_WAL_SORT_BUFFER_SIZE)
   TSERV_SORT_BUFFER_SIZE("tserver.sort.buffer.size", "10%", PropertyType.MEMORY,
       "The amount of memory to use when sorting logs during recovery.", "1.5.0"),
+  TSERV_WAL_SORT_WRITE_THREADS("tserver.wal.sort.write.threads", "0", PropertyType.COUNT,
+      "The number of buffered chunks of a write-ahead log that may be sorted and written in the"
+          + " background while recovery continues to read and decode the log. Zero sorts and"
+          + " writes each chunk on the reading thread. Each chunk can hold up to"
+          + " tserver.wal.sort.buffer.size of memory, so setting this to N lets each log being"
+          + " recovered use up to N+1 times that amount.",
+      "2.1.0"),
   TSERV_WAL_SORT_FILE_PREFIX("tserver.wal.sort.file.", null, PropertyType.PREFIX,
       "The rfile properties to use when sorting logs during recovery. Most of the properties"
           + " that begin with 'table.file' can be used here. For example, to set the compression"
@@ -791,6 +840,16 @@ public enum Property {
       "Use the SYNC_BLOCK create flag to sync WAL writes to disk. Prevents"
           + " problems recovering from sudden system resets.",
       "1.5.0"),
+  TSERV_WAL_GROUP_COMMIT_WAIT("tserver.wal.group.commit.wait", "0ms", PropertyType.TIMEDURATION,
+      "The maximum amount of time the write-ahead log syncing thread will wait for more writes"
+          + " to arrive before issuing a single hsync or hflush for all of them. This trades a"
+          + " small amount of latency for fewer, larger syncs when many sessions write small"
+          + " batches concurrently. Zero disables the batching window.",
+      "2.1.0"),
+  TSERV_WAL_GROUP_COMMIT_MAX_SIZE("tserver.wal.group.commit.max.size", "64", PropertyType.COUNT,
+      "The number of pending write-ahead log writes that will end the batching window set by"
+          + " tserver.wal.group.commit.wait early and cause an immediate sync.",
+      "2.1.0"),
   TSERV_ASSIGNMENT_DURATION_WARNING("tserver.assignment.duration.warning", "10m",
       PropertyType.TIMEDURATION,
       "The amount of time an assignment can run before the server will print a"
@@ -977,6 +1036,16 @@ public enum Property {
           + " when regular compactions are not running. Idle compactions only take"
           + " place for tablets that have one or more RFiles.",
       "1.3.5"),
+  @Experimental
+  TABLE_MAJC_THREADS("table.compaction.major.threads", "1", PropertyType.COUNT,
+      "The number of threads a single major compaction uses to read its input. When greater than"
+          + " one, a large compaction splits the tablet into that many row aligned sub-ranges"
+          + " using the input files' indexes. The sub-ranges are read, merged and run through"
+          + " the compaction iterators in parallel, and written to the single output file in"
+          + " order. Compaction iterators must not depend on seeing rows in other sub-ranges."
+          + " The sub-ranges of all compactions in a process are read by a shared pool with one"
+          + " thread per available processor.",
+      "2.1.0"),
   TABLE_SPLIT_THRESHOLD("table.split.threshold", "1G", PropertyType.BYTES,
       "A tablet is split when the combined size of RFiles exceeds this amount.", "1.3.5"),
   TABLE_MAX_END_ROW_SIZE("table.split.endrow.size.max", "10k", PropertyType.BYTES,
@@ -1047,6 +1116,12 @@ public enum Property {
       "The maximum amount of memory that will be used to cache results of a client query/scan. "
           + "Once this limit is reached, the buffered data is sent to the client.",
       "1.3.5"),
+  TABLE_SCAN_MAXMEM_INITIAL("table.scan.max.memory.initial", "64k", PropertyType.BYTES,
+      "The maximum amount of memory that will be used to cache the first batch of results of a"
+          + " scan. Each following batch may use twice the memory of the previous one, up to"
+          + " table.scan.max.memory, so the first results of a large scan reach the client"
+          + " sooner. Zero uses table.scan.max.memory for every batch.",
+      "2.1.0"),
   TABLE_FILE_TYPE("table.file.type", RFile.EXTENSION, PropertyType.STRING,
       "Change the type of file a table writes", "1.3.5"),
   TABLE_LOAD_BALANCER("table.balancer", "org.apache.accumulo.core.spi.balancer.SimpleLoadBalancer",
@@ -1058,6 +1133,14 @@ public enum Property {
       "Compression algorithm used on index and data blocks before they are"
           + " written. Possible values: zstd, gz, snappy, bzip2, lzo, lz4, none",
       "1.3.5"),
+  TABLE_FILE_COLUMNAR_ENABLED("table.file.columnar.enabled", "false", PropertyType.BOOLEAN,
+      "Write the data blocks of new RFiles in a columnar layout. Each block stores the rows,"
+          + " column families, qualifiers, visibilities, timestamps and values as separate"
+          + " columns, using per block dictionaries for repeated columns and delta encoded"
+          + " timestamps. This makes blocks with repetitive keys smaller, at the cost of"
+          + " decoding a whole block when it is read. Files written this way can not be read"
+          + " by versions that do not support columnar blocks.",
+      "2.1.0"),
   TABLE_FILE_COMPRESSED_BLOCK_SIZE("table.file.compress.blocksize", "100k", PropertyType.BYTES,
       "The maximum size of data blocks in RFiles before they are compressed and written.", "1.3.5"),
   TABLE_FILE_COMPRESSED_BLOCK_SIZE_INDEX("table.file.compress.blocksize.index", "128k",
@@ -1068,6 +1151,19 @@ public enum Property {
       "The HDFS block size used when writing RFiles. When set to 0B, the"
           + " value/defaults of HDFS property 'dfs.block.size' will be used.",
       "1.3.5"),
+  TABLE_FILE_MMAP_ENABLED("table.file.mmap.enabled", "false", PropertyType.BOOLEAN,
+      "Memory map RFiles that are stored on a local file system (file://) when reading them."
+          + " Blocks are then read straight from the page cache, and uncompressed, unencrypted"
+          + " blocks that are not cached are decoded from the mapping without being copied."
+          + " Checksum files kept by the local file system are not verified on this path.",
+      "2.1.0"),
+  TABLE_FILE_READ_AHEAD_BLOCKS("table.file.readahead.blocks", "0", PropertyType.COUNT,
+      "The most data blocks of a file to read in the background ahead of a scan or compaction"
+          + " that is reading the file in order. Reading ahead starts after a few blocks are"
+          + " read in order and grows with each further block, up to this limit. The memory"
+          + " used is limited by tserver.file.readahead.memory. The default of 0 disables"
+          + " read ahead for the table.",
+      "2.1.0"),
   TABLE_FILE_REPLICATION("table.file.replication", "0", PropertyType.COUNT,
       "The number of replicas for a table's RFiles in HDFS. When set to 0, HDFS"
           + " defaults are used.",
@@ -1153,6 +1249,13 @@ public enum Property {
       "Determines whether index block cache is enabled for a table.", "1.3.5"),
   TABLE_BLOCKCACHE_ENABLED("table.cache.block.enable", "false", PropertyType.BOOLEAN,
       "Determines whether data block cache is enabled for a table.", "1.3.5"),
+  TABLE_SCAN_RESULTS_CACHE_ENABLED("table.cache.scan.results.enable", "false", PropertyType.BOOLEAN,
+      "Determines whether the results of scans on a table are cached, so identical scans run"
+          + " while the data of a tablet is unchanged are answered from the cache. Any write,"
+          + " flush, compaction or bulk import invalidates the cached results of a tablet, so"
+          + " this suits tables that are read far more often than they change. Isolated scans"
+          + " are not cached.",
+      "2.1.0"),
   TABLE_ITERATOR_PREFIX("table.iterator.", null, PropertyType.PREFIX,
       "Properties in this category specify iterators that are applied at"
           + " various stages (scopes) of interaction with a table. These properties"
@@ -1443,6 +1546,22 @@ public enum Property {
   COMPACTION_COORDINATOR_TSERVER_COMPACTION_CHECK_INTERVAL(
       "compaction.coordinator.tserver.check.interval", "1m", PropertyType.TIMEDURATION,
       "The interval at which to check the tservers for external compactions.", "2.1.0"),
+  @Experimental
+  COMPACTION_COORDINATOR_JOB_WAIT_MAX("compaction.coordinator.job.wait.max", "30s",
+      PropertyType.TIMEDURATION,
+      "The maximum time the coordinator holds a compactor's request for a job when no tablet"
+          + " server has work for its queue. The request is answered as soon as a tablet server"
+          + " reports work for the queue, so idle compactors pick up new jobs without polling."
+          + " This should be less than general.rpc.timeout. Zero (0) answers immediately.",
+      "2.1.0"),
+  COMPACTION_COORDINATOR_JOB_WAITERS_MAX("compaction.coordinator.job.waiters.max", "32",
+      PropertyType.COUNT,
+      "The most compactor requests for a job the coordinator holds at once while no tablet"
+          + " server has work for their queue. Each held request occupies a thread that handles"
+          + " coordinator requests, so this leaves threads for compaction status and completion"
+          + " updates when many compactors are idle. Requests beyond this are answered"
+          + " immediately, and their compactors wait before asking again.",
+      "2.1.0"),
   // deprecated properties grouped at the end to reference property that replaces them
   @Deprecated(since = "1.6.0")
   @ReplacedBy(property = INSTANCE_VOLUMES)
@@ -1767,7 +1886,7 @@ public enum Property {
       TSERV_SUMMARYCACHE_SIZE,
 
       // others
-      TSERV_NATIVEMAP_ENABLED, TSERV_SCAN_MAX_OPENFILES);
+      TSERV_NATIVEMAP_ENABLED, TSERV_OFFHEAP_MAP_ENABLED, TSERV_SCAN_MAX_OPENFILES);
 
   /**
    * Checks if the given property may be changed via Zookeeper, but not recognized until the restart
@@ -1239,7 +1239,10 @@ public class Key implements WritableComparable<Key>, Cloneable {
   }
 
   /**
-   * Compresses a list of key/value pairs before sending them via thrift.
+   * Compresses a list of key/value pairs before sending them via thrift. Fields of a key equal to
+   * those of the previous key are left unset. The returned Thrift objects wrap the byte arrays of
+   * the given keys and values rather than copying them, so the key/value pairs must not be modified
+   * while the Thrift objects are in use.
    *
    * @param param
    *          list of key/value pairs
@@ -1249,44 +1252,33 @@ public class Key implements WritableComparable<Key>, Cloneable {
 
     List<TKeyValue> tkvl = Arrays.asList(new TKeyValue[param.size()]);
 
-    if (!param.isEmpty())
-      tkvl.set(0, new TKeyValue(param.get(0).getKey().toThrift(),
-          ByteBuffer.wrap(param.get(0).getValue().get())));
-
-    for (int i = param.size() - 1; i > 0; i--) {
-      Key prevKey = param.get(i - 1).getKey();
+    Key prevKey = null;
+    for (int i = 0; i < param.size(); i++) {
       KeyValue kv = param.get(i);
       Key key = kv.getKey();
 
-      TKey newKey = null;
-
-      if (isEqual(prevKey.row, key.row)) {
-        newKey = key.toThrift();
-        newKey.row = null;
+      // assign the fields directly, the Thrift constructors and setters copy byte buffers
+      TKey newKey = new TKey();
+      if (prevKey == null || !isEqual(prevKey.row, key.row)) {
+        newKey.row = ByteBuffer.wrap(key.row);
       }
-
-      if (isEqual(prevKey.colFamily, key.colFamily)) {
-        if (newKey == null)
-          newKey = key.toThrift();
-        newKey.colFamily = null;
+      if (prevKey == null || !isEqual(prevKey.colFamily, key.colFamily)) {
+        newKey.colFamily = ByteBuffer.wrap(key.colFamily);
       }
-
-      if (isEqual(prevKey.colQualifier, key.colQualifier)) {
-        if (newKey == null)
-          newKey = key.toThrift();
-        newKey.colQualifier = null;
+      if (prevKey == null || !isEqual(prevKey.colQualifier, key.colQualifier)) {
+        newKey.colQualifier = ByteBuffer.wrap(key.colQualifier);
       }
-
-      if (isEqual(prevKey.colVisibility, key.colVisibility)) {
-        if (newKey == null)
-          newKey = key.toThrift();
-        newKey.colVisibility = null;
+      if (prevKey == null || !isEqual(prevKey.colVisibility, key.colVisibility)) {
+        newKey.colVisibility = ByteBuffer.wrap(key.colVisibility);
       }
+      newKey.setTimestamp(key.timestamp);
 
-      if (newKey == null)
-        newKey = key.toThrift();
+      TKeyValue tkv = new TKeyValue();
+      tkv.key = newKey;
+      tkv.value = ByteBuffer.wrap(kv.getValue().get());
+      tkvl.set(i, tkv);
 
-      tkvl.set(i, new TKeyValue(newKey, ByteBuffer.wrap(kv.getValue().get())));
+      prevKey = key;
     }
 
     return tkvl;
@@ -0,0 +1,340 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.offheap;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+import org.apache.accumulo.core.file.blockfile.cache.impl.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.impl.SizeConstants;
+import org.apache.accumulo.core.file.blockfile.cache.lru.SynchronousLoadingBlockCache;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheEntry.Weighable;
+import org.apache.accumulo.core.util.threads.ThreadPools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * A block cache that keeps block data in direct memory slabs, so a large cache does not grow the
+ * Java heap or the work done by the garbage collector. Only the cache bookkeeping and the indexes
+ * built over cached blocks stay on the heap.
+ *
+ * <p>
+ * Blocks are stored in chunks of a {@link SlabAllocator} size class. Which blocks to keep is
+ * decided by a Caffeine cache using W-TinyLFU, weighted by the size of each chunk. When no chunk of
+ * the needed size class is free, the coldest blocks are evicted to make room for it.
+ *
+ * <p>
+ * A hit copies the block out of direct memory, because the {@link CacheEntry} SPI exposes blocks as
+ * byte arrays. These copies are short lived, unlike the blocks held by an on-heap cache.
+ */
+public final class OffHeapBlockCache extends SynchronousLoadingBlockCache {
+  private static final Logger log = LoggerFactory.getLogger(OffHeapBlockCache.class);
+  private static final int STATS_PERIOD_SEC = 60;
+  // how many of the coldest blocks to look through for ones to evict
+  private static final int EVICTION_SCAN_LIMIT = 1024;
+  private static final long BLOCK_HEAP_OVERHEAD = ClassSize
+      .align(ClassSize.OBJECT + 2 * SizeConstants.SIZEOF_LONG + 3 * SizeConstants.SIZEOF_INT
+          + ClassSize.REFERENCE + SizeConstants.SIZEOF_BOOLEAN)
+      + ClassSize.STRING + ClassSize.CONCURRENT_HASHMAP_ENTRY;
+
+  private final SlabAllocator allocator;
+  private final Cache<String,Block> cache;
+  private final Policy.Eviction<String,Block> policy;
+  private final long maxSize;
+  private final long maxHeapSize;
+  private final ScheduledExecutorService statsExecutor = ThreadPools.getServerThreadPools()
+      .createScheduledExecutorService(1, "OffHeapBlockCacheStatsExecutor", true);
+
+  public OffHeapBlockCache(OffHeapBlockCacheConfiguration conf) {
+    this.maxSize = conf.getMaxSize();
+    this.allocator = new SlabAllocator(maxSize, conf.getSlabSize());
+    long expectedBlocks = (long) Math.ceil(1.2 * maxSize / Math.max(1, conf.getBlockSize()));
+    this.cache =
+        Caffeine.newBuilder().initialCapacity((int) Math.min(Integer.MAX_VALUE, expectedBlocks))
+            .weigher((String blockName, Block block) -> block.weight())
+            .maximumWeight(allocator.getMaxSize())
+            // free chunks on the thread that removed them, so they can be reused right away
+            .executor(Runnable::run)
+            .removalListener((String blockName, Block block, RemovalCause cause) -> {
+              if (block != null) {
+                block.free();
+              }
+            }).recordStats().build();
+    this.policy = cache.policy().eviction().get();
+    // the blocks are off heap, only their bookkeeping and indexes count against the heap
+    this.maxHeapSize = expectedBlocks * BLOCK_HEAP_OVERHEAD + maxSize / 100;
+    ScheduledFuture<?> future = statsExecutor.scheduleAtFixedRate(this::logStats, STATS_PERIOD_SEC,
+        STATS_PERIOD_SEC, SECONDS);
+    ThreadPools.watchNonCriticalScheduledTask(future);
+  }
+
+  @Override
+  public long getMaxHeapSize() {
+    return maxHeapSize;
+  }
+
+  @Override
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  @Override
+  protected int getMaxEntrySize() {
+    return allocator.getMaxSize() == 0 ? 0 : allocator.getMaxChunkSize();
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    return wrap(blockName, cache.getIfPresent(blockName));
+  }
+
+  @Override
+  protected CacheEntry getBlockNoStats(String blockName) {
+    return wrap(blockName, cache.asMap().get(blockName));
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buffer) {
+    Block block = allocate(buffer);
+    if (block == null) {
+      // could not make room, hand the data back without caching it
+      return new UncachedEntry(buffer);
+    }
+    cache.put(blockName, block);
+    return new OffHeapCacheEntry(blockName, block, buffer);
+  }
+
+  private Block allocate(byte[] buffer) {
+    int sizeClass = allocator.sizeClass(buffer.length);
+    if (sizeClass < 0 || allocator.getMaxSize() == 0) {
+      return null;
+    }
+
+    long address = allocator.allocate(sizeClass);
+    if (address < 0) {
+      address = evictAndAllocate(sizeClass);
+      if (address < 0) {
+        return null;
+      }
+    }
+    allocator.write(address, buffer);
+    return new Block(address, buffer.length, allocator.chunkSize(sizeClass), sizeClass);
+  }
+
+  /**
+   * Evict cold blocks until a chunk of the size class can be allocated. Blocks of the same size
+   * class are evicted first, since each of them frees a usable chunk. Failing that, any cold block
+   * is evicted until a whole slab is freed.
+   */
+  private long evictAndAllocate(int sizeClass) {
+    cache.cleanUp();
+    long address = allocator.allocate(sizeClass);
+    if (address >= 0) {
+      return address;
+    }
+
+    Map<String,Block> coldest = policy.coldest(EVICTION_SCAN_LIMIT);
+    for (var entry : coldest.entrySet()) {
+      if (entry.getValue().sizeClass == sizeClass
+          && cache.asMap().remove(entry.getKey(), entry.getValue())) {
+        address = allocator.allocate(sizeClass);
+        if (address >= 0) {
+          return address;
+        }
+      }
+    }
+
+    for (var entry : coldest.entrySet()) {
+      if (cache.asMap().remove(entry.getKey(), entry.getValue())) {
+        address = allocator.allocate(sizeClass);
+        if (address >= 0) {
+          return address;
+        }
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public Stats getStats() {
+    CacheStats stats = cache.stats();
+    return new Stats() {
+      @Override
+      public long hitCount() {
+        return stats.hitCount();
+      }
+
+      @Override
+      public long requestCount() {
+        return stats.requestCount();
+      }
+    };
+  }
+
+  private void logStats() {
+    double maxMB = ((double) policy.getMaximum()) / ((double) (1024 * 1024));
+    double sizeMB = ((double) policy.weightedSize().getAsLong()) / ((double) (1024 * 1024));
+    double allocatedMB = ((double) allocator.getAllocatedSize()) / ((double) (1024 * 1024));
+    log.debug("Cache Size={}MB, Free={}MB, Max={}MB, Allocated={}MB, Blocks={}", sizeMB,
+        maxMB - sizeMB, maxMB, allocatedMB, cache.estimatedSize());
+    log.debug(cache.stats().toString());
+  }
+
+  private CacheEntry wrap(String blockName, Block block) {
+    if (block != null) {
+      byte[] data = block.copy();
+      if (data != null) {
+        return new OffHeapCacheEntry(blockName, block, data);
+      }
+    }
+    return null;
+  }
+
+  private final class Block {
+    private final long address;
+    private final int length;
+    private final int chunkSize;
+    private final int sizeClass;
+    private boolean freed = false;
+    private Weighable index;
+    private volatile int lastIndexWeight;
+
+    Block(long address, int length, int chunkSize, int sizeClass) {
+      this.address = address;
+      this.length = length;
+      this.chunkSize = chunkSize;
+      this.sizeClass = sizeClass;
+      this.lastIndexWeight = length / 100;
+    }
+
+    int weight() {
+      return chunkSize + lastIndexWeight;
+    }
+
+    /**
+     * @return a copy of the block, or null if it was freed
+     */
+    synchronized byte[] copy() {
+      if (freed) {
+        return null;
+      }
+      byte[] data = new byte[length];
+      allocator.read(address, data);
+      return data;
+    }
+
+    void free() {
+      synchronized (this) {
+        if (freed) {
+          return;
+        }
+        // after this no copy is in progress or can start, so the chunk can be reused
+        freed = true;
+        index = null;
+      }
+      allocator.free(address);
+    }
+
+    @SuppressWarnings("unchecked")
+    synchronized <T extends Weighable> T getIndex(Supplier<T> supplier) {
+      if (index == null) {
+        index = supplier.get();
+      }
+      return (T) index;
+    }
+
+    synchronized boolean indexWeightChanged() {
+      if (index != null) {
+        int indexWeight = index.weight();
+        if (indexWeight > lastIndexWeight) {
+          lastIndexWeight = indexWeight;
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private class OffHeapCacheEntry implements CacheEntry {
+    private final String blockName;
+    private final Block block;
+    private final byte[] buffer;
+
+    OffHeapCacheEntry(String blockName, Block block, byte[] buffer) {
+      this.blockName = blockName;
+      this.block = block;
+      this.buffer = buffer;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    public <T extends Weighable> T getIndex(Supplier<T> supplier) {
+      return block.getIndex(supplier);
+    }
+
+    @Override
+    public void indexWeightChanged() {
+      if (block.indexWeightChanged()) {
+        // recompute the weight without the block being removed and freed
+        cache.asMap().computeIfPresent(blockName, (k, b) -> b);
+      }
+    }
+  }
+
+  private static class UncachedEntry implements CacheEntry {
+    private final byte[] buffer;
+    private Weighable index;
+
+    UncachedEntry(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public byte[] getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends Weighable> T getIndex(Supplier<T> supplier) {
+      if (index == null) {
+        index = supplier.get();
+      }
+      return (T) index;
+    }
+
+    @Override
+    public void indexWeightChanged() {}
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.offheap;
+
+import java.util.Map;
+
+import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager.Configuration;
+import org.apache.accumulo.core.spi.cache.CacheType;
+
+public final class OffHeapBlockCacheConfiguration {
+
+  public static final String PROPERTY_PREFIX = "offheap";
+
+  public static final String SLAB_SIZE_PROPERTY = "slab.size";
+  public static final String DEFAULT_SLAB_SIZE = "4M";
+
+  private final long maxSize;
+  private final long blockSize;
+  private final int slabSize;
+
+  public OffHeapBlockCacheConfiguration(Configuration conf, CacheType type) {
+    Map<String,String> props = conf.getProperties(PROPERTY_PREFIX, type);
+    this.maxSize = conf.getMaxSize(type);
+    this.blockSize = conf.getBlockSize();
+    long slabBytes = ConfigurationTypeHelper
+        .getFixedMemoryAsBytes(props.getOrDefault(SLAB_SIZE_PROPERTY, DEFAULT_SLAB_SIZE));
+    if (slabBytes < SlabAllocator.MIN_CHUNK_SIZE || slabBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid slab size " + slabBytes);
+    }
+    // a cache smaller than a slab gets a single slab of its size
+    this.slabSize = (int) Math.max(SlabAllocator.MIN_CHUNK_SIZE, Math.min(slabBytes, maxSize));
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  public long getBlockSize() {
+    return blockSize;
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  @Override
+  public String toString() {
+    return "maxSize: " + maxSize + ", blockSize: " + blockSize + ", slabSize: " + slabSize;
+  }
+}
@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.offheap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Allocates fixed size chunks of memory out of direct memory slabs. Chunk sizes are grouped into
+ * size classes that grow geometrically, and each slab holds chunks of a single size class. A slab
+ * whose chunks have all been freed is returned to a common pool so it can be reused by any size
+ * class. Slabs are allocated lazily, up to the configured total size.
+ *
+ * <p>
+ * Chunks are addressed with a long that holds the slab index in the upper 32 bits and the byte
+ * offset of the chunk within the slab in the lower 32 bits.
+ */
+final class SlabAllocator {
+
+  static final int MIN_CHUNK_SIZE = 1024;
+  static final double GROWTH_FACTOR = 1.25;
+
+  private final int slabSize;
+  private final int[] classSizes;
+
+  private final ByteBuffer[] slabs;
+  // the size class of each slab, or -1 when the slab is not in use
+  private final int[] slabClasses;
+  // a stack of the free chunk offsets of each slab in use
+  private final int[][] freeChunks;
+  private final int[] freeCounts;
+  // the slabs in use by each size class that have free chunks
+  private final List<LinkedHashSet<Integer>> partialSlabs;
+  private final ArrayDeque<Integer> freeSlabs = new ArrayDeque<>();
+  private int allocatedSlabs = 0;
+
+  SlabAllocator(long maxSize, int slabSize) {
+    Preconditions.checkArgument(slabSize >= MIN_CHUNK_SIZE, "slab size %s is less than %s",
+        slabSize, MIN_CHUNK_SIZE);
+    long numSlabs = maxSize / slabSize;
+    Preconditions.checkArgument(numSlabs <= Integer.MAX_VALUE, "too many slabs %s", numSlabs);
+
+    this.slabSize = slabSize;
+    this.classSizes = computeClassSizes(slabSize);
+    this.slabs = new ByteBuffer[(int) numSlabs];
+    this.slabClasses = new int[slabs.length];
+    Arrays.fill(slabClasses, -1);
+    this.freeChunks = new int[slabs.length][];
+    this.freeCounts = new int[slabs.length];
+    this.partialSlabs = new ArrayList<>(classSizes.length);
+    for (int i = 0; i < classSizes.length; i++) {
+      partialSlabs.add(new LinkedHashSet<>());
+    }
+  }
+
+  static int[] computeClassSizes(int slabSize) {
+    int[] sizes = new int[64];
+    int count = 0;
+    long size = MIN_CHUNK_SIZE;
+    while (size < slabSize) {
+      sizes[count++] = (int) size;
+      // keep chunks 8 byte aligned
+      size = ((long) Math.ceil(size * GROWTH_FACTOR) + 7) & ~7L;
+    }
+    sizes[count++] = slabSize;
+    return Arrays.copyOf(sizes, count);
+  }
+
+  /**
+   * @return the index of the smallest size class that can hold the length, or -1 if it is larger
+   *         than a slab
+   */
+  int sizeClass(int length) {
+    int index = Arrays.binarySearch(classSizes, length);
+    if (index >= 0) {
+      return index;
+    }
+    index = -index - 1;
+    return index < classSizes.length ? index : -1;
+  }
+
+  int chunkSize(int sizeClass) {
+    return classSizes[sizeClass];
+  }
+
+  int getMaxChunkSize() {
+    return slabSize;
+  }
+
+  long getMaxSize() {
+    return (long) slabs.length * slabSize;
+  }
+
+  synchronized long getAllocatedSize() {
+    return (long) allocatedSlabs * slabSize;
+  }
+
+  /**
+   * @return the address of a chunk in the given size class, or -1 if none is free
+   */
+  synchronized long allocate(int sizeClass) {
+    var partial = partialSlabs.get(sizeClass);
+    int slab;
+    if (partial.isEmpty()) {
+      slab = assignFreeSlab(sizeClass);
+      if (slab < 0) {
+        return -1;
+      }
+    } else {
+      slab = partial.iterator().next();
+    }
+
+    int offset = freeChunks[slab][--freeCounts[slab]];
+    if (freeCounts[slab] == 0) {
+      partial.remove(slab);
+    }
+    return ((long) slab << 32) | offset;
+  }
+
+  private int assignFreeSlab(int sizeClass) {
+    int slab;
+    if (!freeSlabs.isEmpty()) {
+      slab = freeSlabs.pop();
+    } else if (allocatedSlabs < slabs.length) {
+      slab = allocatedSlabs++;
+      slabs[slab] = ByteBuffer.allocateDirect(slabSize);
+    } else {
+      return -1;
+    }
+
+    int chunkSize = classSizes[sizeClass];
+    int numChunks = slabSize / chunkSize;
+    int[] free = new int[numChunks];
+    // hand out chunks from the start of the slab first
+    for (int i = 0; i < numChunks; i++) {
+      free[i] = (numChunks - 1 - i) * chunkSize;
+    }
+    slabClasses[slab] = sizeClass;
+    freeChunks[slab] = free;
+    freeCounts[slab] = numChunks;
+    partialSlabs.get(sizeClass).add(slab);
+    return slab;
+  }
+
+  synchronized void free(long address) {
+    int slab = (int) (address >>> 32);
+    int offset = (int) address;
+    int sizeClass = slabClasses[slab];
+    Preconditions.checkState(sizeClass >= 0, "slab %s is not in use", slab);
+
+    if (freeCounts[slab] == 0) {
+      partialSlabs.get(sizeClass).add(slab);
+    }
+    freeChunks[slab][freeCounts[slab]++] = offset;
+    if (freeCounts[slab] == freeChunks[slab].length) {
+      // every chunk is free, so let any size class use the slab
+      partialSlabs.get(sizeClass).remove(slab);
+      slabClasses[slab] = -1;
+      freeChunks[slab] = null;
+      freeSlabs.push(slab);
+    }
+  }
+
+  /**
+   * Copy data into an allocated chunk. The caller must own the chunk.
+   */
+  void write(long address, byte[] data) {
+    ByteBuffer buffer = slab(address).duplicate();
+    buffer.position((int) address);
+    buffer.put(data);
+  }
+
+  /**
+   * Copy the start of an allocated chunk into the destination. The caller must own the chunk.
+   */
+  void read(long address, byte[] dest) {
+    ByteBuffer buffer = slab(address).duplicate();
+    buffer.position((int) address);
+    buffer.get(dest);
+  }
+
+  private ByteBuffer slab(long address) {
+    return slabs[(int) (address >>> 32)];
+  }
+}
@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.apache.accumulo.core.util.threads.ThreadPools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * Stores cache blocks in a file on a local disk. This is the second tier of a
+ * {@link TieredBlockCache}, meant for fast local disks like NVMe drives that can serve blocks much
+ * faster than a distributed file system backed by spinning disks.
+ *
+ * <p>
+ * The data file is written like a ring buffer. New blocks are appended by a single background
+ * thread and once the file is full the oldest blocks are overwritten, so all writes are sequential.
+ * Readers detect a block that was overwritten while being read and treat it as a miss. The index of
+ * the blocks is kept on heap and periodically saved next to the data file, so a restarted server
+ * can serve the blocks cached by its previous run. Each block has a checksum that is verified on
+ * read, which also catches blocks that were overwritten after the index was last saved.
+ */
+public final class LocalBlockStore implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(LocalBlockStore.class);
+
+  static final String DATA_FILE = "blocks.dat";
+  static final String INDEX_FILE = "blocks.idx";
+  static final String LOCK_FILE = "blocks.lock";
+
+  private static final int INDEX_MAGIC = 0x4c324243;
+  private static final int INDEX_VERSION = 1;
+  private static final int CHECKPOINT_PERIOD_SEC = 300;
+  private static final int CLOSE_WAIT_SEC = 30;
+
+  private static class Entry {
+    final String name;
+    // logical position, the data is at position % capacity in the data file
+    final long position;
+    final int length;
+    final int checksum;
+
+    Entry(String name, long position, int length, int checksum) {
+      this.name = name;
+      this.position = position;
+      this.length = length;
+      this.checksum = checksum;
+    }
+  }
+
+  private final Path dir;
+  private final long capacity;
+  private final int maxPendingWrites;
+  private final FileChannel lockChannel;
+  private final FileLock lock;
+  private final FileChannel data;
+
+  private final ConcurrentHashMap<String,Entry> index = new ConcurrentHashMap<>();
+  // entries in the order they were written, only used by the writer thread
+  private final ArrayDeque<Entry> written = new ArrayDeque<>();
+  // the end of the last write, advanced before data is overwritten
+  private volatile long writePosition = 0;
+
+  private final ScheduledThreadPoolExecutor writer;
+  private final ScheduledFuture<?> checkpointTask;
+  private final AtomicInteger pendingWrites = new AtomicInteger();
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+
+  private LocalBlockStore(Path dir, long capacity, int maxPendingWrites) throws IOException {
+    Preconditions.checkArgument(capacity > 0, "capacity must be positive: %s", capacity);
+    this.dir = dir;
+    this.capacity = capacity;
+    this.maxPendingWrites = maxPendingWrites;
+
+    Files.createDirectories(dir);
+    this.lockChannel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE);
+    FileLock fileLock = null;
+    FileChannel dataChannel = null;
+    try {
+      try {
+        fileLock = lockChannel.tryLock();
+      } catch (OverlappingFileLockException e) {
+        // locked by this process
+      }
+      if (fileLock == null) {
+        throw new IOException("Block store " + dir + " is in use by another process");
+      }
+      dataChannel = FileChannel.open(dir.resolve(DATA_FILE), StandardOpenOption.CREATE,
+          StandardOpenOption.READ, StandardOpenOption.WRITE);
+      if (dataChannel.size() == capacity) {
+        loadIndex();
+      } else {
+        // a new store, or the capacity changed and the old index does not apply
+        dataChannel.truncate(0);
+        dataChannel.write(ByteBuffer.allocate(1), capacity - 1);
+      }
+    } catch (IOException | RuntimeException e) {
+      if (dataChannel != null) {
+        dataChannel.close();
+      }
+      lockChannel.close();
+      throw e;
+    }
+    this.lock = fileLock;
+    this.data = dataChannel;
+
+    this.writer = ThreadPools.getServerThreadPools().createScheduledExecutorService(1,
+        "LocalBlockStoreWriter", false);
+    this.checkpointTask = writer.scheduleWithFixedDelay(this::checkpoint, CHECKPOINT_PERIOD_SEC,
+        CHECKPOINT_PERIOD_SEC, SECONDS);
+    ThreadPools.watchNonCriticalScheduledTask(checkpointTask);
+  }
+
+  /**
+   * Opens the block store in a directory, using the blocks stored by a previous process when the
+   * capacity is unchanged.
+   *
+   * @param capacity
+   *          the size of the data file
+   * @param maxPendingWrites
+   *          blocks handed to {@link #store(String, byte[])} are dropped when this many are already
+   *          waiting to be written
+   * @throws IOException
+   *           if the store can not be opened or another process is using it
+   */
+  public static LocalBlockStore open(Path dir, long capacity, int maxPendingWrites)
+      throws IOException {
+    return new LocalBlockStore(dir, capacity, maxPendingWrites);
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public boolean contains(String name) {
+    return index.containsKey(name);
+  }
+
+  /**
+   * @return the block, or null if it is not in the store
+   */
+  public byte[] read(String name) {
+    requests.increment();
+    Entry entry = index.get(name);
+    if (entry == null) {
+      return null;
+    }
+
+    if (isValid(entry)) {
+      byte[] block = new byte[entry.length];
+      ByteBuffer buffer = ByteBuffer.wrap(block);
+      long offset = entry.position % capacity;
+      try {
+        while (buffer.hasRemaining()) {
+          if (data.read(buffer, offset + buffer.position()) < 0) {
+            break;
+          }
+        }
+      } catch (IOException e) {
+        log.warn("Failed to read block {} from {}", name, dir, e);
+        return null;
+      }
+      // the writer advances the write position before overwriting, so checking after the read
+      // detects a block that changed while it was read
+      if (!buffer.hasRemaining() && isValid(entry) && checksum(block) == entry.checksum) {
+        hits.increment();
+        return block;
+      }
+    }
+
+    index.remove(name, entry);
+    return null;
+  }
+
+  /**
+   * Queues a block to be written to the store in the background. The block must not be modified
+   * after this is called. Blocks that are already stored, larger than the store, or arrive when too
+   * many writes are pending are dropped.
+   */
+  public void store(String name, byte[] block) {
+    if (block.length > capacity || index.containsKey(name)) {
+      return;
+    }
+    if (pendingWrites.incrementAndGet() > maxPendingWrites) {
+      pendingWrites.decrementAndGet();
+      dropped.increment();
+      return;
+    }
+    try {
+      writer.execute(() -> {
+        try {
+          write(name, block);
+        } finally {
+          pendingWrites.decrementAndGet();
+        }
+      });
+    } catch (RuntimeException e) {
+      // the store is closed
+      pendingWrites.decrementAndGet();
+    }
+  }
+
+  /**
+   * Waits for the blocks queued before this call to be written.
+   */
+  @VisibleForTesting
+  void waitForWrites() throws InterruptedException, ExecutionException {
+    writer.submit(() -> {}).get();
+  }
+
+  private boolean isValid(Entry entry) {
+    return writePosition <= entry.position + capacity;
+  }
+
+  private static int checksum(byte[] block) {
+    CRC32 crc = new CRC32();
+    crc.update(block);
+    return (int) crc.getValue();
+  }
+
+  private void write(String name, byte[] block) {
+    if (index.containsKey(name)) {
+      return;
+    }
+
+    long position = writePosition;
+    long offset = position % capacity;
+    if (offset + block.length > capacity) {
+      // blocks are not split across the end of the file, start over at the beginning
+      position += capacity - offset;
+      offset = 0;
+    }
+    long end = position + block.length;
+    writePosition = end;
+
+    while (!written.isEmpty() && written.peekFirst().position + capacity < end) {
+      Entry overwritten = written.removeFirst();
+      index.remove(overwritten.name, overwritten);
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(block);
+    try {
+      while (buffer.hasRemaining()) {
+        data.write(buffer, offset + buffer.position());
+      }
+    } catch (IOException e) {
+      log.warn("Failed to write block {} to {}", name, dir, e);
+      return;
+    }
+
+    Entry entry = new Entry(name, position, block.length, checksum(block));
+    written.addLast(entry);
+    index.put(name, entry);
+  }
+
+  private void checkpoint() {
+    Path tmp = dir.resolve(INDEX_FILE + ".tmp");
+    try {
+      // the data the index refers to must be on disk before the index
+      data.force(false);
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        out.writeInt(INDEX_MAGIC);
+        out.writeInt(INDEX_VERSION);
+        out.writeLong(capacity);
+        out.writeLong(writePosition);
+        List<Entry> entries = new ArrayList<>(written.size());
+        for (Entry entry : written) {
+          if (index.get(entry.name) == entry) {
+            entries.add(entry);
+          }
+        }
+        out.writeInt(entries.size());
+        for (Entry entry : entries) {
+          byte[] name = entry.name.getBytes(UTF_8);
+          out.writeInt(name.length);
+          out.write(name);
+          out.writeLong(entry.position);
+          out.writeInt(entry.length);
+          out.writeInt(entry.checksum);
+        }
+      }
+      Files.move(tmp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("Failed to save block store index in {}", dir, e);
+    }
+    log.debug("Block store {} entries={} requests={} hits={} dropped={}", dir, index.size(),
+        requests.sum(), hits.sum(), dropped.sum());
+  }
+
+  private void loadIndex() {
+    Path indexFile = dir.resolve(INDEX_FILE);
+    if (!Files.exists(indexFile)) {
+      return;
+    }
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+      if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION
+          || in.readLong() != capacity) {
+        log.info("Ignoring incompatible block store index {}", indexFile);
+        return;
+      }
+      long position = in.readLong();
+      int count = in.readInt();
+      List<Entry> entries = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        byte[] name = new byte[in.readInt()];
+        in.readFully(name);
+        entries.add(new Entry(new String(name, UTF_8), in.readLong(), in.readInt(), in.readInt()));
+      }
+
+      writePosition = position;
+      entries.sort(Comparator.comparingLong(e -> e.position));
+      for (Entry entry : entries) {
+        if (isValid(entry)) {
+          written.addLast(entry);
+          index.put(entry.name, entry);
+        }
+      }
+      log.info("Loaded {} blocks from block store {}", index.size(), dir);
+    } catch (IOException e) {
+      log.warn("Failed to load block store index {}, starting empty", indexFile, e);
+      written.clear();
+      index.clear();
+      writePosition = 0;
+    }
+  }
+
+  /**
+   * Waits for pending writes, saves the index, and closes the store.
+   */
+  @Override
+  public void close() throws IOException {
+    checkpointTask.cancel(false);
+    writer.execute(this::checkpoint);
+    writer.shutdown();
+    try {
+      if (!writer.awaitTermination(CLOSE_WAIT_SEC, SECONDS)) {
+        log.warn("Timed out waiting for block store {} to finish writing", dir);
+        writer.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      writer.shutdownNow();
+    }
+    data.close();
+    lock.release();
+    lockChannel.close();
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheType;
+
+/**
+ * A block cache that backs an in memory cache with a {@link LocalBlockStore}. Reads check the in
+ * memory cache, then the local store, and only then load the block from the file system. Blocks
+ * loaded from the file system are written to the local store in the background.
+ *
+ * <p>
+ * The block cache SPI does not report evictions, so blocks are written to the local store when they
+ * are loaded rather than when they are evicted from memory. This also means blocks are in the local
+ * store when a server restarts.
+ */
+public class TieredBlockCache implements BlockCache {
+
+  private final BlockCache l1;
+  private final LocalBlockStore l2;
+  private final String keyPrefix;
+
+  /**
+   * @param type
+   *          the type of the cache, several caches can share one store since keys are prefixed by
+   *          the type
+   */
+  public TieredBlockCache(BlockCache l1, LocalBlockStore l2, CacheType type) {
+    this.l1 = l1;
+    this.l2 = l2;
+    this.keyPrefix = type.name() + ":";
+  }
+
+  private String l2Key(String blockName) {
+    return keyPrefix + blockName;
+  }
+
+  @Override
+  public CacheEntry cacheBlock(String blockName, byte[] buf) {
+    CacheEntry entry = l1.cacheBlock(blockName, buf);
+    l2.store(l2Key(blockName), buf);
+    return entry;
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName) {
+    CacheEntry entry = l1.getBlock(blockName);
+    if (entry == null) {
+      byte[] block = l2.read(l2Key(blockName));
+      if (block != null) {
+        entry = l1.cacheBlock(blockName, block);
+      }
+    }
+    return entry;
+  }
+
+  @Override
+  public CacheEntry getBlock(String blockName, Loader loader) {
+    return l1.getBlock(blockName, new TieredLoader(blockName, loader));
+  }
+
+  @Override
+  public long getMaxHeapSize() {
+    return l1.getMaxHeapSize();
+  }
+
+  @Override
+  public long getMaxSize() {
+    return l1.getMaxSize();
+  }
+
+  @Override
+  public Stats getStats() {
+    return l1.getStats();
+  }
+
+  /**
+   * Loads blocks from the local store when possible, and adds blocks loaded some other way to it.
+   */
+  private class TieredLoader implements Loader {
+    private final String blockName;
+    private final Loader loader;
+
+    TieredLoader(String blockName, Loader loader) {
+      this.blockName = blockName;
+      this.loader = loader;
+    }
+
+    @Override
+    public Map<String,Loader> getDependencies() {
+      Map<String,Loader> deps = loader.getDependencies();
+      if (deps.isEmpty()) {
+        return deps;
+      }
+      Map<String,Loader> tieredDeps = new HashMap<>();
+      deps.forEach((name, depLoader) -> tieredDeps.put(name, new TieredLoader(name, depLoader)));
+      return tieredDeps;
+    }
+
+    @Override
+    public byte[] load(int maxSize, Map<String,byte[]> dependencies) {
+      String key = l2Key(blockName);
+      byte[] block = l2.read(key);
+      if (block != null && block.length <= maxSize) {
+        return block;
+      }
+      block = loader.load(maxSize, dependencies);
+      if (block != null) {
+        l2.store(key, block);
+      }
+      return block;
+    }
+  }
+}
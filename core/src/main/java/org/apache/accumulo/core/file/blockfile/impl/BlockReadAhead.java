@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.impl;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.util.threads.ThreadPools;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Reads data blocks in the background ahead of sequential reads. There is one of these per server,
+ * shared by every file it reads, which bounds the memory used by blocks that were read ahead and
+ * not used yet. Read ahead is disabled until {@link #configure(long, int)} is called, and the
+ * threads are not started until a table reads ahead.
+ */
+public class BlockReadAhead {
+
+  private static volatile BlockReadAhead instance = null;
+
+  private final long maxMemory;
+  private final AtomicLong reserved = new AtomicLong();
+  private final int threads;
+  private ThreadPoolExecutor executor = null;
+  private boolean shutdown = false;
+
+  private BlockReadAhead(long maxMemory, int threads) {
+    this.maxMemory = maxMemory;
+    this.threads = threads;
+  }
+
+  /**
+   * Enables read ahead for this process, or disables it when either argument is zero.
+   *
+   * @param maxMemory
+   *          the most memory used by blocks that are being read ahead or are waiting to be used
+   * @param threads
+   *          the number of threads reading blocks
+   */
+  public static synchronized void configure(long maxMemory, int threads) {
+    BlockReadAhead old = instance;
+    instance = maxMemory > 0 && threads > 0 ? new BlockReadAhead(maxMemory, threads) : null;
+    if (old != null) {
+      old.shutdown();
+    }
+  }
+
+  static BlockReadAhead getInstance() {
+    return instance;
+  }
+
+  /**
+   * @return false if reserving the memory would exceed the limit
+   */
+  boolean reserve(long bytes) {
+    while (true) {
+      long current = reserved.get();
+      if (current + bytes > maxMemory) {
+        return false;
+      }
+      if (reserved.compareAndSet(current, current + bytes)) {
+        return true;
+      }
+    }
+  }
+
+  void release(long bytes) {
+    reserved.addAndGet(-bytes);
+  }
+
+  synchronized void execute(Runnable task) {
+    if (shutdown) {
+      throw new RejectedExecutionException("read ahead was reconfigured");
+    }
+    if (executor == null) {
+      executor = ThreadPools.getServerThreadPools().createFixedThreadPool(threads,
+          "block read ahead", false);
+    }
+    executor.execute(task);
+  }
+
+  private synchronized void shutdown() {
+    shutdown = true;
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @VisibleForTesting
+  long getReserved() {
+    return reserved.get();
+  }
+}
@@ -18,21 +18,27 @@
  */
 package org.apache.accumulo.core.file.blockfile.impl;
 
+import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile;
 import org.apache.accumulo.core.file.rfile.bcfile.BCFile.Reader.BlockReader;
 import org.apache.accumulo.core.file.rfile.bcfile.MetaBlockDoesNotExist;
+import org.apache.accumulo.core.file.streams.MappedFileInputStream;
 import org.apache.accumulo.core.file.streams.RateLimitedInputStream;
 import org.apache.accumulo.core.spi.cache.BlockCache;
 import org.apache.accumulo.core.spi.cache.BlockCache.Loader;
@@ -42,7 +48,9 @@ import org.apache.accumulo.core.spi.crypto.CryptoService;
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RawLocalFileSystem;
 import org.apache.hadoop.fs.Seekable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -76,6 +84,8 @@ public class CachableBlockFile {
     RateLimiter readLimiter = null;
     Configuration hadoopConf = null;
     CryptoService cryptoService = null;
+    boolean mapLocalFiles = false;
+    int readAheadBlocks = 0;
 
     public CachableBuilder conf(Configuration hadoopConf) {
       this.hadoopConf = hadoopConf;
@@ -84,11 +94,28 @@ public class CachableBlockFile {
 
     public CachableBuilder fsPath(FileSystem fs, Path dataFile) {
       this.cacheId = pathToCacheId(dataFile);
-      this.inputSupplier = () -> fs.open(dataFile);
+      this.inputSupplier = () -> {
+        if (mapLocalFiles) {
+          File localFile = toLocalFile(fs, dataFile);
+          if (localFile != null) {
+            return new MappedFileInputStream(localFile);
+          }
+        }
+        return fs.open(dataFile);
+      };
       this.lengthSupplier = () -> fs.getFileStatus(dataFile).getLen();
       return this;
     }
 
+    private static File toLocalFile(FileSystem fs, Path dataFile) {
+      if (fs instanceof LocalFileSystem) {
+        return ((LocalFileSystem) fs).pathToFile(dataFile);
+      } else if (fs instanceof RawLocalFileSystem) {
+        return ((RawLocalFileSystem) fs).pathToFile(dataFile);
+      }
+      return null;
+    }
+
     public CachableBuilder input(InputStream is, String cacheId) {
       this.cacheId = cacheId;
       this.inputSupplier = () -> is;
@@ -119,6 +146,24 @@ public class CachableBlockFile {
       this.cryptoService = cryptoService;
       return this;
     }
+
+    /**
+     * Memory map files opened with {@link #fsPath(FileSystem, Path)} that are on a local file
+     * system instead of reading them through a Hadoop input stream.
+     */
+    public CachableBuilder mapLocalFiles(boolean mapLocalFiles) {
+      this.mapLocalFiles = mapLocalFiles;
+      return this;
+    }
+
+    /**
+     * The most data blocks to read ahead of sequential reads, when read ahead is enabled by
+     * {@link BlockReadAhead#configure(long, int)}.
+     */
+    public CachableBuilder readAheadBlocks(int readAheadBlocks) {
+      this.readAheadBlocks = readAheadBlocks;
+      return this;
+    }
   }
 
   /**
@@ -131,7 +176,7 @@ public class CachableBlockFile {
     private CacheProvider cacheProvider;
     private Cache<String,Long> fileLenCache = null;
     private volatile InputStream fin = null;
-    private boolean closed = false;
+    private volatile boolean closed = false;
     private final Configuration conf;
     private final CryptoService cryptoService;
 
@@ -139,6 +184,10 @@ public class CachableBlockFile {
     private final IoeSupplier<Long> lengthSupplier;
     private final AtomicReference<BCFile.Reader> bcfr = new AtomicReference<>();
 
+    private final int readAheadBlocks;
+    // blocks read ahead when there is no data cache to put them in
+    private final ConcurrentHashMap<String,ReadAheadBlock> readAheads = new ConcurrentHashMap<>();
+
     private static final String ROOT_BLOCK_NAME = "!RootData";
 
     // ACCUMULO-4716 - Define MAX_ARRAY_SIZE smaller than Integer.MAX_VALUE to prevent possible
@@ -159,8 +208,11 @@ public class CachableBlockFile {
 
       BCFile.Reader reader = bcfr.get();
       if (reader == null) {
-        RateLimitedInputStream fsIn =
-            new RateLimitedInputStream((InputStream & Seekable) inputSupplier.get(), readLimiter);
+        InputStream input = inputSupplier.get();
+        // a mapped file can only hand out blocks without copying them when reads are not limited
+        var fsIn = readLimiter == null && input instanceof MappedFileInputStream
+            ? (MappedFileInputStream) input
+            : new RateLimitedInputStream((InputStream & Seekable) input, readLimiter);
         BCFile.Reader tmpReader = null;
         if (serializedMetadata == null) {
           if (fileLenCache == null) {
@@ -362,6 +414,7 @@ public class CachableBlockFile {
       this.readLimiter = b.readLimiter;
       this.conf = b.hadoopConf;
       this.cryptoService = Objects.requireNonNull(b.cryptoService);
+      this.readAheadBlocks = b.readAheadBlocks;
     }
 
     /**
@@ -418,14 +471,19 @@ public class CachableBlockFile {
 
     public CachedBlockRead getDataBlock(int blockIndex) throws IOException {
       BlockCache _dCache = cacheProvider.getDataCache();
+      String _lookup = this.cacheId + "O" + blockIndex;
       if (_dCache != null) {
-        String _lookup = this.cacheId + "O" + blockIndex;
         CacheEntry ce = _dCache.getBlock(_lookup, new OffsetBlockLoader(blockIndex, false));
         if (ce != null) {
           return new CachedBlockRead(ce, ce.getBuffer());
         }
       }
 
+      byte[] readAhead = takeReadAhead(_lookup);
+      if (readAhead != null) {
+        return new CachedBlockRead(new ByteArrayInputStream(readAhead));
+      }
+
       BlockReader _currBlock = getBCFile().getDataBlock(blockIndex);
       return new CachedBlockRead(_currBlock);
     }
@@ -433,8 +491,8 @@ public class CachableBlockFile {
     public CachedBlockRead getDataBlock(long offset, long compressedSize, long rawSize)
         throws IOException {
       BlockCache _dCache = cacheProvider.getDataCache();
+      String _lookup = this.cacheId + "R" + offset;
       if (_dCache != null) {
-        String _lookup = this.cacheId + "R" + offset;
         CacheEntry ce =
             _dCache.getBlock(_lookup, new RawBlockLoader(offset, compressedSize, rawSize, false));
         if (ce != null) {
@@ -442,16 +500,123 @@ public class CachableBlockFile {
         }
       }
 
+      byte[] readAhead = takeReadAhead(_lookup);
+      if (readAhead != null) {
+        return new CachedBlockRead(new ByteArrayInputStream(readAhead));
+      }
+
       BlockReader _currBlock = getBCFile().getDataBlock(offset, compressedSize, rawSize);
       return new CachedBlockRead(_currBlock);
     }
 
+    /**
+     * @return the most data blocks the caller should read ahead, zero when read ahead is disabled
+     */
+    public int getReadAheadBlocks() {
+      return BlockReadAhead.getInstance() == null ? 0 : readAheadBlocks;
+    }
+
+    /**
+     * Starts reading a data block in the background, if the read ahead memory limit allows it. With
+     * a data cache the block is loaded into the cache, otherwise it is kept until it is read by
+     * {@link #getDataBlock(int)} or this reader is closed.
+     */
+    public void readAheadDataBlock(int blockIndex) throws IOException {
+      readAhead(this.cacheId + "O" + blockIndex, getBCFile().getDataBlockRawSize(blockIndex),
+          new OffsetBlockLoader(blockIndex, false));
+    }
+
+    /**
+     * Starts reading a data block in the background, see {@link #readAheadDataBlock(int)}.
+     */
+    public void readAheadDataBlock(long offset, long compressedSize, long rawSize) {
+      readAhead(this.cacheId + "R" + offset, rawSize,
+          new RawBlockLoader(offset, compressedSize, rawSize, false));
+    }
+
+    private void readAhead(String lookup, long rawSize, Loader loader) {
+      BlockReadAhead readAhead = BlockReadAhead.getInstance();
+      if (readAhead == null || closed || rawSize > MAX_ARRAY_SIZE || readAheads.containsKey(lookup)
+          || !readAhead.reserve(rawSize)) {
+        return;
+      }
+
+      BlockCache _dCache = cacheProvider.getDataCache();
+      try {
+        if (_dCache != null) {
+          readAhead.execute(() -> {
+            try {
+              if (!closed) {
+                _dCache.getBlock(lookup, loader);
+              }
+            } catch (RuntimeException e) {
+              log.debug("Failed to read ahead block {}", lookup, e);
+            } finally {
+              readAhead.release(rawSize);
+            }
+          });
+        } else {
+          ReadAheadBlock block = new ReadAheadBlock(readAhead, rawSize);
+          if (readAheads.putIfAbsent(lookup, block) != null) {
+            readAhead.release(rawSize);
+            return;
+          }
+          if (closed) {
+            // closed after the check above, the block may have been missed by close
+            if (readAheads.remove(lookup, block)) {
+              block.data.complete(null);
+              block.discard();
+            }
+            return;
+          }
+          readAhead.execute(() -> {
+            try {
+              block.data.complete(closed ? null : loader.load(MAX_ARRAY_SIZE, Map.of()));
+            } catch (RuntimeException e) {
+              log.debug("Failed to read ahead block {}", lookup, e);
+              block.data.complete(null);
+            }
+          });
+        }
+      } catch (RejectedExecutionException e) {
+        // read ahead was reconfigured
+        ReadAheadBlock block = readAheads.remove(lookup);
+        if (block != null) {
+          block.data.complete(null);
+          block.discard();
+        } else {
+          readAhead.release(rawSize);
+        }
+      }
+    }
+
+    private byte[] takeReadAhead(String lookup) {
+      if (readAheads.isEmpty()) {
+        return null;
+      }
+      ReadAheadBlock block = readAheads.remove(lookup);
+      return block == null ? null : block.take();
+    }
+
+    /**
+     * Drops the blocks that were read ahead and not used.
+     */
+    private void discardReadAheads() {
+      for (String lookup : readAheads.keySet()) {
+        ReadAheadBlock block = readAheads.remove(lookup);
+        if (block != null) {
+          block.discard();
+        }
+      }
+    }
+
     @Override
     public synchronized void close() throws IOException {
       if (closed)
         return;
 
       closed = true;
+      discardReadAheads();
 
       BCFile.Reader reader = bcfr.get();
       if (reader != null)
@@ -472,6 +637,42 @@ public class CachableBlockFile {
 
   }
 
+  /**
+   * A block read ahead without a data cache. Its memory is released after it is taken or discarded,
+   * and the read is complete.
+   */
+  private static class ReadAheadBlock {
+    private final BlockReadAhead readAhead;
+    private final long size;
+    // completed with null when the read failed
+    private final CompletableFuture<byte[]> data = new CompletableFuture<>();
+
+    ReadAheadBlock(BlockReadAhead readAhead, long size) {
+      this.readAhead = readAhead;
+      this.size = size;
+    }
+
+    /**
+     * @return the block, or null if reading it failed
+     */
+    byte[] take() {
+      try {
+        return data.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      } catch (ExecutionException e) {
+        return null;
+      } finally {
+        discard();
+      }
+    }
+
+    void discard() {
+      data.whenComplete((b, e) -> readAhead.release(size));
+    }
+  }
+
   public static class CachedBlockRead extends DataInputStream {
     private SeekableByteArrayInputStream seekableInput;
     private final CacheEntry cb;
@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.blockfile.cache.impl.ClassSize;
+import org.apache.accumulo.core.file.blockfile.cache.impl.SizeConstants;
+import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.CachedBlockRead;
+import org.apache.accumulo.core.spi.cache.CacheEntry.Weighable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A decoded columnar data block, written by {@link ColumnarBlockWriter}. Instead of storing each
+ * key relative to the previous one, a columnar block stores each part of the key as a column:
+ *
+ * <ul>
+ * <li>the number of entries</li>
+ * <li>the distinct rows, each prefix compressed against the previous row and followed by the number
+ * of consecutive entries in that row</li>
+ * <li>the column family, qualifier and visibility columns, each either a dictionary of distinct
+ * values followed by the index of each entry's value, or when most values are distinct, every value
+ * prefix compressed against the previous one</li>
+ * <li>the timestamps, each as the difference from the previous timestamp</li>
+ * <li>the positions of deleted entries</li>
+ * <li>the value lengths followed by the value bytes</li>
+ * </ul>
+ *
+ * <p>
+ * The whole block is decoded at once. When the block is cached, the decoded block is kept with the
+ * cache entry so later reads of the block do not decode it again.
+ */
+class ColumnarBlock implements Weighable {
+
+  private final int size;
+  private final byte[][] rows;
+  private final int[] rowIndex;
+  private final byte[][] families;
+  private final int[] familyIndex;
+  private final byte[][] qualifiers;
+  private final int[] qualifierIndex;
+  private final byte[][] visibilities;
+  private final int[] visibilityIndex;
+  private final long[] timestamps;
+  private final boolean[] deleted;
+  private final byte[] valueData;
+  private final int[] valueOffsets;
+
+  private final AtomicBoolean weightRecorded = new AtomicBoolean(false);
+
+  private ColumnarBlock(DataInput in) throws IOException {
+    size = WritableUtils.readVInt(in);
+
+    rows = new byte[WritableUtils.readVInt(in)][];
+    rowIndex = new int[size];
+    byte[] prevRow = null;
+    int entry = 0;
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = readPrefixed(in, prevRow);
+      prevRow = rows[i];
+      int run = WritableUtils.readVInt(in);
+      for (int j = 0; j < run; j++) {
+        rowIndex[entry++] = i;
+      }
+    }
+    if (entry != size) {
+      throw new IOException("Columnar block rows cover " + entry + " entries, expected " + size);
+    }
+
+    int[][] index = new int[1][];
+    families = readColumn(in, size, index);
+    familyIndex = index[0];
+    qualifiers = readColumn(in, size, index);
+    qualifierIndex = index[0];
+    visibilities = readColumn(in, size, index);
+    visibilityIndex = index[0];
+
+    timestamps = new long[size];
+    long prevTimestamp = 0;
+    for (int i = 0; i < size; i++) {
+      timestamps[i] = prevTimestamp + WritableUtils.readVLong(in);
+      prevTimestamp = timestamps[i];
+    }
+
+    deleted = new boolean[size];
+    int numDeleted = WritableUtils.readVInt(in);
+    int pos = 0;
+    for (int i = 0; i < numDeleted; i++) {
+      pos += WritableUtils.readVInt(in);
+      deleted[pos] = true;
+    }
+
+    valueOffsets = new int[size + 1];
+    for (int i = 0; i < size; i++) {
+      valueOffsets[i + 1] = valueOffsets[i] + WritableUtils.readVInt(in);
+    }
+    valueData = new byte[valueOffsets[size]];
+    in.readFully(valueData);
+  }
+
+  /**
+   * Reads a column, setting index[0] to the index of each entry's value, or to null when the values
+   * are stored one per entry.
+   */
+  private static byte[][] readColumn(DataInput in, int size, int[][] index) throws IOException {
+    byte encoding = in.readByte();
+    switch (encoding) {
+      case ColumnarBlockWriter.DICTIONARY_ENCODING: {
+        byte[][] values = new byte[WritableUtils.readVInt(in)][];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = new byte[WritableUtils.readVInt(in)];
+          in.readFully(values[i]);
+        }
+        index[0] = new int[size];
+        if (values.length > 1) {
+          for (int i = 0; i < size; i++) {
+            index[0][i] = WritableUtils.readVInt(in);
+          }
+        }
+        return values;
+      }
+      case ColumnarBlockWriter.PREFIX_ENCODING: {
+        byte[][] values = new byte[size][];
+        byte[] prev = null;
+        for (int i = 0; i < size; i++) {
+          values[i] = readPrefixed(in, prev);
+          prev = values[i];
+        }
+        index[0] = null;
+        return values;
+      }
+      default:
+        throw new IOException("Unknown columnar block encoding " + encoding);
+    }
+  }
+
+  private static byte[] readPrefixed(DataInput in, byte[] prev) throws IOException {
+    int common = WritableUtils.readVInt(in);
+    int suffix = WritableUtils.readVInt(in);
+    byte[] value = new byte[common + suffix];
+    if (common > 0) {
+      System.arraycopy(prev, 0, value, 0, common);
+    }
+    in.readFully(value, common, suffix);
+    return value;
+  }
+
+  /**
+   * Decodes a data block read from the file. When the block came from the cache, the decoded block
+   * is stored with the cache entry.
+   */
+  static ColumnarBlock read(CachedBlockRead block) throws IOException {
+    if (block.isIndexable()) {
+      try {
+        ColumnarBlock columnar = block.getIndex(() -> {
+          try {
+            return new ColumnarBlock(
+                new DataInputStream(new ByteArrayInputStream(block.getBuffer())));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+        if (columnar != null) {
+          if (columnar.weightRecorded.compareAndSet(false, true)) {
+            block.indexWeightChanged();
+          }
+          return columnar;
+        }
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+    return new ColumnarBlock(block);
+  }
+
+  int size() {
+    return size;
+  }
+
+  private static byte[] value(byte[][] values, int[] index, int i) {
+    return index == null ? values[i] : values[index[i]];
+  }
+
+  Key getKey(int i) {
+    return new Key(rows[rowIndex[i]], value(families, familyIndex, i),
+        value(qualifiers, qualifierIndex, i), value(visibilities, visibilityIndex, i),
+        timestamps[i], deleted[i], true);
+  }
+
+  Value getValue(int i) {
+    return new Value(valueData, valueOffsets[i], valueOffsets[i + 1] - valueOffsets[i]);
+  }
+
+  private static int compare(byte[] bytes, ByteSequence seq) {
+    return WritableComparator.compareBytes(bytes, 0, bytes.length, seq.getBackingArray(),
+        seq.offset(), seq.length());
+  }
+
+  /**
+   * Compares the entry at position i to the key, in the same order as {@link Key#compareTo(Key)}.
+   */
+  private int compare(int i, Key key) {
+    int result = compare(rows[rowIndex[i]], key.getRowData());
+    if (result != 0) {
+      return result;
+    }
+    result = compare(value(families, familyIndex, i), key.getColumnFamilyData());
+    if (result != 0) {
+      return result;
+    }
+    result = compare(value(qualifiers, qualifierIndex, i), key.getColumnQualifierData());
+    if (result != 0) {
+      return result;
+    }
+    result = compare(value(visibilities, visibilityIndex, i), key.getColumnVisibilityData());
+    if (result != 0) {
+      return result;
+    }
+    result = Long.compare(key.getTimestamp(), timestamps[i]);
+    if (result != 0) {
+      return result;
+    }
+    if (deleted[i]) {
+      return key.isDeleted() ? 0 : -1;
+    }
+    return key.isDeleted() ? 1 : 0;
+  }
+
+  /**
+   * @return the position of the first entry at or after from that is greater than or equal to the
+   *         key, or {@link #size()} if there is none
+   */
+  int seek(Key key, int from) {
+    int low = from;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compare(mid, key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static long weight(byte[][] values) {
+    long weight = ClassSize.ARRAY + (long) values.length * ClassSize.REFERENCE;
+    for (byte[] value : values) {
+      weight += ClassSize.align(ClassSize.ARRAY + value.length);
+    }
+    return weight;
+  }
+
+  private static long weight(int[] index) {
+    return index == null ? 0 : ClassSize.ARRAY + (long) index.length * SizeConstants.SIZEOF_INT;
+  }
+
+  @Override
+  public int weight() {
+    long weight = ClassSize.OBJECT + 14 * ClassSize.REFERENCE + weight(rows) + weight(rowIndex)
+        + weight(families) + weight(familyIndex) + weight(qualifiers) + weight(qualifierIndex)
+        + weight(visibilities) + weight(visibilityIndex) + ClassSize.ARRAY
+        + (long) size * SizeConstants.SIZEOF_LONG + ClassSize.ARRAY + size + ClassSize.ARRAY
+        + valueData.length + weight(valueOffsets);
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.rfile;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Buffers the entries of a data block and writes them column by column. See {@link ColumnarBlock}
+ * for the layout.
+ */
+class ColumnarBlockWriter {
+
+  static final byte DICTIONARY_ENCODING = 0;
+  static final byte PREFIX_ENCODING = 1;
+
+  /**
+   * The distinct values of a column in the order they were first seen, and the value of each entry.
+   */
+  private static class Column {
+    private final Map<ByteSequence,Integer> ids = new HashMap<>();
+    private final List<byte[]> values = new ArrayList<>();
+    private int[] entryIds = new int[64];
+
+    /**
+     * @return the bytes added to the size of the block
+     */
+    int add(int entry, ByteSequence value) {
+      int added = 1;
+      Integer id = ids.get(value);
+      if (id == null) {
+        byte[] copy = value.toArray();
+        id = values.size();
+        values.add(copy);
+        ids.put(new ArrayByteSequence(copy), id);
+        added += copy.length + 1;
+      }
+      if (entry == entryIds.length) {
+        entryIds = Arrays.copyOf(entryIds, entryIds.length * 2);
+      }
+      entryIds[entry] = id;
+      return added;
+    }
+
+    void write(DataOutput out, int entries) throws IOException {
+      if (values.size() <= entries / 2) {
+        out.writeByte(DICTIONARY_ENCODING);
+        WritableUtils.writeVInt(out, values.size());
+        for (byte[] value : values) {
+          WritableUtils.writeVInt(out, value.length);
+          out.write(value);
+        }
+        if (values.size() > 1) {
+          for (int i = 0; i < entries; i++) {
+            WritableUtils.writeVInt(out, entryIds[i]);
+          }
+        }
+      } else {
+        // mostly distinct values, so a dictionary would not save anything
+        out.writeByte(PREFIX_ENCODING);
+        byte[] prev = null;
+        for (int i = 0; i < entries; i++) {
+          byte[] value = values.get(entryIds[i]);
+          writePrefixed(out, prev, value);
+          prev = value;
+        }
+      }
+    }
+  }
+
+  private final List<byte[]> rows = new ArrayList<>();
+  private int[] rowRuns = new int[16];
+  private final Column families = new Column();
+  private final Column qualifiers = new Column();
+  private final Column visibilities = new Column();
+  private long[] timestamps = new long[64];
+  private int[] deleted = new int[16];
+  private int numDeleted = 0;
+  private int[] valueLengths = new int[64];
+  private final ByteArrayBuilder valueData = new ByteArrayBuilder();
+
+  private int entries = 0;
+  private long rawSize = 0;
+
+  /**
+   * A growable byte array, like a ByteArrayOutputStream without synchronization.
+   */
+  private static class ByteArrayBuilder {
+    private byte[] data = new byte[1024];
+    private int length = 0;
+
+    void append(byte[] bytes, int offset, int len) {
+      if (length + len > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, length + len));
+      }
+      System.arraycopy(bytes, offset, data, length, len);
+      length += len;
+    }
+  }
+
+  void add(Key key, Value value) {
+    if (entries == timestamps.length) {
+      timestamps = Arrays.copyOf(timestamps, entries * 2);
+      valueLengths = Arrays.copyOf(valueLengths, entries * 2);
+    }
+
+    ByteSequence row = key.getRowData();
+    if (rows.isEmpty() || !row.equals(new ArrayByteSequence(rows.get(rows.size() - 1)))) {
+      if (rows.size() == rowRuns.length) {
+        rowRuns = Arrays.copyOf(rowRuns, rowRuns.length * 2);
+      }
+      rowRuns[rows.size()] = 0;
+      rows.add(row.toArray());
+      rawSize += row.length() + 3;
+    }
+    rowRuns[rows.size() - 1]++;
+
+    rawSize += families.add(entries, key.getColumnFamilyData());
+    rawSize += qualifiers.add(entries, key.getColumnQualifierData());
+    rawSize += visibilities.add(entries, key.getColumnVisibilityData());
+
+    timestamps[entries] = key.getTimestamp();
+    if (key.isDeleted()) {
+      if (numDeleted == deleted.length) {
+        deleted = Arrays.copyOf(deleted, numDeleted * 2);
+      }
+      deleted[numDeleted++] = entries;
+    }
+
+    byte[] valueBytes = value.get();
+    int valueLength = value.getSize();
+    valueLengths[entries] = valueLength;
+    valueData.append(valueBytes, 0, valueLength);
+    rawSize += valueLength + 3;
+
+    entries++;
+  }
+
+  int getEntries() {
+    return entries;
+  }
+
+  /**
+   * @return an estimate of the size of the block before compression
+   */
+  long getRawSize() {
+    return rawSize;
+  }
+
+  void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, entries);
+
+    WritableUtils.writeVInt(out, rows.size());
+    byte[] prevRow = null;
+    for (int i = 0; i < rows.size(); i++) {
+      writePrefixed(out, prevRow, rows.get(i));
+      WritableUtils.writeVInt(out, rowRuns[i]);
+      prevRow = rows.get(i);
+    }
+
+    families.write(out, entries);
+    qualifiers.write(out, entries);
+    visibilities.write(out, entries);
+
+    long prevTimestamp = 0;
+    for (int i = 0; i < entries; i++) {
+      WritableUtils.writeVLong(out, timestamps[i] - prevTimestamp);
+      prevTimestamp = timestamps[i];
+    }
+
+    WritableUtils.writeVInt(out, numDeleted);
+    int prevDeleted = 0;
+    for (int i = 0; i < numDeleted; i++) {
+      WritableUtils.writeVInt(out, deleted[i] - prevDeleted);
+      prevDeleted = deleted[i];
+    }
+
+    for (int i = 0; i < entries; i++) {
+      WritableUtils.writeVInt(out, valueLengths[i]);
+    }
+    out.write(valueData.data, 0, valueData.length);
+  }
+
+  private static void writePrefixed(DataOutput out, byte[] prev, byte[] value) throws IOException {
+    int common = 0;
+    if (prev != null) {
+      int max = Math.min(prev.length, value.length);
+      while (common < max && prev[common] == value[common]) {
+        common++;
+      }
+    }
+    WritableUtils.writeVInt(out, common);
+    WritableUtils.writeVInt(out, value.length - common);
+    out.write(value, common, value.length - common);
+  }
+}
@@ -92,6 +92,14 @@ public class RFile {
 
   private static final int RINDEX_MAGIC = 0x20637474;
 
+  // data blocks that must be read in order before reading ahead of them
+  private static final int READ_AHEAD_MIN_SEQUENTIAL_BLOCKS = 2;
+
+  static final int RINDEX_VER_9 = 9; // Added columnar data blocks. When enabled, each data block
+                                     // stores the rows, column families, qualifiers, visibilities,
+                                     // timestamps and values as separate columns, using per block
+                                     // dictionaries and delta encoded timestamps. Files without
+                                     // columnar data blocks are still written as version 8.
   static final int RINDEX_VER_8 = 8; // Added sample storage. There is a sample locality group for
                                      // each locality group. Sample are built using a Sampler and
                                      // sampler configuration. The Sampler and its configuration are
@@ -430,6 +438,10 @@ public class RFile {
 
     private final long blockSize;
     private final long maxBlockSize;
+    private final boolean columnar;
+    // the entries of the current block, buffered until the block is closed when writing columnar
+    // data blocks
+    private ColumnarBlockWriter columnarBlock;
     private int entries = 0;
 
     private LocalityGroupMetadata currentLocalityGroup = null;
@@ -445,10 +457,12 @@ public class RFile {
     private double averageKeySize = 0;
 
     LocalityGroupWriter(BCFile.Writer fileWriter, long blockSize, long maxBlockSize,
-        LocalityGroupMetadata currentLocalityGroup, SampleLocalityGroupWriter sample) {
+        boolean columnar, LocalityGroupMetadata currentLocalityGroup,
+        SampleLocalityGroupWriter sample) {
       this.fileWriter = fileWriter;
       this.blockSize = blockSize;
       this.maxBlockSize = maxBlockSize;
+      this.columnar = columnar;
       this.currentLocalityGroup = currentLocalityGroup;
       this.sample = sample;
     }
@@ -459,6 +473,22 @@ public class RFile {
       return k.getSize() > mean + Math.max(9 * mean, 4 * stddev);
     }
 
+    private boolean blockStarted() {
+      return blockWriter != null || columnarBlock != null;
+    }
+
+    private long blockRawSize() {
+      return columnar ? columnarBlock.getRawSize() : blockWriter.getRawSize();
+    }
+
+    private void startBlock() throws IOException {
+      if (columnar) {
+        columnarBlock = new ColumnarBlockWriter();
+      } else {
+        blockWriter = fileWriter.prepareDataBlock();
+      }
+    }
+
     public void append(Key key, Value value) throws IOException {
 
       if (key.compareTo(prevKey) < 0) {
@@ -476,9 +506,9 @@ public class RFile {
         sample.append(key, value);
       }
 
-      if (blockWriter == null) {
-        blockWriter = fileWriter.prepareDataBlock();
-      } else if (blockWriter.getRawSize() > blockSize) {
+      if (!blockStarted()) {
+        startBlock();
+      } else if (blockRawSize() > blockSize) {
 
         // Look for a key that's short to put in the index, defining short as average or below.
         if (averageKeySize == 0) {
@@ -490,28 +520,32 @@ public class RFile {
         // shortened, it may not be below average.
         Key closeKey = KeyShortener.shorten(prevKey, key);
 
-        if ((closeKey.getSize() <= averageKeySize || blockWriter.getRawSize() > maxBlockSize)
+        if ((closeKey.getSize() <= averageKeySize || blockRawSize() > maxBlockSize)
             && !isGiantKey(closeKey)) {
           closeBlock(closeKey, false);
-          blockWriter = fileWriter.prepareDataBlock();
+          startBlock();
           // set average to zero so its recomputed for the next block
           averageKeySize = 0;
           // To constrain the growth of data blocks, we limit our worst case scenarios to closing
           // blocks if they reach the maximum configurable block size of Integer.MAX_VALUE.
           // 128 bytes added for metadata overhead
-        } else if (((long) key.getSize() + (long) value.getSize() + blockWriter.getRawSize() + 128L)
+        } else if (((long) key.getSize() + (long) value.getSize() + blockRawSize() + 128L)
             >= Integer.MAX_VALUE) {
           closeBlock(closeKey, false);
-          blockWriter = fileWriter.prepareDataBlock();
+          startBlock();
           averageKeySize = 0;
 
         }
       }
 
-      RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
+      if (columnar) {
+        columnarBlock.add(key, value);
+      } else {
+        RelativeKey rk = new RelativeKey(lastKeyInBlock, key);
 
-      rk.write(blockWriter);
-      value.write(blockWriter);
+        rk.write(blockWriter);
+        value.write(blockWriter);
+      }
       entries++;
 
       keyLenStats.addValue(key.getSize());
@@ -522,6 +556,11 @@ public class RFile {
     }
 
     private void closeBlock(Key key, boolean lastBlock) throws IOException {
+      if (columnar) {
+        blockWriter = fileWriter.prepareDataBlock();
+        columnarBlock.write(blockWriter);
+        columnarBlock = null;
+      }
       blockWriter.close();
 
       if (lastBlock)
@@ -540,7 +579,7 @@ public class RFile {
     }
 
     public void close() throws IOException {
-      if (blockWriter != null) {
+      if (blockStarted()) {
         closeBlock(lastKeyInBlock, true);
       }
 
@@ -560,6 +599,7 @@ public class RFile {
     private final long blockSize;
     private final long maxBlockSize;
     private final int indexBlockSize;
+    private final boolean columnar;
 
     private ArrayList<LocalityGroupMetadata> localityGroups = new ArrayList<>();
     private ArrayList<LocalityGroupMetadata> sampleGroups = new ArrayList<>();
@@ -585,9 +625,15 @@ public class RFile {
 
     public Writer(BCFile.Writer bfw, int blockSize, int indexBlockSize,
         SamplerConfigurationImpl samplerConfig, Sampler sampler) {
+      this(bfw, blockSize, indexBlockSize, samplerConfig, sampler, false);
+    }
+
+    public Writer(BCFile.Writer bfw, int blockSize, int indexBlockSize,
+        SamplerConfigurationImpl samplerConfig, Sampler sampler, boolean columnar) {
       this.blockSize = blockSize;
       this.maxBlockSize = (long) (blockSize * MAX_BLOCK_MULTIPLIER);
       this.indexBlockSize = indexBlockSize;
+      this.columnar = columnar;
       this.fileWriter = bfw;
       previousColumnFamilies = new HashSet<>();
       this.samplerConfig = samplerConfig;
@@ -606,7 +652,7 @@ public class RFile {
       BlockAppender mba = fileWriter.prepareMetaBlock("RFile.index");
 
       mba.writeInt(RINDEX_MAGIC);
-      mba.writeInt(RINDEX_VER_8);
+      mba.writeInt(columnar ? RINDEX_VER_9 : RINDEX_VER_8);
 
       if (currentLocalityGroup != null) {
         localityGroups.add(currentLocalityGroup);
@@ -710,12 +756,11 @@ public class RFile {
 
       SampleLocalityGroupWriter sampleWriter = null;
       if (sampler != null) {
-        sampleWriter = new SampleLocalityGroupWriter(
-            new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, sampleLocalityGroup, null),
-            sampler);
+        sampleWriter = new SampleLocalityGroupWriter(new LocalityGroupWriter(fileWriter, blockSize,
+            maxBlockSize, columnar, sampleLocalityGroup, null), sampler);
       }
-      lgWriter = new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, currentLocalityGroup,
-          sampleWriter);
+      lgWriter = new LocalityGroupWriter(fileWriter, blockSize, maxBlockSize, columnar,
+          currentLocalityGroup, sampleWriter);
     }
 
     @Override
@@ -796,12 +841,18 @@ public class RFile {
     private IndexIterator iiter;
     private int entriesLeft;
     private CachableBlockFile.CachedBlockRead currBlock;
+    // the decoded current block, when the file has columnar data blocks
+    private ColumnarBlock colBlock;
     private RelativeKey rk;
     private Value val;
     private Key prevKey = null;
     private Range range = null;
     private boolean hasTop = false;
     private AtomicBoolean interruptFlag;
+    // blocks read in order since the last seek that used the index
+    private int sequentialBlocks = 0;
+    // the position in the index of the last block read ahead
+    private int readAheadIndex = -1;
 
     @Override
     public Key getTopKey() {
@@ -842,11 +893,16 @@ public class RFile {
           IndexEntry indexEntry = iiter.next();
           entriesLeft = indexEntry.getNumEntries();
           currBlock = getDataBlock(indexEntry);
+          if (version == RINDEX_VER_9)
+            colBlock = ColumnarBlock.read(currBlock);
 
           checkRange = range.afterEndKey(indexEntry.getKey());
           if (!checkRange)
             hasTop = true;
 
+          sequentialBlocks++;
+          readAhead(indexEntry);
+
         } else {
           rk = null;
           val = null;
@@ -856,8 +912,14 @@ public class RFile {
       }
 
       prevKey = rk.getKey();
-      rk.readFields(currBlock);
-      val.readFields(currBlock);
+      if (version == RINDEX_VER_9) {
+        int pos = colBlock.size() - entriesLeft;
+        rk.setKey(colBlock.getKey(pos));
+        val = colBlock.getValue(pos);
+      } else {
+        rk.readFields(currBlock);
+        val.readFields(currBlock);
+      }
 
       if (metricsGatherer != null)
         metricsGatherer.addMetric(rk.getKey(), val);
@@ -867,6 +929,45 @@ public class RFile {
         hasTop = !range.afterEndKey(rk.getKey());
     }
 
+    /**
+     * Once blocks have been read in order a few times, starts reading the blocks that follow the
+     * current one in the background. How far ahead to read grows with each block read in order, up
+     * to the limit set for the file, and stops at the end of the range.
+     */
+    private void readAhead(IndexEntry current) {
+      int maxBlocks = reader.getReadAheadBlocks();
+      if (maxBlocks <= 0 || sequentialBlocks < READ_AHEAD_MIN_SEQUENTIAL_BLOCKS || checkRange) {
+        return;
+      }
+
+      int blocks = Math.min(maxBlocks, sequentialBlocks - READ_AHEAD_MIN_SEQUENTIAL_BLOCKS + 1);
+      int moved = 0;
+      try {
+        IndexEntry prev = current;
+        while (moved < blocks && iiter.hasNext() && !range.afterEndKey(prev.getKey())) {
+          IndexEntry next = iiter.next();
+          moved++;
+          int position = iiter.previousIndex();
+          if (position > readAheadIndex) {
+            readAheadIndex = position;
+            if (version == RINDEX_VER_3 || version == RINDEX_VER_4)
+              reader.readAheadDataBlock(startBlock + position);
+            else
+              reader.readAheadDataBlock(next.getOffset(), next.getCompressedSize(),
+                  next.getRawSize());
+          }
+          prev = next;
+        }
+      } catch (IOException e) {
+        // the block will be read when it is needed
+        log.debug("Failed to start read ahead", e);
+      } finally {
+        while (moved-- > 0) {
+          iiter.previous();
+        }
+      }
+    }
+
     private CachableBlockFile.CachedBlockRead getDataBlock(IndexEntry indexEntry)
         throws IOException {
       if (interruptFlag != null && interruptFlag.get())
@@ -904,6 +1005,7 @@ public class RFile {
 
     private void reset() {
       rk = null;
+      colBlock = null;
       hasTop = false;
       if (currBlock != null) {
         try {
@@ -964,14 +1066,25 @@ public class RFile {
           // causing the build of an index... doing this could slow down some use cases and
           // and speed up others.
 
-          MutableByteSequence valbs = new MutableByteSequence(new byte[64], 0, 0);
-          SkippR skippr =
-              RelativeKey.fastSkip(currBlock, startKey, valbs, prevKey, getTopKey(), entriesLeft);
-          if (skippr.skipped > 0) {
-            entriesLeft -= skippr.skipped;
-            val = new Value(valbs.toArray());
-            prevKey = skippr.prevKey;
-            rk = skippr.rk;
+          if (version == RINDEX_VER_9) {
+            int top = colBlock.size() - entriesLeft - 1;
+            int pos = Math.min(colBlock.seek(startKey, top), colBlock.size() - 1);
+            if (pos > top) {
+              entriesLeft = colBlock.size() - pos - 1;
+              prevKey = colBlock.getKey(pos - 1);
+              rk.setKey(colBlock.getKey(pos));
+              val = colBlock.getValue(pos);
+            }
+          } else {
+            MutableByteSequence valbs = new MutableByteSequence(new byte[64], 0, 0);
+            SkippR skippr =
+                RelativeKey.fastSkip(currBlock, startKey, valbs, prevKey, getTopKey(), entriesLeft);
+            if (skippr.skipped > 0) {
+              entriesLeft -= skippr.skipped;
+              val = new Value(valbs.toArray());
+              prevKey = skippr.prevKey;
+              rk = skippr.rk;
+            }
           }
 
           reseek = false;
@@ -998,6 +1111,8 @@ public class RFile {
 
       if (reseek) {
         iiter = index.lookup(startKey);
+        sequentialBlocks = 0;
+        readAheadIndex = -1;
 
         reset();
 
@@ -1024,41 +1139,45 @@ public class RFile {
           if (!checkRange)
             hasTop = true;
 
-          MutableByteSequence valbs = new MutableByteSequence(new byte[64], 0, 0);
-
-          Key currKey = null;
-
-          if (currBlock.isIndexable()) {
-            BlockIndex blockIndex = BlockIndex.getIndex(currBlock, indexEntry);
-            if (blockIndex != null) {
-              BlockIndexEntry bie = blockIndex.seekBlock(startKey, currBlock);
-              if (bie != null) {
-                // we are seeked to the current position of the key in the index
-                // need to prime the read process and read this key from the block
-                RelativeKey tmpRk = new RelativeKey();
-                tmpRk.setPrevKey(bie.getPrevKey());
-                tmpRk.readFields(currBlock);
-                val = new Value();
-
-                val.readFields(currBlock);
-                valbs = new MutableByteSequence(val.get(), 0, val.getSize());
-
-                // just consumed one key from the input stream, so subtract one from entries left
-                entriesLeft = bie.getEntriesLeft() - 1;
-                prevKey = new Key(bie.getPrevKey());
-                currKey = tmpRk.getKey();
+          if (version == RINDEX_VER_9) {
+            seekColumnarBlock(startKey);
+          } else {
+            MutableByteSequence valbs = new MutableByteSequence(new byte[64], 0, 0);
+
+            Key currKey = null;
+
+            if (currBlock.isIndexable()) {
+              BlockIndex blockIndex = BlockIndex.getIndex(currBlock, indexEntry);
+              if (blockIndex != null) {
+                BlockIndexEntry bie = blockIndex.seekBlock(startKey, currBlock);
+                if (bie != null) {
+                  // we are seeked to the current position of the key in the index
+                  // need to prime the read process and read this key from the block
+                  RelativeKey tmpRk = new RelativeKey();
+                  tmpRk.setPrevKey(bie.getPrevKey());
+                  tmpRk.readFields(currBlock);
+                  val = new Value();
+
+                  val.readFields(currBlock);
+                  valbs = new MutableByteSequence(val.get(), 0, val.getSize());
+
+                  // just consumed one key from the input stream, so subtract one from entries left
+                  entriesLeft = bie.getEntriesLeft() - 1;
+                  prevKey = new Key(bie.getPrevKey());
+                  currKey = tmpRk.getKey();
+                }
               }
             }
-          }
 
-          SkippR skippr =
-              RelativeKey.fastSkip(currBlock, startKey, valbs, prevKey, currKey, entriesLeft);
-          prevKey = skippr.prevKey;
-          entriesLeft -= skippr.skipped;
-          val = new Value(valbs.toArray());
-          // set rk when everything above is successful, if exception
-          // occurs rk will not be set
-          rk = skippr.rk;
+            SkippR skippr =
+                RelativeKey.fastSkip(currBlock, startKey, valbs, prevKey, currKey, entriesLeft);
+            prevKey = skippr.prevKey;
+            entriesLeft -= skippr.skipped;
+            val = new Value(valbs.toArray());
+            // set rk when everything above is successful, if exception
+            // occurs rk will not be set
+            rk = skippr.rk;
+          }
         } else {
           // past the last key
         }
@@ -1076,6 +1195,25 @@ public class RFile {
       }
     }
 
+    /**
+     * Positions the reader at the first key in the current block that is greater than or equal to
+     * the start key, or at the last key of the block if there is none.
+     */
+    private void seekColumnarBlock(Key startKey) throws IOException {
+      colBlock = ColumnarBlock.read(currBlock);
+      int pos = Math.min(colBlock.seek(startKey, 0), colBlock.size() - 1);
+      if (pos > 0) {
+        prevKey = colBlock.getKey(pos - 1);
+      }
+      entriesLeft = colBlock.size() - pos - 1;
+      val = colBlock.getValue(pos);
+      RelativeKey seekedRk = new RelativeKey();
+      seekedRk.setKey(colBlock.getKey(pos));
+      // set rk when everything above is successful, if exception
+      // occurs rk will not be set
+      rk = seekedRk;
+    }
+
     @Override
     public Key getFirstKey() {
       return firstKey;
@@ -1168,8 +1306,8 @@ public class RFile {
 
         if (magic != RINDEX_MAGIC)
           throw new IOException("Did not see expected magic number, saw " + magic);
-        if (ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6 && ver != RINDEX_VER_4
-            && ver != RINDEX_VER_3)
+        if (ver != RINDEX_VER_9 && ver != RINDEX_VER_8 && ver != RINDEX_VER_7 && ver != RINDEX_VER_6
+            && ver != RINDEX_VER_4 && ver != RINDEX_VER_3)
           throw new IOException("Did not see expected version, saw " + ver);
 
         int size = mb.readInt();
@@ -1187,7 +1325,7 @@ public class RFile {
 
         readers = currentReaders;
 
-        if (ver == RINDEX_VER_8 && mb.readBoolean()) {
+        if ((ver == RINDEX_VER_8 || ver == RINDEX_VER_9) && mb.readBoolean()) {
           sampleReaders = new LocalityGroupReader[size];
 
           for (int i = 0; i < size; i++) {
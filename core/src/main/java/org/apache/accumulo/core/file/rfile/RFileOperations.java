@@ -52,6 +52,11 @@ public class RFileOperations extends FileOperations {
             .conf(options.getConfiguration()).fileLen(options.getFileLenCache())
             .cacheProvider(options.cacheProvider).readLimiter(options.getRateLimiter())
             .cryptoService(options.getCryptoService());
+    AccumuloConfiguration tableConf = options.getTableConfiguration();
+    if (tableConf != null) {
+      cb.mapLocalFiles(tableConf.getBoolean(Property.TABLE_FILE_MMAP_ENABLED));
+      cb.readAheadBlocks(tableConf.getCount(Property.TABLE_FILE_READ_AHEAD_BLOCKS));
+    }
     return new RFile.Reader(cb);
   }
 
@@ -134,6 +139,9 @@ public class RFileOperations extends FileOperations {
     BCFile.Writer _cbw = new BCFile.Writer(outputStream, options.getRateLimiter(), compression,
         conf, options.cryptoService);
 
-    return new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize, samplerConfig, sampler);
+    boolean columnar = acuconf.getBoolean(Property.TABLE_FILE_COLUMNAR_ENABLED);
+
+    return new RFile.Writer(_cbw, (int) blockSize, (int) indexBlockSize, samplerConfig, sampler,
+        columnar);
   }
 }
@@ -165,6 +165,13 @@ public class RelativeKey implements Writable {
     this.prevKey = pk;
   }
 
+  /**
+   * Sets the key directly, for blocks that do not store keys relative to each other.
+   */
+  void setKey(Key key) {
+    this.key = key;
+  }
+
   @Override
   public void readFields(DataInput in) throws IOException {
     fieldsSame = in.readByte();
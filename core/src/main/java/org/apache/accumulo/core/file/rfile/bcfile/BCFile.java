@@ -38,6 +38,7 @@ import org.apache.accumulo.core.crypto.CryptoEnvironmentImpl;
 import org.apache.accumulo.core.crypto.CryptoUtils;
 import org.apache.accumulo.core.file.rfile.bcfile.Utils.Version;
 import org.apache.accumulo.core.file.streams.BoundedRangeFileInputStream;
+import org.apache.accumulo.core.file.streams.MappedFileInputStream;
 import org.apache.accumulo.core.file.streams.RateLimitedOutputStream;
 import org.apache.accumulo.core.file.streams.SeekableDataInputStream;
 import org.apache.accumulo.core.spi.crypto.CryptoEnvironment;
@@ -457,6 +458,8 @@ public final class BCFile {
    */
   public static class Reader implements Closeable {
     private final SeekableDataInputStream in;
+    // set when the file is memory mapped, so blocks can be read straight from the mapping
+    private final MappedFileInputStream mappedIn;
     private final Configuration conf;
     final DataIndex dataIndex;
     // Index for meta blocks
@@ -476,20 +479,33 @@ public final class BCFile {
       private volatile boolean closed;
 
       public <InputStreamType extends InputStream & Seekable> RBlockState(
-          CompressionAlgorithm compressionAlgo, InputStreamType fsin, BlockRegion region,
-          Configuration conf, FileDecrypter decrypter) throws IOException {
+          CompressionAlgorithm compressionAlgo, InputStreamType fsin,
+          MappedFileInputStream mappedIn, BlockRegion region, Configuration conf,
+          FileDecrypter decrypter) throws IOException {
         this.compressAlgo = compressionAlgo;
         this.region = region;
         this.decompressor = compressionAlgo.getDecompressor();
 
-        BoundedRangeFileInputStream boundedRangeFileInputStream = new BoundedRangeFileInputStream(
-            fsin, this.region.getOffset(), this.region.getCompressedSize());
-
         try {
-          InputStream inputStreamToBeCompressed =
-              decrypter.decryptStream(boundedRangeFileInputStream);
-          this.in = compressAlgo.createDecompressionStream(inputStreamToBeCompressed, decompressor,
-              getFSInputBufferSize(conf));
+          InputStream regionStream = null;
+          if (mappedIn != null) {
+            regionStream =
+                mappedIn.regionStream(this.region.getOffset(), this.region.getCompressedSize());
+          }
+
+          if (regionStream != null && decrypter instanceof NoFileDecrypter
+              && compressAlgo.getName().equals(Compression.COMPRESSION_NONE)) {
+            // the raw block is in the mapping, so decode it from there without any copying
+            this.in = regionStream;
+          } else {
+            if (regionStream == null) {
+              regionStream = new BoundedRangeFileInputStream(fsin, this.region.getOffset(),
+                  this.region.getCompressedSize());
+            }
+            InputStream inputStreamToBeCompressed = decrypter.decryptStream(regionStream);
+            this.in = compressAlgo.createDecompressionStream(inputStreamToBeCompressed,
+                decompressor, getFSInputBufferSize(conf));
+          }
         } catch (IOException e) {
           compressAlgo.returnDecompressor(decompressor);
           throw e;
@@ -599,6 +615,7 @@ public final class BCFile {
     public <InputStreamType extends InputStream & Seekable> Reader(InputStreamType fin,
         long fileLength, Configuration conf, CryptoService cryptoService) throws IOException {
       this.in = new SeekableDataInputStream(fin);
+      this.mappedIn = fin instanceof MappedFileInputStream ? (MappedFileInputStream) fin : null;
       this.conf = conf;
 
       // Move the cursor to grab the version and the magic first
@@ -654,6 +671,7 @@ public final class BCFile {
     public <InputStreamType extends InputStream & Seekable> Reader(byte[] serializedMetadata,
         InputStreamType fin, Configuration conf, CryptoService cryptoService) throws IOException {
       this.in = new SeekableDataInputStream(fin);
+      this.mappedIn = fin instanceof MappedFileInputStream ? (MappedFileInputStream) fin : null;
       this.conf = conf;
 
       ByteArrayInputStream bais = new ByteArrayInputStream(serializedMetadata);
@@ -748,7 +766,7 @@ public final class BCFile {
 
     private BlockReader createReader(CompressionAlgorithm compressAlgo, BlockRegion region)
         throws IOException {
-      RBlockState rbs = new RBlockState(compressAlgo, in, region, conf, decrypter);
+      RBlockState rbs = new RBlockState(compressAlgo, in, mappedIn, region, conf, decrypter);
       return new BlockReader(rbs);
     }
   }
@@ -53,6 +53,11 @@ public final class Compression {
   // Configuration object.
   protected static final Configuration conf = new Configuration();
 
+  /**
+   * Name of the algorithm that leaves blocks uncompressed.
+   */
+  public static final String COMPRESSION_NONE = new NoCompression().getName();
+
   private static final ServiceLoader<CompressionAlgorithmConfiguration> FOUND_ALGOS =
       ServiceLoader.load(CompressionAlgorithmConfiguration.class);
 
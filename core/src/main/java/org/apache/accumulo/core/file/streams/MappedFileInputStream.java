@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.streams;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import org.apache.hadoop.fs.Seekable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A seekable input stream over a memory mapped local file. Reads are served straight from the page
+ * cache without a system call or an intermediate buffer, and a region of the file can be exposed as
+ * a stream over a read-only view of the mapping without copying it at all.
+ *
+ * <p>
+ * Files larger than {@link #SEGMENT_SIZE} are mapped in several segments. The mappings are unmapped
+ * once this stream and every region stream it handed out are closed, so closed files do not hold
+ * address space and page cache until the next garbage collection. Unmapping uses the cleaner of the
+ * mapped buffers, and if the Java runtime does not allow that the mappings are released when they
+ * are garbage collected.
+ */
+public class MappedFileInputStream extends InputStream implements Seekable {
+
+  private static final Logger log = LoggerFactory.getLogger(MappedFileInputStream.class);
+
+  static final long SEGMENT_SIZE = 1L << 30;
+
+  private static final Consumer<ByteBuffer> NO_UNMAPPER = buffer -> {};
+  private static final Consumer<ByteBuffer> UNMAPPER = createUnmapper();
+
+  private final MappedByteBuffer[] segments;
+  private final long length;
+  private long pos = 0;
+  private volatile boolean closed = false;
+  // region streams that are not closed yet, the mappings can not be unmapped while any are open
+  private int openRegions = 0;
+  private boolean unmapped = false;
+
+  public MappedFileInputStream(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      this.length = channel.size();
+      int numSegments = (int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+      this.segments = new MappedByteBuffer[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+        long start = i * SEGMENT_SIZE;
+        segments[i] = channel.map(MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, length - start));
+      }
+    }
+  }
+
+  public long getLength() {
+    return length;
+  }
+
+  /**
+   * Get a stream over a region of the file that reads directly from the mapping.
+   *
+   * @return a stream over the region or null if the region spans mapped segments, in which case the
+   *         caller should read it through this stream instead
+   */
+  public synchronized InputStream regionStream(long offset, long len) throws IOException {
+    ensureOpen();
+    if (offset < 0 || len < 0 || offset + len > length) {
+      throw new EOFException(
+          "Region " + offset + "+" + len + " is outside of file of length " + length);
+    }
+    if (len == 0) {
+      return new ByteBufferInputStream(ByteBuffer.allocate(0));
+    }
+    int segment = (int) (offset / SEGMENT_SIZE);
+    int start = (int) (offset % SEGMENT_SIZE);
+    if (start + len > segments[segment].capacity()) {
+      return null;
+    }
+    ByteBuffer view = segments[segment].duplicate();
+    view.position(start).limit((int) (start + len));
+    openRegions++;
+    return new ByteBufferInputStream(view.slice()) {
+      @Override
+      void released() {
+        releaseRegion();
+      }
+    };
+  }
+
+  private synchronized void releaseRegion() {
+    openRegions--;
+    unmapIfUnused();
+  }
+
+  private void unmapIfUnused() {
+    if (closed && openRegions == 0 && !unmapped) {
+      unmapped = true;
+      for (MappedByteBuffer segment : segments) {
+        UNMAPPER.accept(segment);
+      }
+    }
+  }
+
+  /**
+   * @return true if the mappings of this stream were unmapped
+   */
+  synchronized boolean isUnmapped() {
+    return unmapped && UNMAPPER != NO_UNMAPPER;
+  }
+
+  @Override
+  public synchronized int read() throws IOException {
+    ensureOpen();
+    if (pos >= length) {
+      return -1;
+    }
+    int b = segments[(int) (pos / SEGMENT_SIZE)].get((int) (pos % SEGMENT_SIZE)) & 0xff;
+    pos++;
+    return b;
+  }
+
+  @Override
+  public synchronized int read(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    if (pos >= length) {
+      return -1;
+    }
+    int total = 0;
+    while (total < len && pos < length) {
+      ByteBuffer view = segments[(int) (pos / SEGMENT_SIZE)].duplicate();
+      view.position((int) (pos % SEGMENT_SIZE));
+      int n = Math.min(len - total, view.remaining());
+      view.get(b, off + total, n);
+      total += n;
+      pos += n;
+    }
+    return total;
+  }
+
+  @Override
+  public synchronized long skip(long n) {
+    long skipped = Math.max(0, Math.min(n, length - pos));
+    pos += skipped;
+    return skipped;
+  }
+
+  @Override
+  public synchronized int available() {
+    return (int) Math.min(Integer.MAX_VALUE, length - pos);
+  }
+
+  @Override
+  public synchronized void seek(long pos) throws IOException {
+    ensureOpen();
+    if (pos < 0 || pos > length) {
+      throw new EOFException("Cannot seek to " + pos + " in file of length " + length);
+    }
+    this.pos = pos;
+  }
+
+  @Override
+  public synchronized long getPos() {
+    return pos;
+  }
+
+  @Override
+  public boolean seekToNewSource(long targetPos) {
+    return false;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    unmapIfUnused();
+  }
+
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+  }
+
+  private static Consumer<ByteBuffer> createUnmapper() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Object unsafe = theUnsafe.get(null);
+      Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      return buffer -> {
+        try {
+          invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+          log.debug("Failed to unmap a buffer, it will be unmapped when garbage collected", e);
+        }
+      };
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.debug("Unable to unmap files when closed, they will be unmapped when garbage collected",
+          e);
+      return NO_UNMAPPER;
+    }
+  }
+
+  /**
+   * An input stream over a read-only view of a mapped region. Reads and close are synchronized so a
+   * region is never read after it was released.
+   */
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+    private boolean closed = false;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    /**
+     * Called once when this stream is closed.
+     */
+    void released() {}
+
+    private void ensureOpen() throws IOException {
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      if (!closed) {
+        closed = true;
+        released();
+      }
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+      ensureOpen();
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+      ensureOpen();
+      if ((off | len | (off + len) | (b.length - (off + len))) < 0) {
+        throw new IndexOutOfBoundsException();
+      }
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public synchronized long skip(long n) throws IOException {
+      ensureOpen();
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public synchronized int available() throws IOException {
+      ensureOpen();
+      return buffer.remaining();
+    }
+  }
+}
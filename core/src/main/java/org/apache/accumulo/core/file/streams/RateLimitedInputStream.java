@@ -24,41 +24,58 @@ import java.io.InputStream;
 
 import org.apache.accumulo.core.util.ratelimit.NullRateLimiter;
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.core.util.ratelimit.TimingRateLimiter;
 import org.apache.hadoop.fs.Seekable;
 
 /**
- * A decorator for an {@code InputStream} which limits the rate at which reads are performed.
+ * A decorator for an {@code InputStream} which limits the rate at which reads are performed. When
+ * the rate limiter is a {@link TimingRateLimiter}, the time spent in reads and seeks is added to
+ * it.
  */
 public class RateLimitedInputStream extends FilterInputStream implements Seekable {
   private final RateLimiter rateLimiter;
+  private final TimingRateLimiter timer;
 
   public <StreamType extends InputStream & Seekable> RateLimitedInputStream(StreamType stream,
       RateLimiter rateLimiter) {
     super(stream);
     this.rateLimiter = rateLimiter == null ? NullRateLimiter.INSTANCE : rateLimiter;
+    this.timer = rateLimiter instanceof TimingRateLimiter ? (TimingRateLimiter) rateLimiter : null;
   }
 
   @Override
   public int read() throws IOException {
+    long start = timer == null ? 0 : System.nanoTime();
     int val = in.read();
     if (val >= 0) {
       rateLimiter.acquire(1);
     }
+    if (timer != null) {
+      timer.addIoTime(System.nanoTime() - start);
+    }
     return val;
   }
 
   @Override
   public int read(byte[] buffer, int offset, int length) throws IOException {
+    long start = timer == null ? 0 : System.nanoTime();
     int count = in.read(buffer, offset, length);
     if (count > 0) {
       rateLimiter.acquire(count);
     }
+    if (timer != null) {
+      timer.addIoTime(System.nanoTime() - start);
+    }
     return count;
   }
 
   @Override
   public void seek(long pos) throws IOException {
+    long start = timer == null ? 0 : System.nanoTime();
     ((Seekable) in).seek(pos);
+    if (timer != null) {
+      timer.addIoTime(System.nanoTime() - start);
+    }
   }
 
   @Override
@@ -23,35 +23,62 @@ import java.io.IOException;
 
 import org.apache.accumulo.core.util.ratelimit.NullRateLimiter;
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.core.util.ratelimit.TimingRateLimiter;
 import org.apache.hadoop.fs.FSDataOutputStream;
 
 /**
  * A decorator for {@code OutputStream} which limits the rate at which data may be written.
- * Underlying OutputStream is a FSDataOutputStream.
+ * Underlying OutputStream is a FSDataOutputStream. When the rate limiter is a
+ * {@link TimingRateLimiter}, the time spent in writes, flushes and closing the stream is added to
+ * it.
  */
 public class RateLimitedOutputStream extends DataOutputStream {
   private final RateLimiter writeLimiter;
+  private final TimingRateLimiter timer;
 
   public RateLimitedOutputStream(FSDataOutputStream fsDataOutputStream, RateLimiter writeLimiter) {
     super(fsDataOutputStream);
     this.writeLimiter = writeLimiter == null ? NullRateLimiter.INSTANCE : writeLimiter;
+    this.timer =
+        writeLimiter instanceof TimingRateLimiter ? (TimingRateLimiter) writeLimiter : null;
   }
 
   @Override
   public synchronized void write(int i) throws IOException {
+    long start = timer == null ? 0 : System.nanoTime();
     writeLimiter.acquire(1);
     out.write(i);
+    if (timer != null) {
+      timer.addIoTime(System.nanoTime() - start);
+    }
   }
 
   @Override
   public synchronized void write(byte[] buffer, int offset, int length) throws IOException {
+    long start = timer == null ? 0 : System.nanoTime();
     writeLimiter.acquire(length);
     out.write(buffer, offset, length);
+    if (timer != null) {
+      timer.addIoTime(System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    long start = timer == null ? 0 : System.nanoTime();
+    out.flush();
+    if (timer != null) {
+      timer.addIoTime(System.nanoTime() - start);
+    }
   }
 
   @Override
   public void close() throws IOException {
+    long start = timer == null ? 0 : System.nanoTime();
     out.close();
+    if (timer != null) {
+      timer.addIoTime(System.nanoTime() - start);
+    }
   }
 
   public long position() {
@@ -45,6 +45,16 @@ import io.micrometer.core.instrument.MeterRegistry;
  * <th>Micrometer Type</th>
  * <th>Notes</th>
  * </tr>
+ * <!-- client -->
+ * <tr>
+ * <td>N/A</td>
+ * <td>N/A</td>
+ * <td>{@link #METRICS_CLIENT_BATCH_WRITER_IN_FLIGHT}</td>
+ * <td>Distribution Summary</td>
+ * <td>Bytes a batch writer has sent to a tablet server that it has not acknowledged yet, recorded
+ * each time a batch is sent. Only published if the client application adds a registry to the
+ * Micrometer global registry.</td>
+ * </tr>
  * <tr>
  * <td>N/A</td>
  * <td>N/A</td>
@@ -442,6 +452,52 @@ import io.micrometer.core.instrument.MeterRegistry;
  * <td>The compaction service information is in a tag:
  * id={i|e}_{compactionServiceName}_{executor_name}</td>
  * </tr>
+ * <tr>
+ * <td>N/A</td>
+ * <td>N/A</td>
+ * <td>{@link #METRICS_MAJC_TIME_READ_IO}</td>
+ * <td>Timer</td>
+ * <td>Time each completed compaction spent in file system reads of the input files. The compaction
+ * executor and table are in the tags id={i|e}_{compactionServiceName}_{executor_name} and table,
+ * where table is "other" for all but the first 32 tables compacted.</td>
+ * </tr>
+ * <tr>
+ * <td>N/A</td>
+ * <td>N/A</td>
+ * <td>{@link #METRICS_MAJC_TIME_DECODE}</td>
+ * <td>Timer</td>
+ * <td>Estimated time each completed compaction spent decompressing, decoding and merging the input
+ * files. The compaction executor and table are in the tags
+ * id={i|e}_{compactionServiceName}_{executor_name} and table, where table is "other" for all but
+ * the first 32 tables compacted.</td>
+ * </tr>
+ * <tr>
+ * <td>N/A</td>
+ * <td>N/A</td>
+ * <td>{@link #METRICS_MAJC_TIME_ITERATOR}</td>
+ * <td>Timer</td>
+ * <td>Estimated time each completed compaction spent in the compaction iterators. The compaction
+ * executor and table are in the tags id={i|e}_{compactionServiceName}_{executor_name} and table,
+ * where table is "other" for all but the first 32 tables compacted.</td>
+ * </tr>
+ * <tr>
+ * <td>N/A</td>
+ * <td>N/A</td>
+ * <td>{@link #METRICS_MAJC_TIME_ENCODE}</td>
+ * <td>Timer</td>
+ * <td>Estimated time each completed compaction spent encoding and compressing the output file. The
+ * compaction executor and table are in the tags id={i|e}_{compactionServiceName}_{executor_name}
+ * and table, where table is "other" for all but the first 32 tables compacted.</td>
+ * </tr>
+ * <tr>
+ * <td>N/A</td>
+ * <td>N/A</td>
+ * <td>{@link #METRICS_MAJC_TIME_WRITE_IO}</td>
+ * <td>Timer</td>
+ * <td>Time each completed compaction spent in file system writes of the output file. The compaction
+ * executor and table are in the tags id={i|e}_{compactionServiceName}_{executor_name} and table,
+ * where table is "other" for all but the first 32 tables compacted.</td>
+ * </tr>
  * <!-- minor compactions -->
  * <tr>
  * <td>Queue</td>
@@ -543,6 +599,20 @@ import io.micrometer.core.instrument.MeterRegistry;
  * <td>Distribution Summary</td>
  * <td></td>
  * </tr>
+ * <tr>
+ * <td>N/A</td>
+ * <td>N/A</td>
+ * <td>{@link #METRICS_UPDATE_WALOG_SYNC_BATCH_SIZE}</td>
+ * <td>Distribution Summary</td>
+ * <td>Number of WAL writes covered by a single sync or flush</td>
+ * </tr>
+ * <tr>
+ * <td>N/A</td>
+ * <td>N/A</td>
+ * <td>{@link #METRICS_UPDATE_WALOG_SYNC_WAIT}</td>
+ * <td>Timer</td>
+ * <td>Time a WAL write waited for its sync or flush to complete</td>
+ * </tr>
  * <!-- Thrift -->
  * <tr>
  * <td>idle</td>
@@ -602,6 +672,9 @@ public interface MetricsProducer {
 
   Logger LOG = LoggerFactory.getLogger(MetricsProducer.class);
 
+  String METRICS_CLIENT_PREFIX = "accumulo.client.";
+  String METRICS_CLIENT_BATCH_WRITER_IN_FLIGHT = METRICS_CLIENT_PREFIX + "batchwriter.inflight";
+
   String METRICS_COMPACTOR_PREFIX = "accumulo.compactor";
   String METRICS_COMPACTOR_MAJC_STUCK = METRICS_COMPACTOR_PREFIX + "majc.stuck";
 
@@ -631,6 +704,11 @@ public interface MetricsProducer {
   String METRICS_MAJC_PREFIX = "accumulo.tserver.compactions.majc.";
   String METRICS_MAJC_QUEUED = METRICS_MAJC_PREFIX + "queued";
   String METRICS_MAJC_RUNNING = METRICS_MAJC_PREFIX + "running";
+  String METRICS_MAJC_TIME_READ_IO = METRICS_MAJC_PREFIX + "time.read.io";
+  String METRICS_MAJC_TIME_DECODE = METRICS_MAJC_PREFIX + "time.decode";
+  String METRICS_MAJC_TIME_ITERATOR = METRICS_MAJC_PREFIX + "time.iterator";
+  String METRICS_MAJC_TIME_ENCODE = METRICS_MAJC_PREFIX + "time.encode";
+  String METRICS_MAJC_TIME_WRITE_IO = METRICS_MAJC_PREFIX + "time.write.io";
 
   String METRICS_MINC_PREFIX = "accumulo.tserver.compactions.minc.";
   String METRICS_MINC_QUEUED = METRICS_MINC_PREFIX + "queued";
@@ -684,6 +762,8 @@ public interface MetricsProducer {
   String METRICS_UPDATE_COMMIT_PREP = METRICS_UPDATE_COMMIT + ".prep";
   String METRICS_UPDATE_WALOG_WRITE = METRICS_UPDATE_PREFIX + "walog.write";
   String METRICS_UPDATE_MUTATION_ARRAY_SIZE = METRICS_UPDATE_PREFIX + "mutation.arrays.size";
+  String METRICS_UPDATE_WALOG_SYNC_BATCH_SIZE = METRICS_UPDATE_PREFIX + "walog.sync.batch.size";
+  String METRICS_UPDATE_WALOG_SYNC_WAIT = METRICS_UPDATE_PREFIX + "walog.sync.wait";
 
   String METRICS_PROPSTORE_PREFIX = "accumulo.prop.store.";
   String METRICS_PROPSTORE_LOAD_TIMER = METRICS_PROPSTORE_PREFIX + "load";
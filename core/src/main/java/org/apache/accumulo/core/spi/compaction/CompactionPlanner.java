@@ -118,6 +118,25 @@ public interface CompactionPlanner {
      */
     Map<String,String> getExecutionHints();
 
+    /**
+     * @return the number of scan sessions, lookups and conditional mutation checks per second that
+     *         recently read the files of the tablet, or 0 when this is not known. A scan session is
+     *         counted once, however many batches it returns.
+     * @since 2.1.0
+     */
+    default double getReadRate() {
+      return 0;
+    }
+
+    /**
+     * @return the average number of files each of the reads counted by {@link #getReadRate()}
+     *         opened when it started, or 0 when this is not known
+     * @since 2.1.0
+     */
+    default double getFilesPerRead() {
+      return 0;
+    }
+
     /**
      * @return A compaction plan builder that must be used to create a compaction plan.
      */
@@ -209,6 +209,13 @@ public class DefaultCompactionPlanner implements CompactionPlanner {
     determineMaxFilesToCompact(params);
   }
 
+  /**
+   * @return the maximum number of files a single compaction may compact
+   */
+  int getMaxFilesToCompact() {
+    return maxFilesToCompact;
+  }
+
   @SuppressWarnings("removal")
   private void determineMaxFilesToCompact(InitParameters params) {
     String fqo = params.getFullyQualifiedOption("maxOpen");
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.accumulo.core.client.admin.compaction.CompactableFile;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.spi.common.ServiceEnvironment;
+import org.apache.accumulo.core.spi.common.ServiceEnvironment.Configuration;
+import org.apache.accumulo.core.util.compaction.CompactionJobPrioritizer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link DefaultCompactionPlanner} that also considers how often a tablet is read and how many
+ * files each read opens. Every file a read has to open adds to its latency, so compacting the files
+ * of a tablet that is read often saves more than compacting the files of a tablet that is rarely
+ * read. This planner uses that to decide when system compactions run.
+ *
+ * <ul>
+ * <li>Tablets that are read often and whose reads open more than one file use a lower compaction
+ * ratio, so their files are compacted sooner.
+ * <li>Tablets that are rarely read are not compacted until they have a configured number of files,
+ * or as many files as {@code table.file.max} or the {@code maxOpen} option allow, if fewer. Tablets
+ * with no recorded reads, such as tablets that were just loaded by a tablet server, are not
+ * considered rarely read.
+ * <li>System compactions are prioritized by the number of file opens per second they are expected
+ * to save, so the compactions of frequently read tablets run first.
+ * </ul>
+ *
+ * <p>
+ * User, selector, and chop compactions are planned exactly as {@link DefaultCompactionPlanner}
+ * plans them. This planner supports all of the options of {@link DefaultCompactionPlanner} and the
+ * following options. Replace {@code <service>} with the name of the compaction service you are
+ * configuring.
+ *
+ * <ul>
+ * <li>{@code tserver.compaction.major.service.<service>.planner.opts.hotReadRate} Tablets read at
+ * least this many times per second are considered hot. Defaults to 10.
+ * <li>{@code tserver.compaction.major.service.<service>.planner.opts.hotRatio} The compaction ratio
+ * used for hot tablets when it is lower than the ratio of the table. Must be at least 1. Defaults
+ * to 2.
+ * <li>{@code tserver.compaction.major.service.<service>.planner.opts.coldReadRate} Tablets read
+ * fewer than this many times per second are considered cold. Defaults to 0.1.
+ * <li>{@code tserver.compaction.major.service.<service>.planner.opts.coldMaxFiles} Cold tablets are
+ * not compacted until they have at least this many files, or the number of files allowed by
+ * {@code table.file.max} or {@code maxOpen} if lower. Defaults to 8.
+ * </ul>
+ *
+ * @since 2.1.0
+ * @see org.apache.accumulo.core.spi.compaction
+ */
+public class ReadCostCompactionPlanner extends DefaultCompactionPlanner {
+
+  private double hotReadRate;
+  private double hotRatio;
+  private double coldReadRate;
+  private int coldMaxFiles;
+
+  @Override
+  public void init(InitParameters params) {
+    super.init(params);
+
+    Map<String,String> options = params.getOptions();
+    hotReadRate = Double.parseDouble(options.getOrDefault("hotReadRate", "10"));
+    hotRatio = Double.parseDouble(options.getOrDefault("hotRatio", "2"));
+    coldReadRate = Double.parseDouble(options.getOrDefault("coldReadRate", "0.1"));
+    coldMaxFiles = Integer.parseInt(options.getOrDefault("coldMaxFiles", "8"));
+
+    Preconditions.checkArgument(hotRatio >= 1, "hotRatio must be at least 1 : %s", hotRatio);
+    Preconditions.checkArgument(coldReadRate <= hotReadRate,
+        "coldReadRate %s is greater than hotReadRate %s", coldReadRate, hotReadRate);
+  }
+
+  @Override
+  public CompactionPlan makePlan(PlanningParameters params) {
+    if (params.getKind() != CompactionKind.SYSTEM) {
+      return super.makePlan(params);
+    }
+
+    double readRate = params.getReadRate();
+    // a rate of zero is what a tablet that was just loaded reports, so it is not known to be cold
+    if (readRate > 0 && readRate < coldReadRate
+        && params.getAll().size() < getColdMaxFiles(params)) {
+      // compacting would shorten few reads, so save the work until there are more files
+      return params.createPlanBuilder().build();
+    }
+
+    boolean hot =
+        readRate >= hotReadRate && params.getFilesPerRead() > 1 && hotRatio < params.getRatio();
+    CompactionPlan plan = super.makePlan(hot ? new HotPlanningParameters(params) : params);
+    if (plan.getJobs().isEmpty() || readRate <= 0) {
+      return plan;
+    }
+
+    var builder = params.createPlanBuilder();
+    for (CompactionJob job : plan.getJobs()) {
+      builder.addJob(createPriority(params, job.getFiles()), job.getExecutor(), job.getFiles());
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return the number of files a cold tablet may have before it is compacted, capped so that
+   *         deferring never keeps a tablet from the compactions that keep it under
+   *         {@code table.file.max} or able to compact all its files at once
+   */
+  private int getColdMaxFiles(PlanningParameters params) {
+    Configuration conf = params.getServiceEnvironment().getConfiguration(params.getTableId());
+    int maxFilesPerTablet = Integer.parseInt(conf.get(Property.TABLE_FILE_MAX.getKey()));
+    if (maxFilesPerTablet <= 0) {
+      maxFilesPerTablet =
+          Integer.parseInt(conf.get(Property.TSERV_SCAN_MAX_OPENFILES.getKey())) - 1;
+    }
+    return Math.min(coldMaxFiles, Math.min(maxFilesPerTablet, getMaxFilesToCompact()));
+  }
+
+  /**
+   * Computes a system compaction priority that grows with the number of file opens per second the
+   * compaction is expected to save.
+   */
+  static short createPriority(PlanningParameters params, Collection<CompactableFile> group) {
+    int totalFiles = params.getAll().size();
+    // the fraction of the tablet's files that reads open
+    double filesRead = totalFiles == 0 ? 0 : Math.min(1, params.getFilesPerRead() / totalFiles);
+    double savedFileReads = params.getReadRate() * filesRead * (group.size() - 1);
+    int saved = (int) Math.min(Short.MAX_VALUE, Math.ceil(savedFileReads));
+    return CompactionJobPrioritizer.createPriority(CompactionKind.SYSTEM, totalFiles + saved,
+        group.size());
+  }
+
+  /**
+   * Planning parameters that use the lower compaction ratio configured for hot tablets.
+   */
+  private class HotPlanningParameters implements PlanningParameters {
+
+    private final PlanningParameters params;
+
+    HotPlanningParameters(PlanningParameters params) {
+      this.params = params;
+    }
+
+    @Override
+    public TableId getTableId() {
+      return params.getTableId();
+    }
+
+    @Override
+    public ServiceEnvironment getServiceEnvironment() {
+      return params.getServiceEnvironment();
+    }
+
+    @Override
+    public CompactionKind getKind() {
+      return params.getKind();
+    }
+
+    @Override
+    public double getRatio() {
+      return hotRatio;
+    }
+
+    @Override
+    public Collection<CompactableFile> getAll() {
+      return params.getAll();
+    }
+
+    @Override
+    public Collection<CompactableFile> getCandidates() {
+      return params.getCandidates();
+    }
+
+    @Override
+    public Collection<CompactionJob> getRunningCompactions() {
+      return params.getRunningCompactions();
+    }
+
+    @Override
+    public Map<String,String> getExecutionHints() {
+      return params.getExecutionHints();
+    }
+
+    @Override
+    public double getReadRate() {
+      return params.getReadRate();
+    }
+
+    @Override
+    public double getFilesPerRead() {
+      return params.getFilesPerRead();
+    }
+
+    @Override
+    public CompactionPlan.Builder createPlanBuilder() {
+      return params.createPlanBuilder();
+    }
+  }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.spi.scan;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.stream.Collectors;
+
+import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
+import org.apache.accumulo.core.spi.common.Stats;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * When configured for a scan executor, this prioritizer shares the executor fairly between tenants,
+ * where a tenant is the user or the table of a scan. Tenants get a share of the executor's run time
+ * in proportion to their weight no matter how many scans they have queued, so one tenant's large
+ * scans do not starve the scans of others.
+ *
+ * <p>
+ * Scans are ordered using start time fair queuing. Each time a scan is queued it is tagged with the
+ * later of the executor's virtual time and the finish tag of the tenant's previously queued scan.
+ * The tenant's finish tag then moves ahead by the scan's estimated run time divided by the tenant's
+ * weight, and is corrected by the actual run time once the scan has run. The virtual time advances
+ * to the tag of each scan that runs. A scan that starts on an idle thread without being queued is
+ * charged as if it had been queued and started immediately. The estimated run time is the mean run
+ * time of the scan, or of the tenant's scans if the scan has not run yet.
+ *
+ * <p>
+ * Scans are ordered by, from most to least significant:
+ * <ol>
+ * <li>Interactive scans before batch scans. Scans are queued again each time they have read a
+ * batch, so a long running batch scan is preempted by any waiting interactive scans when it
+ * finishes its current batch.</li>
+ * <li>Tenants within their budget before tenants that have exceeded it.</li>
+ * <li>The fair queuing tag.</li>
+ * <li>The creation time of the scan.</li>
+ * </ol>
+ *
+ * <p>
+ * This prioritizer accepts the following options.
+ * <ul>
+ * <li>{@code tenant=user|table|user_table} determines what scans are shared fairly between. It
+ * defaults to {@code user}.</li>
+ * <li>{@code weight.<tenant>=<number>} sets the weight of a tenant. For {@code user_table} tenants
+ * are named {@code <user>:<table id>}.</li>
+ * <li>{@code default_weight=<number>} sets the weight of tenants without a configured weight. It
+ * defaults to 1.</li>
+ * <li>{@code interactive_types=<type>[,<type>]} lists the {@code scan_type} hints, set using
+ * {@link ScannerBase#setExecutionHints(Map)}, of interactive scans. It defaults to
+ * {@code interactive}.</li>
+ * <li>{@code budget.time=<duration>} the run time, taken from the scan run time stats, a tenant may
+ * use per budget period before its scans are ordered after the scans of tenants within budget. It
+ * defaults to unlimited.</li>
+ * <li>{@code budget.bytes=<size>} the amount of data, taken from the scan bytes read stats, a
+ * tenant may read per budget period before its scans are ordered after the scans of tenants within
+ * budget. It defaults to unlimited.</li>
+ * <li>{@code budget.period=<duration>} the period budgets apply to. It defaults to {@code 1m}.</li>
+ * </ul>
+ *
+ * <p>
+ * Each instance of this class keeps the state of a single scan executor.
+ *
+ * @since 2.1.0
+ */
+public class FairShareScanPrioritizer implements ScanPrioritizer {
+
+  private static final String WEIGHT_PREFIX = "weight.";
+  private static final Set<String> OPTIONS = Set.of("tenant", "default_weight", "interactive_types",
+      "budget.time", "budget.bytes", "budget.period");
+
+  private enum TenantType {
+    USER, TABLE, USER_TABLE
+  }
+
+  private static class Tag {
+    final boolean interactive;
+    final boolean overBudget;
+    final double start;
+    final double estimatedCost;
+
+    Tag(boolean interactive, boolean overBudget, double start, double estimatedCost) {
+      this.interactive = interactive;
+      this.overBudget = overBudget;
+      this.start = start;
+      this.estimatedCost = estimatedCost;
+    }
+  }
+
+  private static class Tenant {
+    final double weight;
+    double finishTag = 0;
+    double meanRunTime = Double.NaN;
+    long periodStart = 0;
+    long periodRunTime = 0;
+    long periodBytes = 0;
+
+    Tenant(double weight) {
+      this.weight = weight;
+    }
+
+    void startPeriod(long currTime, long period) {
+      if (currTime - periodStart >= period) {
+        periodStart = currTime;
+        periodRunTime = 0;
+        periodBytes = 0;
+      }
+    }
+  }
+
+  private TenantType tenantType;
+  private double defaultWeight;
+  private Map<String,Double> weights;
+  private Set<String> interactiveTypes;
+  private long timeBudget;
+  private long bytesBudget;
+  private long budgetPeriod;
+
+  private final Map<String,Tenant> tenants = new HashMap<>();
+  // the tags of queued scans, weakly referenced so scans that never run are not leaked
+  private final Map<ScanInfo,Tag> tags = Collections.synchronizedMap(new WeakHashMap<>());
+  private double virtualTime = 0;
+
+  @Override
+  public Comparator<ScanInfo> createComparator(CreateParameters params) {
+    Map<String,String> options = params.getOptions();
+    options.keySet().forEach(key -> Preconditions.checkArgument(
+        OPTIONS.contains(key) || key.startsWith(WEIGHT_PREFIX), "Unknown option %s", key));
+
+    tenantType = TenantType.valueOf(options.getOrDefault("tenant", "user").toUpperCase());
+    defaultWeight = Double.parseDouble(options.getOrDefault("default_weight", "1"));
+    weights = options.entrySet().stream().filter(e -> e.getKey().startsWith(WEIGHT_PREFIX))
+        .collect(Collectors.toUnmodifiableMap(e -> e.getKey().substring(WEIGHT_PREFIX.length()),
+            e -> Double.parseDouble(e.getValue())));
+    Preconditions.checkArgument(defaultWeight > 0, "default_weight must be positive");
+    weights.forEach((tenant, weight) -> Preconditions.checkArgument(weight > 0,
+        "weight of %s must be positive", tenant));
+    interactiveTypes =
+        Arrays.stream(options.getOrDefault("interactive_types", "interactive").split(","))
+            .map(String::trim).filter(s -> !s.isEmpty()).collect(Collectors.toSet());
+    timeBudget = options.containsKey("budget.time")
+        ? ConfigurationTypeHelper.getTimeInMillis(options.get("budget.time")) : Long.MAX_VALUE;
+    bytesBudget = options.containsKey("budget.bytes")
+        ? ConfigurationTypeHelper.getFixedMemoryAsBytes(options.get("budget.bytes"))
+        : Long.MAX_VALUE;
+    budgetPeriod =
+        ConfigurationTypeHelper.getTimeInMillis(options.getOrDefault("budget.period", "1m"));
+
+    Comparator<Tag> tagComparator = Comparator.comparing((Tag tag) -> !tag.interactive)
+        .thenComparing(tag -> tag.overBudget).thenComparingDouble(tag -> tag.start);
+    return Comparator.comparing(this::getTag, tagComparator)
+        .thenComparingLong(ScanInfo::getCreationTime);
+  }
+
+  private String getTenantName(ScanInfo scanInfo) {
+    // scans whose user is not known share the tenant of the empty user name
+    String user = Objects.requireNonNullElse(scanInfo.getUser(), "");
+    switch (tenantType) {
+      case USER:
+        return user;
+      case TABLE:
+        return scanInfo.getTableId().canonical();
+      case USER_TABLE:
+        return user + ":" + scanInfo.getTableId().canonical();
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  private Tenant getTenant(ScanInfo scanInfo) {
+    return tenants.computeIfAbsent(getTenantName(scanInfo),
+        name -> new Tenant(weights.getOrDefault(name, defaultWeight)));
+  }
+
+  private boolean isInteractive(ScanInfo scanInfo) {
+    String scanType = scanInfo.getExecutionHints().get("scan_type");
+    return scanType != null && interactiveTypes.contains(scanType);
+  }
+
+  private Tag getTag(ScanInfo scanInfo) {
+    Tag tag = tags.get(scanInfo);
+    if (tag == null) {
+      // was not queued through the executor, so order it after everything that was
+      tag = new Tag(isInteractive(scanInfo), false, Double.MAX_VALUE, 0);
+    }
+    return tag;
+  }
+
+  @Override
+  public synchronized void scanQueued(ScanInfo scanInfo) {
+    Tenant tenant = getTenant(scanInfo);
+    tenant.startPeriod(System.currentTimeMillis(), budgetPeriod);
+    boolean overBudget = tenant.periodRunTime >= timeBudget || tenant.periodBytes >= bytesBudget;
+
+    Stats runTimeStats = scanInfo.getRunTimeStats();
+    double cost = runTimeStats.num() > 0 ? runTimeStats.mean() : tenant.meanRunTime;
+    // a scan that runs in under a millisecond still costs something
+    cost = Double.isNaN(cost) ? 1 : Math.max(1, cost);
+
+    double start = Math.max(virtualTime, tenant.finishTag);
+    tenant.finishTag = start + cost / tenant.weight;
+    tags.put(scanInfo, new Tag(isInteractive(scanInfo), overBudget, start, cost));
+  }
+
+  @Override
+  public synchronized void scanRan(ScanInfo scanInfo, long runTime, long bytesRead) {
+    Tenant tenant = getTenant(scanInfo);
+    tenant.startPeriod(System.currentTimeMillis(), budgetPeriod);
+    tenant.periodRunTime += runTime;
+    tenant.periodBytes += bytesRead;
+    tenant.meanRunTime =
+        Double.isNaN(tenant.meanRunTime) ? runTime : 0.8 * tenant.meanRunTime + 0.2 * runTime;
+
+    Tag tag = tags.remove(scanInfo);
+    if (tag != null) {
+      virtualTime = Math.max(virtualTime, tag.start);
+      // charge the tenant for what the scan actually cost instead of the estimate
+      tenant.finishTag += (Math.max(1, runTime) - tag.estimatedCost) / tenant.weight;
+    } else {
+      // the scan was handed straight to an idle thread without being queued, so charge the tenant
+      // as if it had been queued and started right away
+      double start = Math.max(virtualTime, tenant.finishTag);
+      virtualTime = start;
+      tenant.finishTag = start + Math.max(1, runTime) / tenant.weight;
+    }
+  }
+}
@@ -30,6 +30,7 @@ import org.apache.accumulo.core.data.Column;
 import org.apache.accumulo.core.data.TableId;
 import org.apache.accumulo.core.spi.common.IteratorConfiguration;
 import org.apache.accumulo.core.spi.common.Stats;
+import org.apache.accumulo.core.util.Stat;
 
 /**
  * Provides information about an active Accumulo scan against a tablet. Accumulo scans operate by
@@ -88,6 +89,25 @@ public interface ScanInfo {
    */
   Stats getIdleTimeStats(long currentTime);
 
+  /**
+   * Returns statistics about the size, in bytes, of the key values read by each run of the scan. If
+   * the scan has never run, or the implementation does not track bytes read, then there are no
+   * stats.
+   *
+   * @since 2.1.0
+   */
+  default Stats getBytesReadStats() {
+    return new Stat();
+  }
+
+  /**
+   * @return the user that started the scan, or null if the implementation does not know it
+   * @since 2.1.0
+   */
+  default String getUser() {
+    return null;
+  }
+
   /**
    * This method returns what column were fetched by a scan. When a family is fetched, a Column
    * object where everything but the family is null is in the set.
@@ -51,4 +51,29 @@ public interface ScanPrioritizer {
   }
 
   Comparator<ScanInfo> createComparator(CreateParameters params);
+
+  /**
+   * Called when a scan is queued on the scan executor this prioritizer was created for, before it
+   * is compared with any other queued scan. A scan is queued again each time it has more to read.
+   * Prioritizers that order scans using state that changes as scans run should capture that state
+   * for the scan here, so the order of scans does not change while they are queued. The default
+   * implementation does nothing.
+   *
+   * @since 2.1.0
+   */
+  default void scanQueued(ScanInfo scanInfo) {}
+
+  /**
+   * Called when a scan finishes running on the scan executor this prioritizer was created for,
+   * after its stats were updated. This is called for every run, including runs that were handed
+   * directly to an idle thread and so were never queued and passed to
+   * {@link #scanQueued(ScanInfo)}. The default implementation does nothing.
+   *
+   * @param runTime
+   *          the time, in milliseconds, the scan ran for
+   * @param bytesRead
+   *          the size of the key values read by the run
+   * @since 2.1.0
+   */
+  default void scanRan(ScanInfo scanInfo, long runTime, long bytesRead) {}
 }
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.util.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A rate limiter which also accumulates the time that the file streams it limits spend in the reads
+ * and writes of the underlying file system, including the time spent waiting for permits. This lets
+ * a caller tell the time spent on file system I/O apart from the time spent decoding or encoding
+ * the data that was read or written.
+ */
+public class TimingRateLimiter implements RateLimiter {
+  private final RateLimiter rateLimiter;
+  private final AtomicLong ioTime;
+
+  public TimingRateLimiter(RateLimiter rateLimiter) {
+    this(rateLimiter, new AtomicLong(0));
+  }
+
+  /**
+   * @param ioTime
+   *          the counter the time spent in file system reads and writes is added to
+   */
+  public TimingRateLimiter(RateLimiter rateLimiter, AtomicLong ioTime) {
+    this.rateLimiter = rateLimiter == null ? NullRateLimiter.INSTANCE : rateLimiter;
+    this.ioTime = ioTime;
+  }
+
+  @Override
+  public long getRate() {
+    return rateLimiter.getRate();
+  }
+
+  @Override
+  public void acquire(long permits) {
+    rateLimiter.acquire(permits);
+  }
+
+  public void addIoTime(long nanos) {
+    ioTime.addAndGet(nanos);
+  }
+
+  /**
+   * @return the nanoseconds spent in file system reads and writes so far
+   */
+  public long getIoTime() {
+    return ioTime.get();
+  }
+}
@@ -47,6 +47,7 @@ public class BatchWriterConfigTest {
     long expectedMaxLatency = 120000L;
     long expectedTimeout = Long.MAX_VALUE;
     int expectedMaxWriteThreads = 3;
+    int expectedPipelineDepth = 1;
     Durability expectedDurability = Durability.DEFAULT;
 
     BatchWriterConfig defaults = new BatchWriterConfig();
@@ -54,6 +55,7 @@ public class BatchWriterConfigTest {
     assertEquals(expectedMaxLatency, defaults.getMaxLatency(MILLISECONDS));
     assertEquals(expectedTimeout, defaults.getTimeout(MILLISECONDS));
     assertEquals(expectedMaxWriteThreads, defaults.getMaxWriteThreads());
+    assertEquals(expectedPipelineDepth, defaults.getPipelineDepth());
     assertEquals(expectedDurability, defaults.getDurability());
   }
 
@@ -64,12 +66,14 @@ public class BatchWriterConfigTest {
     bwConfig.setMaxLatency(22, HOURS);
     bwConfig.setTimeout(33, DAYS);
     bwConfig.setMaxWriteThreads(42);
+    bwConfig.setPipelineDepth(4);
     bwConfig.setDurability(Durability.NONE);
 
     assertEquals(1123581321L, bwConfig.getMaxMemory());
     assertEquals(HOURS.toMillis(22), bwConfig.getMaxLatency(MILLISECONDS));
     assertEquals(DAYS.toMillis(33), bwConfig.getTimeout(MILLISECONDS));
     assertEquals(42, bwConfig.getMaxWriteThreads());
+    assertEquals(4, bwConfig.getPipelineDepth());
     assertEquals(Durability.NONE, bwConfig.getDurability());
   }
 
@@ -136,6 +140,12 @@ public class BatchWriterConfigTest {
     assertThrows(IllegalArgumentException.class, () -> bwConfig.setMaxWriteThreads(-1));
   }
 
+  @Test
+  public void testZeroPipelineDepth() {
+    BatchWriterConfig bwConfig = new BatchWriterConfig();
+    assertThrows(IllegalArgumentException.class, () -> bwConfig.setPipelineDepth(0));
+  }
+
   @Test
   public void testSerialize() throws IOException {
     // make sure we aren't testing defaults
@@ -143,6 +153,7 @@ public class BatchWriterConfigTest {
     assertNotEquals(7654321L, bwDefaults.getMaxLatency(MILLISECONDS));
     assertNotEquals(9898989L, bwDefaults.getTimeout(MILLISECONDS));
     assertNotEquals(42, bwDefaults.getMaxWriteThreads());
+    assertNotEquals(8, bwDefaults.getPipelineDepth());
     assertNotEquals(1123581321L, bwDefaults.getMaxMemory());
     assertNotEquals(Durability.FLUSH, bwDefaults.getDurability());
 
@@ -151,6 +162,7 @@ public class BatchWriterConfigTest {
     bwConfig.setMaxLatency(7654321L, MILLISECONDS);
     bwConfig.setTimeout(9898989L, MILLISECONDS);
     bwConfig.setMaxWriteThreads(42);
+    bwConfig.setPipelineDepth(8);
     bwConfig.setMaxMemory(1123581321L);
     bwConfig.setDurability(Durability.FLUSH);
     byte[] bytes = createBytes(bwConfig);
@@ -176,6 +188,13 @@ public class BatchWriterConfigTest {
     bwConfig.setDurability(Durability.LOG);
     bytes = createBytes(bwConfig);
     assertEquals("     e#durability=LOG", new String(bytes, UTF_8));
+
+    // test human-readable pipeline depth
+    bwConfig = new BatchWriterConfig();
+    bwConfig.setPipelineDepth(8);
+    bytes = createBytes(bwConfig);
+    assertEquals("     f#pipelineDepth=8", new String(bytes, UTF_8));
+    checkBytes(bwConfig, bytes);
   }
 
   @Test
@@ -189,6 +208,10 @@ public class BatchWriterConfigTest {
     cfg2.setDurability(Durability.FLUSH);
     assertNotEquals(cfg1, cfg2);
     assertNotEquals(cfg1.hashCode(), cfg2.hashCode());
+    cfg2 = new BatchWriterConfig();
+    cfg2.setPipelineDepth(2);
+    assertNotEquals(cfg1, cfg2);
+    assertNotEquals(cfg1.hashCode(), cfg2.hashCode());
   }
 
   @Test
@@ -215,6 +238,7 @@ public class BatchWriterConfigTest {
     cfg2.setMaxMemory(5858);
     cfg2.setDurability(Durability.LOG);
     cfg2.setMaxLatency(456, MILLISECONDS);
+    cfg2.setPipelineDepth(4);
 
     assertEquals(Durability.DEFAULT, cfg1.getDurability());
 
@@ -224,6 +248,7 @@ public class BatchWriterConfigTest {
     assertEquals(Durability.LOG, merged.getDurability());
     assertEquals(456, merged.getMaxLatency(MILLISECONDS));
     assertEquals(3, merged.getMaxWriteThreads());
+    assertEquals(4, merged.getPipelineDepth());
   }
 
   private byte[] createBytes(BatchWriterConfig bwConfig) throws IOException {
@@ -241,6 +266,7 @@ public class BatchWriterConfigTest {
     assertEquals(bwConfig.getMaxLatency(MILLISECONDS), createdConfig.getMaxLatency(MILLISECONDS));
     assertEquals(bwConfig.getTimeout(MILLISECONDS), createdConfig.getTimeout(MILLISECONDS));
     assertEquals(bwConfig.getMaxWriteThreads(), createdConfig.getMaxWriteThreads());
+    assertEquals(bwConfig.getPipelineDepth(), createdConfig.getPipelineDepth());
   }
 
   @Test
@@ -248,7 +274,7 @@ public class BatchWriterConfigTest {
     // count the number in case one gets added to in one place but not the other
     ClientProperty[] bwProps = Arrays.stream(ClientProperty.values())
         .filter(c -> c.name().startsWith("BATCH_WRITER")).toArray(ClientProperty[]::new);
-    assertEquals(5, bwProps.length);
+    assertEquals(6, bwProps.length);
   }
 
 }
@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.ScannerBase;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Test;
+
+public class AsyncOperationsImplTest {
+
+  // runs tasks only when asked, so tests control when queued work is sent
+  private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+  private void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.poll().run();
+    }
+  }
+
+  private static Entry<Key,Value> entry(String row, String value) {
+    return new AbstractMap.SimpleImmutableEntry<>(new Key(row, "f", "q"), new Value(value));
+  }
+
+  @Test
+  public void testLookupsBatched() throws Exception {
+    BatchScanner scanner = createMock(BatchScanner.class);
+    Capture<Collection<Range>> ranges = EasyMock.newCapture();
+    scanner.setRanges(capture(ranges));
+    // batch scans return entries in any order
+    expect(scanner.iterator()).andReturn(List
+        .of(entry("r3", "v3"), entry("r1", "v1"), entry("r5", "v5"), entry("r2", "v2")).iterator());
+    scanner.close();
+    replay(scanner);
+
+    List<String> tables = new ArrayList<>();
+    AsyncOperationsImpl ops = new AsyncOperationsImpl((table, auths) -> {
+      tables.add(table);
+      return scanner;
+    }, table -> {
+      throw new UnsupportedOperationException();
+    }, tasks::add);
+
+    Authorizations auths = new Authorizations("A");
+    var all = ops.lookup("t1", auths, new Range("r1", "r3"));
+    var row2 = ops.lookup("t1", auths, new Range("r2"));
+    var row4 = ops.lookup("t1", auths, new Range("r4"));
+    var after = ops.lookup("t1", auths, new Range("r2", false, null, true));
+
+    // all of the lookups are sent in one batch scan
+    assertEquals(1, tasks.size());
+    runTasks();
+    assertEquals(List.of("t1"), tables);
+    assertEquals(4, ranges.getValue().size());
+
+    assertEquals(List.of(entry("r1", "v1"), entry("r2", "v2"), entry("r3", "v3")), all.get());
+    assertEquals(List.of(entry("r2", "v2")), row2.get());
+    assertEquals(List.of(), row4.get());
+    assertEquals(List.of(entry("r3", "v3"), entry("r5", "v5")), after.get());
+    verify(scanner);
+  }
+
+  @Test
+  public void testLookupFailure() {
+    AsyncOperationsImpl ops = new AsyncOperationsImpl((table, auths) -> {
+      throw new IllegalStateException("scan failed");
+    }, table -> {
+      throw new UnsupportedOperationException();
+    }, tasks::add);
+
+    var lookup = ops.lookup("t1", Authorizations.EMPTY, new Range("r1"));
+    runTasks();
+    assertTrue(lookup.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testWritesBatched() throws Exception {
+    Mutation m1 = new Mutation("r1");
+    m1.put("f", "q", "v1");
+    Mutation m2 = new Mutation("r2");
+    m2.put("f", "q", "v2");
+    Mutation m3 = new Mutation("r3");
+    m3.put("f", "q", "v3");
+
+    BatchWriter failing = createMock(BatchWriter.class);
+    failing.addMutation(m1);
+    failing.addMutation(m2);
+    failing.flush();
+    expectLastCall().andThrow(new IllegalStateException("rejected"));
+    failing.close();
+    expectLastCall().andThrow(new IllegalStateException("rejected"));
+
+    BatchWriter writer = createMock(BatchWriter.class);
+    writer.addMutation(m3);
+    writer.flush();
+    writer.close();
+    replay(failing, writer);
+
+    ArrayDeque<BatchWriter> writers = new ArrayDeque<>(List.of(failing, writer));
+    AsyncOperationsImpl ops = new AsyncOperationsImpl((table, auths) -> {
+      throw new UnsupportedOperationException();
+    }, table -> writers.poll(), tasks::add);
+
+    CompletableFuture<Void> w1 = ops.write("t1", m1);
+    CompletableFuture<Void> w2 = ops.write("t1", m2);
+    assertEquals(1, tasks.size());
+    runTasks();
+    assertTrue(w1.isCompletedExceptionally());
+    assertTrue(w2.isCompletedExceptionally());
+
+    // a new writer is created after a failure
+    CompletableFuture<Void> w3 = ops.write("t1", m3);
+    runTasks();
+    assertNull(w3.get());
+
+    ops.close();
+    verify(failing, writer);
+  }
+
+  @Test
+  public void testClosePending() throws Exception {
+    Mutation m1 = new Mutation("r1");
+    m1.put("f", "q", "v1");
+
+    AsyncOperationsImpl ops = new AsyncOperationsImpl((table, auths) -> {
+      throw new UnsupportedOperationException();
+    }, table -> {
+      throw new UnsupportedOperationException();
+    }, tasks::add);
+
+    // queued operations whose tasks never run, as when the pool is shut down, fail on close
+    var lookup = ops.lookup("t1", Authorizations.EMPTY, new Range("r1"));
+    CompletableFuture<Void> write = ops.write("t1", m1);
+    assertEquals(2, tasks.size());
+    ops.close();
+    assertTrue(lookup.isCompletedExceptionally());
+    assertTrue(write.isCompletedExceptionally());
+
+    // the tasks do nothing if they run after the close, and new operations fail right away
+    runTasks();
+    assertTrue(ops.lookup("t1", Authorizations.EMPTY, new Range("r2")).isCompletedExceptionally());
+    assertTrue(ops.write("t1", m1).isCompletedExceptionally());
+    assertTrue(tasks.isEmpty());
+  }
+
+  @Test
+  public void testRejected() throws Exception {
+    Mutation m1 = new Mutation("r1");
+    m1.put("f", "q", "v1");
+
+    BatchWriter writer = createMock(BatchWriter.class);
+    writer.addMutation(m1);
+    writer.flush();
+    writer.close();
+    replay(writer);
+
+    boolean[] reject = {true};
+    AsyncOperationsImpl ops = new AsyncOperationsImpl((table, auths) -> {
+      throw new UnsupportedOperationException();
+    }, table -> writer, task -> {
+      if (reject[0]) {
+        throw new RejectedExecutionException("pool is full");
+      }
+      tasks.add(task);
+    });
+
+    CompletableFuture<Void> w1 = ops.write("t1", m1);
+    assertTrue(w1.isCompletedExceptionally());
+    var lookup = ops.lookup("t1", Authorizations.EMPTY, new Range("r1"));
+    assertTrue(lookup.isCompletedExceptionally());
+
+    // a rejected task does not leave the queue waiting for a task that never runs
+    reject[0] = false;
+    CompletableFuture<Void> w2 = ops.write("t1", m1);
+    assertEquals(1, tasks.size());
+    runTasks();
+    assertNull(w2.get());
+
+    ops.close();
+    verify(writer);
+  }
+
+  @Test
+  public void testScanPublisher() {
+    List<Entry<Key,Value>> data = new ArrayList<>();
+    for (int i = 0; i < AsyncOperationsImpl.MAX_ENTRIES_PER_TASK * 2 + 10; i++) {
+      data.add(entry(String.format("r%05d", i), "v" + i));
+    }
+
+    ScannerBase scanner = createMock(ScannerBase.class);
+    expect(scanner.iterator()).andReturn(data.iterator());
+    replay(scanner);
+
+    AsyncOperationsImpl ops = new AsyncOperationsImpl((table, auths) -> {
+      throw new UnsupportedOperationException();
+    }, table -> {
+      throw new UnsupportedOperationException();
+    }, tasks::add);
+
+    List<Entry<Key,Value>> received = new ArrayList<>();
+    boolean[] completed = new boolean[1];
+    Flow.Subscription[] subscription = new Flow.Subscription[1];
+    ops.scan(scanner).subscribe(new Flow.Subscriber<>() {
+      @Override
+      public void onSubscribe(Flow.Subscription s) {
+        subscription[0] = s;
+      }
+
+      @Override
+      public void onNext(Entry<Key,Value> item) {
+        received.add(item);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        throw new AssertionError(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        completed[0] = true;
+      }
+    });
+
+    // nothing is read until entries are requested
+    assertTrue(tasks.isEmpty());
+    subscription[0].request(5);
+    runTasks();
+    assertEquals(data.subList(0, 5), received);
+    assertFalse(completed[0]);
+
+    // large requests are delivered over several tasks
+    subscription[0].request(Long.MAX_VALUE);
+    assertEquals(1, tasks.size());
+    tasks.poll().run();
+    assertEquals(5 + AsyncOperationsImpl.MAX_ENTRIES_PER_TASK, received.size());
+    runTasks();
+    assertEquals(data, received);
+    assertTrue(completed[0]);
+    verify(scanner);
+  }
+
+  @Test
+  public void testScanCancel() throws ExecutionException, InterruptedException {
+    ScannerBase scanner = createMock(ScannerBase.class);
+    expect(scanner.iterator()).andReturn(List.of(entry("r1", "v1"), entry("r2", "v2")).iterator());
+    replay(scanner);
+
+    AsyncOperationsImpl ops = new AsyncOperationsImpl((table, auths) -> {
+      throw new UnsupportedOperationException();
+    }, table -> {
+      throw new UnsupportedOperationException();
+    }, tasks::add);
+
+    List<Entry<Key,Value>> received = new ArrayList<>();
+    ops.scan(scanner).subscribe(new Flow.Subscriber<>() {
+      private Flow.Subscription subscription;
+
+      @Override
+      public void onSubscribe(Flow.Subscription s) {
+        subscription = s;
+        s.request(2);
+      }
+
+      @Override
+      public void onNext(Entry<Key,Value> item) {
+        received.add(item);
+        subscription.cancel();
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        throw new AssertionError(throwable);
+      }
+
+      @Override
+      public void onComplete() {
+        throw new AssertionError("cancelled subscription completed");
+      }
+    });
+    runTasks();
+    assertEquals(List.of(entry("r1", "v1")), received);
+    verify(scanner);
+  }
+}
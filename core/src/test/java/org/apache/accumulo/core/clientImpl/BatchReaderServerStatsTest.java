@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchReaderServerStatsTest {
+
+  @Test
+  public void testNoObservations() {
+    BatchReaderServerStats stats = new BatchReaderServerStats();
+    assertEquals(-1, stats.getMillisPerTablet("s1"));
+    assertEquals(-1, stats.getBytesPerTablet());
+
+    // with nothing observed tablets are spread evenly over the threads
+    assertEquals(Map.of("s1", 2, "s2", 2),
+        stats.getMaxTabletsPerRequest(Map.of("s1", 8, "s2", 8), 8));
+  }
+
+  @Test
+  public void testTooFewThreads() {
+    BatchReaderServerStats stats = new BatchReaderServerStats();
+    assertEquals(Map.of("s1", Integer.MAX_VALUE, "s2", Integer.MAX_VALUE),
+        stats.getMaxTabletsPerRequest(Map.of("s1", 8, "s2", 8), 3));
+  }
+
+  @Test
+  public void testRecord() {
+    BatchReaderServerStats stats = new BatchReaderServerStats();
+    stats.record("s1", 4, 400, 4000);
+    assertEquals(100, stats.getMillisPerTablet("s1"), 0.001);
+    assertEquals(1000, stats.getBytesPerTablet(), 0.001);
+
+    stats.record("s1", 1, 200, 2000);
+    double alpha = BatchReaderServerStats.ALPHA;
+    assertEquals(alpha * 200 + (1 - alpha) * 100, stats.getMillisPerTablet("s1"), 0.001);
+    assertEquals(alpha * 2000 + (1 - alpha) * 1000, stats.getBytesPerTablet(), 0.001);
+
+    stats.record("s2", 0, 200, 2000);
+    assertEquals(-1, stats.getMillisPerTablet("s2"));
+  }
+
+  @Test
+  public void testSlowServerGetsMoreRequests() {
+    BatchReaderServerStats stats = new BatchReaderServerStats();
+    stats.record("slow", 1, 300, 10);
+    stats.record("fast", 1, 100, 10);
+
+    Map<String,Integer> maxTablets =
+        stats.getMaxTabletsPerRequest(Map.of("slow", 12, "fast", 12), 8);
+    // the slow server is given 6 of the 8 threads and the fast server 2
+    assertEquals(2, maxTablets.get("slow"));
+    assertEquals(6, maxTablets.get("fast"));
+  }
+
+  @Test
+  public void testUnobservedServerUsesAverage() {
+    BatchReaderServerStats stats = new BatchReaderServerStats();
+    stats.record("s1", 1, 100, 10);
+
+    assertEquals(Map.of("s1", 2, "s2", 2),
+        stats.getMaxTabletsPerRequest(Map.of("s1", 8, "s2", 8), 8));
+  }
+
+  @Test
+  public void testNeverMoreRequestsThanTablets() {
+    BatchReaderServerStats stats = new BatchReaderServerStats();
+    assertEquals(Map.of("s1", 1, "s2", 1),
+        stats.getMaxTabletsPerRequest(Map.of("s1", 1, "s2", 20), 100));
+  }
+
+  @Test
+  public void testRisingLatencyShrinksRequests() {
+    BatchReaderServerStats stats = new BatchReaderServerStats();
+    stats.record("s1", 1, 100, 10);
+    stats.record("s2", 1, 100, 10);
+    Map<String,Integer> tabletsPerServer = Map.of("s1", 12, "s2", 12);
+    assertEquals(Map.of("s1", 3, "s2", 3), stats.getMaxTabletsPerRequest(tabletsPerServer, 8));
+
+    // the latest latency is used as soon as it is above the average
+    stats.record("s1", 1, 400, 10);
+    double alpha = BatchReaderServerStats.ALPHA;
+    assertEquals(alpha * 400 + (1 - alpha) * 100, stats.getMillisPerTablet("s1"), 0.001);
+    assertEquals(400, stats.getRequestMillisPerTablet("s1"), 0.001);
+    assertEquals(Map.of("s1", 2, "s2", 6), stats.getMaxTabletsPerRequest(tabletsPerServer, 8));
+
+    // falling latency only counts as the average catches up
+    stats.record("s1", 1, 100, 10);
+    assertEquals(stats.getMillisPerTablet("s1"), stats.getRequestMillisPerTablet("s1"), 0.001);
+    assertEquals(Map.of("s1", 3, "s2", 3), stats.getMaxTabletsPerRequest(tabletsPerServer, 8));
+  }
+
+  @Test
+  public void testRequestsNoLongerThanShare() {
+    BatchReaderServerStats stats = new BatchReaderServerStats();
+    stats.record("fast", 1, 100, 10);
+    stats.record("slow", 1, 500, 10);
+
+    // the slow server needs 3.33 of the 4 threads, rounding up keeps each of its requests within
+    // the 1800ms that an even split of the 7200ms of work over the threads would take
+    Map<String,Integer> maxTablets =
+        stats.getMaxTabletsPerRequest(Map.of("fast", 12, "slow", 12), 4);
+    assertEquals(12, maxTablets.get("fast"));
+    assertEquals(3, maxTablets.get("slow"));
+  }
+}
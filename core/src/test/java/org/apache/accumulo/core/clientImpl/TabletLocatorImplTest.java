@@ -36,6 +36,11 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.accumulo.core.clientImpl.TabletLocator.TabletLocation;
 import org.apache.accumulo.core.clientImpl.TabletLocator.TabletLocations;
@@ -1522,4 +1527,174 @@ public class TabletLocatorImplTest {
     runTest(ranges, metaCache, expected);
   }
 
+  /**
+   * Obtainer that runs a test supplied action after reading from the metadata table, but before the
+   * locator caches what was read. This simulates another thread moving a tablet and invalidating it
+   * while a metadata read is in progress.
+   */
+  static class InterleavingLocationObtainer extends TestTabletLocationObtainer {
+
+    final AtomicReference<Runnable> afterRead = new AtomicReference<>();
+
+    InterleavingLocationObtainer(TServers tservers) {
+      super(tservers);
+    }
+
+    private void runAfterRead() {
+      Runnable action = afterRead.getAndSet(null);
+      if (action != null) {
+        action.run();
+      }
+    }
+
+    @Override
+    public TabletLocations lookupTablet(ClientContext context, TabletLocation src, Text row,
+        Text stopRow, TabletLocator parent) {
+      TabletLocations locations = super.lookupTablet(context, src, row, stopRow, parent);
+      if (src.tablet_extent.equals(METADATA_TABLE_EXTENT)) {
+        runAfterRead();
+      }
+      return locations;
+    }
+
+    @Override
+    public List<TabletLocation> lookupTablets(ClientContext context, String tserver,
+        Map<KeyExtent,List<Range>> map, TabletLocator parent) {
+      List<TabletLocation> locations = super.lookupTablets(context, tserver, map, parent);
+      if (map.containsKey(METADATA_TABLE_EXTENT)) {
+        runAfterRead();
+      }
+      return locations;
+    }
+  }
+
+  @Test
+  public void testInvalidateDuringMetadataRead() throws Exception {
+    TServers tservers = new TServers();
+    InterleavingLocationObtainer ilo = new InterleavingLocationObtainer(tservers);
+
+    RootTabletLocator rtl = new TestRootTabletLocator();
+    TabletLocatorImpl rootTabletCache =
+        new TabletLocatorImpl(MetadataTable.ID, rtl, ilo, new YesLockChecker());
+    TabletLocatorImpl tab1TabletCache =
+        new TabletLocatorImpl(TableId.of("foo"), rootTabletCache, ilo, new YesLockChecker());
+
+    setLocation(tservers, "tserver1", ROOT_TABLE_EXTENT, METADATA_TABLE_EXTENT, "tserver2");
+    KeyExtent ke1 = createNewKeyExtent("foo", null, null);
+    setLocation(tservers, "tserver2", METADATA_TABLE_EXTENT, ke1, "L1");
+
+    // the tablet moves after the lookup of a missing location read L1
+    ilo.afterRead.set(() -> {
+      setLocation(tservers, "tserver2", METADATA_TABLE_EXTENT, ke1, "L2");
+      tab1TabletCache.invalidateCache(ke1);
+    });
+    locateTabletTest(tab1TabletCache, "a", ke1, "L1");
+    // the invalidation made during the read must not be cleared by caching what was read
+    locateTabletTest(tab1TabletCache, "a", ke1, "L2");
+    locateTabletTest(tab1TabletCache, "a", ke1, "L2");
+
+    // the tablet moves again after the processing of invalidated extents read L3
+    setLocation(tservers, "tserver2", METADATA_TABLE_EXTENT, ke1, "L3");
+    tab1TabletCache.invalidateCache(ke1);
+    ilo.afterRead.set(() -> {
+      setLocation(tservers, "tserver2", METADATA_TABLE_EXTENT, ke1, "L4");
+      tab1TabletCache.invalidateCache(ke1);
+    });
+    locateTabletTest(tab1TabletCache, "a", ke1, "L3");
+    locateTabletTest(tab1TabletCache, "a", ke1, "L4");
+    locateTabletTest(tab1TabletCache, "a", ke1, "L4");
+  }
+
+  @Test
+  public void testConcurrentLocateAndInvalidate() throws Exception {
+    TServers tservers = new TServers();
+    TestTabletLocationObtainer ttlo = new TestTabletLocationObtainer(tservers) {
+      @Override
+      public TabletLocations lookupTablet(ClientContext context, TabletLocation src, Text row,
+          Text stopRow, TabletLocator parent) {
+        synchronized (tservers) {
+          return super.lookupTablet(context, src, row, stopRow, parent);
+        }
+      }
+
+      @Override
+      public List<TabletLocation> lookupTablets(ClientContext context, String tserver,
+          Map<KeyExtent,List<Range>> map, TabletLocator parent) {
+        synchronized (tservers) {
+          return super.lookupTablets(context, tserver, map, parent);
+        }
+      }
+    };
+
+    RootTabletLocator rtl = new TestRootTabletLocator();
+    TabletLocatorImpl rootTabletCache =
+        new TabletLocatorImpl(MetadataTable.ID, rtl, ttlo, new YesLockChecker());
+    TabletLocatorImpl tab1TabletCache =
+        new TabletLocatorImpl(TableId.of("foo"), rootTabletCache, ttlo, new YesLockChecker());
+
+    setLocation(tservers, "tserver1", ROOT_TABLE_EXTENT, METADATA_TABLE_EXTENT, "tserver2");
+    List<KeyExtent> tablets =
+        List.of(createNewKeyExtent("foo", "g", null), createNewKeyExtent("foo", "n", "g"),
+            createNewKeyExtent("foo", "t", "n"), createNewKeyExtent("foo", null, "t"));
+    for (KeyExtent ke : tablets) {
+      setLocation(tservers, "tserver2", METADATA_TABLE_EXTENT, ke, "L0");
+    }
+
+    List<String> rows = List.of("a", "g", "h", "m", "n", "p", "t", "z");
+    AtomicBoolean moving = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(5);
+    try {
+      List<Future<?>> lookups = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        lookups.add(executor.submit(() -> {
+          while (moving.get()) {
+            for (String row : rows) {
+              Text r = new Text(row);
+              TabletLocation tl = tab1TabletCache.locateTablet(context, r, false, false);
+              assertNotNull(tl, row);
+              assertTrue(tl.tablet_extent.contains(r), tl.tablet_extent + " " + row);
+            }
+            List<Range> failures =
+                tab1TabletCache.binRanges(context, List.of(new Range("b", "q")), new HashMap<>());
+            assertTrue(failures.isEmpty(), failures::toString);
+          }
+          return null;
+        }));
+      }
+
+      Future<?> mover = executor.submit(() -> {
+        try {
+          for (int i = 1; i <= 2000; i++) {
+            KeyExtent ke = tablets.get(i % tablets.size());
+            synchronized (tservers) {
+              setLocation(tservers, "tserver2", METADATA_TABLE_EXTENT, ke, "L" + i);
+            }
+            if (i % 3 == 0) {
+              tab1TabletCache.invalidateCache(List.of(ke));
+            } else {
+              tab1TabletCache.invalidateCache(ke);
+            }
+          }
+        } finally {
+          moving.set(false);
+        }
+      });
+
+      mover.get();
+      for (Future<?> lookup : lookups) {
+        lookup.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // every move was followed by an invalidation, so no stale location may remain cached
+    for (int i = 0; i < tablets.size(); i++) {
+      KeyExtent ke = tablets.get(i);
+      int last = 2000 - ((2000 - i) % tablets.size());
+      locateTabletTest(tab1TabletCache, ke.endRow() == null ? "z" : ke.endRow().toString(), ke,
+          "L" + last);
+    }
+  }
+
 }
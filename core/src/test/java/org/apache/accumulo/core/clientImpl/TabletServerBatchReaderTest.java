@@ -19,9 +19,15 @@
 package org.apache.accumulo.core.clientImpl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
 
 import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.ScannerBase.ConsistencyLevel;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.TableId;
 import org.apache.accumulo.core.security.Authorizations;
 import org.apache.accumulo.core.util.threads.ThreadPools;
@@ -54,4 +60,18 @@ public class TabletServerBatchReaderTest {
     assertThrows(IllegalArgumentException.class,
         () -> new TabletServerBatchReader(context, TableId.of("foo"), "fooName", null, 1));
   }
+
+  @Test
+  public void testOrdered() {
+    try (BatchScanner s = new TabletServerBatchReader(context, TableId.of("foo"), "fooName",
+        Authorizations.EMPTY, 1)) {
+      assertFalse(s.isOrdered());
+      s.setOrdered(true);
+      assertTrue(s.isOrdered());
+
+      s.setRanges(List.of(new Range()));
+      s.setConsistencyLevel(ConsistencyLevel.EVENTUAL);
+      assertThrows(IllegalStateException.class, s::iterator);
+    }
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.clientImpl.TabletLocator.TabletServerMutations;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.Test;
+
+public class TabletServerBatchWriterTest {
+
+  private static KeyExtent extent(String endRow, String prevEndRow) {
+    return new KeyExtent(TableId.of("1"), endRow == null ? null : new Text(endRow),
+        prevEndRow == null ? null : new Text(prevEndRow));
+  }
+
+  private static Mutation mutation(String row) {
+    Mutation m = new Mutation(row);
+    m.put("cf", "cq", "v");
+    return m;
+  }
+
+  @Test
+  public void testPipelineOnlyNewExtents() {
+    KeyExtent ke1 = extent("g", null);
+    KeyExtent ke2 = extent("m", "g");
+    KeyExtent ke3 = extent(null, "m");
+
+    // the first batch of the session wrote to ke1 and ke2. If ke1 went offline after that batch,
+    // the tablet server would not know the count it committed before the failure if more
+    // mutations for it were sent in the same session, so those wait for the next session.
+    Mutation m1 = mutation("c");
+    Mutation m2 = mutation("h");
+    Mutation m3 = mutation("n");
+    TabletServerMutations<Mutation> pending = new TabletServerMutations<>("session");
+    pending.addMutation(ke1, m1);
+    pending.addMutation(ke2, m2);
+    pending.addMutation(ke3, m3);
+
+    TabletServerMutations<Mutation> more =
+        TabletServerBatchWriter.removeNewExtents(pending, Set.of(ke1, ke2));
+
+    assertEquals(Map.of(ke3, List.of(m3)), more.getMutations());
+    assertEquals("session", more.getSession());
+    assertEquals(Map.of(ke1, List.of(m1), ke2, List.of(m2)), pending.getMutations());
+
+    // once all the remaining tablets were written in the session nothing more is pipelined
+    more = TabletServerBatchWriter.removeNewExtents(pending, Set.of(ke1, ke2, ke3));
+    assertEquals(Map.of(), more.getMutations());
+    assertEquals(Map.of(ke1, List.of(m1), ke2, List.of(m2)), pending.getMutations());
+  }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.apache.accumulo.core.clientImpl.TabletServerBatchReaderIterator.ResultReceiver;
+import org.apache.accumulo.core.clientImpl.TabletServerBatchReaderIterator.TimeoutTracker;
+import org.apache.accumulo.core.clientImpl.TabletServerOrderedBatchReaderIterator.TabletServerLookup;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.hadoop.io.Text;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TabletServerOrderedBatchReaderIteratorTest {
+
+  private static final TableId TABLE_ID = TableId.of("1");
+  private static final int BATCH_SIZE = 10;
+
+  // four tablets split at b, d and f that alternate between two servers
+  private static final List<KeyExtent> TABLETS =
+      List.of(new KeyExtent(TABLE_ID, new Text("b"), null),
+          new KeyExtent(TABLE_ID, new Text("d"), new Text("b")),
+          new KeyExtent(TABLE_ID, new Text("f"), new Text("d")),
+          new KeyExtent(TABLE_ID, null, new Text("f")));
+
+  private final TreeMap<Key,Value> data = new TreeMap<>();
+  private ClientContext context;
+  private ExecutorService queryThreadPool;
+
+  @BeforeEach
+  public void setup() {
+    for (char c = 'a'; c <= 'g'; c++) {
+      for (int i = 0; i < 50; i++) {
+        data.put(new Key(String.format("%c%03d", c, i), "cf", "cq"), new Value("v" + i));
+      }
+    }
+    context = EasyMock.createMock(ClientContext.class);
+    EasyMock.replay(context);
+    queryThreadPool = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterEach
+  public void teardown() {
+    queryThreadPool.shutdownNow();
+  }
+
+  private static String serverFor(KeyExtent extent) {
+    return "server" + (TABLETS.indexOf(extent) % 2);
+  }
+
+  private static long size(Entry<Key,Value> entry) {
+    return entry.getKey().getSize() + entry.getValue().getSize();
+  }
+
+  private static class TestTabletLocator extends TabletLocator {
+    @Override
+    public List<Range> binRanges(ClientContext context, List<Range> ranges,
+        Map<String,Map<KeyExtent,List<Range>>> binnedRanges) {
+      for (Range range : ranges) {
+        for (KeyExtent extent : TABLETS) {
+          Range clipped = extent.toDataRange().clip(range, true);
+          if (clipped != null) {
+            TabletLocatorImpl.addRange(binnedRanges, serverFor(extent), extent, clipped);
+          }
+        }
+      }
+      return List.of();
+    }
+
+    @Override
+    public TabletLocation locateTablet(ClientContext context, Text row, boolean skipRow,
+        boolean retry) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T extends Mutation> void binMutations(ClientContext context, List<T> mutations,
+        Map<String,TabletServerMutations<T>> binnedMutations, List<T> failures) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void invalidateCache(KeyExtent failedExtent) {}
+
+    @Override
+    public void invalidateCache(Collection<KeyExtent> keySet) {}
+
+    @Override
+    public void invalidateCache() {}
+
+    @Override
+    public void invalidateCache(ClientContext context, String server) {}
+  }
+
+  /**
+   * Returns the entries of a tablet in batches, and tracks how many bytes were handed to the
+   * iterator but not yet read from it.
+   */
+  private class TestLookup implements TabletServerLookup {
+    // pause randomly before each batch so that lookups complete out of order
+    boolean delay = false;
+    KeyExtent failingTablet = null;
+
+    final AtomicLong delivered = new AtomicLong();
+    final AtomicLong consumed = new AtomicLong();
+    final AtomicLong maxOutstanding = new AtomicLong();
+
+    @Override
+    public void lookup(String server, Map<KeyExtent,List<Range>> requested,
+        Map<KeyExtent,List<Range>> failures, Map<KeyExtent,List<Range>> unscanned,
+        ResultReceiver receiver, TimeoutTracker timeoutTracker) {
+      for (Entry<KeyExtent,List<Range>> tablet : requested.entrySet()) {
+        assertEquals(serverFor(tablet.getKey()), server);
+        int batches = 0;
+        List<Entry<Key,Value>> batch = new ArrayList<>();
+        for (Range range : tablet.getValue()) {
+          for (Entry<Key,Value> entry : data.entrySet()) {
+            if (range.contains(entry.getKey())) {
+              batch.add(new SimpleImmutableEntry<>(entry));
+            }
+            if (batch.size() == BATCH_SIZE) {
+              send(receiver, batch);
+              batch = new ArrayList<>();
+              if (tablet.getKey().equals(failingTablet) && ++batches == 2) {
+                throw new IllegalStateException("lookup failed");
+              }
+            }
+          }
+        }
+        if (!batch.isEmpty()) {
+          send(receiver, batch);
+        }
+      }
+    }
+
+    private void send(ResultReceiver receiver, List<Entry<Key,Value>> batch) {
+      if (delay) {
+        try {
+          Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+      }
+      receiver.receive(batch);
+      delivered.addAndGet(
+          batch.stream().mapToLong(TabletServerOrderedBatchReaderIteratorTest::size).sum());
+      maxOutstanding.accumulateAndGet(delivered.get() - consumed.get(), Math::max);
+    }
+  }
+
+  private Iterator<Entry<Key,Value>> createIterator(List<Range> ranges, long maxBufferedBytes,
+      TestLookup lookup) {
+    return new TabletServerOrderedBatchReaderIterator(context, TABLE_ID, "test",
+        Authorizations.EMPTY, ranges, 4, queryThreadPool, new ScannerOptions(), Long.MAX_VALUE,
+        maxBufferedBytes, new BatchReaderServerStats(), new TestTabletLocator(), lookup);
+  }
+
+  private List<Key> read(Iterator<Entry<Key,Value>> iter, TestLookup lookup) {
+    List<Key> keys = new ArrayList<>();
+    iter.forEachRemaining(entry -> {
+      keys.add(entry.getKey());
+      lookup.consumed.addAndGet(size(entry));
+    });
+    return keys;
+  }
+
+  private List<Key> expected(List<Range> ranges) {
+    return data.keySet().stream().filter(key -> ranges.stream().anyMatch(r -> r.contains(key)))
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void testOrderAcrossTabletsAndServers() {
+    TestLookup lookup = new TestLookup();
+    lookup.delay = true;
+    List<Range> ranges = List.of(new Range("a010", "c020"), new Range("e", "g005"),
+        new Range("c015", "d030"), new Range("g040"));
+
+    List<Key> keys = read(createIterator(ranges, 1 << 20, lookup), lookup);
+    assertEquals(expected(ranges), keys);
+  }
+
+  @Test
+  public void testBufferSmallerThanTablet() {
+    TestLookup lookup = new TestLookup();
+    lookup.delay = true;
+    long maxEntrySize = data.entrySet().stream()
+        .mapToLong(TabletServerOrderedBatchReaderIteratorTest::size).max().orElseThrow();
+    // each tablet returns 5 to 10 batches, the buffer holds half of one
+    long maxBufferedBytes = BATCH_SIZE * maxEntrySize / 2;
+    List<Range> ranges = List.of(new Range());
+
+    List<Key> keys = read(createIterator(ranges, maxBufferedBytes, lookup), lookup);
+    assertEquals(expected(ranges), keys);
+    // a lookup may add one batch to an empty buffer even though it is larger than the limit, and
+    // the lookup being returned one more once the consumer took its last batch, on top of the batch
+    // the consumer is reading from
+    long batchBytes = BATCH_SIZE * maxEntrySize;
+    long bound = Math.max(maxBufferedBytes, batchBytes) + 2 * batchBytes;
+    assertTrue(lookup.maxOutstanding.get() <= bound, lookup.maxOutstanding + " bytes outstanding");
+  }
+
+  @Test
+  public void testLookupFailure() {
+    TestLookup lookup = new TestLookup();
+    lookup.failingTablet = TABLETS.get(2);
+    Iterator<Entry<Key,Value>> iter = createIterator(List.of(new Range()), 1 << 20, lookup);
+
+    List<Key> keys = new ArrayList<>();
+    var e = assertThrows(IllegalStateException.class,
+        () -> iter.forEachRemaining(entry -> keys.add(entry.getKey())));
+    assertEquals("lookup failed", e.getMessage());
+
+    // the first two tablets hold rows a, b and c, everything in them and what the failed tablet
+    // returned before failing is seen, in order
+    List<Key> before = new ArrayList<>(data.keySet()).subList(0, 150 + 2 * BATCH_SIZE);
+    assertEquals(before, keys);
+  }
+
+  @Test
+  public void testCloseWhileBuffering() throws Exception {
+    TestLookup lookup = new TestLookup();
+    Iterator<Entry<Key,Value>> iter = createIterator(List.of(new Range()), 100, lookup);
+
+    for (int i = 0; i < 5; i++) {
+      iter.next();
+    }
+
+    // closing the batch reader shuts down the pool, lookups blocked on the buffer must exit
+    queryThreadPool.shutdownNow();
+    assertTrue(queryThreadPool.awaitTermination(10, SECONDS));
+    assertThrows(RuntimeException.class, () -> iter.forEachRemaining(entry -> {}));
+  }
+}
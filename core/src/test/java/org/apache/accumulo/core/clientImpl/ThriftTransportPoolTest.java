@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.clientImpl;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.util.HostAndPort;
+import org.apache.thrift.transport.TTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ThriftTransportPoolTest {
+
+  private ServerSocket serverSocket;
+  private ThriftTransportPool pool;
+  private volatile long maxWaitMillis = 30_000;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    // connections complete in the backlog, so nothing needs to accept them
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    pool = ThriftTransportPool.startNew(() -> 60_000, () -> 1, () -> maxWaitMillis);
+  }
+
+  @AfterEach
+  public void teardown() throws Exception {
+    pool.shutdown();
+    serverSocket.close();
+  }
+
+  private ThriftTransportKey key(long timeout) {
+    return new ThriftTransportKey(HostAndPort
+        .fromParts(serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort()),
+        timeout, null, null);
+  }
+
+  @Test
+  public void testWaitsForReturnedConnection() throws Exception {
+    ThriftTransportKey key = key(30_000);
+    TTransport first = pool.getTransport(key);
+
+    CompletableFuture<TTransport> second = CompletableFuture.supplyAsync(() -> {
+      try {
+        return pool.getTransport(key);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    Thread.sleep(250);
+    assertFalse(second.isDone());
+
+    pool.returnTransport(first);
+    assertSame(first, second.get(30, TimeUnit.SECONDS));
+    pool.returnTransport(first);
+  }
+
+  @Test
+  public void testOpensConnectionAfterTimeout() throws Exception {
+    ThriftTransportKey key = key(100);
+    TTransport first = pool.getTransport(key);
+    TTransport second = pool.getTransport(key);
+    assertNotSame(first, second);
+    pool.returnTransport(first);
+    pool.returnTransport(second);
+  }
+
+  @Test
+  public void testOpensConnectionAfterMaxWait() throws Exception {
+    maxWaitMillis = 100;
+    // a long RPC timeout does not make the thread wait any longer for a connection
+    ThriftTransportKey key = key(60_000);
+    TTransport first = pool.getTransport(key);
+    long start = System.nanoTime();
+    TTransport second = pool.getTransport(key);
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(30));
+    assertNotSame(first, second);
+    pool.returnTransport(first);
+    pool.returnTransport(second);
+  }
+}
@@ -18,13 +18,16 @@
  */
 package org.apache.accumulo.core.data;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -281,6 +284,29 @@ public class KeyTest {
     }
   }
 
+  @Test
+  public void testCompressShares() {
+    byte[] value = {1, 2, 3};
+    List<KeyValue> kvs = List.of(new KeyValue(new Key("r", "cf", "cq", "cv", 5), value),
+        new KeyValue(new Key("r", "cf", "cq2", "cv", 4), value));
+
+    List<TKeyValue> tkvs = Key.compress(kvs);
+
+    // values and key fields wrap the original arrays instead of copying them
+    assertSame(value, tkvs.get(0).value.array());
+    assertSame(kvs.get(0).getKey().getRowData().getBackingArray(),
+        tkvs.get(0).getKey().row.array());
+    assertEquals(5, tkvs.get(0).getKey().getTimestamp());
+
+    // fields equal to the previous key are not sent
+    TKey second = tkvs.get(1).getKey();
+    assertNull(second.row);
+    assertNull(second.colFamily);
+    assertEquals(ByteBuffer.wrap("cq2".getBytes(UTF_8)), second.colQualifier);
+    assertNull(second.colVisibility);
+    assertEquals(4, second.getTimestamp());
+  }
+
   @Test
   public void testBytesText() {
     byte[] row = {1};
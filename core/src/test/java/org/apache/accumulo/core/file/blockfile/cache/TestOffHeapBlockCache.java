@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.security.SecureRandom;
+import java.util.Map;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCacheConfiguration;
+import org.apache.accumulo.core.file.blockfile.cache.offheap.OffHeapBlockCacheManager;
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.BlockCache.Loader;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheEntry.Weighable;
+import org.apache.accumulo.core.spi.cache.CacheType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class TestOffHeapBlockCache {
+
+  private static final SecureRandom random = new SecureRandom();
+
+  private static final long CACHE_SIZE = 1 << 20;
+  private static final int SLAB_SIZE = 64 * 1024;
+
+  private BlockCacheManager manager;
+  private BlockCache cache;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    ConfigurationCopy cc = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    cc.set(Property.TSERV_CACHE_MANAGER_IMPL, OffHeapBlockCacheManager.class.getName());
+    cc.set(Property.TSERV_DATACACHE_SIZE, Long.toString(CACHE_SIZE));
+    cc.set(BlockCacheConfiguration.getCachePropertyBase(Property.TSERV_PREFIX)
+        + OffHeapBlockCacheConfiguration.PROPERTY_PREFIX + ".default."
+        + OffHeapBlockCacheConfiguration.SLAB_SIZE_PROPERTY, Integer.toString(SLAB_SIZE));
+    manager = BlockCacheManagerFactory.getInstance(cc);
+    manager.start(BlockCacheConfiguration.forTabletServer(cc));
+    cache = manager.getBlockCache(CacheType.DATA);
+  }
+
+  @AfterEach
+  public void teardown() {
+    manager.stop();
+  }
+
+  private static byte[] randomBlock(int size) {
+    byte[] block = new byte[size];
+    random.nextBytes(block);
+    return block;
+  }
+
+  @Test
+  public void testCacheAndGet() {
+    assertEquals(CACHE_SIZE, cache.getMaxSize());
+    assertTrue(cache.getMaxHeapSize() < CACHE_SIZE);
+
+    byte[] b1 = randomBlock(1000);
+    byte[] b2 = randomBlock(5000);
+    assertSame(b1, cache.cacheBlock("b1", b1).getBuffer());
+    cache.cacheBlock("b2", b2);
+
+    assertArrayEquals(b1, cache.getBlock("b1").getBuffer());
+    assertArrayEquals(b2, cache.getBlock("b2").getBuffer());
+    assertNull(cache.getBlock("b3"));
+    assertEquals(3, cache.getStats().requestCount());
+    assertEquals(2, cache.getStats().hitCount());
+
+    byte[] b3 = randomBlock(3000);
+    CacheEntry loaded = cache.getBlock("b3", new Loader() {
+      @Override
+      public Map<String,Loader> getDependencies() {
+        return Map.of();
+      }
+
+      @Override
+      public byte[] load(int maxSize, Map<String,byte[]> dependencies) {
+        return b3;
+      }
+    });
+    assertArrayEquals(b3, loaded.getBuffer());
+    assertArrayEquals(b3, cache.getBlock("b3").getBuffer());
+
+    // blocks larger than a slab are never cached
+    byte[] big = randomBlock(SLAB_SIZE + 1);
+    assertSame(big, cache.cacheBlock("big", big).getBuffer());
+    assertNull(cache.getBlock("big"));
+  }
+
+  @Test
+  public void testEviction() {
+    int blockSize = 10_000;
+    int numBlocks = (int) (3 * CACHE_SIZE / blockSize);
+    byte[][] blocks = new byte[numBlocks][];
+    for (int i = 0; i < numBlocks; i++) {
+      blocks[i] = randomBlock(blockSize);
+      CacheEntry entry = cache.cacheBlock("b" + i, blocks[i]);
+      assertArrayEquals(blocks[i], entry.getBuffer());
+    }
+
+    // the most recent block must be cached and every cached block must have the right data
+    assertNotNull(cache.getBlock("b" + (numBlocks - 1)));
+    int cached = 0;
+    for (int i = 0; i < numBlocks; i++) {
+      CacheEntry entry = cache.getBlock("b" + i);
+      if (entry != null) {
+        assertArrayEquals(blocks[i], entry.getBuffer());
+        cached++;
+      }
+    }
+    assertTrue(cached > 0 && cached * blockSize <= CACHE_SIZE, "cached " + cached);
+  }
+
+  @Test
+  public void testSlabReuseAcrossSizes() {
+    // fill every slab with small chunks, then cache blocks that need a different size class
+    for (int i = 0; i < 2 * CACHE_SIZE / 1024; i++) {
+      cache.cacheBlock("small" + i, randomBlock(1024));
+    }
+    for (int i = 0; i < 10; i++) {
+      byte[] block = randomBlock(30_000);
+      cache.cacheBlock("large" + i, block);
+      CacheEntry entry = cache.getBlock("large" + i);
+      assertNotNull(entry, "large" + i);
+      assertArrayEquals(block, entry.getBuffer());
+    }
+  }
+
+  @Test
+  public void testIndex() {
+    byte[] b1 = randomBlock(2000);
+    cache.cacheBlock("b1", b1);
+
+    CacheEntry entry = cache.getBlock("b1");
+    int[] weight = {10};
+    Weighable index = entry.getIndex(() -> () -> weight[0]);
+    assertSame(index, cache.getBlock("b1").getIndex(() -> () -> 0));
+
+    // a heavier index updates the weight of the block without evicting it
+    weight[0] = 5000;
+    entry.indexWeightChanged();
+    CacheEntry again = cache.getBlock("b1");
+    assertNotNull(again);
+    assertArrayEquals(b1, again.getBuffer());
+    assertSame(index, again.getIndex(() -> () -> 0));
+  }
+}
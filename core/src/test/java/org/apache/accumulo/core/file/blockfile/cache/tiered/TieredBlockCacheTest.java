@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.cache.tiered;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.accumulo.core.file.blockfile.cache.tinylfu.TinyLfuBlockCache;
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.BlockCache.Loader;
+import org.apache.accumulo.core.spi.cache.BlockCacheManager.Configuration;
+import org.apache.accumulo.core.spi.cache.CacheType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TieredBlockCacheTest {
+
+  private static final SecureRandom random = new SecureRandom();
+
+  @TempDir
+  private static Path tempDir;
+
+  private static byte[] randomBlock(int size) {
+    byte[] block = new byte[size];
+    random.nextBytes(block);
+    return block;
+  }
+
+  @Test
+  public void testStoreAndReopen() throws Exception {
+    Path dir = tempDir.resolve("reopen");
+    byte[] b1 = randomBlock(1000);
+    byte[] b2 = randomBlock(2000);
+    try (LocalBlockStore store = LocalBlockStore.open(dir, 100_000, 100)) {
+      store.store("b1", b1);
+      store.store("b2", b2);
+      store.waitForWrites();
+      assertArrayEquals(b1, store.read("b1"));
+      assertArrayEquals(b2, store.read("b2"));
+      assertNull(store.read("b3"));
+
+      // the store is locked while open
+      assertThrows(IOException.class, () -> LocalBlockStore.open(dir, 100_000, 100));
+    }
+
+    try (LocalBlockStore store = LocalBlockStore.open(dir, 100_000, 100)) {
+      assertArrayEquals(b1, store.read("b1"));
+      assertArrayEquals(b2, store.read("b2"));
+    }
+
+    // a different capacity starts empty
+    try (LocalBlockStore store = LocalBlockStore.open(dir, 50_000, 100)) {
+      assertNull(store.read("b1"));
+    }
+  }
+
+  @Test
+  public void testCorruptBlock() throws Exception {
+    Path dir = tempDir.resolve("corrupt");
+    try (LocalBlockStore store = LocalBlockStore.open(dir, 100_000, 100)) {
+      store.store("b1", randomBlock(1000));
+      store.waitForWrites();
+      try (FileChannel data =
+          FileChannel.open(dir.resolve(LocalBlockStore.DATA_FILE), StandardOpenOption.WRITE)) {
+        data.write(ByteBuffer.wrap(new byte[10]), 0);
+      }
+      assertNull(store.read("b1"));
+      assertFalse(store.contains("b1"));
+    }
+  }
+
+  @Test
+  public void testOverwrite() throws Exception {
+    int capacity = 10_000;
+    int blockSize = 3_000;
+    byte[][] blocks = new byte[10][];
+    try (
+        LocalBlockStore store = LocalBlockStore.open(tempDir.resolve("overwrite"), capacity, 100)) {
+      for (int i = 0; i < blocks.length; i++) {
+        blocks[i] = randomBlock(blockSize);
+        store.store("b" + i, blocks[i]);
+      }
+      // too large to store
+      store.store("big", randomBlock(capacity + 1));
+      store.waitForWrites();
+
+      // only the last few blocks fit in the file
+      int fit = capacity / blockSize;
+      for (int i = 0; i < blocks.length; i++) {
+        if (i < blocks.length - fit) {
+          assertNull(store.read("b" + i), "b" + i);
+        } else {
+          assertArrayEquals(blocks[i], store.read("b" + i), "b" + i);
+        }
+      }
+      assertNull(store.read("big"));
+    }
+  }
+
+  private static class TestLoader implements Loader {
+    final byte[] block;
+    final AtomicInteger loads = new AtomicInteger();
+
+    TestLoader(byte[] block) {
+      this.block = block;
+    }
+
+    @Override
+    public Map<String,Loader> getDependencies() {
+      return Map.of();
+    }
+
+    @Override
+    public byte[] load(int maxSize, Map<String,byte[]> dependencies) {
+      loads.incrementAndGet();
+      return block;
+    }
+  }
+
+  private static BlockCache newL1() {
+    return new TinyLfuBlockCache(new Configuration() {
+      @Override
+      public long getMaxSize(CacheType type) {
+        return 1 << 20;
+      }
+
+      @Override
+      public long getBlockSize() {
+        return 1 << 10;
+      }
+
+      @Override
+      public Map<String,String> getProperties(String prefix, CacheType type) {
+        return Map.of();
+      }
+    }, CacheType.DATA);
+  }
+
+  @Test
+  public void testTieredCache() throws Exception {
+    Path dir = tempDir.resolve("tiered");
+    byte[] block = randomBlock(5000);
+    TestLoader loader = new TestLoader(block);
+
+    try (LocalBlockStore store = LocalBlockStore.open(dir, 1 << 20, 100)) {
+      BlockCache cache = new TieredBlockCache(newL1(), store, CacheType.DATA);
+      assertArrayEquals(block, cache.getBlock("b1", loader).getBuffer());
+      assertEquals(1, loader.loads.get());
+      store.waitForWrites();
+      assertTrue(store.contains("DATA:b1"));
+      // the index cache shares the store but not its keys
+      assertNull(new TieredBlockCache(newL1(), store, CacheType.INDEX).getBlock("b1"));
+
+      // a new memory cache is filled from the local store
+      cache = new TieredBlockCache(newL1(), store, CacheType.DATA);
+      assertArrayEquals(block, cache.getBlock("b1", loader).getBuffer());
+      assertEquals(1, loader.loads.get());
+    }
+
+    // a restarted server gets the block from the local store
+    try (LocalBlockStore store = LocalBlockStore.open(dir, 1 << 20, 100)) {
+      BlockCache cache = new TieredBlockCache(newL1(), store, CacheType.DATA);
+      assertArrayEquals(block, cache.getBlock("b1").getBuffer());
+      assertArrayEquals(block, cache.getBlock("b1", loader).getBuffer());
+      assertEquals(1, loader.loads.get());
+    }
+  }
+}
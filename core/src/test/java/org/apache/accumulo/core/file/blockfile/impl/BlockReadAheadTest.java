@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.blockfile.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.spi.cache.BlockCache;
+import org.apache.accumulo.core.spi.cache.CacheEntry;
+import org.apache.accumulo.core.spi.cache.CacheEntry.Weighable;
+import org.apache.accumulo.core.spi.crypto.CryptoService;
+import org.apache.accumulo.core.spi.crypto.NoCryptoServiceFactory;
+import org.apache.accumulo.fate.util.UtilWaitThread;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+@SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "paths not set by user input")
+public class BlockReadAheadTest {
+
+  private static final int NUM_ENTRIES = 20_000;
+
+  @TempDir
+  private static File tempDir;
+
+  private static String fileName;
+  private static FileSystem fs;
+  private static final Configuration conf = new Configuration();
+  private static final CryptoService cs = NoCryptoServiceFactory.NONE;
+  private static final ConfigurationCopy acuconf =
+      new ConfigurationCopy(DefaultConfiguration.getInstance());
+
+  /**
+   * A data cache that loads every block requested and never evicts.
+   */
+  private static class MapBlockCache implements BlockCache {
+    final Map<String,byte[]> blocks = new ConcurrentHashMap<>();
+
+    @Override
+    public CacheEntry cacheBlock(String blockName, byte[] buf) {
+      blocks.put(blockName, buf);
+      return entry(buf);
+    }
+
+    @Override
+    public CacheEntry getBlock(String blockName) {
+      byte[] buf = blocks.get(blockName);
+      return buf == null ? null : entry(buf);
+    }
+
+    @Override
+    public CacheEntry getBlock(String blockName, Loader loader) {
+      return entry(
+          blocks.computeIfAbsent(blockName, k -> loader.load(Integer.MAX_VALUE, Map.of())));
+    }
+
+    private static CacheEntry entry(byte[] buf) {
+      return new CacheEntry() {
+        @Override
+        public byte[] getBuffer() {
+          return buf;
+        }
+
+        @Override
+        public <T extends Weighable> T getIndex(Supplier<T> supplier) {
+          return null;
+        }
+
+        @Override
+        public void indexWeightChanged() {}
+      };
+    }
+
+    @Override
+    public long getMaxHeapSize() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public long getMaxSize() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public Stats getStats() {
+      return null;
+    }
+  }
+
+  @BeforeAll
+  public static void writeFile() throws Exception {
+    fs = FileSystem.getLocal(conf);
+    fileName = new File(tempDir, "readahead.rf").getAbsolutePath();
+    acuconf.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE, "1K");
+    try (FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder()
+        .forFile(fileName, fs, conf, cs).withTableConfiguration(acuconf).build()) {
+      writer.startDefaultLocalityGroup();
+      for (int i = 0; i < NUM_ENTRIES; i++) {
+        writer.append(new Key(String.format("r%06d", i), "cf", "cq"), new Value("v" + i));
+      }
+    }
+  }
+
+  @BeforeEach
+  public void enableReadAhead() {
+    // start each test with a new instance, so blocks reserved by one test do not affect another
+    BlockReadAhead.configure(1 << 20, 2);
+  }
+
+  @AfterEach
+  public void disableReadAhead() {
+    BlockReadAhead.configure(0, 0);
+  }
+
+  private static FileSKVIterator openReader(BlockCache dataCache, int readAheadBlocks)
+      throws Exception {
+    ConfigurationCopy tableConf = new ConfigurationCopy(acuconf);
+    tableConf.set(Property.TABLE_FILE_READ_AHEAD_BLOCKS, Integer.toString(readAheadBlocks));
+    return FileOperations.getInstance().newReaderBuilder().forFile(fileName, fs, conf, cs)
+        .withTableConfiguration(tableConf)
+        .withCacheProvider(new BasicCacheProvider(null, dataCache)).build();
+  }
+
+  private static void verify(FileSKVIterator reader, int start, int end) throws Exception {
+    Range range =
+        new Range(String.format("r%06d", start), true, String.format("r%06d", end), false);
+    reader.seek(range, List.of(), false);
+    for (int i = start; i < end; i++) {
+      assertTrue(reader.hasTop());
+      assertEquals(String.format("r%06d", i), reader.getTopKey().getRow().toString());
+      assertEquals("v" + i, reader.getTopValue().toString());
+      reader.next();
+    }
+    assertFalse(reader.hasTop());
+  }
+
+  private static void waitFor(BooleanSupplier condition) {
+    long start = System.currentTimeMillis();
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() - start < 30_000, "timed out");
+      UtilWaitThread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testWithoutCache() throws Exception {
+    BlockReadAhead readAhead = BlockReadAhead.getInstance();
+    try (FileSKVIterator reader = openReader(null, 4)) {
+      verify(reader, 0, NUM_ENTRIES);
+      verify(reader, 5000, 9000);
+      // a short scan followed by a seek elsewhere leaves blocks read ahead unused
+      verify(reader, 1000, 1500);
+      verify(reader, 15000, 15010);
+    }
+    // closing the reader releases the blocks that were not used
+    waitFor(() -> readAhead.getReserved() == 0);
+  }
+
+  @Test
+  public void testWithCache() throws Exception {
+    MapBlockCache withoutReadAhead = new MapBlockCache();
+    try (FileSKVIterator reader = openReader(withoutReadAhead, 0)) {
+      verify(reader, 0, 2000);
+    }
+
+    MapBlockCache withReadAhead = new MapBlockCache();
+    try (FileSKVIterator reader = openReader(withReadAhead, 4)) {
+      verify(reader, 0, 2000);
+      // blocks after the end of the range are not read
+      waitFor(() -> BlockReadAhead.getInstance().getReserved() == 0);
+      assertEquals(withoutReadAhead.blocks.keySet(), withReadAhead.blocks.keySet());
+
+      // reading past the first range loads blocks ahead of the reader into the cache
+      readRange(reader, 2000, 4000);
+      // these are the blocks the reader itself needed, whatever the read ahead threads are doing
+      MapBlockCache reached = new MapBlockCache();
+      try (FileSKVIterator reader2 = openReader(reached, 0)) {
+        verify(reader2, 0, 2000);
+        readRange(reader2, 2000, 4000);
+      }
+      waitFor(() -> withReadAhead.blocks.keySet().containsAll(reached.blocks.keySet())
+          && withReadAhead.blocks.size() > reached.blocks.size());
+      verify(reader, 0, NUM_ENTRIES);
+    }
+  }
+
+  /**
+   * Reads from the start row through the end row of an unbounded range, without reaching its end.
+   */
+  private static void readRange(FileSKVIterator reader, int start, int end) throws Exception {
+    reader.seek(new Range(String.format("r%06d", start), null), List.of(), false);
+    for (int i = start; i < end; i++) {
+      assertEquals(String.format("r%06d", i), reader.getTopKey().getRow().toString());
+      reader.next();
+    }
+  }
+}
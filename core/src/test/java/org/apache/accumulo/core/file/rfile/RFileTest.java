@@ -260,7 +260,8 @@ public class RFileTest {
         sampler = SamplerFactory.newSampler(samplerConfig, accumuloConfiguration);
       }
 
-      writer = new RFile.Writer(_cbw, blockSize, 1000, samplerConfig, sampler);
+      writer = new RFile.Writer(_cbw, blockSize, 1000, samplerConfig, sampler,
+          accumuloConfiguration.getBoolean(Property.TABLE_FILE_COLUMNAR_ENABLED));
 
       if (startDLG)
         writer.startDefaultLocalityGroup();
@@ -1904,6 +1905,70 @@ public class RFileTest {
     conf = null;
   }
 
+  private ConfigurationCopy getColumnarConfig() {
+    ConfigurationCopy columnarConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    columnarConf.set(Property.TABLE_FILE_COLUMNAR_ENABLED, "true");
+    return columnarConf;
+  }
+
+  @Test
+  public void testColumnarRFiles() throws Exception {
+    conf = getColumnarConfig();
+    test1();
+    test2();
+    test3();
+    test4();
+    test5();
+    test6();
+    test7();
+    test8();
+    test9();
+    test10();
+    test11();
+    test12();
+    test13();
+    test14();
+    test16();
+    test17();
+    test18();
+    test19();
+    conf = null;
+  }
+
+  @Test
+  public void testColumnarSize() throws Exception {
+    // repetitive columns should encode smaller in columnar blocks
+    long[] sizes = new long[2];
+    for (int i = 0; i < 2; i++) {
+      TestRFile trf = new TestRFile(i == 0 ? null : getColumnarConfig());
+      trf.openWriter();
+      for (int r = 0; r < 1000; r++) {
+        for (int c = 0; c < 2; c++) {
+          Key key = newKey(r, c);
+          key.setTimestamp(1_600_000_000_000L + r);
+          trf.writer.append(key, newValue(r, c));
+        }
+      }
+      trf.closeWriter();
+      sizes[i] = trf.baos.size();
+
+      trf.openReader();
+      trf.iter.seek(new Range(), EMPTY_COL_FAMS, false);
+      int count = 0;
+      while (trf.iter.hasTop()) {
+        Key key = newKey(count / 2, count % 2);
+        key.setTimestamp(1_600_000_000_000L + count / 2);
+        assertEquals(key, trf.iter.getTopKey());
+        assertEquals(newValue(count / 2, count % 2), trf.iter.getTopValue());
+        trf.iter.next();
+        count++;
+      }
+      assertEquals(2000, count);
+      trf.closeReader();
+    }
+    assertTrue(sizes[1] < sizes[0], "columnar " + sizes[1] + " plain " + sizes[0]);
+  }
+
   private Key newKey(int r, int c) {
     String row = String.format("r%06d", r);
     switch (c) {
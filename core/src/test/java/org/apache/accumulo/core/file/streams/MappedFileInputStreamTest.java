@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.file.streams;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.crypto.CryptoFactoryLoader;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.spi.crypto.CryptoService;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+@SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "paths not set by user input")
+public class MappedFileInputStreamTest {
+
+  private static final SecureRandom random = new SecureRandom();
+
+  @TempDir
+  private static File tempDir;
+
+  @Test
+  public void testReadAndSeek() throws IOException {
+    byte[] data = new byte[10_000];
+    random.nextBytes(data);
+    File file = new File(tempDir, "data");
+    Files.write(file.toPath(), data);
+
+    try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+      assertEquals(data.length, in.getLength());
+
+      byte[] read = new byte[data.length];
+      assertEquals(data.length, in.read(read));
+      assertArrayEquals(data, read);
+      assertEquals(-1, in.read());
+
+      in.seek(5000);
+      assertEquals(data[5000] & 0xff, in.read());
+      assertEquals(5001, in.getPos());
+      assertEquals(100, in.skip(100));
+      assertEquals(data[5101] & 0xff, in.read());
+      assertThrows(EOFException.class, () -> in.seek(data.length + 1));
+
+      // region streams are independent of the position of the stream
+      InputStream region = in.regionStream(2000, 3000);
+      assertNotNull(region);
+      assertEquals(3000, region.available());
+      byte[] regionData = region.readAllBytes();
+      assertArrayEquals(Arrays.copyOfRange(data, 2000, 5000), regionData);
+      assertEquals(5102, in.getPos());
+
+      assertThrows(EOFException.class, () -> in.regionStream(9000, 2000));
+    }
+  }
+
+  @Test
+  public void testClosed() throws IOException {
+    File file = new File(tempDir, "closed");
+    Files.write(file.toPath(), new byte[] {1, 2, 3});
+    MappedFileInputStream in = new MappedFileInputStream(file);
+    in.close();
+    assertThrows(IOException.class, in::read);
+    assertThrows(IOException.class, () -> in.regionStream(0, 1));
+  }
+
+  @Test
+  public void testUnmapOnClose() throws IOException {
+    byte[] data = new byte[10_000];
+    random.nextBytes(data);
+    File file = new File(tempDir, "unmap");
+    Files.write(file.toPath(), data);
+
+    MappedFileInputStream in = new MappedFileInputStream(file);
+    InputStream region = in.regionStream(1000, 2000);
+    in.close();
+
+    // an open region keeps the mapping, so it can still be read after the stream is closed
+    assertFalse(in.isUnmapped());
+    assertArrayEquals(Arrays.copyOfRange(data, 1000, 3000), region.readAllBytes());
+    region.close();
+    assertThrows(IOException.class, region::read);
+    region.close();
+    assertTrue(in.isUnmapped());
+
+    // the mapping of a stream without open regions is released by close
+    in = new MappedFileInputStream(file);
+    in.regionStream(0, 10).close();
+    assertFalse(in.isUnmapped());
+    in.close();
+    assertTrue(in.isUnmapped());
+  }
+
+  @Test
+  public void testCloseReopen() throws IOException {
+    byte[] data = new byte[1 << 20];
+    random.nextBytes(data);
+    File file = new File(tempDir, "reopen");
+    Files.write(file.toPath(), data);
+
+    // closing releases each mapping right away, rather than leaving them all for the garbage
+    // collector
+    for (int i = 0; i < 1000; i++) {
+      MappedFileInputStream in = new MappedFileInputStream(file);
+      int offset = random.nextInt(data.length - 100);
+      try (InputStream region = in.regionStream(offset, 100)) {
+        assertArrayEquals(Arrays.copyOfRange(data, offset, offset + 100), region.readAllBytes());
+      }
+      in.seek(offset);
+      assertEquals(data[offset] & 0xff, in.read());
+      in.close();
+      assertTrue(in.isUnmapped());
+    }
+  }
+
+  @Test
+  public void testMappedRFile() throws IOException {
+    for (String compression : new String[] {"none", "gz"}) {
+      ConfigurationCopy acuconf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+      acuconf.set(Property.TABLE_FILE_COMPRESSION_TYPE, compression);
+      acuconf.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE, "4K");
+
+      Configuration conf = new Configuration();
+      FileSystem fs = FileSystem.getLocal(conf);
+      CryptoService cs = CryptoFactoryLoader.getServiceForServer(acuconf);
+      String fname = new File(tempDir, "mapped-" + compression + ".rf").getAbsolutePath();
+
+      try (FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder()
+          .forFile(fname, fs, conf, cs).withTableConfiguration(acuconf).build()) {
+        writer.startDefaultLocalityGroup();
+        for (int i = 0; i < 10_000; i++) {
+          writer.append(new Key(String.format("r%06d", i), "cf", "cq"), new Value("v" + i));
+        }
+      }
+
+      acuconf.set(Property.TABLE_FILE_MMAP_ENABLED, "true");
+      try (FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder()
+          .forFile(fname, fs, conf, cs).withTableConfiguration(acuconf).build()) {
+        reader.seek(new Range(), Arrays.asList(), false);
+        int count = 0;
+        while (reader.hasTop()) {
+          assertEquals(String.format("r%06d", count), reader.getTopKey().getRow().toString());
+          assertEquals("v" + count, reader.getTopValue().toString());
+          count++;
+          reader.next();
+        }
+        assertEquals(10_000, count);
+
+        reader.seek(new Range("r005000", "r005001"), Arrays.asList(), false);
+        assertTrue(reader.hasTop());
+        assertEquals("r005000", reader.getTopKey().getRow().toString());
+        reader.next();
+        assertTrue(reader.hasTop());
+        reader.next();
+        assertFalse(reader.hasTop());
+      }
+    }
+  }
+}
@@ -19,12 +19,15 @@
 package org.apache.accumulo.core.file.streams;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.InputStream;
 import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.core.util.ratelimit.TimingRateLimiter;
 import org.apache.hadoop.fs.Seekable;
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.Test;
@@ -58,6 +61,27 @@ public class RateLimitedInputStreamTest {
     assertEquals(bytesRetrieved, rateLimiterPermitsAcquired.get());
   }
 
+  @Test
+  public void ioTimeIsRecorded() throws Exception {
+    // waiting for permits counts as I/O time
+    RateLimiter rateLimiter = EasyMock.niceMock(RateLimiter.class);
+    rateLimiter.acquire(EasyMock.anyLong());
+    EasyMock.expectLastCall().andAnswer(() -> {
+      Thread.sleep(1);
+      return null;
+    }).anyTimes();
+    EasyMock.replay(rateLimiter);
+
+    TimingRateLimiter timer = new TimingRateLimiter(rateLimiter);
+    try (InputStream is = new RateLimitedInputStream(new RandomInputStream(), timer)) {
+      for (int i = 0; i < 10; ++i) {
+        assertEquals(16, is.read(new byte[16]));
+      }
+    }
+    assertTrue(timer.getIoTime() >= TimeUnit.MILLISECONDS.toNanos(10),
+        () -> "" + timer.getIoTime());
+  }
+
   private static class RandomInputStream extends InputStream implements Seekable {
 
     @Override
@@ -19,12 +19,15 @@
 package org.apache.accumulo.core.file.streams;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.OutputStream;
 import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.core.util.ratelimit.TimingRateLimiter;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.easymock.EasyMock;
 import org.junit.jupiter.api.Test;
@@ -61,6 +64,27 @@ public class RateLimitedOutputStreamTest {
     assertEquals(bytesWritten, rateLimiterPermitsAcquired.get());
   }
 
+  @Test
+  public void ioTimeIsRecorded() throws Exception {
+    // waiting for permits counts as I/O time
+    RateLimiter rateLimiter = EasyMock.niceMock(RateLimiter.class);
+    rateLimiter.acquire(EasyMock.anyLong());
+    EasyMock.expectLastCall().andAnswer(() -> {
+      Thread.sleep(1);
+      return null;
+    }).anyTimes();
+    EasyMock.replay(rateLimiter);
+
+    TimingRateLimiter timer = new TimingRateLimiter(rateLimiter);
+    try (RateLimitedOutputStream os = new RateLimitedOutputStream(new NullOutputStream(), timer)) {
+      for (int i = 0; i < 10; ++i) {
+        os.write(new byte[16]);
+      }
+    }
+    assertTrue(timer.getIoTime() >= TimeUnit.MILLISECONDS.toNanos(10),
+        () -> "" + timer.getIoTime());
+  }
+
   public static class NullOutputStream extends FSDataOutputStream {
     public NullOutputStream() {
       super(new CountingOutputStream(OutputStream.nullOutputStream()), null);
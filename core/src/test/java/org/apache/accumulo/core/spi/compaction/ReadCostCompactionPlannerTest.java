@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.spi.compaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.client.admin.compaction.CompactableFile;
+import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.spi.common.ServiceEnvironment;
+import org.apache.accumulo.core.spi.common.ServiceEnvironment.Configuration;
+import org.apache.accumulo.core.spi.compaction.CompactionPlan.Builder;
+import org.apache.accumulo.core.util.compaction.CompactionExecutorIdImpl;
+import org.apache.accumulo.core.util.compaction.CompactionJobPrioritizer;
+import org.apache.accumulo.core.util.compaction.CompactionPlanImpl;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.Test;
+
+public class ReadCostCompactionPlannerTest {
+
+  @Test
+  public void testColdTablet() {
+    var planner = createPlanner();
+
+    var all = createCFs("F1", "1M", "F2", "1M", "F3", "1M", "F4", "1M");
+    var plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 0.01, 4));
+    assertTrue(plan.getJobs().isEmpty());
+
+    // user compactions are not deferred
+    plan = planner.makePlan(createPlanningParams(all, CompactionKind.USER, 0.01, 4));
+    assertEquals(all, getOnlyJob(plan).getFiles());
+
+    // once a cold tablet has enough files it is compacted
+    all = createCFs("F1", "1M", "F2", "1M", "F3", "1M", "F4", "1M", "F5", "1M", "F6", "1M", "F7",
+        "1M", "F8", "1M");
+    plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 0.01, 8));
+    assertEquals(all, getOnlyJob(plan).getFiles());
+  }
+
+  @Test
+  public void testColdTabletFileLimits() {
+    var all = createCFs("F1", "1M", "F2", "1M", "F3", "1M", "F4", "1M", "F5", "1M");
+
+    // a tablet over table.file.max is compacted even though it has fewer than coldMaxFiles
+    var planner = createPlanner(Map.of());
+    var plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 0.01, 5, 10));
+    assertTrue(plan.getJobs().isEmpty());
+    plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 0.01, 5, 4));
+    assertEquals(all, getOnlyJob(plan).getFiles());
+
+    // coldMaxFiles is capped at the most files one compaction may compact
+    planner = createPlanner(Map.of("coldMaxFiles", "20", "maxOpen", "5"));
+    plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 0.01, 5, 30));
+    assertEquals(all, getOnlyJob(plan).getFiles());
+
+    // a tablet without recorded reads, as after it was loaded, is not assumed to be cold
+    planner = createPlanner(Map.of());
+    plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 0, 0, 10));
+    assertEquals(all, getOnlyJob(plan).getFiles());
+  }
+
+  @Test
+  public void testHotTablet() {
+    var planner = createPlanner();
+
+    // these files do not meet the table's compaction ratio of 3, but do meet the hot ratio of 2
+    var all = createCFs("F1", "10M", "F2", "6M", "F3", "6M");
+    var plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 1, 3));
+    assertTrue(plan.getJobs().isEmpty());
+
+    plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 20, 3));
+    assertEquals(all, getOnlyJob(plan).getFiles());
+
+    // reads only open one file, so compacting will not make them faster
+    plan = planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 20, 1));
+    assertTrue(plan.getJobs().isEmpty());
+  }
+
+  @Test
+  public void testPriority() {
+    var planner = createPlanner();
+
+    var all = createCFs("F1", "1M", "F2", "1M", "F3", "1M", "F4", "1M");
+
+    var warmJob =
+        getOnlyJob(planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 1, 4)));
+    // compacting the four files into one saves three file opens per read
+    assertEquals(CompactionJobPrioritizer.createPriority(CompactionKind.SYSTEM, 4 + 3, 4),
+        warmJob.getPriority());
+
+    var hotJob =
+        getOnlyJob(planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 50, 4)));
+    assertEquals(CompactionJobPrioritizer.createPriority(CompactionKind.SYSTEM, 4 + 150, 4),
+        hotJob.getPriority());
+
+    // when reads skip half of the files, only half of the reads benefit
+    var skipJob =
+        getOnlyJob(planner.makePlan(createPlanningParams(all, CompactionKind.SYSTEM, 50, 2)));
+    assertEquals(CompactionJobPrioritizer.createPriority(CompactionKind.SYSTEM, 4 + 75, 4),
+        skipJob.getPriority());
+    assertTrue(hotJob.getPriority() > skipJob.getPriority());
+    assertTrue(skipJob.getPriority() > warmJob.getPriority());
+  }
+
+  private static CompactionJob getOnlyJob(CompactionPlan plan) {
+    assertEquals(1, plan.getJobs().size());
+    return plan.getJobs().iterator().next();
+  }
+
+  private static Set<CompactableFile> createCFs(String... namesSizePairs) {
+    Set<CompactableFile> files = new HashSet<>();
+
+    for (int i = 0; i < namesSizePairs.length; i += 2) {
+      String name = namesSizePairs[i];
+      long size = ConfigurationTypeHelper.getFixedMemoryAsBytes(namesSizePairs[i + 1]);
+      try {
+        files.add(CompactableFile
+            .create(new URI("hdfs://fake/accumulo/tables/1/t-0000000z/" + name + ".rf"), size, 0));
+      } catch (URISyntaxException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    return files;
+  }
+
+  private static CompactionPlanner.PlanningParameters createPlanningParams(Set<CompactableFile> all,
+      CompactionKind kind, double readRate, double filesPerRead) {
+    return createPlanningParams(all, kind, readRate, filesPerRead, 15);
+  }
+
+  private static CompactionPlanner.PlanningParameters createPlanningParams(Set<CompactableFile> all,
+      CompactionKind kind, double readRate, double filesPerRead, int tableFileMax) {
+    Configuration tableConf = EasyMock.createMock(Configuration.class);
+    EasyMock.expect(tableConf.get(Property.TABLE_FILE_MAX.getKey()))
+        .andReturn(Integer.toString(tableFileMax)).anyTimes();
+    ServiceEnvironment senv = EasyMock.createMock(ServiceEnvironment.class);
+    EasyMock.expect(senv.getConfiguration(TableId.of("42"))).andReturn(tableConf).anyTimes();
+    EasyMock.replay(tableConf, senv);
+
+    return new CompactionPlanner.PlanningParameters() {
+
+      @Override
+      public TableId getTableId() {
+        return TableId.of("42");
+      }
+
+      @Override
+      public ServiceEnvironment getServiceEnvironment() {
+        return senv;
+      }
+
+      @Override
+      public Collection<CompactionJob> getRunningCompactions() {
+        return Set.of();
+      }
+
+      @Override
+      public double getRatio() {
+        return 3;
+      }
+
+      @Override
+      public CompactionKind getKind() {
+        return kind;
+      }
+
+      @Override
+      public Map<String,String> getExecutionHints() {
+        return Map.of();
+      }
+
+      @Override
+      public Collection<CompactableFile> getCandidates() {
+        return all;
+      }
+
+      @Override
+      public Collection<CompactableFile> getAll() {
+        return all;
+      }
+
+      @Override
+      public double getReadRate() {
+        return readRate;
+      }
+
+      @Override
+      public double getFilesPerRead() {
+        return filesPerRead;
+      }
+
+      @Override
+      public Builder createPlanBuilder() {
+        return new CompactionPlanImpl.BuilderImpl(kind, all, all);
+      }
+    };
+  }
+
+  private static ReadCostCompactionPlanner createPlanner() {
+    return createPlanner(Map.of());
+  }
+
+  private static ReadCostCompactionPlanner createPlanner(Map<String,String> options) {
+    ReadCostCompactionPlanner planner = new ReadCostCompactionPlanner();
+    Configuration conf = EasyMock.createMock(Configuration.class);
+    EasyMock.expect(conf.isSet(EasyMock.anyString())).andReturn(false).anyTimes();
+
+    ServiceEnvironment senv = EasyMock.createMock(ServiceEnvironment.class);
+    EasyMock.expect(senv.getConfiguration()).andReturn(conf).anyTimes();
+
+    EasyMock.replay(conf, senv);
+
+    String executors = ("[{'name':'small','type': 'internal','maxSize':'32M','numThreads':1},"
+        + "{'name':'huge','type': 'internal','numThreads':2}]").replaceAll("'", "\"");
+
+    planner.init(new CompactionPlanner.InitParameters() {
+
+      @Override
+      public ServiceEnvironment getServiceEnvironment() {
+        return senv;
+      }
+
+      @Override
+      public Map<String,String> getOptions() {
+        Map<String,String> opts = new HashMap<>(Map.of("executors", executors, "maxOpen", "15"));
+        opts.putAll(options);
+        return opts;
+      }
+
+      @Override
+      public String getFullyQualifiedOption(String key) {
+        return Property.TSERV_COMPACTION_SERVICE_PREFIX.getKey() + "cs1.planner.opts." + key;
+      }
+
+      @Override
+      public ExecutorManager getExecutorManager() {
+        return new ExecutorManager() {
+          @Override
+          public CompactionExecutorId createExecutor(String name, int threads) {
+            return CompactionExecutorIdImpl.externalId(name);
+          }
+
+          @Override
+          public CompactionExecutorId getExternalExecutor(String name) {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    });
+
+    return planner;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.core.spi.scan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.accumulo.core.spi.common.ServiceEnvironment;
+import org.apache.accumulo.core.spi.scan.ScanInfo.Type;
+import org.junit.jupiter.api.Test;
+
+public class FairShareScanPrioritizerTest {
+
+  private static Comparator<ScanInfo> createComparator(FairShareScanPrioritizer prioritizer,
+      Map<String,String> options) {
+    return prioritizer.createComparator(new ScanPrioritizer.CreateParameters() {
+
+      @Override
+      public Map<String,String> getOptions() {
+        return options;
+      }
+
+      @Override
+      public ServiceEnvironment getServiceEnv() {
+        throw new UnsupportedOperationException();
+      }
+    });
+  }
+
+  // runs the queued scans in priority order, requeueing each one after it runs
+  private static List<String> run(FairShareScanPrioritizer prioritizer,
+      Comparator<ScanInfo> comparator, List<TestScanInfo> queued, int runs, long runTime) {
+    List<String> ran = new ArrayList<>();
+    for (TestScanInfo scan : queued) {
+      prioritizer.scanQueued(scan);
+    }
+    for (int i = 0; i < runs; i++) {
+      queued.sort(comparator);
+      TestScanInfo scan = queued.get(0);
+      scan.runTimeStats.addStat(runTime);
+      prioritizer.scanRan(scan, runTime, 0);
+      prioritizer.scanQueued(scan);
+      ran.add(scan.user);
+    }
+    return ran;
+  }
+
+  @Test
+  public void testWeightedShare() {
+    long now = System.currentTimeMillis();
+    var prioritizer = new FairShareScanPrioritizer();
+    var comparator = createComparator(prioritizer, Map.of("weight.alice", "3"));
+
+    // bob has many more scans queued than alice, but alice has three times the weight
+    List<TestScanInfo> queued = new ArrayList<>();
+    queued.add(new TestScanInfo("a1", Type.SINGLE, now).setUser("alice"));
+    for (int i = 0; i < 10; i++) {
+      queued.add(new TestScanInfo("b" + i, Type.SINGLE, now - 100 + i).setUser("bob"));
+    }
+
+    Map<String,Long> counts = run(prioritizer, comparator, queued, 400, 10).stream()
+        .collect(Collectors.groupingBy(user -> user, Collectors.counting()));
+    // the share is only approximate as bob's queued scans were all tagged up front
+    assertTrue(counts.get("alice") >= 290, counts::toString);
+    assertTrue(counts.get("bob") <= 110, counts::toString);
+  }
+
+  @Test
+  public void testInteractiveFirst() {
+    long now = System.currentTimeMillis();
+    var prioritizer = new FairShareScanPrioritizer();
+    var comparator = createComparator(prioritizer, Map.of("interactive_types", "ui,api"));
+
+    List<TestScanInfo> queued = new ArrayList<>();
+    queued.add(new TestScanInfo("a", Type.SINGLE, now - 10).setUser("batch"));
+    queued.add(new TestScanInfo("b", Type.SINGLE, now - 5).setUser("batch"));
+    queued.add(
+        new TestScanInfo("c", Type.SINGLE, now).setUser("ui").setExecutionHints("scan_type", "ui"));
+
+    // the interactive scan always runs first even though the batch user has had no share
+    assertEquals(List.of("ui", "ui", "ui"), run(prioritizer, comparator, queued, 3, 10));
+  }
+
+  @Test
+  public void testBudget() {
+    long now = System.currentTimeMillis();
+    var prioritizer = new FairShareScanPrioritizer();
+    var comparator = createComparator(prioritizer,
+        Map.of("tenant", "table", "budget.bytes", "1K", "budget.period", "1h"));
+
+    TestScanInfo t1 = new TestScanInfo("a", Type.SINGLE, now - 10).setTableId("1");
+    TestScanInfo t2 = new TestScanInfo("b", Type.SINGLE, now).setTableId("2");
+
+    prioritizer.scanQueued(t1);
+    prioritizer.scanQueued(t2);
+    assertEquals(-1, comparator.compare(t1, t2));
+
+    // table 1 reads past its budget, so its next run is ordered after table 2
+    prioritizer.scanRan(t1, 1, 2048);
+    prioritizer.scanQueued(t1);
+    assertEquals(1, comparator.compare(t1, t2));
+  }
+
+  @Test
+  public void testUnknownUser() {
+    long now = System.currentTimeMillis();
+    var prioritizer = new FairShareScanPrioritizer();
+    var comparator = createComparator(prioritizer, Map.of("tenant", "user_table"));
+
+    // implementations that predate getUser and getBytesReadStats get the defaults
+    TestScanInfo unknown = new TestScanInfo("a", Type.SINGLE, now - 10).setUser(null);
+    TestScanInfo alice = new TestScanInfo("b", Type.SINGLE, now).setUser("alice");
+    assertEquals(0, unknown.getBytesReadStats().num());
+
+    prioritizer.scanQueued(unknown);
+    prioritizer.scanQueued(alice);
+    assertEquals(-1, comparator.compare(unknown, alice));
+    prioritizer.scanRan(unknown, 50, 0);
+    assertEquals(1, comparator.compare(unknown, alice));
+  }
+
+  @Test
+  public void testRunWithoutQueueing() {
+    long now = System.currentTimeMillis();
+    var prioritizer = new FairShareScanPrioritizer();
+    var comparator = createComparator(prioritizer, Map.of());
+
+    TestScanInfo alice = new TestScanInfo("a", Type.SINGLE, now - 10).setUser("alice");
+    TestScanInfo bob = new TestScanInfo("b", Type.SINGLE, now).setUser("bob");
+
+    // alice's runs went straight to idle threads, they must still count against her share
+    for (int i = 0; i < 5; i++) {
+      alice.runTimeStats.addStat(100);
+      prioritizer.scanRan(alice, 100, 0);
+    }
+
+    prioritizer.scanQueued(alice);
+    prioritizer.scanQueued(bob);
+    assertEquals(1, comparator.compare(alice, bob));
+  }
+
+  @Test
+  public void testUnknownOption() {
+    assertThrows(IllegalArgumentException.class,
+        () -> createComparator(new FairShareScanPrioritizer(), Map.of("weigth.alice", "3")));
+  }
+}
@@ -39,6 +39,8 @@ public class TestScanInfo implements ScanInfo {
   Stat runTimeStats = new Stat();
   Stat idleTimeStats = new Stat();
   Map<String,String> executionHints = Collections.emptyMap();
+  String user = "root";
+  TableId tableId = TableId.of("1");
 
   TestScanInfo(String testId, Type scanType, long creationTime, int... times) {
     this.testId = testId;
@@ -67,9 +69,19 @@ public class TestScanInfo implements ScanInfo {
     return scanType;
   }
 
+  TestScanInfo setUser(String user) {
+    this.user = user;
+    return this;
+  }
+
+  TestScanInfo setTableId(String tableId) {
+    this.tableId = TableId.of(tableId);
+    return this;
+  }
+
   @Override
   public TableId getTableId() {
-    throw new UnsupportedOperationException();
+    return tableId;
   }
 
   @Override
@@ -99,6 +111,11 @@ public class TestScanInfo implements ScanInfo {
     return copy;
   }
 
+  @Override
+  public String getUser() {
+    return user;
+  }
+
   @Override
   public Set<Column> getFetchedColumns() {
     throw new UnsupportedOperationException();
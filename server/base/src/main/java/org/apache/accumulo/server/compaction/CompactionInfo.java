@@ -38,12 +38,22 @@ public class CompactionInfo {
   private final String localityGroup;
   private final long entriesRead;
   private final long entriesWritten;
+  private final long readTime;
+  private final long iteratorTime;
+  private final long writeTime;
+  private final long readIoTime;
+  private final long writeIoTime;
   private final TCompactionReason reason;
 
   CompactionInfo(FileCompactor compactor) {
     this.localityGroup = compactor.getCurrentLocalityGroup();
     this.entriesRead = compactor.getEntriesRead();
     this.entriesWritten = compactor.getEntriesWritten();
+    this.readTime = compactor.getReadTime();
+    this.iteratorTime = compactor.getIteratorTime();
+    this.writeTime = compactor.getWriteTime();
+    this.readIoTime = compactor.getReadIoTime();
+    this.writeIoTime = compactor.getWriteIoTime();
     this.reason = compactor.getReason();
     this.compactor = compactor;
   }
@@ -64,6 +74,41 @@ public class CompactionInfo {
     return entriesWritten;
   }
 
+  /**
+   * @return the estimated nanoseconds the compaction has spent reading its input files so far
+   */
+  public long getReadTime() {
+    return readTime;
+  }
+
+  /**
+   * @return the estimated nanoseconds the compaction has spent in its iterators so far
+   */
+  public long getIteratorTime() {
+    return iteratorTime;
+  }
+
+  /**
+   * @return the estimated nanoseconds the compaction has spent writing its output file so far
+   */
+  public long getWriteTime() {
+    return writeTime;
+  }
+
+  /**
+   * @return the nanoseconds the compaction has spent in file system reads so far
+   */
+  public long getReadIoTime() {
+    return readIoTime;
+  }
+
+  /**
+   * @return the nanoseconds the compaction has spent in file system writes so far
+   */
+  public long getWriteIoTime() {
+    return writeIoTime;
+  }
+
   public Thread getThread() {
     return compactor.thread;
   }
@@ -22,6 +22,13 @@ public class CompactionStats {
   private long entriesRead;
   private long entriesWritten;
   private long fileSize;
+  // estimated nanoseconds spent in each part of the compaction
+  private long readTime;
+  private long iteratorTime;
+  private long writeTime;
+  // measured nanoseconds spent in file system reads and writes
+  private long readIoTime;
+  private long writeIoTime;
 
   public CompactionStats(long er, long ew) {
     this.setEntriesRead(er);
@@ -49,6 +56,73 @@ public class CompactionStats {
   public void add(CompactionStats mcs) {
     this.entriesRead += mcs.entriesRead;
     this.entriesWritten += mcs.entriesWritten;
+    this.readTime += mcs.readTime;
+    this.iteratorTime += mcs.iteratorTime;
+    this.writeTime += mcs.writeTime;
+    this.readIoTime += mcs.readIoTime;
+    this.writeIoTime += mcs.writeIoTime;
+  }
+
+  public void setTimes(long readTime, long iteratorTime, long writeTime) {
+    this.readTime = readTime;
+    this.iteratorTime = iteratorTime;
+    this.writeTime = writeTime;
+  }
+
+  public void setIoTimes(long readIoTime, long writeIoTime) {
+    this.readIoTime = readIoTime;
+    this.writeIoTime = writeIoTime;
+  }
+
+  /**
+   * @return the estimated nanoseconds spent reading, decompressing and merging the input files,
+   *         including {@link #getReadIoTime()}
+   */
+  public long getReadTime() {
+    return readTime;
+  }
+
+  /**
+   * @return the estimated nanoseconds spent in the compaction iterators
+   */
+  public long getIteratorTime() {
+    return iteratorTime;
+  }
+
+  /**
+   * @return the estimated nanoseconds spent encoding, compressing and writing the output file,
+   *         including {@link #getWriteIoTime()}
+   */
+  public long getWriteTime() {
+    return writeTime;
+  }
+
+  /**
+   * @return the nanoseconds spent in file system reads of the input files
+   */
+  public long getReadIoTime() {
+    return readIoTime;
+  }
+
+  /**
+   * @return the nanoseconds spent in file system writes of the output file
+   */
+  public long getWriteIoTime() {
+    return writeIoTime;
+  }
+
+  /**
+   * @return the estimated nanoseconds spent decompressing, decoding and merging the input files
+   */
+  public long getDecodeTime() {
+    return Math.max(0, readTime - readIoTime);
+  }
+
+  /**
+   * @return the estimated nanoseconds spent encoding and compressing the output file
+   */
+  public long getEncodeTime() {
+    return Math.max(0, writeTime - writeIoTime);
   }
 
   public void setFileSize(long fileSize) {
@@ -34,6 +34,8 @@ public class CountingIterator extends WrappingIterator {
   private long count;
   private final ArrayList<CountingIterator> deepCopies;
   private final AtomicLong entriesRead;
+  private boolean timed = false;
+  private long readTime = 0;
 
   @Override
   public CountingIterator deepCopy(IteratorEnvironment env) {
@@ -63,13 +65,33 @@ public class CountingIterator extends WrappingIterator {
 
   @Override
   public void next() throws IOException {
-    super.next();
+    if (timed) {
+      long start = System.nanoTime();
+      super.next();
+      readTime += System.nanoTime() - start;
+    } else {
+      super.next();
+    }
     count++;
     if (count % 1024 == 0) {
       entriesRead.addAndGet(1024);
     }
   }
 
+  /**
+   * Sets whether calls to next are timed. Deep copies are never timed.
+   */
+  void setTimed(boolean timed) {
+    this.timed = timed;
+  }
+
+  /**
+   * @return the total nanoseconds spent in timed calls to next
+   */
+  long getReadTime() {
+    return readTime;
+  }
+
   public long getCount() {
     long sum = 0;
     for (CountingIterator dc : deepCopies) {
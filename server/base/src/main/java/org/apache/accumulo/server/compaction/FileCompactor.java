@@ -18,9 +18,13 @@
  */
 package org.apache.accumulo.server.compaction;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -30,13 +34,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.TableId;
 import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
@@ -59,6 +71,8 @@ import org.apache.accumulo.core.trace.TraceUtil;
 import org.apache.accumulo.core.util.LocalityGroupUtil;
 import org.apache.accumulo.core.util.LocalityGroupUtil.LocalityGroupConfigurationError;
 import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.core.util.ratelimit.TimingRateLimiter;
+import org.apache.accumulo.core.util.threads.ThreadPools;
 import org.apache.accumulo.server.ServerContext;
 import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.server.iterators.SystemIteratorEnvironment;
@@ -67,9 +81,12 @@ import org.apache.accumulo.server.problems.ProblemReportingIterator;
 import org.apache.accumulo.server.problems.ProblemReports;
 import org.apache.accumulo.server.problems.ProblemType;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.io.Text;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Suppliers;
+
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Scope;
 
@@ -77,6 +94,24 @@ public class FileCompactor implements Callable<CompactionStats> {
   private static final Logger log = LoggerFactory.getLogger(FileCompactor.class);
   private static final AtomicLong nextCompactorID = new AtomicLong(0);
 
+  // splitting a compaction smaller than this into sub-ranges costs more than it saves
+  private static final long MIN_PARALLEL_INPUT_SIZE = 64 * 1024 * 1024;
+  // the approximate size and number of batches of entries buffered for each sub-range
+  private static final long SUB_RANGE_BATCH_SIZE = 512 * 1024;
+  private static final int SUB_RANGE_BUFFERED_BATCHES = 4;
+  // The sub-range readers of all the compactions in the process share this pool, so concurrent
+  // compactions do not run more readers than there are processors. A compaction queues its readers
+  // in the order it writes them, and a running reader keeps its thread until its sub-range is
+  // written, so the first unfinished sub-range of a compaction with a running reader is always
+  // running and the readers cannot deadlock waiting on each other's writers.
+  private static final Supplier<ExecutorService> SUB_RANGE_READERS =
+      Suppliers.memoize(() -> ThreadPools.getServerThreadPools().createFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(), "Compaction sub-range reader", false));
+  // Every entry is timed in one out of this many windows of 1024 entries, and the time spent on
+  // the other entries is estimated from the timed ones. Timing every entry would call
+  // System.nanoTime() several times per entry.
+  private static final int TIMING_SAMPLE_PERIOD = 8;
+
   public static class CompactionCanceledException extends Exception {
     private static final long serialVersionUID = 1L;
   }
@@ -115,6 +150,13 @@ public class FileCompactor implements Callable<CompactionStats> {
 
   private final AtomicLong entriesRead = new AtomicLong(0);
   private final AtomicLong entriesWritten = new AtomicLong(0);
+  private final AtomicLong readTime = new AtomicLong(0);
+  private final AtomicLong iteratorTime = new AtomicLong(0);
+  private final AtomicLong writeTime = new AtomicLong(0);
+  // measured nanoseconds spent in file system reads and writes, which are part of the read and
+  // write times above
+  private final AtomicLong readIoTime = new AtomicLong(0);
+  private final AtomicLong writeIoTime = new AtomicLong(0);
   private final DateFormat dateFormatter = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSS");
 
   // a unique id to identify a compactor
@@ -137,6 +179,106 @@ public class FileCompactor implements Callable<CompactionStats> {
   private void clearStats() {
     entriesRead.set(0);
     entriesWritten.set(0);
+    readTime.set(0);
+    iteratorTime.set(0);
+    writeTime.set(0);
+    readIoTime.set(0);
+    writeIoTime.set(0);
+  }
+
+  /**
+   * @return true if the window of 1024 entries that starts at the entry should be timed
+   */
+  private static boolean startsTimedWindow(long entries) {
+    return entries % 1024 == 0 && (entries / 1024) % TIMING_SAMPLE_PERIOD == 0;
+  }
+
+  /**
+   * Accumulates the time spent on the timed windows of entries, and adds the time estimated from
+   * them for all the entries processed so far to the compaction's totals.
+   */
+  static class TimingSample {
+    private final CountingIterator citr;
+    private final AtomicLong readTime;
+    private final AtomicLong iteratorTime;
+    private final AtomicLong writeTime;
+    private boolean started = false;
+    private long readStart;
+    private long timedEntries = 0;
+    private long timedRead = 0;
+    private long timedNext = 0;
+    private long timedAppend = 0;
+    private long reportedRead = 0;
+    private long reportedIterator = 0;
+    private long reportedWrite = 0;
+
+    /**
+     * @param citr
+     *          the iterator whose calls to next are timed as reading, or null if nothing is read
+     */
+    TimingSample(CountingIterator citr, AtomicLong readTime, AtomicLong iteratorTime,
+        AtomicLong writeTime) {
+      this.citr = citr;
+      this.readTime = readTime;
+      this.iteratorTime = iteratorTime;
+      this.writeTime = writeTime;
+    }
+
+    void start() {
+      started = true;
+      if (citr != null) {
+        readStart = citr.getReadTime();
+        citr.setTimed(true);
+      }
+    }
+
+    boolean isStarted() {
+      return started;
+    }
+
+    /**
+     * Adds the time spent on one timed entry.
+     */
+    void add(long appendTime, long nextTime) {
+      timedEntries++;
+      timedAppend += appendTime;
+      timedNext += nextTime;
+    }
+
+    /**
+     * Ends the timed window, if one was started, and updates the compaction's totals with the time
+     * estimated for the entries processed so far.
+     *
+     * @param entries
+     *          the number of entries processed so far, timed or not
+     */
+    void end(long entries) {
+      if (started) {
+        started = false;
+        if (citr != null) {
+          citr.setTimed(false);
+          timedRead += citr.getReadTime() - readStart;
+        }
+      }
+      if (timedEntries == 0) {
+        return;
+      }
+      double scale = (double) entries / timedEntries;
+      reportedRead = report(readTime, reportedRead, timedRead, scale);
+      reportedIterator =
+          report(iteratorTime, reportedIterator, Math.max(0, timedNext - timedRead), scale);
+      reportedWrite = report(writeTime, reportedWrite, timedAppend, scale);
+    }
+
+    private static long report(AtomicLong total, long reported, long timed, double scale) {
+      long estimate = (long) (timed * scale);
+      total.addAndGet(estimate - reported);
+      return estimate;
+    }
+  }
+
+  private TimingSample newTimingSample(CountingIterator citr) {
+    return new TimingSample(citr, readTime, iteratorTime, writeTime);
   }
 
   protected static final Set<FileCompactor> runningCompactions =
@@ -214,32 +356,37 @@ public class FileCompactor implements Callable<CompactionStats> {
       FileSystem ns = this.fs.getFileSystemByPath(outputFile.getPath());
       mfw = fileFactory.newWriterBuilder()
           .forFile(outputFile.getMetaInsert(), ns, ns.getConf(), cryptoService)
-          .withTableConfiguration(acuTableConf).withRateLimiter(env.getWriteLimiter()).build();
+          .withTableConfiguration(acuTableConf)
+          .withRateLimiter(new TimingRateLimiter(env.getWriteLimiter(), writeIoTime)).build();
 
       Map<String,Set<ByteSequence>> lGroups = getLocalityGroups(acuTableConf);
 
       long t1 = System.currentTimeMillis();
 
+      List<Range> subRanges = getSubRanges();
+
       HashSet<ByteSequence> allColumnFamilies = new HashSet<>();
 
       if (mfw.supportsLocalityGroups()) {
         for (Entry<String,Set<ByteSequence>> entry : lGroups.entrySet()) {
           setLocalityGroup(entry.getKey());
-          compactLocalityGroup(entry.getKey(), entry.getValue(), true, mfw, majCStats);
+          compactLocalityGroup(entry.getKey(), entry.getValue(), true, mfw, majCStats, subRanges);
           allColumnFamilies.addAll(entry.getValue());
         }
       }
 
       setLocalityGroup("");
-      compactLocalityGroup(null, allColumnFamilies, false, mfw, majCStats);
+      compactLocalityGroup(null, allColumnFamilies, false, mfw, majCStats, subRanges);
 
       long t2 = System.currentTimeMillis();
 
       FileSKVWriter mfwTmp = mfw;
       mfw = null; // set this to null so we do not try to close it again in finally if the close
                   // fails
+      long closeStart = System.nanoTime();
       try {
         mfwTmp.close(); // if the close fails it will cause the compaction to fail
+        writeTime.addAndGet(System.nanoTime() - closeStart);
       } catch (IOException ex) {
         if (!fs.deleteRecursively(outputFile.getPath())) {
           if (fs.exists(outputFile.getPath())) {
@@ -249,12 +396,20 @@ public class FileCompactor implements Callable<CompactionStats> {
         throw ex;
       }
 
+      majCStats.setTimes(readTime.get(), iteratorTime.get(), writeTime.get());
+      majCStats.setIoTimes(readIoTime.get(), writeIoTime.get());
+
       log.trace(String.format(
           "Compaction %s %,d read | %,d written | %,6d entries/sec"
-              + " | %,6.3f secs | %,12d bytes | %9.3f byte/sec",
+              + " | %,6.3f secs | %,12d bytes | %9.3f byte/sec"
+              + " | %,6.3f read secs (%,6.3f I/O) | %,6.3f iterator secs"
+              + " | %,6.3f write secs (%,6.3f I/O)",
           extent, majCStats.getEntriesRead(), majCStats.getEntriesWritten(),
           (int) (majCStats.getEntriesRead() / ((t2 - t1) / 1000.0)), (t2 - t1) / 1000.0,
-          mfwTmp.getLength(), mfwTmp.getLength() / ((t2 - t1) / 1000.0)));
+          mfwTmp.getLength(), mfwTmp.getLength() / ((t2 - t1) / 1000.0),
+          majCStats.getReadTime() / 1e9, majCStats.getReadIoTime() / 1e9,
+          majCStats.getIteratorTime() / 1e9, majCStats.getWriteTime() / 1e9,
+          majCStats.getWriteIoTime() / 1e9));
 
       majCStats.setFileSize(mfwTmp.getLength());
       return majCStats;
@@ -299,7 +454,8 @@ public class FileCompactor implements Callable<CompactionStats> {
 
         reader = fileFactory.newReaderBuilder()
             .forFile(mapFile.getPathStr(), fs, fs.getConf(), cryptoService)
-            .withTableConfiguration(acuTableConf).withRateLimiter(env.getReadLimiter()).build();
+            .withTableConfiguration(acuTableConf)
+            .withRateLimiter(new TimingRateLimiter(env.getReadLimiter(), readIoTime)).build();
 
         readers.add(reader);
 
@@ -314,8 +470,11 @@ public class FileCompactor implements Callable<CompactionStats> {
 
       } catch (Exception e) {
 
-        ProblemReports.getInstance(context).report(
-            new ProblemReport(extent.tableId(), ProblemType.FILE_READ, mapFile.getPathStr(), e));
+        // a reader interrupted because the compaction was stopped found no problem with the file
+        if (!Thread.currentThread().isInterrupted()) {
+          ProblemReports.getInstance(context).report(
+              new ProblemReport(extent.tableId(), ProblemType.FILE_READ, mapFile.getPathStr(), e));
+        }
 
         log.warn("Some problem opening map file {} {}", mapFile, e.getMessage(), e);
         // failed to open some map file... close the ones that were opened
@@ -338,9 +497,132 @@ public class FileCompactor implements Callable<CompactionStats> {
     return iters;
   }
 
+  /**
+   * Split the tablet into row aligned sub-ranges that each hold about the same amount of the input
+   * files' data, using the input files' indexes.
+   *
+   * @return the sub-ranges in order, or only the tablet's range if the compaction should not be
+   *         split
+   */
+  List<Range> getSubRanges() throws IOException {
+    Range dataRange = extent.toDataRange();
+    int numSubRanges = acuTableConf.getCount(Property.TABLE_MAJC_THREADS);
+    long inputSize = filesToCompact.values().stream().mapToLong(DataFileValue::getSize).sum();
+    if (numSubRanges <= 1 || env.getIteratorScope() != IteratorScope.majc
+        || inputSize < MIN_PARALLEL_INPUT_SIZE) {
+      return List.of(dataRange);
+    }
+
+    long numIndexEntries = 0;
+    for (TabletFile file : filesToCompact.keySet()) {
+      try (FileSKVIterator reader = openIndex(file)) {
+        while (reader.hasTop()) {
+          if (dataRange.contains(reader.getTopKey())) {
+            numIndexEntries++;
+          }
+          reader.next();
+        }
+      }
+    }
+
+    List<Text> splitRows = new ArrayList<>();
+    ArrayList<FileSKVIterator> readers = new ArrayList<>(filesToCompact.size());
+    try {
+      for (TabletFile file : filesToCompact.keySet()) {
+        readers.add(openIndex(file));
+      }
+      MultiIterator mmfi = new MultiIterator(new ArrayList<>(readers), true);
+
+      long keysRead = 0;
+      while (mmfi.hasTop() && splitRows.size() < numSubRanges - 1) {
+        Key key = mmfi.getTopKey();
+        if (dataRange.afterEndKey(key)) {
+          break;
+        }
+        if (dataRange.contains(key)) {
+          keysRead++;
+          Text lastSplit = splitRows.isEmpty() ? null : splitRows.get(splitRows.size() - 1);
+          if (keysRead >= numIndexEntries * (splitRows.size() + 1) / numSubRanges
+              && (lastSplit == null || key.compareRow(lastSplit) > 0)) {
+            splitRows.add(key.getRow());
+          }
+        }
+        mmfi.next();
+      }
+    } finally {
+      for (FileSKVIterator reader : readers) {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          log.warn("Failed to close index of map file", e);
+        }
+      }
+    }
+
+    log.debug("Compacting {} as {} sub-ranges", extent, splitRows.size() + 1);
+    return toSubRanges(dataRange, splitRows);
+  }
+
+  /**
+   * @return the sub-ranges of the range that start at each of the sorted split rows, leaving out
+   *         the empty sub-range before a split row equal to the start of the range
+   */
+  static List<Range> toSubRanges(Range range, List<Text> splitRows) {
+    List<Range> subRanges = new ArrayList<>(splitRows.size() + 1);
+    Text prevRow = null;
+    for (Text row : splitRows) {
+      Range subRange = range.clip(new Range(prevRow, true, row, false), true);
+      if (subRange != null) {
+        subRanges.add(subRange);
+      }
+      prevRow = row;
+    }
+    subRanges.add(range.clip(new Range(prevRow, true, null, true)));
+    return subRanges;
+  }
+
+  private FileSKVIterator openIndex(TabletFile file) throws IOException {
+    FileSystem ns = this.fs.getFileSystemByPath(file.getPath());
+    return FileOperations.getInstance().newIndexReaderBuilder()
+        .forFile(file.getPathStr(), ns, ns.getConf(), cryptoService)
+        .withTableConfiguration(acuTableConf).build();
+  }
+
+  private SortedKeyValueIterator<Key,Value> createCompactionIterator(CountingIterator citr)
+      throws IOException {
+    SortedKeyValueIterator<Key,Value> delIter =
+        DeletingIterator.wrap(citr, propagateDeletes, DeletingIterator.getBehavior(acuTableConf));
+    ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
+
+    SystemIteratorEnvironment iterEnv =
+        env.createIteratorEnv(context, acuTableConf, getExtent().tableId());
+
+    return iterEnv.getTopLevelIterator(IteratorConfigUtil
+        .convertItersAndLoad(env.getIteratorScope(), cfsi, acuTableConf, iterators, iterEnv));
+  }
+
+  private void cancel(FileSKVWriter mfw) throws CompactionCanceledException {
+    try {
+      try {
+        mfw.close();
+      } catch (IOException e) {
+        log.error("{}", e.getMessage(), e);
+      }
+      fs.deleteRecursively(outputFile.getPath());
+    } catch (Exception e) {
+      log.warn("Failed to delete Canceled compaction output file {}", outputFile, e);
+    }
+    throw new CompactionCanceledException();
+  }
+
   private void compactLocalityGroup(String lgName, Set<ByteSequence> columnFamilies,
-      boolean inclusive, FileSKVWriter mfw, CompactionStats majCStats)
+      boolean inclusive, FileSKVWriter mfw, CompactionStats majCStats, List<Range> subRanges)
       throws IOException, CompactionCanceledException {
+    if (subRanges.size() > 1) {
+      compactLocalityGroupInParallel(lgName, columnFamilies, inclusive, mfw, majCStats, subRanges);
+      return;
+    }
+
     ArrayList<FileSKVIterator> readers = new ArrayList<>(filesToCompact.size());
     Span compactSpan = TraceUtil.startSpan(this.getClass(), "compact");
     try (Scope span = compactSpan.makeCurrent()) {
@@ -353,19 +635,11 @@ public class FileCompactor implements Callable<CompactionStats> {
 
       CountingIterator citr =
           new CountingIterator(new MultiIterator(iters, extent.toDataRange()), entriesRead);
-      SortedKeyValueIterator<Key,Value> delIter =
-          DeletingIterator.wrap(citr, propagateDeletes, DeletingIterator.getBehavior(acuTableConf));
-      ColumnFamilySkippingIterator cfsi = new ColumnFamilySkippingIterator(delIter);
-
-      // if(env.getIteratorScope() )
-
-      SystemIteratorEnvironment iterEnv =
-          env.createIteratorEnv(context, acuTableConf, getExtent().tableId());
-
-      SortedKeyValueIterator<Key,Value> itr = iterEnv.getTopLevelIterator(IteratorConfigUtil
-          .convertItersAndLoad(env.getIteratorScope(), cfsi, acuTableConf, iterators, iterEnv));
+      SortedKeyValueIterator<Key,Value> itr = createCompactionIterator(citr);
 
+      long seekStart = System.nanoTime();
       itr.seek(extent.toDataRange(), columnFamilies, inclusive);
+      readTime.addAndGet(System.nanoTime() - seekStart);
 
       if (inclusive) {
         mfw.startNewLocalityGroup(lgName, columnFamilies);
@@ -373,32 +647,36 @@ public class FileCompactor implements Callable<CompactionStats> {
         mfw.startDefaultLocalityGroup();
       }
 
+      TimingSample sample = newTimingSample(citr);
       Span writeSpan = TraceUtil.startSpan(this.getClass(), "write");
       try (Scope write = writeSpan.makeCurrent()) {
         while (itr.hasTop() && env.isCompactionEnabled()) {
-          mfw.append(itr.getTopKey(), itr.getTopValue());
-          itr.next();
+          if (startsTimedWindow(entriesCompacted)) {
+            sample.start();
+          }
+          if (sample.isStarted()) {
+            long start = System.nanoTime();
+            mfw.append(itr.getTopKey(), itr.getTopValue());
+            long appended = System.nanoTime();
+            itr.next();
+            sample.add(appended - start, System.nanoTime() - appended);
+          } else {
+            mfw.append(itr.getTopKey(), itr.getTopValue());
+            itr.next();
+          }
           entriesCompacted++;
 
           if (entriesCompacted % 1024 == 0) {
             // Periodically update stats, do not want to do this too often since its volatile
             entriesWritten.addAndGet(1024);
+            sample.end(entriesCompacted);
           }
         }
+        sample.end(entriesCompacted);
 
         if (itr.hasTop() && !env.isCompactionEnabled()) {
           // cancel major compaction operation
-          try {
-            try {
-              mfw.close();
-            } catch (IOException e) {
-              log.error("{}", e.getMessage(), e);
-            }
-            fs.deleteRecursively(outputFile.getPath());
-          } catch (Exception e) {
-            log.warn("Failed to delete Canceled compaction output file {}", outputFile, e);
-          }
-          throw new CompactionCanceledException();
+          cancel(mfw);
         }
 
       } finally {
@@ -423,6 +701,227 @@ public class FileCompactor implements Callable<CompactionStats> {
     }
   }
 
+  /**
+   * Compact a locality group by reading each sub-range on its own thread, while this thread writes
+   * the entries of the sub-ranges to the output file in order.
+   */
+  private void compactLocalityGroupInParallel(String lgName, Set<ByteSequence> columnFamilies,
+      boolean inclusive, FileSKVWriter mfw, CompactionStats majCStats, List<Range> subRanges)
+      throws IOException, CompactionCanceledException {
+    Span compactSpan = TraceUtil.startSpan(this.getClass(), "compact");
+    AtomicBoolean stop = new AtomicBoolean(false);
+    List<Future<?>> readerFutures = new ArrayList<>(subRanges.size());
+    try (Scope span = compactSpan.makeCurrent()) {
+      List<SubRangeReader> subRangeReaders = new ArrayList<>(subRanges.size());
+      for (Range range : subRanges) {
+        SubRangeReader subRangeReader = new SubRangeReader(range, columnFamilies, inclusive, stop);
+        subRangeReaders.add(subRangeReader);
+        readerFutures.add(SUB_RANGE_READERS.get().submit(subRangeReader));
+      }
+
+      if (inclusive) {
+        mfw.startNewLocalityGroup(lgName, columnFamilies);
+      } else {
+        mfw.startDefaultLocalityGroup();
+      }
+
+      long entriesCompacted = 0;
+      TimingSample sample = newTimingSample(null);
+      Span writeSpan = TraceUtil.startSpan(this.getClass(), "write");
+      try (Scope write = writeSpan.makeCurrent()) {
+        for (SubRangeReader subRangeReader : subRangeReaders) {
+          for (List<Entry<Key,Value>> batch = take(subRangeReader, mfw); !batch.isEmpty();
+              batch = take(subRangeReader, mfw)) {
+            for (Entry<Key,Value> entry : batch) {
+              if (!env.isCompactionEnabled()) {
+                // cancel major compaction operation
+                cancel(mfw);
+              }
+              if (startsTimedWindow(entriesCompacted)) {
+                sample.start();
+              }
+              if (sample.isStarted()) {
+                long start = System.nanoTime();
+                mfw.append(entry.getKey(), entry.getValue());
+                sample.add(System.nanoTime() - start, 0);
+              } else {
+                mfw.append(entry.getKey(), entry.getValue());
+              }
+              entriesCompacted++;
+
+              if (entriesCompacted % 1024 == 0) {
+                // Periodically update stats, do not want to do this too often since its volatile
+                entriesWritten.addAndGet(1024);
+                sample.end(entriesCompacted);
+              }
+            }
+          }
+        }
+        sample.end(entriesCompacted);
+      } finally {
+        long subRangesRead =
+            subRangeReaders.stream().mapToLong(subRangeReader -> subRangeReader.count).sum();
+        majCStats.add(new CompactionStats(subRangesRead, entriesCompacted));
+        writeSpan.end();
+      }
+    } catch (Exception e) {
+      TraceUtil.setException(compactSpan, e, true);
+      throw e;
+    } finally {
+      stop.set(true);
+      // interrupt readers blocked reading, and drop the ones that have not started
+      readerFutures.forEach(future -> future.cancel(true));
+      compactSpan.end();
+    }
+  }
+
+  /**
+   * Waits for the next batch of a sub-range, canceling the compaction if it is disabled while
+   * waiting for a reader that is slow or has not started yet.
+   */
+  private List<Entry<Key,Value>> take(SubRangeReader subRangeReader, FileSKVWriter mfw)
+      throws IOException, CompactionCanceledException {
+    List<Entry<Key,Value>> batch;
+    while ((batch = subRangeReader.poll()) == null) {
+      if (!env.isCompactionEnabled()) {
+        cancel(mfw);
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Reads the compaction's entries in a sub-range into a bounded buffer of batches. An empty batch
+   * marks the end of the sub-range.
+   */
+  private class SubRangeReader implements Runnable {
+
+    private final Range range;
+    private final Set<ByteSequence> columnFamilies;
+    private final boolean inclusive;
+    private final AtomicBoolean stop;
+    private final BlockingQueue<List<Entry<Key,Value>>> batches =
+        new ArrayBlockingQueue<>(SUB_RANGE_BUFFERED_BATCHES);
+
+    // these are set before the last batch is added, so are visible once it is taken
+    private volatile Exception error;
+    private volatile long count;
+
+    SubRangeReader(Range range, Set<ByteSequence> columnFamilies, boolean inclusive,
+        AtomicBoolean stop) {
+      this.range = range;
+      this.columnFamilies = columnFamilies;
+      this.inclusive = inclusive;
+      this.stop = stop;
+    }
+
+    @Override
+    public void run() {
+      if (stop.get()) {
+        return;
+      }
+      ArrayList<FileSKVIterator> readers = new ArrayList<>(filesToCompact.size());
+      try {
+        List<SortedKeyValueIterator<Key,Value>> iters = openMapDataFiles(readers);
+        CountingIterator citr =
+            new CountingIterator(new MultiIterator(iters, extent.toDataRange()), entriesRead);
+        SortedKeyValueIterator<Key,Value> itr = createCompactionIterator(citr);
+        long seekStart = System.nanoTime();
+        itr.seek(range, columnFamilies, inclusive);
+        readTime.addAndGet(System.nanoTime() - seekStart);
+
+        // the time this thread spends waiting for the writer is not counted
+        TimingSample sample = newTimingSample(citr);
+        long entries = 0;
+        List<Entry<Key,Value>> batch = new ArrayList<>();
+        long batchSize = 0;
+        while (itr.hasTop() && !stop.get()) {
+          if (startsTimedWindow(entries)) {
+            sample.start();
+          }
+          // the iterators may reuse the top key and value, so copy them
+          Key key = new Key(itr.getTopKey());
+          Value value = new Value(itr.getTopValue());
+          batch.add(new SimpleImmutableEntry<>(key, value));
+          batchSize += key.getSize() + value.getSize();
+          if (batchSize >= SUB_RANGE_BATCH_SIZE) {
+            if (!put(batch)) {
+              return;
+            }
+            batch = new ArrayList<>();
+            batchSize = 0;
+          }
+          if (sample.isStarted()) {
+            long start = System.nanoTime();
+            itr.next();
+            sample.add(0, System.nanoTime() - start);
+          } else {
+            itr.next();
+          }
+          entries++;
+          if (entries % 1024 == 0) {
+            sample.end(entries);
+          }
+        }
+        sample.end(entries);
+
+        count = citr.getCount();
+        if (!batch.isEmpty() && !put(batch)) {
+          return;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        error = e;
+      } catch (Exception e) {
+        error = e;
+      } finally {
+        for (FileSKVIterator reader : readers) {
+          try {
+            reader.close();
+          } catch (Exception e) {
+            log.warn("Failed to close map file", e);
+          }
+        }
+      }
+
+      try {
+        put(List.of());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * @return false if the compaction stopped before the batch could be added
+     */
+    private boolean put(List<Entry<Key,Value>> batch) throws InterruptedException {
+      while (!batches.offer(batch, 100, MILLISECONDS)) {
+        if (stop.get()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @return the next batch of entries, an empty batch at the end of the sub-range, or null if no
+     *         batch was added for a while
+     */
+    List<Entry<Key,Value>> poll() throws IOException {
+      List<Entry<Key,Value>> batch;
+      try {
+        batch = batches.poll(100, MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting to read " + range);
+      }
+      if (batch != null && batch.isEmpty() && error != null) {
+        throw new IOException("Failed to read " + range + " of " + extent, error);
+      }
+      return batch;
+    }
+  }
+
   Collection<StoredTabletFile> getFilesToCompact() {
     return filesToCompact.keySet();
   }
@@ -443,6 +942,26 @@ public class FileCompactor implements Callable<CompactionStats> {
     return entriesWritten.get();
   }
 
+  long getReadTime() {
+    return readTime.get();
+  }
+
+  long getIteratorTime() {
+    return iteratorTime.get();
+  }
+
+  long getWriteTime() {
+    return writeTime.get();
+  }
+
+  long getReadIoTime() {
+    return readIoTime.get();
+  }
+
+  long getWriteIoTime() {
+    return writeIoTime.get();
+  }
+
   long getStartTime() {
     return startTime;
   }
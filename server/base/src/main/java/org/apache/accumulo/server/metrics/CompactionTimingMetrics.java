@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.server.metrics;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.metrics.MetricsProducer;
+import org.apache.accumulo.server.compaction.CompactionStats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records where the time of completed major compactions was spent, tagged by compaction executor
+ * and table. Meters are never removed, so only the first {@value #MAX_TABLES} tables compacted get
+ * their own table tag, and the compactions of all other tables are recorded with the table tag
+ * {@value #OTHER_TABLES}. This keeps the number of meters bounded however many tables are created
+ * and deleted over the life of the server.
+ */
+public class CompactionTimingMetrics implements MetricsProducer {
+
+  static final int MAX_TABLES = 32;
+  static final String OTHER_TABLES = "other";
+
+  private final int maxTables;
+  private final Set<TableId> tables = new HashSet<>();
+  private volatile MeterRegistry registry = null;
+
+  public CompactionTimingMetrics() {
+    this(MAX_TABLES);
+  }
+
+  CompactionTimingMetrics(int maxTables) {
+    this.maxTables = maxTables;
+  }
+
+  public void record(String executorId, TableId tableId, CompactionStats stats) {
+    MeterRegistry reg = registry;
+    if (reg == null) {
+      return;
+    }
+    String table = getTableTag(tableId);
+    record(reg, METRICS_MAJC_TIME_READ_IO, executorId, table, stats.getReadIoTime());
+    record(reg, METRICS_MAJC_TIME_DECODE, executorId, table, stats.getDecodeTime());
+    record(reg, METRICS_MAJC_TIME_ITERATOR, executorId, table, stats.getIteratorTime());
+    record(reg, METRICS_MAJC_TIME_ENCODE, executorId, table, stats.getEncodeTime());
+    record(reg, METRICS_MAJC_TIME_WRITE_IO, executorId, table, stats.getWriteIoTime());
+  }
+
+  private synchronized String getTableTag(TableId tableId) {
+    if (tables.contains(tableId) || (tables.size() < maxTables && tables.add(tableId))) {
+      return tableId.canonical();
+    }
+    return OTHER_TABLES;
+  }
+
+  private static void record(MeterRegistry registry, String name, String executorId, String table,
+      long nanos) {
+    // registering an existing meter returns it
+    Timer.builder(name).tags("id", executorId, "table", table).register(registry).record(nanos,
+        TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public void registerMetrics(MeterRegistry registry) {
+    // Meters are registered as compactions complete, since the tags are not known up front.
+    this.registry = registry;
+  }
+
+}
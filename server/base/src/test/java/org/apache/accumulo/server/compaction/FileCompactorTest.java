@@ -0,0 +1,525 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.server.compaction;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArgument;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.file.FileOperations;
+import org.apache.accumulo.core.file.FileSKVIterator;
+import org.apache.accumulo.core.file.FileSKVWriter;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.IteratorUtil.IteratorScope;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.WrappingIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.SortedMapIterator;
+import org.apache.accumulo.core.metadata.StoredTabletFile;
+import org.apache.accumulo.core.metadata.TabletFile;
+import org.apache.accumulo.core.metadata.schema.DataFileValue;
+import org.apache.accumulo.core.spi.compaction.CompactionKind;
+import org.apache.accumulo.core.spi.crypto.NoCryptoServiceFactory;
+import org.apache.accumulo.core.tabletserver.thrift.TCompactionReason;
+import org.apache.accumulo.core.util.ratelimit.RateLimiter;
+import org.apache.accumulo.server.MockServerContext;
+import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.compaction.FileCompactor.CompactionCanceledException;
+import org.apache.accumulo.server.compaction.FileCompactor.CompactionEnv;
+import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.iterators.SystemIteratorEnvironment;
+import org.apache.accumulo.server.iterators.TabletIteratorEnvironment;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+@SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "paths not set by user input")
+public class FileCompactorTest {
+
+  private static final TableId TABLE_ID = TableId.of("1");
+  private static final KeyExtent EXTENT = new KeyExtent(TABLE_ID, null, null);
+  private static final int ROWS = 6000;
+
+  @TempDir
+  private static File tempDir;
+
+  private FileSystem fs;
+  private ConfigurationCopy tableConf;
+  private ServerContext context;
+  private Map<StoredTabletFile,DataFileValue> inputFiles;
+  private static final AtomicInteger outputs = new AtomicInteger();
+
+  /**
+   * Fails when it reaches the row set by the {@code row} option.
+   */
+  public static class FailingIterator extends WrappingIterator {
+    private String row;
+
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options,
+        IteratorEnvironment env) throws IOException {
+      super.init(source, options, env);
+      row = options.get("row");
+    }
+
+    private void check() {
+      if (super.hasTop() && super.getTopKey().getRow().toString().equals(row)) {
+        throw new IllegalStateException("failed reading " + row);
+      }
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive)
+        throws IOException {
+      super.seek(range, columnFamilies, inclusive);
+      check();
+    }
+
+    @Override
+    public void next() throws IOException {
+      super.next();
+      check();
+    }
+  }
+
+  /**
+   * Blocks until interrupted when it reaches the row set by the {@code row} option, counting down
+   * {@link #blocked} first and {@link #stopped} once interrupted.
+   */
+  public static class BlockingIterator extends WrappingIterator {
+    static volatile CountDownLatch blocked;
+    static volatile CountDownLatch stopped;
+    private String row;
+
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options,
+        IteratorEnvironment env) throws IOException {
+      super.init(source, options, env);
+      row = options.get("row");
+    }
+
+    @Override
+    public void next() throws IOException {
+      super.next();
+      if (super.hasTop() && super.getTopKey().getRow().toString().equals(row)) {
+        blocked.countDown();
+        try {
+          Thread.sleep(Long.MAX_VALUE);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          stopped.countDown();
+          throw new InterruptedIOException();
+        }
+      }
+    }
+  }
+
+  private static class TestEnv implements CompactionEnv {
+    private final ServerContext context;
+    private final boolean propagateDeletes;
+    private final BooleanSupplier enabled;
+
+    TestEnv(ServerContext context, boolean propagateDeletes, BooleanSupplier enabled) {
+      this.context = context;
+      this.propagateDeletes = propagateDeletes;
+      this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isCompactionEnabled() {
+      return enabled.getAsBoolean();
+    }
+
+    @Override
+    public IteratorScope getIteratorScope() {
+      return IteratorScope.majc;
+    }
+
+    @Override
+    public RateLimiter getReadLimiter() {
+      return null;
+    }
+
+    @Override
+    public RateLimiter getWriteLimiter() {
+      return null;
+    }
+
+    @Override
+    public SystemIteratorEnvironment createIteratorEnv(ServerContext context,
+        AccumuloConfiguration acuTableConf, TableId tableId) {
+      return new TabletIteratorEnvironment(this.context, IteratorScope.majc, !propagateDeletes,
+          acuTableConf, tableId, CompactionKind.USER);
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> getMinCIterator() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TCompactionReason getReason() {
+      return TCompactionReason.USER;
+    }
+  }
+
+  private static String row(int i) {
+    return String.format("r%05d", i);
+  }
+
+  private String tabletFile(String name) {
+    return "file:" + tempDir.getAbsolutePath() + "/accumulo/tables/1/t-0001/" + name;
+  }
+
+  @BeforeEach
+  public void setup() throws Exception {
+    fs = FileSystem.getLocal(new Configuration());
+
+    tableConf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    // small blocks give the input files enough index entries to split on
+    tableConf.set(Property.TABLE_FILE_COMPRESSED_BLOCK_SIZE, "1K");
+    tableConf.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "g1", "cf1");
+    tableConf.set(Property.TABLE_LOCALITY_GROUPS, "g1");
+
+    context = MockServerContext.get();
+    VolumeManager vm = EasyMock.createMock(VolumeManager.class);
+    expect(vm.getFileSystemByPath(anyObject())).andReturn(fs).anyTimes();
+    expect(vm.deleteRecursively(anyObject()))
+        .andAnswer(() -> fs.delete((Path) getCurrentArgument(0), true)).anyTimes();
+    expect(vm.exists(anyObject())).andAnswer(() -> fs.exists((Path) getCurrentArgument(0)))
+        .anyTimes();
+    expect(context.getVolumeManager()).andReturn(vm).anyTimes();
+    EasyMock.replay(context, vm);
+
+    // the oldest file has two columns in every row, the next a newer version of the first column
+    // in every other row, and the newest deletes the first column in every fifth row
+    List<TreeMap<Key,Value>> files = List.of(new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+    for (int i = 0; i < ROWS; i++) {
+      files.get(0).put(new Key(row(i), "cf1", "a", 1), new Value("f0"));
+      files.get(0).put(new Key(row(i), "cf2", "b", 1), new Value("f0"));
+      if (i % 2 == 0) {
+        files.get(1).put(new Key(row(i), "cf1", "a", 2), new Value("f1"));
+      }
+      if (i % 5 == 0) {
+        Key delete = new Key(row(i), "cf1", "a", 3);
+        delete.setDeleted(true);
+        files.get(2).put(delete, new Value());
+      }
+      if (i % 7 == 0) {
+        files.get(2).put(new Key(row(i), "cf3", "c", 3), new Value("f2"));
+      }
+    }
+
+    inputFiles = new TreeMap<>();
+    for (int f = 0; f < files.size(); f++) {
+      StoredTabletFile file = new StoredTabletFile(tabletFile("F000" + f + ".rf"));
+      fs.delete(file.getPath(), false);
+      FileSKVWriter writer = FileOperations.getInstance().newWriterBuilder()
+          .forFile(file.getPathStr(), fs, fs.getConf(), NoCryptoServiceFactory.NONE)
+          .withTableConfiguration(tableConf).build();
+      writer.startDefaultLocalityGroup();
+      for (Entry<Key,Value> entry : files.get(f).entrySet()) {
+        writer.append(entry.getKey(), entry.getValue());
+      }
+      writer.close();
+      // claim a size large enough for the compaction to be split
+      inputFiles.put(file, new DataFileValue(100_000_000, files.get(f).size()));
+    }
+  }
+
+  private FileCompactor createCompactor(int threads, boolean propagateDeletes,
+      BooleanSupplier enabled, List<IteratorSetting> iterators) {
+    ConfigurationCopy conf = new ConfigurationCopy(tableConf);
+    conf.set(Property.TABLE_MAJC_THREADS, Integer.toString(threads));
+    TabletFile output =
+        new TabletFile(new Path(tabletFile("A000" + outputs.getAndIncrement() + ".rf")));
+    return new FileCompactor(context, EXTENT, inputFiles, output, propagateDeletes,
+        new TestEnv(context, propagateDeletes, enabled), iterators, conf,
+        NoCryptoServiceFactory.NONE);
+  }
+
+  private List<Entry<Key,Value>> compact(int threads, boolean propagateDeletes) throws Exception {
+    FileCompactor compactor = createCompactor(threads, propagateDeletes, () -> true, List.of());
+    assertEquals(threads, compactor.getSubRanges().size());
+    compactor.call();
+
+    List<Entry<Key,Value>> entries = new ArrayList<>();
+    try (FileSKVIterator reader = FileOperations.getInstance().newReaderBuilder()
+        .forFile(compactor.getOutputFile(), fs, fs.getConf(), NoCryptoServiceFactory.NONE)
+        .withTableConfiguration(tableConf).seekToBeginning().build()) {
+      while (reader.hasTop()) {
+        entries.add(new SimpleImmutableEntry<>(new Key(reader.getTopKey()),
+            new Value(reader.getTopValue())));
+        reader.next();
+      }
+    }
+    return entries;
+  }
+
+  @Test
+  public void testParallelMatchesSerial() throws Exception {
+    for (boolean propagateDeletes : List.of(true, false)) {
+      List<Entry<Key,Value>> serial = compact(1, propagateDeletes);
+      List<Entry<Key,Value>> parallel = compact(4, propagateDeletes);
+      assertEquals(serial, parallel);
+
+      long deletes = serial.stream().filter(e -> e.getKey().isDeleted()).count();
+      assertEquals(propagateDeletes ? ROWS / 5 : 0, deletes);
+      // cf1 survives in rows not deleted, in two versions in even rows, cf2 in every row
+      int expected = 0;
+      for (int i = 0; i < ROWS; i++) {
+        expected += (i % 5 == 0 ? 0 : i % 2 == 0 ? 2 : 1) + 1 + (i % 7 == 0 ? 1 : 0);
+      }
+      assertEquals(expected + deletes, serial.size());
+    }
+  }
+
+  @Test
+  public void testIoTimes() throws Exception {
+    for (int threads : List.of(1, 4)) {
+      CompactionStats stats = createCompactor(threads, false, () -> true, List.of()).call();
+      // every input file is read and the output file is written through the file system
+      assertTrue(stats.getReadIoTime() > 0);
+      assertTrue(stats.getWriteIoTime() > 0);
+      assertTrue(stats.getDecodeTime() >= 0);
+      assertTrue(stats.getEncodeTime() >= 0);
+    }
+  }
+
+  @Test
+  public void testCancelStopsReaders() throws Exception {
+    BlockingIterator.blocked = new CountDownLatch(1);
+    BlockingIterator.stopped = new CountDownLatch(1);
+    // cancel once the reader of the first sub-range is blocked, before it has added any batch, so
+    // the cancellation is noticed while waiting for the reader
+    FileCompactor compactor =
+        createCompactor(4, false, () -> BlockingIterator.blocked.getCount() > 0,
+            List.of(new IteratorSetting(50, BlockingIterator.class, Map.of("row", row(9)))));
+
+    assertThrows(CompactionCanceledException.class, compactor::call);
+    assertFalse(fs.exists(new Path(compactor.getOutputFile())));
+    assertTrue(BlockingIterator.stopped.await(10, SECONDS));
+  }
+
+  @Test
+  public void testConcurrentCompactionsShareReaders() throws Exception {
+    List<Entry<Key,Value>> serial = compact(1, false);
+    // more sub-ranges than the shared pool has threads, written by compactions that each hold
+    // readers in the pool
+    List<Future<List<Entry<Key,Value>>>> futures = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      for (int i = 0; i < 3; i++) {
+        futures.add(executor.submit(() -> compact(8, false)));
+      }
+      for (Future<List<Entry<Key,Value>>> future : futures) {
+        assertEquals(serial, future.get(60, SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testReaderErrorReachesCaller() throws Exception {
+    FileCompactor compactor = createCompactor(4, false, () -> true,
+        List.of(new IteratorSetting(50, FailingIterator.class, Map.of("row", row(ROWS * 2 / 3)))));
+
+    var e = assertThrows(IOException.class, compactor::call);
+    Throwable cause = e;
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    assertEquals("failed reading " + row(ROWS * 2 / 3), cause.getMessage());
+    assertFalse(fs.exists(new Path(compactor.getOutputFile())));
+  }
+
+  @Test
+  public void testToSubRanges() {
+    Range range = new KeyExtent(TableId.of("1"), new Text("m"), new Text("c")).toDataRange();
+
+    List<Range> subRanges = FileCompactor.toSubRanges(range, List.of(new Text("e"), new Text("h")));
+    assertEquals(3, subRanges.size());
+
+    Range first = subRanges.get(0);
+    assertFalse(first.contains(new Key("c")));
+    assertTrue(first.contains(new Key("d")));
+    assertTrue(first.contains(new Key("dzzz", "cf", "cq")));
+    assertFalse(first.contains(new Key("e")));
+
+    Range second = subRanges.get(1);
+    assertTrue(second.contains(new Key("e")));
+    assertTrue(second.contains(new Key("g", "cf", "cq")));
+    assertFalse(second.contains(new Key("h")));
+
+    Range last = subRanges.get(2);
+    assertTrue(last.contains(new Key("h")));
+    assertTrue(last.contains(new Key("m", "cf", "cq")));
+    assertFalse(last.contains(new Key("ma")));
+
+    // every row of the range is in exactly one sub-range
+    for (String row : List.of("ca", "d", "e", "f", "h", "l", "m")) {
+      Key key = new Key(row, "cf", "cq");
+      assertEquals(1, subRanges.stream().filter(r -> r.contains(key)).count(), row);
+    }
+
+    assertEquals(List.of(range), FileCompactor.toSubRanges(range, List.of()));
+
+    // a split at the first row of the range leaves nothing before it
+    Text firstRow = range.getStartKey().getRow();
+    subRanges = FileCompactor.toSubRanges(range, List.of(firstRow, new Text("h")));
+    assertEquals(2, subRanges.size());
+    assertTrue(subRanges.get(0).contains(new Key(firstRow)));
+    assertFalse(subRanges.get(0).contains(new Key("h")));
+    assertTrue(subRanges.get(1).contains(new Key("h")));
+  }
+
+  @Test
+  public void testTimingSampleScalesToEntries() {
+    AtomicLong readTime = new AtomicLong();
+    AtomicLong iteratorTime = new AtomicLong();
+    AtomicLong writeTime = new AtomicLong();
+    var sample = new FileCompactor.TimingSample(null, readTime, iteratorTime, writeTime);
+
+    // nothing timed yet, so nothing can be estimated
+    sample.end(1024);
+    assertEquals(0, writeTime.get());
+
+    sample.start();
+    for (int i = 0; i < 1024; i++) {
+      sample.add(10, 30);
+    }
+    sample.end(1024);
+    assertFalse(sample.isStarted());
+    assertEquals(0, readTime.get());
+    assertEquals(30 * 1024, iteratorTime.get());
+    assertEquals(10 * 1024, writeTime.get());
+
+    // entries processed after the timed window are estimated from it
+    sample.end(3000);
+    assertEquals(30 * 3000, iteratorTime.get());
+    assertEquals(10 * 3000, writeTime.get());
+
+    // a second timed window refines the estimate for every entry processed
+    sample.start();
+    for (int i = 0; i < 1024; i++) {
+      sample.add(20, 30);
+    }
+    sample.end(4096);
+    assertEquals(15 * 4096, writeTime.get());
+    assertEquals(30 * 4096, iteratorTime.get());
+  }
+
+  @Test
+  public void testTimingSampleEndedEarly() {
+    AtomicLong readTime = new AtomicLong();
+    AtomicLong iteratorTime = new AtomicLong();
+    AtomicLong writeTime = new AtomicLong();
+    var sample = new FileCompactor.TimingSample(null, readTime, iteratorTime, writeTime);
+
+    // a compaction that ends part way through its first window is only charged for its entries
+    sample.start();
+    for (int i = 0; i < 100; i++) {
+      sample.add(10, 0);
+    }
+    sample.end(100);
+    assertEquals(10 * 100, writeTime.get());
+
+    // the totals are shared with whatever else the compaction adds to them
+    writeTime.addAndGet(5);
+    sample.end(150);
+    assertEquals(10 * 150 + 5, writeTime.get());
+  }
+
+  @Test
+  public void testTimingSampleRead() throws Exception {
+    TreeMap<Key,Value> data = new TreeMap<>();
+    for (int i = 0; i < 20; i++) {
+      data.put(new Key(row(i)), new Value("v"));
+    }
+    CountingIterator citr = new CountingIterator(new SortedMapIterator(data), new AtomicLong());
+    citr.seek(new Range(), List.of(), false);
+
+    AtomicLong readTime = new AtomicLong();
+    AtomicLong iteratorTime = new AtomicLong();
+    AtomicLong writeTime = new AtomicLong();
+    var sample = new FileCompactor.TimingSample(citr, readTime, iteratorTime, writeTime);
+
+    sample.start();
+    for (int i = 0; i < 10; i++) {
+      long start = System.nanoTime();
+      citr.next();
+      sample.add(0, System.nanoTime() - start);
+    }
+    sample.end(10);
+    long read = readTime.get();
+    assertTrue(read > 0);
+    assertEquals(read, citr.getReadTime());
+    // the time spent in next that was not spent reading is the iterators'
+    assertTrue(iteratorTime.get() >= 0);
+
+    // calls to next outside of a timed window are not timed, only estimated
+    while (citr.hasTop()) {
+      citr.next();
+    }
+    assertEquals(read, citr.getReadTime());
+    sample.end(20);
+    assertEquals(2 * read, readTime.get());
+  }
+}
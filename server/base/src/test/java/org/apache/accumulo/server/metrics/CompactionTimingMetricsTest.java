@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.server.metrics;
+
+import static org.apache.accumulo.core.metrics.MetricsProducer.METRICS_MAJC_TIME_DECODE;
+import static org.apache.accumulo.core.metrics.MetricsProducer.METRICS_MAJC_TIME_ENCODE;
+import static org.apache.accumulo.core.metrics.MetricsProducer.METRICS_MAJC_TIME_ITERATOR;
+import static org.apache.accumulo.core.metrics.MetricsProducer.METRICS_MAJC_TIME_READ_IO;
+import static org.apache.accumulo.core.metrics.MetricsProducer.METRICS_MAJC_TIME_WRITE_IO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.server.compaction.CompactionStats;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CompactionTimingMetricsTest {
+
+  private static CompactionStats stats(long read, long iterator, long write, long readIo,
+      long writeIo) {
+    CompactionStats stats = new CompactionStats(10, 10);
+    stats.setTimes(read, iterator, write);
+    stats.setIoTimes(readIo, writeIo);
+    return stats;
+  }
+
+  private static Timer timer(SimpleMeterRegistry registry, String name, String id, String table) {
+    return registry.get(name).tag("id", id).tag("table", table).timer();
+  }
+
+  @Test
+  public void testRecord() {
+    TableId table = TableId.of("1");
+    CompactionTimingMetrics metrics = new CompactionTimingMetrics();
+    // nothing is recorded before the registry is known
+    metrics.record("i.cs1.small", table, stats(1, 1, 1, 0, 0));
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    metrics.registerMetrics(registry);
+    metrics.record("i.cs1.small", table, stats(100, 20, 300, 30, 200));
+    metrics.record("i.cs1.small", table, stats(200, 40, 600, 50, 400));
+    metrics.record("e.q1", table, stats(5, 6, 7, 1, 2));
+
+    Timer readIo = timer(registry, METRICS_MAJC_TIME_READ_IO, "i.cs1.small", "1");
+    assertEquals(2, readIo.count());
+    assertEquals(80, readIo.totalTime(TimeUnit.NANOSECONDS));
+    // the time spent decoding is the read time that was not spent in file system reads
+    assertEquals(220, timer(registry, METRICS_MAJC_TIME_DECODE, "i.cs1.small", "1")
+        .totalTime(TimeUnit.NANOSECONDS));
+    assertEquals(60, timer(registry, METRICS_MAJC_TIME_ITERATOR, "i.cs1.small", "1")
+        .totalTime(TimeUnit.NANOSECONDS));
+    assertEquals(300, timer(registry, METRICS_MAJC_TIME_ENCODE, "i.cs1.small", "1")
+        .totalTime(TimeUnit.NANOSECONDS));
+    Timer writeIo = timer(registry, METRICS_MAJC_TIME_WRITE_IO, "e.q1", "1");
+    assertEquals(1, writeIo.count());
+    assertEquals(2, writeIo.totalTime(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void testDecodeNotNegative() {
+    // the read time is estimated from samples and can be less than the measured I/O time
+    CompactionTimingMetrics metrics = new CompactionTimingMetrics();
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    metrics.registerMetrics(registry);
+    metrics.record("e.q1", TableId.of("1"), stats(10, 0, 10, 20, 20));
+
+    assertEquals(0,
+        timer(registry, METRICS_MAJC_TIME_DECODE, "e.q1", "1").totalTime(TimeUnit.NANOSECONDS));
+    assertEquals(0,
+        timer(registry, METRICS_MAJC_TIME_ENCODE, "e.q1", "1").totalTime(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void testMaxTables() {
+    CompactionTimingMetrics metrics = new CompactionTimingMetrics(2);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    metrics.registerMetrics(registry);
+    for (int i = 0; i < 10; i++) {
+      metrics.record("e.q1", TableId.of("" + i), stats(1, 1, 1, 1, 1));
+    }
+    // tables that already have a tag keep it after the limit is reached
+    metrics.record("e.q1", TableId.of("1"), stats(1, 1, 1, 1, 1));
+
+    assertEquals(3, registry.get(METRICS_MAJC_TIME_READ_IO).timers().size());
+    assertEquals(1, timer(registry, METRICS_MAJC_TIME_READ_IO, "e.q1", "0").count());
+    assertEquals(2, timer(registry, METRICS_MAJC_TIME_READ_IO, "e.q1", "1").count());
+    assertEquals(8,
+        timer(registry, METRICS_MAJC_TIME_READ_IO, "e.q1", CompactionTimingMetrics.OTHER_TABLES)
+            .count());
+  }
+}
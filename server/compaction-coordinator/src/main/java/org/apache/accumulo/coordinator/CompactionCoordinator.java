@@ -22,13 +22,16 @@ import static org.apache.accumulo.fate.util.UtilWaitThread.sleepUninterruptibly;
 
 import java.lang.reflect.InvocationTargetException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -122,6 +125,8 @@ public class CompactionCoordinator extends AbstractServer
   protected volatile Boolean shutdown = false;
 
   private ScheduledThreadPoolExecutor schedExecutor;
+  // created on first use and reused for every gathering of summaries from the tservers
+  private ExecutorService summaryGatherer;
 
   protected CompactionCoordinator(ServerOpts opts, String[] args) {
     this(opts, args, null);
@@ -306,39 +311,46 @@ public class CompactionCoordinator extends AbstractServer
       }
     }
 
+    if (summaryGatherer != null) {
+      summaryGatherer.shutdownNow();
+    }
     LOG.info("Shutting down");
   }
 
   private void updateSummaries() {
-    ExecutorService executor = ThreadPools.getServerThreadPools().createFixedThreadPool(10,
-        "Compaction Summary Gatherer", false);
-    try {
-      Set<String> queuesSeen = new ConcurrentSkipListSet<>();
+    if (summaryGatherer == null) {
+      summaryGatherer = ThreadPools.getServerThreadPools().createFixedThreadPool(10,
+          "Compaction Summary Gatherer", false);
+    }
 
-      tserverSet.getCurrentServers().forEach(tsi -> {
-        executor.execute(() -> updateSummaries(tsi, queuesSeen));
-      });
+    Set<String> queuesSeen = new ConcurrentSkipListSet<>();
 
-      executor.shutdown();
+    // Each tserver's summaries are added as soon as they arrive, so compactors waiting for work
+    // can start on them before the remaining tservers respond.
+    List<Future<?>> futures = new ArrayList<>();
+    tserverSet.getCurrentServers().forEach(tsi -> {
+      futures.add(summaryGatherer.submit(() -> updateSummaries(tsi, queuesSeen)));
+    });
 
+    for (Future<?> future : futures) {
       try {
-        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {}
+        future.get();
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        LOG.warn("Error getting external compaction summaries", e.getCause());
       }
+    }
 
-      // remove any queues that were seen in the past, but were not seen in the latest gathering of
-      // summaries
-      TIME_COMPACTOR_LAST_CHECKED.keySet().retainAll(queuesSeen);
+    // remove any queues that were seen in the past, but were not seen in the latest gathering of
+    // summaries
+    TIME_COMPACTOR_LAST_CHECKED.keySet().retainAll(queuesSeen);
 
-      // add any queues that were never seen before
-      queuesSeen.forEach(q -> {
-        TIME_COMPACTOR_LAST_CHECKED.computeIfAbsent(q, k -> System.currentTimeMillis());
-      });
-    } finally {
-      executor.shutdownNow();
-    }
+    // add any queues that were never seen before
+    queuesSeen.forEach(q -> {
+      TIME_COMPACTOR_LAST_CHECKED.computeIfAbsent(q, k -> System.currentTimeMillis());
+    });
   }
 
   private void updateSummaries(TServerInstance tsi, Set<String> queuesSeen) {
@@ -423,6 +435,44 @@ public class CompactionCoordinator extends AbstractServer
     LOG.trace("getCompactionJob called for queue {} by compactor {}", queue, compactorAddress);
     TIME_COMPACTOR_LAST_CHECKED.put(queue, System.currentTimeMillis());
 
+    TExternalCompactionJob result =
+        reserveCompactionJob(queue, compactorAddress, externalCompactionId);
+
+    // Rather than have an idle compactor sleep and poll again, hold its request until a tserver
+    // reports work for the queue. Held requests each take a thrift handler thread, so only a
+    // limited number are held and the rest are answered right away.
+    final long deadline = System.currentTimeMillis() + getMaxJobWaitTime();
+    final int maxWaiters = getMaxJobWaiters();
+    while (result == null && !shutdown) {
+      long remaining = deadline - System.currentTimeMillis();
+      try {
+        if (remaining <= 0 || !QUEUE_SUMMARIES.waitForTserver(queue, remaining, maxWaiters)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+      result = reserveCompactionJob(queue, compactorAddress, externalCompactionId);
+    }
+
+    if (result == null) {
+      LOG.trace("No tservers found for queue {}, returning empty job to compactor {}", queue,
+          compactorAddress);
+      result = new TExternalCompactionJob();
+    }
+
+    return result;
+
+  }
+
+  /**
+   * Reserve a compaction job for the compactor from the tservers that reported work for the queue
+   *
+   * @return the job, or null if no tserver had a job
+   */
+  private TExternalCompactionJob reserveCompactionJob(String queue, String compactorAddress,
+      String externalCompactionId) {
     TExternalCompactionJob result = null;
 
     PrioTserver prioTserver = QUEUE_SUMMARIES.getNextTserver(queue);
@@ -461,14 +511,15 @@ public class CompactionCoordinator extends AbstractServer
       }
     }
 
-    if (result == null) {
-      LOG.trace("No tservers found for queue {}, returning empty job to compactor {}", queue,
-          compactorAddress);
-      result = new TExternalCompactionJob();
-    }
-
     return result;
+  }
+
+  protected long getMaxJobWaitTime() {
+    return getConfiguration().getTimeInMillis(Property.COMPACTION_COORDINATOR_JOB_WAIT_MAX);
+  }
 
+  protected int getMaxJobWaiters() {
+    return getConfiguration().getCount(Property.COMPACTION_COORDINATOR_JOB_WAITERS_MAX);
   }
 
   /**
@@ -30,6 +30,8 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.accumulo.core.metadata.TServerInstance;
 import org.apache.accumulo.core.tabletserver.thrift.TCompactionQueueSummary;
@@ -50,6 +52,15 @@ public class QueueSummaries {
   /* index of tserver to queue and priority, exists to provide O(1) lookup into QUEUES */
   final Map<TServerInstance,Set<QueueAndPriority>> INDEX = new HashMap<>();
 
+  /*
+   * Map of external queue name to the object compactors waiting for work on that queue wait on.
+   * Waiting on a per queue object means new work for one queue only wakes the compactors waiting on
+   * that queue. Entries are never removed, so a waiter and a notifier always see the same object.
+   */
+  private final Map<String,Object> queueSignals = new ConcurrentHashMap<>();
+  // the number of threads in waitForTserver
+  private final AtomicInteger waiters = new AtomicInteger();
+
   private Entry<Short,TreeSet<TServerInstance>> getNextTserverEntry(String queue) {
     TreeMap<Short,TreeSet<TServerInstance>> m = QUEUES.get(queue);
     if (m == null) {
@@ -135,7 +146,60 @@ public class QueueSummaries {
     return result;
   }
 
-  synchronized void update(TServerInstance tsi, List<TCompactionQueueSummary> summaries) {
+  private synchronized boolean hasTserver(String queue) {
+    return QUEUES.containsKey(queue);
+  }
+
+  /**
+   * Waits up to the given time for a tserver to have a summary for the queue. This does not hold
+   * the lock on this object while waiting. If the given number of threads are already waiting for
+   * any queue, this returns right away.
+   *
+   * @return true if a tserver has a summary for the queue
+   */
+  boolean waitForTserver(String queue, long maxWaitMillis, int maxWaiters)
+      throws InterruptedException {
+    try {
+      if (waiters.incrementAndGet() > maxWaiters) {
+        return hasTserver(queue);
+      }
+      long deadline = System.currentTimeMillis() + maxWaitMillis;
+      Object signal = queueSignals.computeIfAbsent(queue, k -> new Object());
+      synchronized (signal) {
+        while (!hasTserver(queue)) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            return false;
+          }
+          signal.wait(remaining);
+        }
+      }
+      return true;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  void update(TServerInstance tsi, List<TCompactionQueueSummary> summaries) {
+    Set<String> queues = updateSummaries(tsi, summaries);
+
+    // Notify outside of the lock on this object, a waiter holds its signal while checking for a
+    // tserver so it can not miss this.
+    queues.forEach(queue -> {
+      Object signal = queueSignals.get(queue);
+      if (signal != null) {
+        synchronized (signal) {
+          signal.notifyAll();
+        }
+      }
+    });
+  }
+
+  /**
+   * @return the queues the tserver reported work for
+   */
+  private synchronized Set<String> updateSummaries(TServerInstance tsi,
+      List<TCompactionQueueSummary> summaries) {
 
     if (log.isTraceEnabled()) {
       Map<String,List<Short>> summariesToLog = new TreeMap<>();
@@ -160,10 +224,13 @@ public class QueueSummaries {
 
     INDEX.put(tsi, newQP);
 
+    Set<String> queues = new HashSet<>();
     newQP.forEach(qp -> {
       QUEUES.computeIfAbsent(qp.getQueue(), k -> new TreeMap<>(Comparator.reverseOrder()))
           .computeIfAbsent(qp.getPriority(), k -> new TreeSet<>()).add(tsi);
+      queues.add(qp.getQueue());
     });
+    return queues;
   }
 
   synchronized void removeSummary(TServerInstance tsi, String queue, short priority) {
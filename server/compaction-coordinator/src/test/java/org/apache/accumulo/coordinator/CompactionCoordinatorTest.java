@@ -19,6 +19,7 @@
 package org.apache.accumulo.coordinator;
 
 import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyShort;
 import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -86,6 +87,7 @@ public class CompactionCoordinatorTest {
     private final ServerContext context;
     private final ServerAddress client;
     private final TabletClientService.Client tabletServerClient;
+    private long maxJobWaitTime = 0L;
 
     protected TestCoordinator(CompactionFinalizer finalizer, LiveTServerSet tservers,
         ServerAddress client, TabletClientService.Client tabletServerClient, ServerContext context,
@@ -108,6 +110,15 @@ public class CompactionCoordinatorTest {
       return 0L;
     }
 
+    @Override
+    protected long getMaxJobWaitTime() {
+      return maxJobWaitTime;
+    }
+
+    public void setMaxJobWaitTime(long maxJobWaitTime) {
+      this.maxJobWaitTime = maxJobWaitTime;
+    }
+
     @Override
     protected void startCompactionCleaner(ScheduledThreadPoolExecutor schedExecutor) {}
 
@@ -586,4 +597,135 @@ public class CompactionCoordinatorTest {
     coordinator.close();
   }
 
+  @Test
+  public void testGetCompactionJobNextTserver() throws Exception {
+    PowerMock.resetAll();
+    PowerMock.suppress(PowerMock.constructor(AbstractServer.class));
+    PowerMock.suppress(PowerMock.methods(ThriftUtil.class, "returnClient"));
+
+    ServerContext context = PowerMock.createNiceMock(ServerContext.class);
+    expect(context.getConfiguration()).andReturn(DefaultConfiguration.getInstance()).anyTimes();
+
+    TCredentials creds = PowerMock.createNiceMock(TCredentials.class);
+    expect(context.rpcCreds()).andReturn(creds).anyTimes();
+
+    PowerMock.mockStatic(ExternalCompactionUtil.class);
+    expect(ExternalCompactionUtil.getCompactionsRunningOnCompactors(context))
+        .andReturn(new ArrayList<>());
+
+    CompactionFinalizer finalizer = PowerMock.createNiceMock(CompactionFinalizer.class);
+    LiveTServerSet tservers = PowerMock.createNiceMock(LiveTServerSet.class);
+    TServerInstance ts1 = new TServerInstance("localhost:9997", 1);
+    TServerInstance ts2 = new TServerInstance("localhost:9998", 1);
+    expect(tservers.getCurrentServers()).andReturn(Set.of(ts1, ts2)).once();
+
+    ServerAddress client = PowerMock.createNiceMock(ServerAddress.class);
+    HostAndPort address = HostAndPort.fromString("localhost:10240");
+    expect(client.getAddress()).andReturn(address).anyTimes();
+
+    TabletClientService.Client tsc = PowerMock.createNiceMock(TabletClientService.Client.class);
+    expect(tsc.getCompactionQueueInfo(anyObject(), anyObject()))
+        .andReturn(List.of(new TCompactionQueueSummary("R2DQ", (short) 1))).anyTimes();
+
+    // the first tserver asked no longer has a job, so the coordinator moves on to the other one
+    ExternalCompactionId eci = ExternalCompactionId.generate(UUID.randomUUID());
+    TExternalCompactionJob job = new TExternalCompactionJob();
+    job.setExternalCompactionId(eci.toString());
+    expect(tsc.reserveCompactionJob(anyObject(), anyObject(), anyObject(), anyShort(), anyObject(),
+        anyObject())).andReturn(new TExternalCompactionJob()).once().andReturn(job).once();
+
+    AuditedSecurityOperation security = PowerMock.createNiceMock(AuditedSecurityOperation.class);
+    expect(security.canPerformSystemActions(creds)).andReturn(true);
+
+    PowerMock.replayAll();
+
+    var coordinator = new TestCoordinator(finalizer, tservers, client, tsc, context, security);
+    coordinator.resetInternals();
+    coordinator.run();
+    assertEquals(2, coordinator.getQueues().get("R2DQ").get((short) 1).size());
+
+    TExternalCompactionJob createdJob = coordinator.getCompactionJob(TraceUtil.traceInfo(), creds,
+        "R2DQ", "localhost:10241", eci.toString());
+    assertEquals(eci.toString(), createdJob.getExternalCompactionId());
+
+    // only the tserver without work was removed from the queue
+    assertEquals(1, coordinator.getQueues().get("R2DQ").get((short) 1).size());
+    assertEquals(1, coordinator.getIndex().size());
+    assertEquals(1, coordinator.getRunning().size());
+
+    PowerMock.verifyAll();
+    coordinator.resetInternals();
+    coordinator.close();
+  }
+
+  @Test
+  public void testGetCompactionJobWaitsForWork() throws Exception {
+    PowerMock.resetAll();
+    PowerMock.suppress(PowerMock.constructor(AbstractServer.class));
+    PowerMock.suppress(PowerMock.methods(ThriftUtil.class, "returnClient"));
+
+    ServerContext context = PowerMock.createNiceMock(ServerContext.class);
+    expect(context.getConfiguration()).andReturn(DefaultConfiguration.getInstance()).anyTimes();
+
+    TCredentials creds = PowerMock.createNiceMock(TCredentials.class);
+    expect(context.rpcCreds()).andReturn(creds).anyTimes();
+
+    PowerMock.mockStatic(ExternalCompactionUtil.class);
+    expect(ExternalCompactionUtil.getCompactionsRunningOnCompactors(context))
+        .andReturn(new ArrayList<>());
+
+    CompactionFinalizer finalizer = PowerMock.createNiceMock(CompactionFinalizer.class);
+    LiveTServerSet tservers = PowerMock.createNiceMock(LiveTServerSet.class);
+    TServerInstance ts1 = new TServerInstance("localhost:9997", 1);
+    expect(tservers.getCurrentServers()).andReturn(Set.of(ts1)).once();
+
+    ServerAddress client = PowerMock.createNiceMock(ServerAddress.class);
+    HostAndPort address = HostAndPort.fromString("localhost:10240");
+    expect(client.getAddress()).andReturn(address).anyTimes();
+
+    TabletClientService.Client tsc = PowerMock.createNiceMock(TabletClientService.Client.class);
+    expect(tsc.getCompactionQueueInfo(anyObject(), anyObject()))
+        .andReturn(List.of(new TCompactionQueueSummary("R2DQ", (short) 1))).anyTimes();
+
+    ExternalCompactionId eci = ExternalCompactionId.generate(UUID.randomUUID());
+    TExternalCompactionJob job = new TExternalCompactionJob();
+    job.setExternalCompactionId(eci.toString());
+    expect(tsc.reserveCompactionJob(anyObject(), anyObject(), anyObject(), anyShort(), anyObject(),
+        anyObject())).andReturn(job).once();
+
+    AuditedSecurityOperation security = PowerMock.createNiceMock(AuditedSecurityOperation.class);
+    expect(security.canPerformSystemActions(creds)).andReturn(true);
+
+    PowerMock.replayAll();
+
+    var coordinator = new TestCoordinator(finalizer, tservers, client, tsc, context, security);
+    coordinator.resetInternals();
+    coordinator.setMaxJobWaitTime(60_000);
+
+    // no tserver has reported work yet, so the request is held
+    TExternalCompactionJob[] createdJob = new TExternalCompactionJob[1];
+    Thread compactor = new Thread(() -> {
+      try {
+        createdJob[0] = coordinator.getCompactionJob(TraceUtil.traceInfo(), creds, "R2DQ",
+            "localhost:10241", eci.toString());
+      } catch (ThriftSecurityException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    compactor.start();
+    while (compactor.getState() != Thread.State.TIMED_WAITING) {
+      Thread.sleep(10);
+    }
+
+    // the held request is handed the job as soon as the tserver reports work
+    coordinator.run();
+    compactor.join(30_000);
+    assertNotNull(createdJob[0]);
+    assertEquals(eci.toString(), createdJob[0].getExternalCompactionId());
+    assertEquals(1, coordinator.getRunning().size());
+
+    PowerMock.verifyAll();
+    coordinator.resetInternals();
+    coordinator.close();
+  }
 }
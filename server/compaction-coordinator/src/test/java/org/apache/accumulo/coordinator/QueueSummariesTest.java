@@ -19,11 +19,21 @@
 package org.apache.accumulo.coordinator;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.accumulo.coordinator.QueueSummaries.PrioTserver;
 import org.apache.accumulo.core.metadata.TServerInstance;
@@ -191,4 +201,95 @@ public class QueueSummariesTest {
       assertNull(queueSum.getNextTserver("q3"));
     }
   }
+
+  @Test
+  public void testWaitForTserver() throws Exception {
+    QueueSummaries queueSum = new QueueSummaries();
+
+    assertFalse(queueSum.waitForTserver("q1", 10, 10));
+
+    CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return queueSum.waitForTserver("q1", 60_000, 10);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+
+    // work reported for another queue should not end the wait
+    update(queueSum, "ts1", "q2", "5");
+    Thread.sleep(100);
+    assertFalse(waiting.isDone());
+
+    update(queueSum, "ts2", "q1", "5");
+    assertTrue(waiting.get(30, TimeUnit.SECONDS));
+    assertTrue(queueSum.waitForTserver("q1", 0, 10));
+  }
+
+  @Test
+  public void testConcurrentGetNextTserver() throws Exception {
+    QueueSummaries queueSum = new QueueSummaries();
+    for (int i = 0; i < 4; i++) {
+      update(queueSum, "ts" + i, "q1", "5", "q1", "3");
+    }
+
+    // compactors asking at the same time are spread over the tservers with the highest priority
+    // work, so their reservation calls go to different tservers
+    ExecutorService compactors = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<PrioTserver>> futures = new ArrayList<>();
+      for (int i = 0; i < 400; i++) {
+        futures.add(compactors.submit(() -> queueSum.getNextTserver("q1")));
+      }
+      Map<TServerInstance,Integer> counts = new HashMap<>();
+      for (Future<PrioTserver> future : futures) {
+        PrioTserver pt = future.get(30, TimeUnit.SECONDS);
+        assertEquals(5, pt.prio);
+        counts.merge(pt.tserver, 1, Integer::sum);
+      }
+      assertEquals(4, counts.size());
+      counts.values().forEach(count -> assertEquals(100, count));
+    } finally {
+      compactors.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testMaxWaiters() throws Exception {
+    QueueSummaries queueSum = new QueueSummaries();
+
+    // stands in for the threads handling coordinator requests
+    ThreadPoolExecutor handlers = (ThreadPoolExecutor) Executors.newFixedThreadPool(3);
+    try {
+      List<Future<Boolean>> parked = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        parked.add(handlers.submit(() -> queueSum.waitForTserver("q1", 60_000, 2)));
+      }
+      while (handlers.getActiveCount() < 2) {
+        Thread.sleep(10);
+      }
+      Thread.sleep(100);
+      parked.forEach(future -> assertFalse(future.isDone()));
+
+      // another request for a job is answered right away instead of taking the last thread, so
+      // requests like compaction completions still run
+      assertFalse(handlers.submit(() -> queueSum.waitForTserver("q2", 60_000, 2)).get(30,
+          TimeUnit.SECONDS));
+      assertEquals("completed", handlers.submit(() -> "completed").get(30, TimeUnit.SECONDS));
+
+      update(queueSum, "ts1", "q1", "5");
+      for (Future<Boolean> future : parked) {
+        assertTrue(future.get(30, TimeUnit.SECONDS));
+      }
+
+      // once the waiters are done, requests are held again
+      Future<Boolean> waiting = handlers.submit(() -> queueSum.waitForTserver("q2", 60_000, 2));
+      Thread.sleep(100);
+      assertFalse(waiting.isDone());
+      update(queueSum, "ts2", "q2", "5");
+      assertTrue(waiting.get(30, TimeUnit.SECONDS));
+    } finally {
+      handlers.shutdownNow();
+    }
+  }
 }
@@ -83,6 +83,7 @@ import org.apache.accumulo.core.util.Halt;
 import org.apache.accumulo.core.util.HostAndPort;
 import org.apache.accumulo.core.util.ServerServices;
 import org.apache.accumulo.core.util.ServerServices.Service;
+import org.apache.accumulo.core.util.compaction.CompactionExecutorIdImpl;
 import org.apache.accumulo.core.util.compaction.ExternalCompactionUtil;
 import org.apache.accumulo.core.util.threads.ThreadPools;
 import org.apache.accumulo.core.util.threads.Threads;
@@ -102,6 +103,7 @@ import org.apache.accumulo.server.compaction.RetryableThriftCall;
 import org.apache.accumulo.server.compaction.RetryableThriftCall.RetriesExceededException;
 import org.apache.accumulo.server.conf.TableConfiguration;
 import org.apache.accumulo.server.fs.VolumeManager;
+import org.apache.accumulo.server.metrics.CompactionTimingMetrics;
 import org.apache.accumulo.server.rpc.ServerAddress;
 import org.apache.accumulo.server.rpc.TServerUtils;
 import org.apache.accumulo.server.rpc.ThriftProcessorTypes;
@@ -141,6 +143,7 @@ public class Compactor extends AbstractServer implements MetricsProducer, Compac
   protected static final CompactionJobHolder JOB_HOLDER = new CompactionJobHolder();
 
   private final GarbageCollectionLogger gcLogger = new GarbageCollectionLogger();
+  private final CompactionTimingMetrics timingMetrics = new CompactionTimingMetrics();
   private final UUID compactorId = UUID.randomUUID();
   private final AccumuloConfiguration aconf;
   private final String queueName;
@@ -184,6 +187,7 @@ public class Compactor extends AbstractServer implements MetricsProducer, Compac
     LongTaskTimer timer = LongTaskTimer.builder(METRICS_COMPACTOR_MAJC_STUCK)
         .description("Number and duration of stuck major compactions").register(registry);
     CompactionWatcher.setTimer(timer);
+    timingMetrics.registerMetrics(registry);
   }
 
   protected void setupSecurity() {
@@ -572,6 +576,8 @@ public class Compactor extends AbstractServer implements MetricsProducer, Compac
         cs.setEntriesWritten(stat.getEntriesWritten());
         cs.setFileSize(stat.getFileSize());
         JOB_HOLDER.setStats(cs);
+        timingMetrics.record(CompactionExecutorIdImpl.externalId(queueName).canonical(),
+            extent.tableId(), stat);
 
         LOG.info("Compaction completed successfully {} ", job.getExternalCompactionId());
         // Update state when completed
@@ -657,10 +663,17 @@ public class Compactor extends AbstractServer implements MetricsProducer, Compac
 
         TExternalCompactionJob job;
         try {
+          final long requestStart = System.currentTimeMillis();
           job = getNextJob(getNextId());
           if (!job.isSetExternalCompactionId()) {
             LOG.trace("No external compactions in queue {}", this.queueName);
-            UtilWaitThread.sleep(getWaitTimeBetweenCompactionChecks());
+            // The coordinator may have already held the request while waiting for work, so only
+            // sleep for the part of the wait time that has not passed.
+            long sleepTime =
+                getWaitTimeBetweenCompactionChecks() - (System.currentTimeMillis() - requestStart);
+            if (sleepTime > 0) {
+              UtilWaitThread.sleep(sleepTime);
+            }
             continue;
           }
           if (!job.getExternalCompactionId().equals(currentCompactionId.get().toString())) {
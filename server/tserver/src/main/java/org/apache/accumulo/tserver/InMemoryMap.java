@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
@@ -88,6 +89,7 @@ public class InMemoryMap {
   private final String memDumpDir;
   private final String mapType;
   private final TableId tableId;
+  private final boolean concurrentWrites;
 
   private Map<String,Set<ByteSequence>> lggroups;
 
@@ -108,6 +110,8 @@ public class InMemoryMap {
   public static final String TYPE_DEFAULT_MAP = "DefaultMap";
   public static final String TYPE_LOCALITY_GROUP_MAP = "LocalityGroupMap";
   public static final String TYPE_LOCALITY_GROUP_MAP_NATIVE = "LocalityGroupMap with native";
+  public static final String TYPE_OFF_HEAP_MAP_WRAPPER = "OffHeapMapWrapper";
+  public static final String TYPE_LOCALITY_GROUP_MAP_OFF_HEAP = "LocalityGroupMap with off-heap";
 
   private AtomicReference<Pair<SamplerConfigurationImpl,Sampler>> samplerRef =
       new AtomicReference<>(null);
@@ -131,7 +135,9 @@ public class InMemoryMap {
 
   public InMemoryMap(AccumuloConfiguration config, ServerContext context, TableId tableId) {
 
-    boolean useNativeMap = config.getBoolean(Property.TSERV_NATIVEMAP_ENABLED);
+    boolean useOffHeapMap = config.getBoolean(Property.TSERV_OFFHEAP_MAP_ENABLED);
+    // the off-heap map is an explicit opt in, so it takes precedence over the native map
+    boolean useNativeMap = !useOffHeapMap && config.getBoolean(Property.TSERV_NATIVEMAP_ENABLED);
 
     this.memDumpDir = config.get(Property.TSERV_MEMDUMP_DIR);
     this.lggroups = LocalityGroupUtil.getLocalityGroupsIgnoringErrors(config, tableId);
@@ -139,24 +145,37 @@ public class InMemoryMap {
     this.config = config;
     this.context = context;
     this.tableId = tableId;
+    this.concurrentWrites = config.getBoolean(Property.TSERV_MEMORY_MAP_CONCURRENT_WRITES);
 
     SimpleMap allMap;
     SimpleMap sampleMap;
 
     if (lggroups.isEmpty()) {
-      allMap = newMap(useNativeMap);
-      sampleMap = newMap(useNativeMap);
-      mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER : TYPE_DEFAULT_MAP;
+      allMap = newMap(useNativeMap, useOffHeapMap);
+      sampleMap = newMap(useNativeMap, useOffHeapMap);
+      if (useOffHeapMap) {
+        mapType = TYPE_OFF_HEAP_MAP_WRAPPER;
+      } else {
+        mapType = useNativeMap ? TYPE_NATIVE_MAP_WRAPPER : TYPE_DEFAULT_MAP;
+      }
     } else {
-      allMap = new LocalityGroupMap(lggroups, useNativeMap);
-      sampleMap = new LocalityGroupMap(lggroups, useNativeMap);
-      mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE : TYPE_LOCALITY_GROUP_MAP;
+      allMap = new LocalityGroupMap(lggroups, useNativeMap, useOffHeapMap, concurrentWrites);
+      sampleMap = new LocalityGroupMap(lggroups, useNativeMap, useOffHeapMap, concurrentWrites);
+      if (useOffHeapMap) {
+        mapType = TYPE_LOCALITY_GROUP_MAP_OFF_HEAP;
+      } else {
+        mapType = useNativeMap ? TYPE_LOCALITY_GROUP_MAP_NATIVE : TYPE_LOCALITY_GROUP_MAP;
+      }
     }
 
     map = new SampleMap(allMap, sampleMap);
   }
 
-  private static SimpleMap newMap(boolean useNativeMap) {
+  private static SimpleMap newMap(boolean useNativeMap, boolean useOffHeapMap) {
+    if (useOffHeapMap) {
+      return new OffHeapMapWrapper();
+    }
+
     if (useNativeMap) {
       try {
         return new NativeMapWrapper();
@@ -171,10 +190,12 @@ public class InMemoryMap {
   /**
    * Description of the type of SimpleMap that is created.
    * <p>
-   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP or
-   * TYPE_NATIVE_MAP_WRAPPER. If there is one more locality groups, then the InMemoryMap has an
-   * array for simple maps that either contain either TYPE_LOCALITY_GROUP_MAP which contains
-   * DefaultMaps or TYPE_LOCALITY_GROUP_MAP_NATIVE which contains NativeMapWrappers.
+   * If no locality groups are present, the SimpleMap is either TYPE_DEFAULT_MAP,
+   * TYPE_NATIVE_MAP_WRAPPER or TYPE_OFF_HEAP_MAP_WRAPPER. If there is one more locality groups,
+   * then the InMemoryMap has an array for simple maps that either contain either
+   * TYPE_LOCALITY_GROUP_MAP which contains DefaultMaps, TYPE_LOCALITY_GROUP_MAP_NATIVE which
+   * contains NativeMapWrappers or TYPE_LOCALITY_GROUP_MAP_OFF_HEAP which contains
+   * OffHeapMapWrappers.
    *
    * @return String that describes the Map type
    */
@@ -285,14 +306,17 @@ public class InMemoryMap {
     private SimpleMap[] maps;
     private Partitioner partitioner;
     private PreAllocatedArray<List<Mutation>> partitioned;
+    private final boolean concurrentWrites;
 
-    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap) {
+    LocalityGroupMap(Map<String,Set<ByteSequence>> groups, boolean useNativeMap,
+        boolean useOffHeapMap, boolean concurrentWrites) {
       this.groupFams = new PreAllocatedArray<>(groups.size());
       this.maps = new SimpleMap[groups.size() + 1];
-      this.partitioned = new PreAllocatedArray<>(groups.size() + 1);
+      this.partitioned = newPartitionArray(groups.size() + 1);
+      this.concurrentWrites = concurrentWrites;
 
       for (int i = 0; i < maps.length; i++) {
-        maps[i] = newMap(useNativeMap);
+        maps[i] = newMap(useNativeMap, useOffHeapMap);
       }
 
       int count = 0;
@@ -304,10 +328,14 @@ public class InMemoryMap {
       }
 
       partitioner = new LocalityGroupUtil.Partitioner(this.groupFams);
+    }
 
-      for (int i = 0; i < partitioned.length; i++) {
-        partitioned.set(i, new ArrayList<>());
+    private static PreAllocatedArray<List<Mutation>> newPartitionArray(int length) {
+      PreAllocatedArray<List<Mutation>> array = new PreAllocatedArray<>(length);
+      for (int i = 0; i < array.length; i++) {
+        array.set(i, new ArrayList<>());
       }
+      return array;
     }
 
     @Override
@@ -349,24 +377,35 @@ public class InMemoryMap {
     }
 
     @Override
-    public synchronized void mutate(List<Mutation> mutations, int kvCount) {
-      // this method is synchronized because it reuses objects to avoid allocation,
-      // currently, the method that calls this is synchronized so there is no
-      // loss in parallelism.... synchronization was added here for future proofing
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      if (concurrentWrites) {
+        // writers may be calling this concurrently, so each call partitions into its own lists.
+        // The per group maps are thread safe, so writes to different groups proceed in parallel
+        // and writes to the same group are serialized only as much as that map requires.
+        mutate(mutations, kvCount, newPartitionArray(maps.length));
+      } else {
+        // when writes are serialized by the caller, reuse objects to avoid allocation
+        synchronized (this) {
+          mutate(mutations, kvCount, partitioned);
+        }
+      }
+    }
 
+    private void mutate(List<Mutation> mutations, int kvCount,
+        PreAllocatedArray<List<Mutation>> partitions) {
       try {
-        partitioner.partition(mutations, partitioned);
+        partitioner.partition(mutations, partitions);
 
-        for (int i = 0; i < partitioned.length; i++) {
-          if (!partitioned.get(i).isEmpty()) {
-            maps[i].mutate(partitioned.get(i), kvCount);
-            for (Mutation m : partitioned.get(i))
+        for (int i = 0; i < partitions.length; i++) {
+          if (!partitions.get(i).isEmpty()) {
+            maps[i].mutate(partitions.get(i), kvCount);
+            for (Mutation m : partitions.get(i))
               kvCount += m.getUpdates().size();
           }
         }
       } finally {
         // clear immediately so mutations can be garbage collected
-        for (List<Mutation> list : partitioned) {
+        for (List<Mutation> list : partitions) {
           list.clear();
         }
       }
@@ -471,16 +510,60 @@ public class InMemoryMap {
     }
   }
 
+  private static class OffHeapMapWrapper implements SimpleMap {
+    private OffHeapMap offHeapMap;
+
+    OffHeapMapWrapper() {
+      offHeapMap = new OffHeapMap();
+    }
+
+    @Override
+    public int size() {
+      return offHeapMap.size();
+    }
+
+    @Override
+    public InterruptibleIterator skvIterator(SamplerConfigurationImpl samplerConfig) {
+      if (samplerConfig != null)
+        throw new SampleNotPresentException();
+      return offHeapMap.skvIterator();
+    }
+
+    @Override
+    public void delete() {
+      offHeapMap.delete();
+    }
+
+    @Override
+    public long getMemoryUsed() {
+      return offHeapMap.getMemoryUsed();
+    }
+
+    @Override
+    public void mutate(List<Mutation> mutations, int kvCount) {
+      offHeapMap.mutate(mutations, kvCount);
+    }
+  }
+
   private AtomicInteger nextKVCount = new AtomicInteger(1);
   private AtomicInteger kvCount = new AtomicInteger(0);
 
   private Object writeSerializer = new Object();
 
+  // kvCount ranges, keyed by first kvCount, of concurrent writes that finished before a write that
+  // started earlier. Guarded by writeSerializer.
+  private final TreeMap<Integer,Integer> finishedWrites = new TreeMap<>();
+
   /**
    * Applies changes to a row in the InMemoryMap
    *
    */
   public void mutate(List<Mutation> mutations, int numKVs) {
+    if (concurrentWrites) {
+      mutateConcurrently(mutations, numKVs);
+      return;
+    }
+
     // Can not update mutationCount while writes that started before
     // are in progress, this would cause partial mutations to be seen.
     // Also, can not continue until mutation count is updated, because
@@ -498,6 +581,47 @@ public class InMemoryMap {
     }
   }
 
+  /**
+   * Applies changes while allowing other writers to insert at the same time. Each write reserves a
+   * range of kvCounts and inserts without holding writeSerializer. The kvCount that readers use for
+   * isolation is only advanced over a contiguous run of finished writes, so partial mutations are
+   * never seen, and a write does not return until it is visible to new readers.
+   */
+  private void mutateConcurrently(List<Mutation> mutations, int numKVs) {
+    if (numKVs == 0) {
+      // nothing to make visible, and an empty range would share its start with the next write
+      return;
+    }
+
+    int kv = nextKVCount.getAndAdd(numKVs);
+    int lastKV = kv + numKVs - 1;
+    try {
+      map.mutate(mutations, kv);
+    } finally {
+      synchronized (writeSerializer) {
+        finishedWrites.put(kv, lastKV);
+        Entry<Integer,Integer> next;
+        while ((next = finishedWrites.firstEntry()) != null && next.getKey() == kvCount.get() + 1) {
+          finishedWrites.pollFirstEntry();
+          kvCount.set(next.getValue());
+        }
+        writeSerializer.notifyAll();
+
+        boolean interrupted = false;
+        while (kvCount.get() < lastKV) {
+          try {
+            writeSerializer.wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
   /**
    * Returns a long representing the size of the InMemoryMap
    *
@@ -0,0 +1,618 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.accumulo.core.client.SampleNotPresentException;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.ColumnUpdate;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.InterruptibleIterator;
+import org.apache.accumulo.core.iteratorsImpl.system.IterationInterruptedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * This class stores data in a skip list that lives in direct (off-heap) memory. It is a pure Java
+ * alternative to {@link NativeMap} that keeps data out of the Java heap without needing the native
+ * library.
+ *
+ * Key/value pairs are stored serialized in large direct buffers (chunks) that are allocated as the
+ * map grows, so the garbage collector only sees a handful of chunk objects per map instead of
+ * several objects per key/value. Each skip list node is laid out as follows, with the next pointers
+ * being 8 byte aligned so they can be read and published atomically.
+ *
+ * <pre>
+ * int height | int kvCount | long timestamp | int rowLen | int cfLen | int cqLen | int cvLen |
+ * int valLen | int deleted | long next[height] | row | cf | cq | cv | value
+ * </pre>
+ *
+ * Nodes are ordered the same way {@link MemKeyComparator} orders {@link MemKey}s. Only one thread
+ * inserts at a time, while readers do not block writers because nodes are never modified or removed
+ * once they are linked into the list. Like the native map, the memory for this map should be
+ * released by calling delete() as soon as the map is no longer used. Released chunks are kept in a
+ * process wide pool, bounded by {@link #setMaxPooledBytes(long)}, and reused by new maps.
+ */
+public class OffHeapMap {
+
+  private static final Logger log = LoggerFactory.getLogger(OffHeapMap.class);
+
+  static final int CHUNK_SIZE = 2 * 1024 * 1024;
+  private static final int INITIAL_CHUNK_SIZE = 64 * 1024;
+  private static final int MAX_HEIGHT = 24;
+
+  private static final int HEIGHT_OFF = 0;
+  private static final int KV_COUNT_OFF = 4;
+  private static final int TS_OFF = 8;
+  private static final int ROW_LEN_OFF = 16;
+  private static final int CF_LEN_OFF = 20;
+  private static final int CQ_LEN_OFF = 24;
+  private static final int CV_LEN_OFF = 28;
+  private static final int VAL_LEN_OFF = 32;
+  private static final int DELETED_OFF = 36;
+  private static final int NEXT_OFF = 40;
+
+  private static final long NIL = 0;
+
+  private static final VarHandle BUFFER_LONGS =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+  private static final VarHandle ARRAY_LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+
+  private static final ConcurrentLinkedQueue<ByteBuffer> chunkPool = new ConcurrentLinkedQueue<>();
+  private static final AtomicLong pooledBytes = new AtomicLong();
+  private static final AtomicLong allocatedBytes = new AtomicLong();
+  private static volatile long maxPooledBytes = 0;
+
+  /**
+   * Sets the maximum number of bytes of released chunks that are kept for reuse by other maps.
+   * Chunks released beyond this limit are left for the garbage collector to free.
+   */
+  public static void setMaxPooledBytes(long maxBytes) {
+    maxPooledBytes = maxBytes;
+    while (pooledBytes.get() > maxBytes) {
+      ByteBuffer chunk = chunkPool.poll();
+      if (chunk == null) {
+        break;
+      }
+      pooledBytes.addAndGet(-chunk.capacity());
+      allocatedBytes.addAndGet(-chunk.capacity());
+    }
+  }
+
+  /**
+   * @return the number of direct memory bytes held by all off-heap maps and the chunk pool
+   */
+  public static long getAllocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  private static ByteBuffer allocateChunk(int size) {
+    if (size == CHUNK_SIZE) {
+      ByteBuffer chunk = chunkPool.poll();
+      if (chunk != null) {
+        pooledBytes.addAndGet(-CHUNK_SIZE);
+        return chunk;
+      }
+    }
+    allocatedBytes.addAndGet(size);
+    return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+  }
+
+  private static void releaseChunk(ByteBuffer chunk) {
+    if (chunk.capacity() == CHUNK_SIZE && pooledBytes.addAndGet(CHUNK_SIZE) <= maxPooledBytes) {
+      chunkPool.offer(chunk);
+    } else {
+      if (chunk.capacity() == CHUNK_SIZE) {
+        pooledBytes.addAndGet(-CHUNK_SIZE);
+      }
+      allocatedBytes.addAndGet(-chunk.capacity());
+    }
+  }
+
+  private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+  private final Lock rlock = rwLock.readLock();
+  private final Lock deleteLock = rwLock.writeLock();
+  private final Lock writeLock = new ReentrantLock();
+
+  // the next pointers of the head of the skip list
+  private final long[] head = new long[MAX_HEIGHT];
+
+  // copied on growth, so readers always see every chunk that a node they reached could be in
+  private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+  private int chunkPos = 0;
+  private final AtomicLong memoryUsed = new AtomicLong();
+  private final AtomicInteger size = new AtomicInteger();
+  private volatile boolean deleted = false;
+
+  private final long[] preds = new long[MAX_HEIGHT];
+
+  private void checkDeleted() {
+    if (deleted) {
+      throw new IllegalStateException("Off-heap Map Deleted");
+    }
+  }
+
+  private static int chunkIndex(long addr) {
+    return (int) (addr >>> 32) - 1;
+  }
+
+  private static int offset(long addr) {
+    return (int) addr;
+  }
+
+  private ByteBuffer chunk(long addr) {
+    return chunks[chunkIndex(addr)];
+  }
+
+  private long getNext(long node, int level) {
+    if (node == NIL) {
+      return (long) ARRAY_LONGS.getAcquire(head, level);
+    }
+    return (long) BUFFER_LONGS.getAcquire(chunk(node), offset(node) + NEXT_OFF + level * 8);
+  }
+
+  private void setNext(long node, int level, long next) {
+    if (node == NIL) {
+      ARRAY_LONGS.setRelease(head, level, next);
+    } else {
+      BUFFER_LONGS.setRelease(chunk(node), offset(node) + NEXT_OFF + level * 8, next);
+    }
+  }
+
+  // assumes writeLock is held
+  private long allocate(int len) {
+    ByteBuffer[] current = chunks;
+    if (current.length == 0 || chunkPos + len > current[current.length - 1].capacity()) {
+      int chunkSize;
+      if (len > CHUNK_SIZE) {
+        chunkSize = len;
+      } else if (current.length == 0) {
+        chunkSize = Math.max(INITIAL_CHUNK_SIZE, len);
+      } else {
+        // grow the chunk size so that small maps do not hold on to a lot of memory
+        chunkSize = Math.min(CHUNK_SIZE, current[current.length - 1].capacity() * 2);
+        chunkSize = chunkSize < len ? CHUNK_SIZE : chunkSize;
+      }
+      ByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+      grown[current.length] = allocateChunk(chunkSize);
+      memoryUsed.addAndGet(chunkSize);
+      chunks = grown;
+      current = grown;
+      chunkPos = 0;
+    }
+
+    long addr = ((long) current.length << 32) | chunkPos;
+    // keep every node 8 byte aligned
+    chunkPos += (len + 7) & ~7;
+    return addr;
+  }
+
+  private static int compareBytes(ByteBuffer buf, int pos, int len, ByteSequence bs) {
+    byte[] data = bs.getBackingArray();
+    int off = bs.offset();
+    int bsLen = bs.length();
+    int min = Math.min(len, bsLen);
+    for (int i = 0; i < min; i++) {
+      int cmp = (buf.get(pos + i) & 0xff) - (data[off + i] & 0xff);
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return len - bsLen;
+  }
+
+  /**
+   * Compares the node to a key using the same ordering as {@link MemKeyComparator}, where the node
+   * is always a {@link MemKey}.
+   */
+  private int compare(long node, Key key) {
+    ByteBuffer buf = chunk(node);
+    int off = offset(node);
+    int height = buf.getInt(off + HEIGHT_OFF);
+    int rowLen = buf.getInt(off + ROW_LEN_OFF);
+    int cfLen = buf.getInt(off + CF_LEN_OFF);
+    int cqLen = buf.getInt(off + CQ_LEN_OFF);
+    int cvLen = buf.getInt(off + CV_LEN_OFF);
+
+    int pos = off + NEXT_OFF + height * 8;
+    int cmp = compareBytes(buf, pos, rowLen, key.getRowData());
+    if (cmp != 0) {
+      return cmp;
+    }
+    pos += rowLen;
+    cmp = compareBytes(buf, pos, cfLen, key.getColumnFamilyData());
+    if (cmp != 0) {
+      return cmp;
+    }
+    pos += cfLen;
+    cmp = compareBytes(buf, pos, cqLen, key.getColumnQualifierData());
+    if (cmp != 0) {
+      return cmp;
+    }
+    pos += cqLen;
+    cmp = compareBytes(buf, pos, cvLen, key.getColumnVisibilityData());
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    cmp = Long.compare(key.getTimestamp(), buf.getLong(off + TS_OFF));
+    if (cmp != 0) {
+      return cmp;
+    }
+
+    boolean nodeDeleted = buf.getInt(off + DELETED_OFF) != 0;
+    if (nodeDeleted != key.isDeleted()) {
+      return nodeDeleted ? -1 : 1;
+    }
+
+    if (key instanceof MemKey) {
+      return Integer.compare(((MemKey) key).getKVCount(), buf.getInt(off + KV_COUNT_OFF));
+    }
+
+    // a MemKey sorts after a Key with the same fields
+    return 1;
+  }
+
+  /**
+   * Finds the first node that is greater than or equal to the key, optionally recording the last
+   * node before it at each level.
+   */
+  private long findCeiling(Key key, long[] predecessors) {
+    long pred = NIL;
+    for (int level = MAX_HEIGHT - 1; level >= 0; level--) {
+      long next = getNext(pred, level);
+      while (next != NIL && compare(next, key) < 0) {
+        pred = next;
+        next = getNext(pred, level);
+      }
+      if (predecessors != null) {
+        predecessors[level] = pred;
+      }
+    }
+    return getNext(pred, 0);
+  }
+
+  private static int randomHeight() {
+    // each level is present with a probability of 1/4, which keeps the pointer overhead low
+    int height = 1;
+    int rand = ThreadLocalRandom.current().nextInt();
+    while (height < MAX_HEIGHT && (rand & 3) == 0) {
+      height++;
+      rand >>>= 2;
+      if (rand == 0) {
+        break;
+      }
+    }
+    return height;
+  }
+
+  private static void putBytes(ByteBuffer buf, int pos, byte[] data) {
+    for (int i = 0; i < data.length; i++) {
+      buf.put(pos + i, data[i]);
+    }
+  }
+
+  // assumes writeLock is held
+  private void insert(byte[] row, byte[] cf, byte[] cq, byte[] cv, long ts, boolean del, byte[] val,
+      int kvCount) {
+    MemKey key = new MemKey(row, cf, cq, cv, ts, del, false, kvCount);
+    findCeiling(key, preds);
+
+    int height = randomHeight();
+    int dataLen = row.length + cf.length + cq.length + cv.length + val.length;
+    long node = allocate(NEXT_OFF + height * 8 + dataLen);
+    ByteBuffer buf = chunk(node);
+    int off = offset(node);
+
+    buf.putInt(off + HEIGHT_OFF, height);
+    buf.putInt(off + KV_COUNT_OFF, kvCount);
+    buf.putLong(off + TS_OFF, ts);
+    buf.putInt(off + ROW_LEN_OFF, row.length);
+    buf.putInt(off + CF_LEN_OFF, cf.length);
+    buf.putInt(off + CQ_LEN_OFF, cq.length);
+    buf.putInt(off + CV_LEN_OFF, cv.length);
+    buf.putInt(off + VAL_LEN_OFF, val.length);
+    buf.putInt(off + DELETED_OFF, del ? 1 : 0);
+
+    int pos = off + NEXT_OFF + height * 8;
+    putBytes(buf, pos, row);
+    pos += row.length;
+    putBytes(buf, pos, cf);
+    pos += cf.length;
+    putBytes(buf, pos, cq);
+    pos += cq.length;
+    putBytes(buf, pos, cv);
+    pos += cv.length;
+    putBytes(buf, pos, val);
+
+    for (int level = 0; level < height; level++) {
+      buf.putLong(off + NEXT_OFF + level * 8, getNext(preds[level], level));
+    }
+
+    // link bottom up, the release store makes the node contents visible to readers
+    for (int level = 0; level < height; level++) {
+      setNext(preds[level], level, node);
+    }
+
+    size.incrementAndGet();
+  }
+
+  void mutate(List<Mutation> mutations, int kvCount) {
+    rlock.lock();
+    try {
+      checkDeleted();
+      writeLock.lock();
+      try {
+        for (Mutation m : mutations) {
+          for (ColumnUpdate cvp : m.getUpdates()) {
+            insert(m.getRow(), cvp.getColumnFamily(), cvp.getColumnQualifier(),
+                cvp.getColumnVisibility(), cvp.getTimestamp(), cvp.isDeleted(), cvp.getValue(),
+                kvCount++);
+          }
+        }
+      } finally {
+        writeLock.unlock();
+      }
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  public void put(Key key, Value value) {
+    rlock.lock();
+    try {
+      checkDeleted();
+      writeLock.lock();
+      try {
+        insert(key.getRowData().toArray(), key.getColumnFamilyData().toArray(),
+            key.getColumnQualifierData().toArray(), key.getColumnVisibilityData().toArray(),
+            key.getTimestamp(), key.isDeleted(), value.get(),
+            key instanceof MemKey ? ((MemKey) key).getKVCount() : 0);
+      } finally {
+        writeLock.unlock();
+      }
+    } finally {
+      rlock.unlock();
+    }
+  }
+
+  public int size() {
+    return size.get();
+  }
+
+  /**
+   * @return the number of bytes of direct memory allocated by this map
+   */
+  public long getMemoryUsed() {
+    return memoryUsed.get();
+  }
+
+  public void delete() {
+    deleteLock.lock();
+    try {
+      checkDeleted();
+      deleted = true;
+      ByteBuffer[] toRelease = chunks;
+      chunks = new ByteBuffer[0];
+      Arrays.fill(head, NIL);
+      for (ByteBuffer chunk : toRelease) {
+        releaseChunk(chunk);
+      }
+      log.trace("Released {} chunks of off-heap map memory", toRelease.length);
+    } finally {
+      deleteLock.unlock();
+    }
+  }
+
+  // assumes the read lock is held
+  private MemKey readKey(ByteBuffer dup, long node, byte[] lastRow, Value[] valueHolder) {
+    ByteBuffer buf = chunk(node);
+    int off = offset(node);
+    int height = buf.getInt(off + HEIGHT_OFF);
+    byte[] row = new byte[buf.getInt(off + ROW_LEN_OFF)];
+    byte[] cf = new byte[buf.getInt(off + CF_LEN_OFF)];
+    byte[] cq = new byte[buf.getInt(off + CQ_LEN_OFF)];
+    byte[] cv = new byte[buf.getInt(off + CV_LEN_OFF)];
+    byte[] val = new byte[buf.getInt(off + VAL_LEN_OFF)];
+
+    dup.clear().position(off + NEXT_OFF + height * 8);
+    dup.get(row).get(cf).get(cq).get(cv).get(val);
+
+    // share row data between consecutive keys, like the native map does
+    if (lastRow != null && Arrays.equals(lastRow, row)) {
+      row = lastRow;
+    }
+
+    valueHolder[0] = new Value(val, false);
+    return new MemKey(row, cf, cq, cv, buf.getLong(off + TS_OFF),
+        buf.getInt(off + DELETED_OFF) != 0, false, buf.getInt(off + KV_COUNT_OFF));
+  }
+
+  private class OHMSKVIter implements InterruptibleIterator {
+
+    // read a batch of entries each time the read lock is acquired, so that concurrent readers are
+    // not constantly contending on the lock
+    private static final int MAX_READ_AHEAD_ENTRIES = 16;
+    private static final int READ_AHEAD_BYTES = 4096;
+
+    private final MemKey[] keys = new MemKey[MAX_READ_AHEAD_ENTRIES];
+    private final Value[] values = new Value[MAX_READ_AHEAD_ENTRIES];
+    private final Value[] valueHolder = new Value[1];
+    private int index = 0;
+    private int end = 0;
+    // the last node read into the buffer, or NIL if nothing has been read
+    private long lastNode = NIL;
+    private boolean exhausted = true;
+
+    private Range range = new Range();
+    private AtomicBoolean interruptFlag;
+    private int interruptCheckCount = 0;
+
+    OHMSKVIter(AtomicBoolean interruptFlag) {
+      this.interruptFlag = interruptFlag;
+      fill(new MemKey());
+    }
+
+    private void fill(Key startKey) {
+      byte[] lastRow = end > 0 ? keys[end - 1].getRowData().getBackingArray() : null;
+      index = 0;
+      end = 0;
+      rlock.lock();
+      try {
+        checkDeleted();
+        long node = startKey != null ? findCeiling(startKey, null) : getNext(lastNode, 0);
+        ByteBuffer dup = null;
+        int dupChunk = -1;
+        int amountRead = 0;
+        while (node != NIL && end < MAX_READ_AHEAD_ENTRIES && amountRead <= READ_AHEAD_BYTES) {
+          if (chunkIndex(node) != dupChunk) {
+            dupChunk = chunkIndex(node);
+            dup = chunk(node).duplicate();
+          }
+          MemKey key = readKey(dup, node, lastRow, valueHolder);
+          lastRow = key.getRowData().getBackingArray();
+          keys[end] = key;
+          values[end] = valueHolder[0];
+          amountRead += key.getSize() + valueHolder[0].getSize();
+          end++;
+          lastNode = node;
+          node = getNext(node, 0);
+        }
+        exhausted = node == NIL;
+      } finally {
+        rlock.unlock();
+      }
+    }
+
+    private void advance() {
+      index++;
+      if (index == end) {
+        if (exhausted) {
+          end = 0;
+          index = 0;
+        } else {
+          fill(null);
+        }
+      }
+      if (hasTop() && range.afterEndKey(getTopKey())) {
+        end = 0;
+        index = 0;
+      }
+    }
+
+    @Override
+    public Key getTopKey() {
+      return keys[index];
+    }
+
+    @Override
+    public Value getTopValue() {
+      return values[index];
+    }
+
+    @Override
+    public boolean hasTop() {
+      return index < end;
+    }
+
+    @Override
+    public void next() {
+      if (!hasTop())
+        throw new NoSuchElementException();
+
+      // checking the interrupt flag for every call to next had bad a bad performance impact
+      // so check it every 100th time
+      if (interruptFlag != null && interruptCheckCount++ % 100 == 0 && interruptFlag.get())
+        throw new IterationInterruptedException();
+
+      advance();
+    }
+
+    @Override
+    public void seek(Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) {
+      if (interruptFlag != null && interruptFlag.get())
+        throw new IterationInterruptedException();
+
+      this.range = range;
+
+      Key key = range.getStartKey();
+      if (key == null) {
+        key = new MemKey();
+      }
+
+      lastNode = NIL;
+      fill(key);
+      if (hasTop() && range.afterEndKey(getTopKey())) {
+        end = 0;
+      }
+
+      while (hasTop() && range.beforeStartKey(getTopKey())) {
+        advance();
+      }
+    }
+
+    @Override
+    public void init(SortedKeyValueIterator<Key,Value> source, Map<String,String> options,
+        IteratorEnvironment env) {
+      throw new UnsupportedOperationException("init");
+    }
+
+    @Override
+    public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
+      if (env != null && env.isSamplingEnabled()) {
+        throw new SampleNotPresentException();
+      }
+      return new OHMSKVIter(interruptFlag);
+    }
+
+    @Override
+    public void setInterruptFlag(AtomicBoolean flag) {
+      this.interruptFlag = flag;
+    }
+  }
+
+  public InterruptibleIterator skvIterator() {
+    return new OHMSKVIter(null);
+  }
+}
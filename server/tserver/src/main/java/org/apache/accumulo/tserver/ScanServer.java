@@ -397,6 +397,9 @@ public class ScanServer extends AbstractServer
       this.getContext().getAmple().deleteScanServerFileReferences(clientAddress.toString(),
           serverLockUUID);
 
+      LOG.debug("Closing block caches");
+      resourceManager.closeBlockCaches();
+
       try {
         LOG.debug("Closing filesystems");
         VolumeManager mgr = getContext().getVolumeManager();
@@ -267,9 +267,12 @@ public class TabletClientHandler implements TabletClientService.Iface {
     if (us.currentTablet != null && us.currentTablet.getExtent().equals(keyExtent)) {
       return;
     }
-    if (us.currentTablet == null
-        && (us.failures.containsKey(keyExtent) || us.authFailures.containsKey(keyExtent))) {
-      // if there were previous failures, then do not accept additional writes
+    if (us.failures.containsKey(keyExtent) || us.authFailures.containsKey(keyExtent)) {
+      // if there were previous failures, then do not accept additional writes. A client may come
+      // back to a tablet later in the session, so this is checked even when the session is
+      // writing to another tablet, otherwise the commit count recorded for the failure would be
+      // lost
+      us.currentTablet = null;
       return;
     }
 
@@ -286,7 +289,8 @@ public class TabletClientHandler implements TabletClientService.Iface {
         us.authTimes.addStat(t2 - t1);
         us.currentTablet = server.getOnlineTablet(keyExtent);
         if (us.currentTablet != null) {
-          us.queuedMutations.put(us.currentTablet, new ArrayList<>());
+          // keep any mutations queued for the tablet earlier in the session
+          us.queuedMutations.computeIfAbsent(us.currentTablet, k -> new ArrayList<>());
         } else {
           // not serving tablet, so report all mutations as
           // failures
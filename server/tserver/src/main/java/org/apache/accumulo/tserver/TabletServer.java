@@ -189,6 +189,10 @@ public class TabletServer extends AbstractServer implements TabletHostingServer
   TabletServerMinCMetrics mincMetrics;
   CompactionExecutorsMetrics ceMetrics;
 
+  public TabletServerUpdateMetrics getUpdateMetrics() {
+    return updateMetrics;
+  }
+
   @Override
   public TabletServerScanMetrics getScanMetrics() {
     return scanMetrics;
@@ -198,6 +202,10 @@ public class TabletServer extends AbstractServer implements TabletHostingServer
     return mincMetrics;
   }
 
+  public CompactionExecutorsMetrics getCompactionExecutorsMetrics() {
+    return ceMetrics;
+  }
+
   private final LogSorter logSorter;
   @SuppressWarnings("deprecation")
   private org.apache.accumulo.tserver.replication.ReplicationWorker replWorker = null;
@@ -948,6 +956,9 @@ public class TabletServer extends AbstractServer implements TabletHostingServer
       server.stop();
     }
 
+    log.debug("Closing block caches");
+    resourceManager.closeBlockCaches();
+
     try {
       log.debug("Closing filesystems");
       getVolumeManager().close();
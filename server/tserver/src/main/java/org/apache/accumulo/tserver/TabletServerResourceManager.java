@@ -23,6 +23,7 @@ import static java.util.stream.Collectors.toUnmodifiableMap;
 import static org.apache.accumulo.fate.util.UtilWaitThread.sleepUninterruptibly;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -52,11 +53,15 @@ import org.apache.accumulo.core.conf.ConfigurationTypeHelper;
 import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
 import org.apache.accumulo.core.file.blockfile.cache.impl.BlockCacheManagerFactory;
+import org.apache.accumulo.core.file.blockfile.cache.tiered.LocalBlockStore;
+import org.apache.accumulo.core.file.blockfile.cache.tiered.TieredBlockCache;
+import org.apache.accumulo.core.file.blockfile.impl.BlockReadAhead;
 import org.apache.accumulo.core.file.blockfile.impl.ScanCacheProvider;
 import org.apache.accumulo.core.spi.cache.BlockCache;
 import org.apache.accumulo.core.spi.cache.BlockCacheManager;
 import org.apache.accumulo.core.spi.cache.CacheType;
 import org.apache.accumulo.core.spi.common.ServiceEnvironment;
+import org.apache.accumulo.core.spi.crypto.NoCryptoServiceFactory;
 import org.apache.accumulo.core.spi.scan.ScanDispatch;
 import org.apache.accumulo.core.spi.scan.ScanDispatcher;
 import org.apache.accumulo.core.spi.scan.ScanDispatcher.DispatchParameters;
@@ -75,6 +80,7 @@ import org.apache.accumulo.tserver.memory.LargestFirstMemoryManager;
 import org.apache.accumulo.tserver.memory.NativeMapLoader;
 import org.apache.accumulo.tserver.memory.TabletMemoryReport;
 import org.apache.accumulo.tserver.session.ScanSession;
+import org.apache.accumulo.tserver.tablet.ScanResultCache;
 import org.apache.accumulo.tserver.tablet.Tablet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -93,6 +99,9 @@ public class TabletServerResourceManager {
 
   private static final Logger log = LoggerFactory.getLogger(TabletServerResourceManager.class);
 
+  // blocks waiting to be written to the second tier cache, beyond this new blocks are not written
+  private static final int L2_MAX_PENDING_WRITES = 1024;
+
   private final ThreadPoolExecutor minorCompactionThreadPool;
   private final ThreadPoolExecutor splitThreadPool;
   private final ThreadPoolExecutor defaultSplitThreadPool;
@@ -106,6 +115,7 @@ public class TabletServerResourceManager {
 
   private final Map<String,ThreadPoolExecutor> scanExecutors;
   private final Map<String,ScanExecutor> scanExecutorChoices;
+  private final Map<String,ScanPrioritizer> scanExecPrioritizers;
 
   private final ConcurrentHashMap<KeyExtent,RunnableStartedAt> activeAssignments;
 
@@ -119,10 +129,36 @@ public class TabletServerResourceManager {
   private final BlockCache _dCache;
   private final BlockCache _iCache;
   private final BlockCache _sCache;
+  private final ScanResultCache scanResultCache;
+  private final LocalBlockStore l2BlockStore;
   private final ServerContext context;
 
   private Cache<String,Long> fileLenCache;
 
+  static LocalBlockStore openL2BlockStore(AccumuloConfiguration acuConf) {
+    String dir = acuConf.get(Property.TSERV_CACHE_L2_DIR);
+    if (dir.isBlank()) {
+      return null;
+    }
+    String cryptoFactory = acuConf.get(Property.INSTANCE_CRYPTO_FACTORY);
+    if (!cryptoFactory.equals(NoCryptoServiceFactory.class.getName())) {
+      // cached blocks are decrypted, so storing them would write plaintext to the local disk
+      log.warn("Not using a second tier block cache in {} because {} is set to {}", dir,
+          Property.INSTANCE_CRYPTO_FACTORY.getKey(), cryptoFactory);
+      return null;
+    }
+    long size = acuConf.getAsBytes(Property.TSERV_CACHE_L2_SIZE);
+    try {
+      LocalBlockStore store =
+          LocalBlockStore.open(Path.of(dir.trim()), size, L2_MAX_PENDING_WRITES);
+      log.info("Using {} bytes in {} as a second tier block cache", size, dir);
+      return store;
+    } catch (IOException e) {
+      log.warn("Unable to open second tier block cache in {}, continuing without it", dir, e);
+      return null;
+    }
+  }
+
   /**
    * This method creates a task that changes the number of core and maximum threads on the thread
    * pool executor
@@ -141,7 +177,8 @@ public class TabletServerResourceManager {
   }
 
   private ThreadPoolExecutor createPriorityExecutor(ScanExecutorConfig sec,
-      Map<String,Queue<Runnable>> scanExecQueues) {
+      Map<String,Queue<Runnable>> scanExecQueues,
+      Map<String,ScanPrioritizer> scanExecPrioritizers) {
 
     BlockingQueue<Runnable> queue;
 
@@ -179,8 +216,20 @@ public class TabletServerResourceManager {
         Function<Runnable,ScanInfo> extractor =
             r -> ((ScanSession.ScanMeasurer) TraceUtil.unwrap(r)).getScanInfo();
 
+        // let the prioritizer know when scans are queued, scans are told about the prioritizer
+        // when they are executed so it also learns about runs that were never queued
+        final ScanPrioritizer prioritizer = factory;
+        scanExecPrioritizers.put(sec.name, prioritizer);
         queue = new PriorityBlockingQueue<>(sec.maxThreads,
-            Comparator.comparing(extractor, comparator));
+            Comparator.comparing(extractor, comparator)) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          public boolean offer(Runnable r) {
+            prioritizer.scanQueued(extractor.apply(r));
+            return super.offer(r);
+          }
+        };
       }
     }
 
@@ -252,13 +301,26 @@ public class TabletServerResourceManager {
     this.context = context;
     final AccumuloConfiguration acuConf = context.getConfiguration();
     long maxMemory = acuConf.getAsBytes(Property.TSERV_MAXMEM);
-    boolean usingNativeMap = acuConf.getBoolean(Property.TSERV_NATIVEMAP_ENABLED);
+    boolean usingOffHeapMap = acuConf.getBoolean(Property.TSERV_OFFHEAP_MAP_ENABLED);
+    boolean usingNativeMap =
+        !usingOffHeapMap && acuConf.getBoolean(Property.TSERV_NATIVEMAP_ENABLED);
     if (usingNativeMap) {
       NativeMapLoader.load();
     }
+    if (usingOffHeapMap) {
+      // keep released chunks up to the configured map memory, so new in-memory maps reuse direct
+      // memory instead of allocating it and waiting for GC to free the old chunks
+      OffHeapMap.setMaxPooledBytes(maxMemory);
+    }
 
     long totalQueueSize = acuConf.getAsBytes(Property.TSERV_TOTAL_MUTATION_QUEUE_MAX);
 
+    long readAheadMemory = acuConf.getAsBytes(Property.TSERV_FILE_READ_AHEAD_MEMORY);
+    if (readAheadMemory > 0) {
+      BlockReadAhead.configure(readAheadMemory,
+          acuConf.getCount(Property.TSERV_FILE_READ_AHEAD_THREADS));
+    }
+
     try {
       cacheManager = BlockCacheManagerFactory.getInstance(acuConf);
     } catch (Exception e) {
@@ -267,17 +329,26 @@ public class TabletServerResourceManager {
 
     cacheManager.start(tserver.getBlockCacheConfiguration(acuConf));
 
-    _iCache = cacheManager.getBlockCache(CacheType.INDEX);
-    _dCache = cacheManager.getBlockCache(CacheType.DATA);
+    BlockCache iCache = cacheManager.getBlockCache(CacheType.INDEX);
+    BlockCache dCache = cacheManager.getBlockCache(CacheType.DATA);
+    l2BlockStore = openL2BlockStore(acuConf);
+    if (l2BlockStore != null) {
+      iCache = new TieredBlockCache(iCache, l2BlockStore, CacheType.INDEX);
+      dCache = new TieredBlockCache(dCache, l2BlockStore, CacheType.DATA);
+    }
+    _iCache = iCache;
+    _dCache = dCache;
     _sCache = cacheManager.getBlockCache(CacheType.SUMMARY);
+    scanResultCache =
+        new ScanResultCache(acuConf.getAsBytes(Property.TSERV_SCAN_RESULTS_CACHE_SIZE));
 
     long dCacheSize = _dCache.getMaxHeapSize();
     long iCacheSize = _iCache.getMaxHeapSize();
     long sCacheSize = _sCache.getMaxHeapSize();
 
     Runtime runtime = Runtime.getRuntime();
-    if (usingNativeMap) {
-      // Still check block cache sizes when using native maps.
+    if (usingNativeMap || usingOffHeapMap) {
+      // Still check block cache sizes when using native or off-heap maps.
       if (dCacheSize + iCacheSize + sCacheSize + totalQueueSize > runtime.maxMemory()) {
         throw new IllegalArgumentException(String.format(
             "Block cache sizes %,d and mutation queue size %,d is too large for this JVM"
@@ -296,7 +367,7 @@ public class TabletServerResourceManager {
 
     // totalMemory - freeMemory = memory in use
     // maxMemory - memory in use = max available memory
-    if (!usingNativeMap
+    if (!usingNativeMap && !usingOffHeapMap
         && maxMemory > runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory())) {
       log.warn("In-memory map may not fit into local memory space.");
     }
@@ -360,8 +431,10 @@ public class TabletServerResourceManager {
 
     Collection<ScanExecutorConfig> scanExecCfg = acuConf.getScanExecutors(isScanServer);
     Map<String,Queue<Runnable>> scanExecQueues = new HashMap<>();
-    scanExecutors = scanExecCfg.stream().collect(
-        toUnmodifiableMap(cfg -> cfg.name, cfg -> createPriorityExecutor(cfg, scanExecQueues)));
+    Map<String,ScanPrioritizer> prioritizers = new HashMap<>();
+    scanExecutors = scanExecCfg.stream().collect(toUnmodifiableMap(cfg -> cfg.name,
+        cfg -> createPriorityExecutor(cfg, scanExecQueues, prioritizers)));
+    scanExecPrioritizers = Map.copyOf(prioritizers);
     scanExecutorChoices = scanExecCfg.stream().collect(toUnmodifiableMap(cfg -> cfg.name,
         cfg -> new ScanExecutorImpl(cfg, scanExecQueues.get(cfg.name))));
 
@@ -655,6 +728,10 @@ public class TabletServerResourceManager {
       return extent;
     }
 
+    public ScanResultCache getScanResultCache() {
+      return scanResultCache;
+    }
+
     @VisibleForTesting
     AccumuloConfiguration getTableConfiguration() {
       return tableConf;
@@ -771,16 +848,16 @@ public class TabletServerResourceManager {
   public void executeReadAhead(KeyExtent tablet, ScanDispatcher dispatcher, ScanSession scanInfo,
       Runnable task) {
 
-    task = ScanSession.wrap(scanInfo, task);
+    ScanSession.ScanMeasurer measurer = ScanSession.wrap(scanInfo, task);
 
     if (tablet.isRootTablet()) {
       // TODO make meta dispatch??
       scanInfo.scanParams.setScanDispatch(ScanDispatch.builder().build());
-      task.run();
+      measurer.run();
     } else if (tablet.isMeta()) {
       // TODO make meta dispatch??
       scanInfo.scanParams.setScanDispatch(ScanDispatch.builder().build());
-      scanExecutors.get("meta").execute(task);
+      executeScan("meta", measurer);
     } else {
       DispatchParameters params = new DispatchParamsImpl() {
 
@@ -807,21 +884,28 @@ public class TabletServerResourceManager {
       ScanDispatch prefs = dispatcher.dispatch(params);
       scanInfo.scanParams.setScanDispatch(prefs);
 
-      ThreadPoolExecutor executor = scanExecutors.get(prefs.getExecutorName());
-      if (executor == null) {
+      String executorName = prefs.getExecutorName();
+      if (!scanExecutors.containsKey(executorName)) {
         log.warn(
             "For table id {}, {} dispatched to non-existent executor {} Using default executor.",
             tablet.tableId(), dispatcher.getClass().getName(), prefs.getExecutorName());
-        executor = scanExecutors.get(SimpleScanDispatcher.DEFAULT_SCAN_EXECUTOR_NAME);
-      } else if ("meta".equals(prefs.getExecutorName())) {
+        executorName = SimpleScanDispatcher.DEFAULT_SCAN_EXECUTOR_NAME;
+      } else if ("meta".equals(executorName)) {
         log.warn("For table id {}, {} dispatched to meta executor. Using default executor.",
             tablet.tableId(), dispatcher.getClass().getName());
-        executor = scanExecutors.get(SimpleScanDispatcher.DEFAULT_SCAN_EXECUTOR_NAME);
+        executorName = SimpleScanDispatcher.DEFAULT_SCAN_EXECUTOR_NAME;
       }
-      executor.execute(task);
+      executeScan(executorName, measurer);
     }
   }
 
+  private void executeScan(String executorName, ScanSession.ScanMeasurer measurer) {
+    // Set before executing instead of when the scan is queued, because a scan handed straight to a
+    // newly started thread never goes through the queue but must still be charged when it has run.
+    measurer.setPrioritizer(scanExecPrioritizers.get(executorName));
+    scanExecutors.get(executorName).execute(measurer);
+  }
+
   public void addAssignment(KeyExtent extent, Logger log, AssignmentHandler assignmentHandler) {
     assignmentPool
         .execute(new ActiveAssignmentRunnable(activeAssignments, extent, assignmentHandler));
@@ -855,6 +939,25 @@ public class TabletServerResourceManager {
     return _sCache;
   }
 
+  public ScanResultCache getScanResultCache() {
+    return scanResultCache;
+  }
+
+  /**
+   * Stops the block caches. The index of the second tier cache, if one is used, is saved so the
+   * next server started on this host can use the blocks it stored.
+   */
+  public void closeBlockCaches() {
+    cacheManager.stop();
+    if (l2BlockStore != null) {
+      try {
+        l2BlockStore.close();
+      } catch (IOException e) {
+        log.warn("Failed to close second tier block cache", e);
+      }
+    }
+  }
+
   public Cache<String,Long> getFileLenCache() {
     return fileLenCache;
   }
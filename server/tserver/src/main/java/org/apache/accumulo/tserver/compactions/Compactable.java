@@ -98,6 +98,19 @@ public interface Compactable {
 
   Optional<Files> getFiles(CompactionServiceId service, CompactionKind kind);
 
+  /**
+   * @return the number of scan sessions, lookups and conditional mutation checks per second that
+   *         recently read the tablet's files. A scan session is counted once, however many batches
+   *         it returns.
+   */
+  double getReadRate();
+
+  /**
+   * @return the average number of files each of the reads counted by {@link #getReadRate()} opened
+   *         when it started, or 0 if there were none
+   */
+  double getFilesPerRead();
+
   void compact(CompactionServiceId service, CompactionJob job, RateLimiter readLimiter,
       RateLimiter writeLimiter, long queuedTime);
 
@@ -260,6 +260,16 @@ public class CompactionService {
         return Map.of();
     }
 
+    @Override
+    public double getReadRate() {
+      return comp.getReadRate();
+    }
+
+    @Override
+    public double getFilesPerRead() {
+      return comp.getFilesPerRead();
+    }
+
     @Override
     public CompactionPlan.Builder createPlanBuilder() {
       return new CompactionPlanImpl.BuilderImpl(kind, files.allFiles, files.candidates);
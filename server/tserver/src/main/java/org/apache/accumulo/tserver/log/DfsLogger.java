@@ -39,8 +39,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.accumulo.core.Constants;
@@ -65,6 +67,7 @@ import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.tserver.TabletMutations;
 import org.apache.accumulo.tserver.logger.LogFileKey;
 import org.apache.accumulo.tserver.logger.LogFileValue;
+import org.apache.accumulo.tserver.metrics.TabletServerUpdateMetrics;
 import org.apache.accumulo.tserver.tablet.CommitSession;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
@@ -149,6 +152,11 @@ public class DfsLogger implements Comparable<DfsLogger> {
           continue;
         }
         workQueue.drainTo(work);
+        boolean interrupted = false;
+        if (groupCommitWaitNanos > 0) {
+          interrupted = waitForGroupCommit(workQueue, work, CLOSED_MARKER, groupCommitWaitNanos,
+              groupCommitMaxSize);
+        }
 
         Optional<Boolean> shouldHSync = Optional.empty();
         loop: for (LogWork logWork : work) {
@@ -212,12 +220,33 @@ public class DfsLogger implements Comparable<DfsLogger> {
           }
         }
 
+        if (updateMetrics != null) {
+          recordSyncMetrics(work);
+        }
+
         for (DfsLogger.LogWork logWork : work)
           if (logWork == CLOSED_MARKER)
             sawClosedMarker = true;
           else
             logWork.latch.countDown();
+
+        if (interrupted) {
+          // restored only after the sync, which would fail if the thread was interrupted
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    private void recordSyncMetrics(ArrayList<DfsLogger.LogWork> work) {
+      long now = System.nanoTime();
+      int batchSize = 0;
+      for (DfsLogger.LogWork logWork : work) {
+        if (logWork != CLOSED_MARKER) {
+          updateMetrics.addWalogSyncWait(now - logWork.created);
+          batchSize++;
+        }
       }
+      updateMetrics.addWalogSyncBatchSize(batchSize);
     }
 
     private void fail(ArrayList<DfsLogger.LogWork> work, Exception ex, String why) {
@@ -228,9 +257,45 @@ public class DfsLogger implements Comparable<DfsLogger> {
     }
   }
 
+  /**
+   * Keep collecting work for up to the group commit window, so that one sync covers the writes of
+   * many concurrent sessions. Stops early once enough work is pending or the close marker, which is
+   * always the last thing on the queue, has been seen. If interrupted, stops early without setting
+   * the interrupt flag again, so the work collected so far can still be synced.
+   *
+   * @param work
+   *          non-empty batch that queued work is added to
+   * @return true if the wait was interrupted, so the caller can restore the interrupt flag once the
+   *         work is synced
+   */
+  static <T> boolean waitForGroupCommit(BlockingQueue<T> queue, List<T> work, T closedMarker,
+      long waitNanos, int maxSize) {
+    long deadline = System.nanoTime() + waitNanos;
+    while (work.size() < maxSize && work.get(work.size() - 1) != closedMarker) {
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        break;
+      }
+      T next;
+      try {
+        next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException ex) {
+        // sync what was collected so far, an interrupted hsync would fail the whole batch
+        return true;
+      }
+      if (next == null) {
+        break;
+      }
+      work.add(next);
+      queue.drainTo(work);
+    }
+    return false;
+  }
+
   private static class LogWork {
     final CountDownLatch latch;
     final Durability durability;
+    final long created = System.nanoTime();
     volatile Exception exception;
 
     public LogWork(CountDownLatch latch, Durability durability) {
@@ -303,7 +368,10 @@ public class DfsLogger implements Comparable<DfsLogger> {
   private String metaReference;
   private AtomicLong syncCounter;
   private AtomicLong flushCounter;
+  private TabletServerUpdateMetrics updateMetrics;
   private final long slowFlushMillis;
+  private final long groupCommitWaitNanos;
+  private final int groupCommitMaxSize;
   private long writes = 0;
 
   private DfsLogger(ServerContext context, ServerResources conf) {
@@ -311,13 +379,22 @@ public class DfsLogger implements Comparable<DfsLogger> {
     this.conf = conf;
     this.slowFlushMillis =
         conf.getConfiguration().getTimeInMillis(Property.TSERV_SLOW_FLUSH_MILLIS);
+    this.groupCommitWaitNanos = TimeUnit.MILLISECONDS
+        .toNanos(conf.getConfiguration().getTimeInMillis(Property.TSERV_WAL_GROUP_COMMIT_WAIT));
+    this.groupCommitMaxSize =
+        Math.max(1, conf.getConfiguration().getCount(Property.TSERV_WAL_GROUP_COMMIT_MAX_SIZE));
   }
 
+  /**
+   * @param updateMetrics
+   *          metrics to record the size of and time spent waiting for each sync, may be null
+   */
   public DfsLogger(ServerContext context, ServerResources conf, AtomicLong syncCounter,
-      AtomicLong flushCounter) {
+      AtomicLong flushCounter, TabletServerUpdateMetrics updateMetrics) {
     this(context, conf);
     this.syncCounter = syncCounter;
     this.flushCounter = flushCounter;
+    this.updateMetrics = updateMetrics;
   }
 
   /**
@@ -21,6 +21,7 @@ package org.apache.accumulo.tserver.log;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -28,6 +29,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.accumulo.core.Constants;
@@ -159,22 +163,33 @@ public class LogSorter {
           Property.TSERV_SORT_BUFFER_SIZE);
       final long bufferSize = sortedLogConf.getAsBytes(prop);
       Thread.currentThread().setName("Sorting " + name + " for recovery");
-      while (true) {
-        final ArrayList<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
-        try {
-          long start = input.getPos();
-          while (input.getPos() - start < bufferSize) {
-            LogFileKey key = new LogFileKey();
-            LogFileValue value = new LogFileValue();
-            key.readFields(decryptingInput);
-            value.readFields(decryptingInput);
-            buffer.add(new Pair<>(key, value));
+      // bounds the number of chunks held in memory by the background writers
+      final Semaphore writePermits = new Semaphore(Math.max(1, sortWriteThreads));
+      final List<Future<?>> writes = new ArrayList<>();
+      boolean success = false;
+      try {
+        while (true) {
+          final ArrayList<Pair<LogFileKey,LogFileValue>> buffer = new ArrayList<>();
+          try {
+            long start = input.getPos();
+            while (input.getPos() - start < bufferSize) {
+              LogFileKey key = new LogFileKey();
+              LogFileValue value = new LogFileValue();
+              key.readFields(decryptingInput);
+              value.readFields(decryptingInput);
+              buffer.add(new Pair<>(key, value));
+            }
+            writeBufferAsync(destPath, buffer, part++, writePermits, writes);
+          } catch (EOFException ex) {
+            writeBufferAsync(destPath, buffer, part++, writePermits, writes);
+            break;
           }
-          writeBuffer(destPath, buffer, part++);
-          buffer.clear();
-        } catch (EOFException ex) {
-          writeBuffer(destPath, buffer, part++);
-          break;
+        }
+        waitForWrites(writes);
+        success = true;
+      } finally {
+        if (!success) {
+          writes.forEach(f -> f.cancel(true));
         }
       }
       fs.create(new Path(destPath, "finished")).close();
@@ -182,6 +197,64 @@ public class LogSorter {
           getSortTime());
     }
 
+    /**
+     * Sort and write the buffer in the background so that reading and decoding the next chunk of
+     * the log overlaps with it. Blocks when the configured number of chunks are already being
+     * written.
+     */
+    private void writeBufferAsync(String destPath, List<Pair<LogFileKey,LogFileValue>> buffer,
+        int part, Semaphore writePermits, List<Future<?>> writes) throws IOException {
+      if (sortWritePool == null) {
+        writeBuffer(destPath, buffer, part);
+        return;
+      }
+      try {
+        writePermits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting to write " + destPath);
+      }
+      try {
+        writes.add(sortWritePool.submit(() -> {
+          try {
+            writeBuffer(destPath, buffer, part);
+          } finally {
+            writePermits.release();
+          }
+          return null;
+        }));
+      } catch (RuntimeException e) {
+        writePermits.release();
+        throw e;
+      }
+      // fail early if an earlier chunk could not be written
+      for (Future<?> write : writes) {
+        if (write.isDone()) {
+          getWrite(write);
+        }
+      }
+    }
+
+    private void waitForWrites(List<Future<?>> writes) throws IOException {
+      for (Future<?> write : writes) {
+        getWrite(write);
+      }
+    }
+
+    private void getWrite(Future<?> write) throws IOException {
+      try {
+        write.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted waiting for sorted log writes");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw new IOException(e.getCause());
+      }
+    }
+
     synchronized void close() throws IOException {
       // If we receive an empty or malformed-header WAL, we won't
       // have input streams that need closing. Avoid the NPE.
@@ -210,6 +283,8 @@ public class LogSorter {
   }
 
   ThreadPoolExecutor threadPool;
+  private final ThreadPoolExecutor sortWritePool;
+  private final int sortWriteThreads;
   private final ServerContext context;
   private final double walBlockSize;
   private final CryptoService cryptoService;
@@ -222,6 +297,11 @@ public class LogSorter {
         Property.TSERV_RECOVERY_MAX_CONCURRENT));
     this.threadPool = ThreadPools.getServerThreadPools().createFixedThreadPool(threadPoolSize,
         this.getClass().getName(), true);
+    this.sortWriteThreads = conf.getCount(Property.TSERV_WAL_SORT_WRITE_THREADS);
+    this.sortWritePool = sortWriteThreads == 0 ? null
+        : ThreadPools.getServerThreadPools().createFixedThreadPool(
+            threadPoolSize * sortWriteThreads, this.getClass().getName() + " sorted chunk writer",
+            false);
     this.walBlockSize = DfsLogger.getWalBlockSize(conf);
     CryptoEnvironment env = new CryptoEnvironmentImpl(CryptoEnvironment.Scope.RECOVERY);
     this.cryptoService = context.getCryptoFactory().getService(env, conf.getAllCryptoProperties());
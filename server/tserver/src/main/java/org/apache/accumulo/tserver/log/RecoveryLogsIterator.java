@@ -21,9 +21,12 @@ package org.apache.accumulo.tserver.log;
 import java.io.IOException;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import org.apache.accumulo.core.client.Scanner;
 import org.apache.accumulo.core.client.ScannerBase;
@@ -43,8 +46,6 @@ import org.apache.hadoop.fs.Path;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Iterators;
-
 /**
  * Iterates over multiple sorted recovery logs merging them into a single sorted stream.
  */
@@ -94,7 +95,7 @@ public class RecoveryLogsIterator
         }
       }
     }
-    iter = Iterators.mergeSorted(iterators, Entry.comparingByKey());
+    iter = new MergingIterator(iterators);
   }
 
   @Override
@@ -119,6 +120,68 @@ public class RecoveryLogsIterator
     scanners.forEach(ScannerBase::close);
   }
 
+  /**
+   * A k-way merge of the sorted recovery files. Each file holds a chunk of a WAL that was sorted on
+   * its own, so the entries for a tablet arrive in long runs from one file before moving on to the
+   * next. Instead of going through the heap for every entry, the file that produced the last entry
+   * keeps being read until its next entry sorts after the head of another file. Equal keys are
+   * returned in the order of the files they came from.
+   */
+  static class MergingIterator implements Iterator<Entry<Key,Value>> {
+
+    private static class Source {
+      final int order;
+      final Iterator<Entry<Key,Value>> iter;
+      Entry<Key,Value> head;
+
+      Source(int order, Iterator<Entry<Key,Value>> iter) {
+        this.order = order;
+        this.iter = iter;
+        this.head = iter.next();
+      }
+    }
+
+    private static final Comparator<Source> SOURCE_COMPARATOR =
+        Comparator.<Source,Key>comparing(s -> s.head.getKey()).thenComparingInt(s -> s.order);
+
+    private final PriorityQueue<Source> heap;
+    private Source current;
+
+    MergingIterator(List<Iterator<Entry<Key,Value>>> iterators) {
+      heap = new PriorityQueue<>(Math.max(1, iterators.size()), SOURCE_COMPARATOR);
+      for (int i = 0; i < iterators.size(); i++) {
+        if (iterators.get(i).hasNext()) {
+          heap.add(new Source(i, iterators.get(i)));
+        }
+      }
+      current = heap.poll();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return current != null;
+    }
+
+    @Override
+    public Entry<Key,Value> next() {
+      if (current == null) {
+        throw new NoSuchElementException();
+      }
+      Entry<Key,Value> result = current.head;
+      if (current.iter.hasNext()) {
+        current.head = current.iter.next();
+        Source min = heap.peek();
+        if (min != null && SOURCE_COMPARATOR.compare(current, min) > 0) {
+          heap.add(current);
+          current = heap.poll();
+        }
+      } else {
+        current = heap.poll();
+      }
+      return result;
+    }
+  }
+
   /**
    * Check for sorting signal files (finished/failed) and get the logs in the provided directory.
    */
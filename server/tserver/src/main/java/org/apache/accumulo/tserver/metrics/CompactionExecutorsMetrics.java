@@ -30,9 +30,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
+import org.apache.accumulo.core.data.TableId;
 import org.apache.accumulo.core.metrics.MetricsProducer;
 import org.apache.accumulo.core.spi.compaction.CompactionExecutorId;
 import org.apache.accumulo.core.util.threads.ThreadPools;
+import org.apache.accumulo.server.compaction.CompactionStats;
+import org.apache.accumulo.server.metrics.CompactionTimingMetrics;
 import org.apache.accumulo.tserver.compactions.CompactionManager.ExtCompMetric;
 
 import com.google.common.collect.Sets;
@@ -48,6 +51,7 @@ public class CompactionExecutorsMetrics implements MetricsProducer {
   private final Map<CompactionExecutorId,CeMetrics> ceMetricsMap = new HashMap<>();
   private final Map<CompactionExecutorId,ExMetrics> exCeMetricsMap = new HashMap<>();
   private MeterRegistry registry = null;
+  private final CompactionTimingMetrics timingMetrics = new CompactionTimingMetrics();
 
   private static class CeMetrics {
     AtomicInteger queued;
@@ -148,6 +152,13 @@ public class CompactionExecutorsMetrics implements MetricsProducer {
     });
   }
 
+  /**
+   * Records where the time of a completed compaction was spent.
+   */
+  public void recordCompaction(CompactionExecutorId ceid, TableId tableId, CompactionStats stats) {
+    timingMetrics.record(ceid.canonical(), tableId, stats);
+  }
+
   public void setExternalMetricsSupplier(Supplier<Collection<ExtCompMetric>> ems) {
     this.externalMetricsSupplier = ems;
   }
@@ -157,6 +168,7 @@ public class CompactionExecutorsMetrics implements MetricsProducer {
     // Meters are registered dynamically. Save off the reference to the
     // registry to use at that time.
     this.registry = registry;
+    timingMetrics.registerMetrics(registry);
   }
 
 }
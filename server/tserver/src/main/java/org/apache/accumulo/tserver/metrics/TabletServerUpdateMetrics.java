@@ -36,6 +36,8 @@ public class TabletServerUpdateMetrics implements MetricsProducer {
   private Timer walogWriteTimeStat;
   private Timer commitTimeStat;
   private DistributionSummary mutationArraySizeStat;
+  private DistributionSummary walogSyncBatchSizeStat;
+  private Timer walogSyncWaitStat;
 
   public void addPermissionErrors(long value) {
     permissionErrorsCounter.increment(value);
@@ -65,6 +67,14 @@ public class TabletServerUpdateMetrics implements MetricsProducer {
     mutationArraySizeStat.record(value);
   }
 
+  public void addWalogSyncBatchSize(long value) {
+    walogSyncBatchSizeStat.record(value);
+  }
+
+  public void addWalogSyncWait(long nanos) {
+    walogSyncWaitStat.record(Duration.ofNanos(nanos));
+  }
+
   @Override
   public void registerMetrics(MeterRegistry registry) {
     permissionErrorsCounter = registry.counter(METRICS_UPDATE_ERRORS, "type", "permission");
@@ -79,6 +89,10 @@ public class TabletServerUpdateMetrics implements MetricsProducer {
         Timer.builder(METRICS_UPDATE_COMMIT).description("committing mutations").register(registry);
     mutationArraySizeStat = DistributionSummary.builder(METRICS_UPDATE_MUTATION_ARRAY_SIZE)
         .description("mutation array").register(registry);
+    walogSyncBatchSizeStat = DistributionSummary.builder(METRICS_UPDATE_WALOG_SYNC_BATCH_SIZE)
+        .description("WAL writes covered by a single sync").register(registry);
+    walogSyncWaitStat = Timer.builder(METRICS_UPDATE_WALOG_SYNC_WAIT)
+        .description("waiting for WAL sync").register(registry);
   }
 
 }
@@ -164,6 +164,7 @@ public class LookupTask extends ScanTask<MultiScanResult> {
       long finishTime = System.currentTimeMillis();
       session.totalLookupTime += (finishTime - startTime);
       session.numEntries += results.size();
+      session.addBytesRead(bytesAdded);
 
       // convert everything to thrift before adding result
       List<TKeyValue> retResults = new ArrayList<>();
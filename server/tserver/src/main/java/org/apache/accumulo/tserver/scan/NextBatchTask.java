@@ -26,6 +26,7 @@ import org.apache.accumulo.core.iteratorsImpl.system.IterationInterruptedExcepti
 import org.apache.accumulo.server.fs.TooManyFilesException;
 import org.apache.accumulo.tserver.TabletHostingServer;
 import org.apache.accumulo.tserver.session.SingleScanSession;
+import org.apache.accumulo.tserver.tablet.KVEntry;
 import org.apache.accumulo.tserver.tablet.ScanBatch;
 import org.apache.accumulo.tserver.tablet.TabletBase;
 import org.apache.accumulo.tserver.tablet.TabletClosedException;
@@ -73,6 +74,13 @@ public class NextBatchTask extends ScanTask<ScanBatch> {
       }
 
       ScanBatch batch = scanSession.scanner.read();
+      if (batch != null) {
+        long bytesRead = 0;
+        for (KVEntry entry : batch.getResults()) {
+          bytesRead += entry.numBytes();
+        }
+        scanSession.addBytesRead(bytesRead);
+      }
 
       // there should only be one thing on the queue at a time, so
       // it should be ok to call add()
@@ -32,6 +32,7 @@ import org.apache.accumulo.core.securityImpl.thrift.TCredentials;
 import org.apache.accumulo.core.spi.common.IteratorConfiguration;
 import org.apache.accumulo.core.spi.common.Stats;
 import org.apache.accumulo.core.spi.scan.ScanInfo;
+import org.apache.accumulo.core.spi.scan.ScanPrioritizer;
 import org.apache.accumulo.core.util.Stat;
 import org.apache.accumulo.tserver.scan.ScanParameters;
 import org.apache.accumulo.tserver.tablet.TabletBase;
@@ -50,6 +51,7 @@ public abstract class ScanSession extends Session implements ScanInfo {
 
     private ScanSession session;
     private Runnable task;
+    private volatile ScanPrioritizer prioritizer;
 
     ScanMeasurer(ScanSession session, Runnable task) {
       this.session = session;
@@ -61,12 +63,23 @@ public abstract class ScanSession extends Session implements ScanInfo {
       long t1 = System.currentTimeMillis();
       task.run();
       long t2 = System.currentTimeMillis();
-      session.finishedRun(t1, t2);
+      long bytesRead = session.finishedRun(t1, t2);
+      if (prioritizer != null) {
+        prioritizer.scanRan(session, t2 - t1, bytesRead);
+      }
     }
 
     public ScanInfo getScanInfo() {
       return session;
     }
+
+    /**
+     * Set the prioritizer of the executor the scan is executed on, so it can be told when the scan
+     * has run.
+     */
+    public void setPrioritizer(ScanPrioritizer prioritizer) {
+      this.prioritizer = prioritizer;
+    }
   }
 
   public static ScanMeasurer wrap(ScanSession scanInfo, Runnable r) {
@@ -76,6 +89,8 @@ public abstract class ScanSession extends Session implements ScanInfo {
   private OptionalLong lastRunTime = OptionalLong.empty();
   private Stat idleStats = new Stat();
   public Stat runStats = new Stat();
+  private Stat bytesReadStats = new Stat();
+  private long runBytesRead = 0;
 
   public final ScanParameters scanParams;
   private Map<String,String> executionHints;
@@ -122,6 +137,11 @@ public abstract class ScanSession extends Session implements ScanInfo {
     return copy;
   }
 
+  @Override
+  public Stats getBytesReadStats() {
+    return bytesReadStats;
+  }
+
   @Override
   public Set<Column> getFetchedColumns() {
     return Collections.unmodifiableSet(scanParams.getColumnSet());
@@ -168,12 +188,26 @@ public abstract class ScanSession extends Session implements ScanInfo {
     return executionHints;
   }
 
-  public void finishedRun(long start, long finish) {
+  /**
+   * Record the size of the key values read by the current run of the scan.
+   */
+  public void addBytesRead(long bytes) {
+    runBytesRead += bytes;
+  }
+
+  /**
+   * @return the size of the key values read by the run
+   */
+  public long finishedRun(long start, long finish) {
     long idleTime = start - getLastRunTime().orElse(getCreationTime());
     long runTime = finish - start;
     lastRunTime = OptionalLong.of(finish);
     idleStats.addStat(idleTime);
     runStats.addStat(runTime);
+    long bytesRead = runBytesRead;
+    bytesReadStats.addStat(bytesRead);
+    runBytesRead = 0;
+    return bytesRead;
   }
 
   public TabletResolver getTabletResolver() {
@@ -28,9 +28,10 @@ public class Session {
   }
 
   public final String client;
-  public long lastAccessTime;
+  // volatile so the session manager can read these without locking the session
+  public volatile long lastAccessTime;
   public long startTime;
-  State state = State.NEW;
+  volatile State state = State.NEW;
   private final TCredentials credentials;
 
   Session(TCredentials credentials) {
@@ -21,16 +21,16 @@ package org.apache.accumulo.tserver.session;
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import org.apache.accumulo.core.conf.AccumuloConfiguration;
@@ -52,7 +52,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Maps;
 
 public class SessionManager {
   private static final Logger log = LoggerFactory.getLogger(SessionManager.class);
@@ -61,7 +60,8 @@ public class SessionManager {
   private final ConcurrentMap<Long,Session> sessions = new ConcurrentHashMap<>();
   private final long maxIdle;
   private final long maxUpdateIdle;
-  private final List<Session> idleSessions = new ArrayList<>();
+  // removed sessions whose cleanup has not finished, only added to by the sweep
+  private final Queue<Session> idleSessions = new ConcurrentLinkedQueue<>();
   private final Long expiredSessionMarker = (long) -1;
   private final AccumuloConfiguration aconf;
   private final ServerContext ctx;
@@ -171,6 +171,8 @@ public class SessionManager {
     Session session = sessions.get(sessionId);
 
     if (session != null) {
+      // check and update under the session's lock, so the sweep can not remove the session between
+      // the two and hand out a removed session
       synchronized (session) {
         if (session.state == State.REMOVED) {
           return null;
@@ -214,12 +216,18 @@ public class SessionManager {
     Iterator<Session> iter = sessions.values().iterator();
     while (iter.hasNext()) {
       Session session = iter.next();
+      long configuredIdle = maxIdle;
+      if (session instanceof UpdateSession) {
+        configuredIdle = maxUpdateIdle;
+      }
+      // only lock sessions that look idle, so the sweep does not hold up reserving and
+      // unreserving busy sessions
+      if (session.state != State.UNRESERVED
+          || System.currentTimeMillis() - session.lastAccessTime <= configuredIdle) {
+        continue;
+      }
       synchronized (session) {
         if (session.state == State.UNRESERVED) {
-          long configuredIdle = maxIdle;
-          if (session instanceof UpdateSession) {
-            configuredIdle = maxUpdateIdle;
-          }
           long idleTime = System.currentTimeMillis() - session.lastAccessTime;
           if (idleTime > configuredIdle) {
             log.info("Closing idle session from user={}, client={}, idle={}ms", session.getUser(),
@@ -232,31 +240,24 @@ public class SessionManager {
       }
     }
 
-    // do clean up outside of lock for TabletServer in a synchronized block for simplicity vice a
-    // synchronized list
-
-    synchronized (idleSessions) {
-      sessionsToCleanup.addAll(idleSessions);
-      idleSessions.clear();
+    // retry the sessions that could not be cleaned up last time
+    Session idleSession;
+    while ((idleSession = idleSessions.poll()) != null) {
+      sessionsToCleanup.add(idleSession);
     }
 
-    // perform cleanup for all of the sessions
+    // perform cleanup for all of the sessions outside of any lock
     for (Session session : sessionsToCleanup) {
-      if (!session.cleanup())
-        synchronized (idleSessions) {
-          idleSessions.add(session);
-        }
+      if (!session.cleanup()) {
+        idleSessions.add(session);
+      }
     }
   }
 
   public void removeIfNotAccessed(final long sessionId, final long delay) {
     Session session = sessions.get(sessionId);
     if (session != null) {
-      long tmp;
-      synchronized (session) {
-        tmp = session.lastAccessTime;
-      }
-      final long removeTime = tmp;
+      final long removeTime = session.lastAccessTime;
       Runnable r = new Runnable() {
         @Override
         public void run() {
@@ -286,23 +287,21 @@ public class SessionManager {
     }
   }
 
+  /**
+   * Passes the id and session of every session, including removed sessions still being cleaned up,
+   * to the consumer. Does not lock anything, so sessions added or removed concurrently may or may
+   * not be seen.
+   */
+  private void forEachSession(BiConsumer<Long,Session> consumer) {
+    sessions.forEach(consumer);
+    // report these so they are returned in the active scans call
+    idleSessions.forEach(session -> consumer.accept(expiredSessionMarker, session));
+  }
+
   public Map<TableId,MapCounter<ScanRunState>> getActiveScansPerTable() {
     Map<TableId,MapCounter<ScanRunState>> counts = new HashMap<>();
 
-    Set<Entry<Long,Session>> copiedIdleSessions = new HashSet<>();
-
-    synchronized (idleSessions) {
-      /**
-       * Add sessions so that get the list returned in the active scans call
-       */
-      for (Session session : idleSessions) {
-        copiedIdleSessions.add(Maps.immutableEntry(expiredSessionMarker, session));
-      }
-    }
-
-    List.of(sessions.entrySet(), copiedIdleSessions).forEach(set -> set.forEach(entry -> {
-
-      Session session = entry.getValue();
+    forEachSession((sessionId, session) -> {
       ScanTask<?> nbt = null;
       TableId tableID = null;
 
@@ -322,7 +321,7 @@ public class SessionManager {
           counts.computeIfAbsent(tableID, unusedKey -> new MapCounter<>()).increment(srs, 1);
         }
       }
-    }));
+    });
 
     return counts;
   }
@@ -331,19 +330,8 @@ public class SessionManager {
 
     final List<ActiveScan> activeScans = new ArrayList<>();
     final long ct = System.currentTimeMillis();
-    final Set<Entry<Long,Session>> copiedIdleSessions = new HashSet<>();
-
-    synchronized (idleSessions) {
-      /**
-       * Add sessions so that get the list returned in the active scans call
-       */
-      for (Session session : idleSessions) {
-        copiedIdleSessions.add(Maps.immutableEntry(expiredSessionMarker, session));
-      }
-    }
 
-    List.of(sessions.entrySet(), copiedIdleSessions).forEach(s -> s.forEach(entry -> {
-      Session session = entry.getValue();
+    forEachSession((sessionId, session) -> {
       if (session instanceof SingleScanSession) {
         SingleScanSession ss = (SingleScanSession) session;
 
@@ -377,7 +365,7 @@ public class SessionManager {
 
         // scanId added by ACCUMULO-2641 is an optional thrift argument and not available in
         // ActiveScan constructor
-        activeScan.setScanId(entry.getKey());
+        activeScan.setScanId(sessionId);
         activeScans.add(activeScan);
 
       } else if (session instanceof MultiScanSession) {
@@ -411,7 +399,7 @@ public class SessionManager {
             params.getSsiList(), params.getSsio(), params.getAuthorizations().getAuthorizationsBB(),
             params.getClassLoaderContext()));
       }
-    }));
+    });
 
     return activeScans;
   }
@@ -1067,6 +1067,17 @@ public class CompactableImpl implements Compactable {
     return tablet.getTableConfiguration().isPropertySet(Property.TABLE_COMPACTION_STRATEGY);
   }
 
+  @Override
+  public double getReadRate() {
+    return tablet.readRate();
+  }
+
+  @Override
+  public double getFilesPerRead() {
+    double reads = tablet.readRate();
+    return reads > 0 ? tablet.filesReadRate() / reads : 0;
+  }
+
   @Override
   public Optional<Files> getFiles(CompactionServiceId service, CompactionKind kind) {
 
@@ -1263,6 +1274,8 @@ public class CompactableImpl implements Compactable {
           compactFiles, allFiles, kind, tmpFileName);
 
       TabletLogger.compacted(getExtent(), job, newFile);
+      tablet.getTabletServer().getCompactionExecutorsMetrics().recordCompaction(job.getExecutor(),
+          getTableId(), stats);
     } catch (CompactionCanceledException cce) {
       log.debug("Compaction canceled {} ", getExtent());
     } catch (Exception e) {
@@ -265,6 +265,7 @@ class DatafileManager {
           }
           datafileSizes.put(tpath.getKey(), tpath.getValue());
         }
+        tablet.updateDataVersion();
 
         tablet.getTabletResources().importedMapFiles();
 
@@ -401,6 +402,7 @@ class DatafileManager {
           }
           datafileSizes.put(newFileStored, dfv);
         }
+        tablet.updateDataVersion();
 
         tablet.flushComplete(flushId);
 
@@ -479,6 +481,7 @@ class DatafileManager {
           datafileSizes.put(newFile, dfv);
           // could be used by a follow on compaction in a multipass compaction
         }
+        tablet.updateDataVersion();
 
         tablet.computeNumEntries();
 
@@ -31,7 +31,7 @@ public class KVEntry extends KeyValue {
     super(new Key(k), Arrays.copyOf(v.get(), v.get().length));
   }
 
-  int numBytes() {
+  public int numBytes() {
     return getKey().getSize() + getValue().get().length;
   }
 
@@ -65,6 +65,7 @@ class ScanDataSource implements DataSource {
   private long fileReservationId;
   private AtomicBoolean interruptFlag;
   private StatsIterator statsIterator;
+  private int numFilesOpened = 0;
 
   private final ScanParameters scanParams;
   private final boolean loadIters;
@@ -161,6 +162,7 @@ class ScanDataSource implements DataSource {
 
     Collection<InterruptibleIterator> mapfiles =
         fileManager.openFiles(files, scanParams.isIsolated(), samplerConfig);
+    numFilesOpened = mapfiles.size();
 
     List.of(mapfiles, memIters).forEach(c -> c.forEach(ii -> ii.setInterruptFlag(interruptFlag)));
 
@@ -263,6 +265,13 @@ class ScanDataSource implements DataSource {
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * @return the number of files opened the last time the data source's iterator was created
+   */
+  int getNumFilesOpened() {
+    return numFilesOpened;
+  }
+
   public void reattachFileManager() throws IOException {
     if (fileManager != null)
       fileManager.reattach(scanParams.getSamplerConfigurationImpl());
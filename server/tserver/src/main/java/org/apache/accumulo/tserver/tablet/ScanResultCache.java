@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.tablet;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Column;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.dataImpl.thrift.IterInfo;
+import org.apache.accumulo.core.sample.impl.SamplerConfigurationImpl;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.tserver.scan.ScanParameters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Caches the results of scans on tables that set {@code table.cache.scan.results.enable}, so
+ * identical scans do not run the iterator stack again. Results are keyed on everything that
+ * determines them, including the data version of the tablet. Writes, flushes, compactions and bulk
+ * imports change the data version, so results for older data are never returned and are evicted as
+ * the cache fills up.
+ */
+public class ScanResultCache {
+
+  // rough size of a cached result and its key, not counting the entries
+  private static final int OVERHEAD = 256;
+
+  static final class CacheKey {
+    private final KeyExtent extent;
+    private final long dataVersion;
+    private final long configVersion;
+    private final List<Range> ranges;
+    private final Set<Column> columns;
+    private final Authorizations authorizations;
+    private final List<IterInfo> ssiList;
+    private final Map<String,Map<String,String>> ssio;
+    private final SamplerConfigurationImpl samplerConfig;
+    private final String classLoaderContext;
+    private final int maxEntries;
+    private final long maxResultsSize;
+    private final int hashCode;
+
+    private CacheKey(TabletBase tablet, long dataVersion, List<Range> ranges,
+        ScanParameters scanParams, int maxEntries, long maxResultsSize) {
+      this.extent = tablet.getExtent();
+      this.dataVersion = dataVersion;
+      this.configVersion = tablet.getTableConfiguration().getUpdateCount();
+      this.ranges = List.copyOf(ranges);
+      this.columns = scanParams.getColumnSet();
+      this.authorizations = scanParams.getAuthorizations();
+      this.ssiList = scanParams.getSsiList();
+      this.ssio = scanParams.getSsio();
+      this.samplerConfig = scanParams.getSamplerConfigurationImpl();
+      this.classLoaderContext = scanParams.getClassLoaderContext();
+      this.maxEntries = maxEntries;
+      this.maxResultsSize = maxResultsSize;
+      this.hashCode =
+          Objects.hash(extent, dataVersion, configVersion, this.ranges, columns, authorizations,
+              ssiList, ssio, samplerConfig, classLoaderContext, maxEntries, maxResultsSize);
+    }
+
+    long getDataVersion() {
+      return dataVersion;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CacheKey)) {
+        return false;
+      }
+      CacheKey other = (CacheKey) o;
+      return hashCode == other.hashCode && dataVersion == other.dataVersion
+          && configVersion == other.configVersion && maxEntries == other.maxEntries
+          && maxResultsSize == other.maxResultsSize && extent.equals(other.extent)
+          && ranges.equals(other.ranges) && Objects.equals(columns, other.columns)
+          && Objects.equals(authorizations, other.authorizations)
+          && Objects.equals(ssiList, other.ssiList) && Objects.equals(ssio, other.ssio)
+          && Objects.equals(samplerConfig, other.samplerConfig)
+          && Objects.equals(classLoaderContext, other.classLoaderContext);
+    }
+  }
+
+  private static final class CachedLookup {
+    final List<KVEntry> results;
+    final long bytesAdded;
+    final long dataSize;
+
+    CachedLookup(List<KVEntry> results, long bytesAdded, long dataSize) {
+      this.results = results;
+      this.bytesAdded = bytesAdded;
+      this.dataSize = dataSize;
+    }
+  }
+
+  private final Cache<CacheKey,Object> cache;
+
+  public ScanResultCache(long maxSize) {
+    cache = Caffeine.newBuilder().maximumWeight(maxSize).weigher(ScanResultCache::weigh).build();
+  }
+
+  private static int weigh(CacheKey key, Object value) {
+    List<KVEntry> results;
+    if (value instanceof Batch) {
+      results = ((Batch) value).getResults();
+    } else {
+      results = ((CachedLookup) value).results;
+    }
+    long weight = OVERHEAD + key.ranges.size() * (long) OVERHEAD;
+    if (results != null) {
+      for (KVEntry entry : results) {
+        weight += entry.estimateMemoryUsed();
+      }
+    }
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return a key for the next batch of a scan, or null if the results of the scan can not be
+   *         cached
+   */
+  CacheKey batchKey(TabletBase tablet, Range range, ScanParameters scanParams,
+      long maxResultsSize) {
+    if (!isCacheable(tablet, scanParams)) {
+      return null;
+    }
+    return new CacheKey(tablet, tablet.getDataVersion(), List.of(range), scanParams,
+        scanParams.getMaxEntries(), maxResultsSize);
+  }
+
+  /**
+   * @return a key for a lookup of sorted, non overlapping ranges, or null if the results of the
+   *         lookup can not be cached
+   */
+  CacheKey lookupKey(TabletBase tablet, List<Range> ranges, ScanParameters scanParams) {
+    if (!isCacheable(tablet, scanParams)) {
+      return null;
+    }
+    return new CacheKey(tablet, tablet.getDataVersion(), ranges, scanParams, -1, -1);
+  }
+
+  private static boolean isCacheable(TabletBase tablet, ScanParameters scanParams) {
+    // isolated scans keep reading the data they started with, which may be an older version
+    return !scanParams.isIsolated()
+        && tablet.getTableConfiguration().getBoolean(Property.TABLE_SCAN_RESULTS_CACHE_ENABLED);
+  }
+
+  Batch getBatch(CacheKey key) {
+    return (Batch) cache.getIfPresent(key);
+  }
+
+  void putBatch(TabletBase tablet, CacheKey key, Batch batch) {
+    // the data may have changed while the batch was read, in which case the batch may contain
+    // some of the changes
+    if (tablet.getDataVersion() == key.getDataVersion()) {
+      cache.put(key, batch);
+    }
+  }
+
+  /**
+   * Add the cached results of a lookup to the results, if they fit in the remaining result size.
+   *
+   * @return the result of the lookup, or null if the lookup must be run
+   */
+  Tablet.LookupResult getLookup(CacheKey key, List<KVEntry> results, long maxResultsSize) {
+    CachedLookup cached = (CachedLookup) cache.getIfPresent(key);
+    if (cached == null || cached.bytesAdded > maxResultsSize) {
+      return null;
+    }
+    results.addAll(cached.results);
+    Tablet.LookupResult lookupResult = new Tablet.LookupResult();
+    lookupResult.bytesAdded = cached.bytesAdded;
+    lookupResult.dataSize = cached.dataSize;
+    return lookupResult;
+  }
+
+  /**
+   * Cache the results a lookup added, if the lookup read all of its ranges.
+   */
+  void putLookup(TabletBase tablet, CacheKey key, Tablet.LookupResult lookupResult,
+      List<KVEntry> added) {
+    if (lookupResult.unfinishedRanges.isEmpty() && !lookupResult.closed
+        && tablet.getDataVersion() == key.getDataVersion()) {
+      cache.put(key,
+          new CachedLookup(List.copyOf(added), lookupResult.bytesAdded, lookupResult.dataSize));
+    }
+  }
+}
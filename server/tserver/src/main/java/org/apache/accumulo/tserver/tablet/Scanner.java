@@ -24,6 +24,8 @@ import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
@@ -45,6 +47,8 @@ public class Scanner {
   private ScanDataSource isolatedDataSource;
   private boolean sawException = false;
   private boolean scanClosed = false;
+  // a scan session is counted as one read of the tablet, however many batches it returns
+  private boolean readRecorded = false;
   /**
    * A fair semaphore of one is used since explicitly know the access pattern will be one thread to
    * read and another to call close if the session becomes idle. Since we're explicitly preventing
@@ -55,6 +59,9 @@ public class Scanner {
 
   private AtomicBoolean interruptFlag;
 
+  // the memory limit of the next batch, which grows so the first results are returned quickly
+  private long batchMemory = 0;
+
   Scanner(TabletBase tablet, Range range, ScanParameters scanParams, AtomicBoolean interruptFlag) {
     this.tablet = tablet;
     this.range = range;
@@ -105,7 +112,19 @@ public class Scanner {
         iter = new SourceSwitchingIterator(dataSource, false);
       }
 
-      results = tablet.nextBatch(iter, range, scanParams);
+      AccumuloConfiguration tableConf = tablet.getTableConfiguration();
+      long maxMemory = tableConf.getAsBytes(Property.TABLE_SCAN_MAXMEM);
+      if (batchMemory <= 0) {
+        batchMemory = tableConf.getAsBytes(Property.TABLE_SCAN_MAXMEM_INITIAL);
+      }
+      long batchLimit = batchMemory > 0 ? Math.min(batchMemory, maxMemory) : maxMemory;
+
+      results = tablet.nextBatch(iter, range, scanParams, batchLimit);
+      batchMemory = batchLimit * 2;
+      if (!readRecorded) {
+        tablet.recordRead(dataSource.getNumFilesOpened());
+        readRecorded = true;
+      }
 
       if (results.getResults() == null) {
         range = null;
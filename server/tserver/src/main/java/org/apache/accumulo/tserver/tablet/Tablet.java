@@ -211,6 +211,8 @@ public class Tablet extends TabletBase {
   private final Rate ingestRate = new Rate(0.95);
   private final Rate ingestByteRate = new Rate(0.95);
   private final Rate scannedRate = new Rate(0.95);
+  private final Rate readRate = new Rate(0.95);
+  private final Rate filesReadRate = new Rate(0.95);
 
   private long lastMinorCompactionFinishTime = 0;
   private long lastMapFileImportTime = 0;
@@ -453,6 +455,7 @@ public class Tablet extends TabletBase {
     try {
       SortedKeyValueIterator<Key,Value> iter = new SourceSwitchingIterator(dataSource);
       checker.check(iter);
+      recordRead(dataSource.getNumFilesOpened());
     } catch (IOException ioe) {
       dataSource.close(true);
       throw ioe;
@@ -865,6 +868,7 @@ public class Tablet extends TabletBase {
     }
 
     getTabletMemory().mutate(commitSession, mutations, totalCount);
+    updateDataVersion();
 
     synchronized (this) {
       if (isCloseComplete()) {
@@ -1543,6 +1547,14 @@ public class Tablet extends TabletBase {
     return scannedRate.rate();
   }
 
+  public double readRate() {
+    return readRate.rate();
+  }
+
+  public double filesReadRate() {
+    return filesReadRate.rate();
+  }
+
   public long totalQueriesResults() {
     return this.queryResultCount.get();
   }
@@ -1574,6 +1586,8 @@ public class Tablet extends TabletBase {
     ingestRate.update(now, ingestCount);
     ingestByteRate.update(now, ingestBytes);
     scannedRate.update(now, this.scannedCount.get());
+    readRate.update(now, this.readCount.get());
+    filesReadRate.update(now, this.filesReadCount.get());
   }
 
   public long getSplitCreationTime() {
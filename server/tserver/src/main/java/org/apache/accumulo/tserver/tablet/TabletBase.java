@@ -72,6 +72,10 @@ public abstract class TabletBase {
 
   private static final byte[] EMPTY_BYTES = new byte[0];
 
+  // data versions are unique across all tablets, so a tablet that is loaded again never reuses
+  // the data version of its previous load
+  private static final AtomicLong dataVersions = new AtomicLong(0);
+
   protected final KeyExtent extent;
   protected final ServerContext context;
   private final TabletHostingServer server;
@@ -80,9 +84,14 @@ public abstract class TabletBase {
   protected AtomicLong queryResultCount = new AtomicLong(0);
   protected AtomicLong queryResultBytes = new AtomicLong(0);
   protected final AtomicLong scannedCount = new AtomicLong(0);
+  // the number of times scans and lookups opened the files of the tablet, and the files they opened
+  protected final AtomicLong readCount = new AtomicLong(0);
+  protected final AtomicLong filesReadCount = new AtomicLong(0);
 
   protected final Set<ScanDataSource> activeScans = new HashSet<>();
 
+  private volatile long dataVersion = dataVersions.incrementAndGet();
+
   private final AccumuloConfiguration.Deriver<byte[]> defaultSecurityLabel;
 
   protected final TableConfiguration tableConfiguration;
@@ -131,6 +140,21 @@ public abstract class TabletBase {
 
   public abstract TabletServerScanMetrics getScanMetrics();
 
+  /**
+   * @return a version that changes whenever the data of the tablet may have changed
+   */
+  public long getDataVersion() {
+    return dataVersion;
+  }
+
+  /**
+   * Change the data version of the tablet. Call this after the change to the tablet's data is
+   * visible to scans.
+   */
+  void updateDataVersion() {
+    dataVersion = dataVersions.incrementAndGet();
+  }
+
   protected ScanDataSource createDataSource(ScanParameters scanParams, boolean loadIters,
       AtomicBoolean interruptFlag) {
     return new ScanDataSource(this, scanParams, loadIters, interruptFlag);
@@ -145,6 +169,15 @@ public abstract class TabletBase {
     return new Scanner(this, range, scanParams, interruptFlag);
   }
 
+  /**
+   * Records that a scan session, lookup or conditional mutation check read the tablet's files. Each
+   * is recorded once, however many batches it returns.
+   */
+  void recordRead(int numFiles) {
+    readCount.incrementAndGet();
+    filesReadCount.addAndGet(numFiles);
+  }
+
   public AtomicLong getScannedCounter() {
     return this.scannedCount;
   }
@@ -196,8 +229,11 @@ public abstract class TabletBase {
       tabletRange.clip(range);
     }
 
-    SourceSwitchingIterator.DataSource dataSource =
-        createDataSource(scanParams, true, interruptFlag);
+    ScanResultCache cache = getTabletResources().getScanResultCache();
+    ScanResultCache.CacheKey cacheKey = cache.lookupKey(this, ranges, scanParams);
+    int startSize = results.size();
+
+    ScanDataSource dataSource = createDataSource(scanParams, true, interruptFlag);
 
     Tablet.LookupResult result = null;
 
@@ -205,7 +241,17 @@ public abstract class TabletBase {
       SortedKeyValueIterator<Key,Value> iter = new SourceSwitchingIterator(dataSource);
       this.lookupCount.incrementAndGet();
       this.server.getScanMetrics().incrementLookupCount(1);
+      if (cacheKey != null) {
+        result = cache.getLookup(cacheKey, results, maxResultSize);
+        if (result != null) {
+          return result;
+        }
+      }
       result = lookup(iter, ranges, results, scanParams, maxResultSize);
+      recordRead(dataSource.getNumFilesOpened());
+      if (cacheKey != null) {
+        cache.putLookup(this, cacheKey, result, results.subList(startSize, results.size()));
+      }
       return result;
     } catch (IOException ioe) {
       dataSource.close(true);
@@ -226,8 +272,24 @@ public abstract class TabletBase {
     }
   }
 
-  Batch nextBatch(SortedKeyValueIterator<Key,Value> iter, Range range, ScanParameters scanParams)
-      throws IOException {
+  Batch nextBatch(SortedKeyValueIterator<Key,Value> iter, Range range, ScanParameters scanParams,
+      long maxResultsSize) throws IOException {
+    ScanResultCache cache = getTabletResources().getScanResultCache();
+    ScanResultCache.CacheKey cacheKey = cache.batchKey(this, range, scanParams, maxResultsSize);
+    if (cacheKey == null) {
+      return readBatch(iter, range, scanParams, maxResultsSize);
+    }
+
+    Batch batch = cache.getBatch(cacheKey);
+    if (batch == null) {
+      batch = readBatch(iter, range, scanParams, maxResultsSize);
+      cache.putBatch(this, cacheKey, batch);
+    }
+    return batch;
+  }
+
+  private Batch readBatch(SortedKeyValueIterator<Key,Value> iter, Range range,
+      ScanParameters scanParams, long maxResultsSize) throws IOException {
 
     // log.info("In nextBatch..");
 
@@ -246,8 +308,6 @@ public abstract class TabletBase {
     long resultSize = 0L;
     long resultBytes = 0L;
 
-    long maxResultsSize = getTableConfiguration().getAsBytes(Property.TABLE_SCAN_MAXMEM);
-
     Key continueKey = null;
     boolean skipContinueKey = false;
 
@@ -20,6 +20,7 @@ package org.apache.accumulo.tserver;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -29,11 +30,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.accumulo.core.client.SampleNotPresentException;
 import org.apache.accumulo.core.client.sample.RowSampler;
@@ -103,6 +106,8 @@ public class InMemoryMapTest extends WithTestNames {
     EasyMock.expect(context.getTableConfiguration(EasyMock.anyObject())).andReturn(tConf)
         .anyTimes();
     EasyMock.expect(tConf.getCryptoService()).andReturn(NoCryptoServiceFactory.NONE).anyTimes();
+    EasyMock.expect(tConf.getBoolean(Property.TABLE_FILE_MMAP_ENABLED)).andReturn(false).anyTimes();
+    EasyMock.expect(tConf.getCount(Property.TABLE_FILE_READ_AHEAD_BLOCKS)).andReturn(0).anyTimes();
     EasyMock.expect(context.getHadoopConf()).andReturn(hadoopConf).anyTimes();
     EasyMock.replay(context, tConf);
     return context;
@@ -487,6 +492,90 @@ public class InMemoryMapTest extends WithTestNames {
     testAndCallNext(skvi1, "r1", "foo:cq", 3, "v1");
   }
 
+  @Test
+  public void testConcurrentWrites() throws Exception {
+    ConfigurationCopy config = newConfig(uniqueDirPaths(1)[0]);
+    config.set(Property.TSERV_MEMORY_MAP_CONCURRENT_WRITES, "true");
+    config.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "lg1",
+        LocalityGroupUtil.encodeColumnFamilies(toTextSet("cf1")));
+    config.set(Property.TABLE_LOCALITY_GROUPS.getKey(), "lg1");
+
+    InMemoryMap imm = new InMemoryMap(config, getServerContext(), TableId.of("--TEST--"));
+
+    final int numWriters = 8;
+    final int mutationsPerWriter = 500;
+    AtomicBoolean writing = new AtomicBoolean(true);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+
+    // a reader should never see part of a mutation, even though the parts of each mutation are
+    // written to different locality groups
+    Thread reader = new Thread(() -> {
+      try {
+        while (writing.get()) {
+          MemoryIterator iter = imm.skvIterator(null);
+          iter.seek(new Range(), Set.of(), false);
+          while (iter.hasTop()) {
+            Text row = iter.getTopKey().getRow();
+            int count = 0;
+            while (iter.hasTop() && iter.getTopKey().getRow().equals(row)) {
+              count++;
+              iter.next();
+            }
+            assertEquals(2, count, "Saw partial mutation for " + row);
+          }
+          iter.close();
+        }
+      } catch (Throwable t) {
+        error.compareAndSet(null, t);
+      }
+    });
+    reader.start();
+
+    List<Thread> writers = new ArrayList<>();
+    for (int w = 0; w < numWriters; w++) {
+      final int writer = w;
+      writers.add(new Thread(() -> {
+        try {
+          for (int i = 0; i < mutationsPerWriter; i++) {
+            String row = String.format("r%02d_%04d", writer, i);
+            Mutation m = new Mutation(row);
+            m.put("cf1", "x", 1, "v");
+            m.put("foo", "b", 1, "v");
+            imm.mutate(Collections.singletonList(m), 2);
+
+            // a write must be visible to new readers once mutate returns
+            MemoryIterator iter = imm.skvIterator(null);
+            iter.seek(new Range(row), Set.of(), false);
+            assertTrue(iter.hasTop(), "Did not see write for " + row);
+            iter.close();
+          }
+        } catch (Throwable t) {
+          error.compareAndSet(null, t);
+        }
+      }));
+    }
+
+    writers.forEach(Thread::start);
+    for (Thread t : writers) {
+      t.join();
+    }
+    writing.set(false);
+    reader.join();
+
+    assertNull(error.get());
+    assertEquals(numWriters * mutationsPerWriter * 2, imm.getNumEntries());
+
+    // all kvCounts should have been made visible
+    SortedKeyValueIterator<Key,Value> iter = imm.compactionIterator();
+    iter.seek(new Range(), Set.of(), false);
+    int count = 0;
+    while (iter.hasTop()) {
+      count++;
+      iter.next();
+    }
+    assertEquals(numWriters * mutationsPerWriter * 2, count);
+  }
+
   @Test
   public void testLocalityGroups() throws Exception {
     ConfigurationCopy config = newConfig(uniqueDirPaths(1)[0]);
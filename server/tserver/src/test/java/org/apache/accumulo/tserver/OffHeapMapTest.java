@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.util.LocalityGroupUtil;
+import org.apache.accumulo.tserver.InMemoryMap.MemoryIterator;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+@SuppressFBWarnings(value = {"PATH_TRAVERSAL_IN", "PREDICTABLE_RANDOM"},
+    justification = "paths not set by user input, random used for test data only")
+public class OffHeapMapTest {
+
+  @TempDir
+  private static File tempDir;
+
+  private static MemKey newKey(int row, int col, long ts, boolean del, int kvCount) {
+    return new MemKey(String.format("r%06d", row).getBytes(), "cf".getBytes(),
+        String.format("cq%03d", col).getBytes(), new byte[0], ts, del, true, kvCount);
+  }
+
+  private static Value newValue(int v) {
+    return new Value(("v" + v).getBytes());
+  }
+
+  private static void verify(SortedKeyValueIterator<Key,Value> iter,
+      Iterator<Entry<Key,Value>> expected) throws Exception {
+    while (expected.hasNext()) {
+      Entry<Key,Value> entry = expected.next();
+      assertTrue(iter.hasTop());
+      assertEquals(entry.getKey(), iter.getTopKey());
+      assertEquals(((MemKey) entry.getKey()).getKVCount(),
+          ((MemKey) iter.getTopKey()).getKVCount());
+      assertEquals(entry.getValue(), iter.getTopValue());
+      iter.next();
+    }
+    assertFalse(iter.hasTop());
+  }
+
+  @Test
+  public void testOrderingMatchesMemKeyComparator() throws Exception {
+    OffHeapMap map = new OffHeapMap();
+    TreeMap<Key,Value> expected = new TreeMap<>(new MemKeyComparator());
+    Random random = new Random(42);
+
+    int kvCount = 0;
+    for (int i = 0; i < 20_000; i++) {
+      // use a small key space so there are many keys that only differ in timestamp, delete flag
+      // or kvCount
+      MemKey key = newKey(random.nextInt(500), random.nextInt(5), random.nextInt(3),
+          random.nextBoolean(), kvCount++);
+      Value value = newValue(i);
+      map.put(key, value);
+      expected.put(key, value);
+    }
+
+    assertEquals(expected.size(), map.size());
+    assertTrue(map.getMemoryUsed() > 0);
+
+    SortedKeyValueIterator<Key,Value> iter = map.skvIterator();
+    iter.seek(new Range(), Set.of(), false);
+    verify(iter, expected.entrySet().iterator());
+
+    // seek to a range in the middle of the data
+    Range range = new Range(new Text(String.format("r%06d", 100)), true,
+        new Text(String.format("r%06d", 200)), false);
+    iter.seek(range, Set.of(), false);
+    verify(iter, expected.subMap(range.getStartKey(), range.getEndKey()).entrySet().iterator());
+
+    // deep copies are independent
+    SortedKeyValueIterator<Key,Value> dc = iter.deepCopy(null);
+    dc.seek(new Range(), Set.of(), false);
+    verify(dc, expected.entrySet().iterator());
+
+    map.delete();
+  }
+
+  @Test
+  public void testMutateAndLargeValues() throws Exception {
+    OffHeapMap map = new OffHeapMap();
+
+    byte[] big = new byte[OffHeapMap.CHUNK_SIZE + 100];
+    new Random(3).nextBytes(big);
+
+    Mutation m1 = new Mutation("r1");
+    m1.put("cf", "cq1", 5, "small");
+    m1.put("cf", "cq2", 5, new Value(big));
+    m1.putDelete("cf", "cq3", 5);
+    Mutation m2 = new Mutation("r2");
+    m2.put("cf", "cq1", 6, "x");
+
+    map.mutate(List.of(m1, m2), 10);
+
+    assertEquals(4, map.size());
+    assertTrue(map.getMemoryUsed() > big.length);
+
+    SortedKeyValueIterator<Key,Value> iter = map.skvIterator();
+    iter.seek(new Range(), Set.of(), false);
+
+    List<MemKey> keys = new ArrayList<>();
+    List<Value> values = new ArrayList<>();
+    while (iter.hasTop()) {
+      keys.add((MemKey) iter.getTopKey());
+      values.add(iter.getTopValue());
+      iter.next();
+    }
+
+    assertEquals(4, keys.size());
+    assertEquals(new Key("r1", "cf", "cq1", 5), keys.get(0));
+    assertEquals(10, keys.get(0).getKVCount());
+    assertEquals(new Value(big), values.get(1));
+    assertEquals(11, keys.get(1).getKVCount());
+    assertTrue(keys.get(2).isDeleted());
+    assertEquals(new Key("r2", "cf", "cq1", 6), keys.get(3));
+    assertEquals(13, keys.get(3).getKVCount());
+
+    map.delete();
+    assertThrows(IllegalStateException.class, () -> iter.seek(new Range(), Set.of(), false));
+    assertThrows(IllegalStateException.class, map::delete);
+  }
+
+  @Test
+  public void testConcurrentReadWhileWriting() throws Exception {
+    OffHeapMap map = new OffHeapMap();
+    AtomicReference<Throwable> error = new AtomicReference<>();
+
+    Thread reader = new Thread(() -> {
+      try {
+        SortedKeyValueIterator<Key,Value> iter = map.skvIterator();
+        for (int i = 0; i < 200; i++) {
+          iter.seek(new Range(), Set.of(), false);
+          Key prev = null;
+          while (iter.hasTop()) {
+            if (prev != null) {
+              assertTrue(new MemKeyComparator().compare(prev, iter.getTopKey()) < 0);
+            }
+            prev = iter.getTopKey();
+            iter.next();
+          }
+        }
+      } catch (Throwable t) {
+        error.set(t);
+      }
+    });
+    reader.start();
+
+    Random random = new Random(7);
+    for (int i = 0; i < 50_000; i++) {
+      map.put(newKey(random.nextInt(10_000), random.nextInt(10), 1, false, i), newValue(i));
+    }
+    reader.join();
+
+    assertNull(error.get());
+    assertEquals(50_000, map.size());
+    map.delete();
+  }
+
+  @Test
+  public void testInMemoryMap() throws Exception {
+    ConfigurationCopy config = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    config.set(Property.TSERV_OFFHEAP_MAP_ENABLED, "true");
+    config.set(Property.TSERV_MEMDUMP_DIR, tempDir.getAbsolutePath());
+
+    InMemoryMap imm =
+        new InMemoryMap(config, InMemoryMapTest.getServerContext(), TableId.of("--TEST--"));
+    assertEquals(InMemoryMap.TYPE_OFF_HEAP_MAP_WRAPPER, imm.getMapType());
+
+    config.set(Property.TABLE_LOCALITY_GROUP_PREFIX + "lg1",
+        LocalityGroupUtil.encodeColumnFamilies(InMemoryMapTest.toTextSet("cf1")));
+    config.set(Property.TABLE_LOCALITY_GROUPS.getKey(), "lg1");
+    InMemoryMap lgImm =
+        new InMemoryMap(config, InMemoryMapTest.getServerContext(), TableId.of("--TEST--"));
+    assertEquals(InMemoryMap.TYPE_LOCALITY_GROUP_MAP_OFF_HEAP, lgImm.getMapType());
+    lgImm.delete(0);
+
+    MemoryIterator before = imm.skvIterator(null);
+    Mutation m = new Mutation("r1");
+    m.put("cf1", "cq1", 3, "v1");
+    m.put("cf1", "cq1", 3, "v2");
+    imm.mutate(List.of(m), 2);
+    MemoryIterator after = imm.skvIterator(null);
+
+    // writes that happen after an iterator is created are not seen by it
+    before.seek(new Range(), Set.of(), false);
+    assertFalse(before.hasTop());
+
+    after.seek(new Range(), Set.of(), false);
+    // the most recent update for the same key is seen first
+    InMemoryMapTest.testAndCallNext(after, "r1", "cf1:cq1", 3, "v2");
+    InMemoryMapTest.testAndCallNext(after, "r1", "cf1:cq1", 3, "v1");
+    assertFalse(after.hasTop());
+
+    // deleting while an iterator is active switches the iterator to a dump file
+    imm.delete(0);
+    after.seek(new Range(), Set.of(), false);
+    InMemoryMapTest.testAndCallNext(after, "r1", "cf1:cq1", 3, "v2");
+    InMemoryMapTest.testAndCallNext(after, "r1", "cf1:cq1", 3, "v1");
+    assertFalse(after.hasTop());
+    after.close();
+    before.close();
+  }
+}
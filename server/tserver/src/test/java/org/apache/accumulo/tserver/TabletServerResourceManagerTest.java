@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.file.blockfile.cache.tiered.LocalBlockStore;
+import org.apache.accumulo.core.spi.crypto.GenericCryptoServiceFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TabletServerResourceManagerTest {
+
+  @TempDir
+  private static Path tempDir;
+
+  private static ConfigurationCopy l2Config(String dir) {
+    ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    conf.set(Property.TSERV_CACHE_L2_DIR, dir);
+    conf.set(Property.TSERV_CACHE_L2_SIZE, "1M");
+    return conf;
+  }
+
+  @Test
+  public void testL2BlockStore() throws Exception {
+    assertNull(TabletServerResourceManager.openL2BlockStore(l2Config("")));
+
+    LocalBlockStore store =
+        TabletServerResourceManager.openL2BlockStore(l2Config(tempDir.resolve("plain").toString()));
+    assertNotNull(store);
+    store.close();
+  }
+
+  @Test
+  public void testNoL2BlockStoreWithCrypto() {
+    ConfigurationCopy conf = l2Config(tempDir.resolve("crypto").toString());
+    conf.set(Property.INSTANCE_CRYPTO_FACTORY, GenericCryptoServiceFactory.class.getName());
+    assertNull(TabletServerResourceManager.openL2BlockStore(conf));
+  }
+}
@@ -18,14 +18,20 @@
  */
 package org.apache.accumulo.tserver.log;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.accumulo.core.client.Durability;
+import org.apache.accumulo.fate.util.UtilWaitThread;
 import org.apache.accumulo.tserver.TabletMutations;
 import org.apache.accumulo.tserver.tablet.CommitSession;
 import org.easymock.EasyMock;
@@ -76,4 +82,59 @@ public class DfsLoggerTest {
     return result;
   }
 
+  @Test
+  public void testGroupCommitWindow() throws Exception {
+    final String marker = "closed";
+    LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+
+    // nothing else arrives, so the window expires with just the first entry
+    List<String> work = new ArrayList<>(List.of("a"));
+    assertFalse(DfsLogger.waitForGroupCommit(queue, work, marker, MILLISECONDS.toNanos(10), 10));
+    assertEquals(List.of("a"), work);
+
+    // entries arriving during the window are batched until the max size is reached
+    work = new ArrayList<>(List.of("a"));
+    queue.addAll(List.of("b", "c", "d"));
+    DfsLogger.waitForGroupCommit(queue, work, marker, SECONDS.toNanos(60), 3);
+    assertEquals(List.of("a", "b", "c", "d"), work);
+    assertTrue(queue.isEmpty());
+
+    // an entry arriving later in the window is picked up by the same batch
+    work = new ArrayList<>(List.of("a"));
+    Thread producer = new Thread(() -> {
+      UtilWaitThread.sleepUninterruptibly(50, MILLISECONDS);
+      queue.add("b");
+    });
+    producer.start();
+    DfsLogger.waitForGroupCommit(queue, work, marker, SECONDS.toNanos(60), 2);
+    producer.join();
+    assertEquals(List.of("a", "b"), work);
+
+    // the close marker ends the window immediately
+    work = new ArrayList<>(List.of("a"));
+    queue.add(marker);
+    long start = System.nanoTime();
+    DfsLogger.waitForGroupCommit(queue, work, marker, SECONDS.toNanos(60), 10);
+    assertTrue(System.nanoTime() - start < SECONDS.toNanos(30));
+    assertEquals(List.of("a", marker), work);
+  }
+
+  @Test
+  public void testGroupCommitWindowInterrupted() {
+    LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    List<String> work = new ArrayList<>(List.of("a"));
+
+    Thread.currentThread().interrupt();
+    try {
+      long start = System.nanoTime();
+      assertTrue(DfsLogger.waitForGroupCommit(queue, work, "closed", SECONDS.toNanos(60), 10));
+      assertTrue(System.nanoTime() - start < SECONDS.toNanos(30));
+      assertEquals(List.of("a"), work);
+      // the flag is left clear, so syncing the collected work is not interrupted
+      assertFalse(Thread.currentThread().isInterrupted());
+    } finally {
+      // clear the flag so it does not leak into other tests
+      Thread.interrupted();
+    }
+  }
 }
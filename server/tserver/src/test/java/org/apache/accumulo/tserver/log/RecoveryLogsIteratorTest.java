@@ -18,31 +18,46 @@
  */
 package org.apache.accumulo.tserver.log;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.accumulo.tserver.logger.LogEvents.DEFINE_TABLET;
+import static org.apache.accumulo.tserver.logger.LogEvents.MUTATION;
 import static org.apache.accumulo.tserver.logger.LogEvents.OPEN;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.TreeMap;
 
+import org.apache.accumulo.core.conf.ConfigurationCopy;
 import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.crypto.CryptoEnvironmentImpl;
+import org.apache.accumulo.core.crypto.CryptoUtils;
+import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
 import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.spi.crypto.CryptoEnvironment;
+import org.apache.accumulo.core.spi.crypto.CryptoService;
 import org.apache.accumulo.core.spi.crypto.GenericCryptoServiceFactory;
 import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.server.ServerContext;
+import org.apache.accumulo.server.data.ServerMutation;
 import org.apache.accumulo.server.fs.VolumeManager;
 import org.apache.accumulo.server.fs.VolumeManagerImpl;
 import org.apache.accumulo.server.log.SortedLogState;
@@ -51,6 +66,7 @@ import org.apache.accumulo.tserver.logger.LogFileKey;
 import org.apache.accumulo.tserver.logger.LogFileValue;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -227,6 +243,99 @@ public class RecoveryLogsIteratorTest extends WithTestNames {
     }
   }
 
+  @Test
+  public void testMergingIterator() {
+    List<Entry<Key,Value>> source1 = List.of(entry("a", "1"), entry("b", "1"), entry("c", "1"),
+        entry("x", "1"), entry("y", "1"));
+    List<Entry<Key,Value>> source2 = List.of(entry("c", "2"), entry("d", "2"), entry("e", "2"));
+    List<Entry<Key,Value>> source3 = List.of(entry("c", "3"), entry("z", "3"));
+
+    List<Iterator<Entry<Key,Value>>> iterators = List.of(source1.iterator(),
+        Collections.emptyIterator(), source2.iterator(), source3.iterator());
+    var merged = new RecoveryLogsIterator.MergingIterator(iterators);
+
+    List<String> actual = new ArrayList<>();
+    while (merged.hasNext()) {
+      Entry<Key,Value> e = merged.next();
+      actual.add(e.getKey().getRow() + "" + e.getValue());
+    }
+    // equal keys come back in the order of their sources
+    assertEquals(List.of("a1", "b1", "c1", "c2", "c3", "d2", "e2", "x1", "y1", "z3"), actual);
+  }
+
+  private static Entry<Key,Value> entry(String row, String val) {
+    return new AbstractMap.SimpleImmutableEntry<>(new Key(row), new Value(val));
+  }
+
+  @Test
+  public void testPipelinedSort() throws Exception {
+    ConfigurationCopy conf = new ConfigurationCopy(DefaultConfiguration.getInstance());
+    conf.set(Property.TSERV_WAL_SORT_BUFFER_SIZE, "1K");
+    conf.set(Property.TSERV_WAL_SORT_WRITE_THREADS, "2");
+    LogSorter sorter = new LogSorter(context, conf);
+
+    final int numMutations = 500;
+    Path walPath = new Path(workDir + "/wal");
+    try (var out = fs.create(walPath)) {
+      CryptoEnvironment env = new CryptoEnvironmentImpl(CryptoEnvironment.Scope.WAL);
+      CryptoService cryptoService = context.getCryptoFactory().getService(env,
+          DefaultConfiguration.getInstance().getAllCryptoProperties());
+      out.write(DfsLogger.LOG_FILE_HEADER_V4.getBytes(UTF_8));
+      CryptoUtils.writeParams(cryptoService.getFileEncrypter(env).getDecryptionParameters(), out);
+
+      KeyValue open = new KeyValue();
+      open.key.event = OPEN;
+      open.key.tserverSession = "1";
+      open.key.filename = "wal";
+      open.key.write(out);
+      open.value.write(out);
+
+      KeyValue define = new KeyValue();
+      define.key.event = DEFINE_TABLET;
+      define.key.seq = 0;
+      define.key.tabletId = 1;
+      define.key.tablet = extent;
+      define.key.write(out);
+      define.value.write(out);
+
+      // write the mutations in descending order so every chunk has to be sorted
+      for (int i = numMutations; i > 0; i--) {
+        KeyValue kv = new KeyValue();
+        kv.key.event = MUTATION;
+        kv.key.seq = i;
+        kv.key.tabletId = 1;
+        ServerMutation m = new ServerMutation(new Text(String.format("row%05d", i)));
+        m.put("cf", "cq", "value" + i);
+        kv.value.mutations = List.of(m);
+        kv.key.write(out);
+        kv.value.write(out);
+      }
+    }
+
+    String destPath = workDir + "/sorted";
+    LogSorter.LogProcessor processor = sorter.new LogProcessor();
+    processor.sort(fs, "wal", walPath, destPath);
+    processor.close();
+
+    assertTrue(fs.exists(SortedLogState.getFinishedMarkerPath(destPath)));
+    // the small buffer should have produced many sorted chunks to merge
+    assertTrue(fs.listStatus(new Path(destPath)).length > 10);
+
+    try (RecoveryLogsIterator rli =
+        new RecoveryLogsIterator(context, List.of(new Path(destPath)), null, null, true)) {
+      assertEquals(OPEN, rli.next().getKey().event);
+      assertEquals(DEFINE_TABLET, rli.next().getKey().event);
+      for (int i = 1; i <= numMutations; i++) {
+        Entry<LogFileKey,LogFileValue> entry = rli.next();
+        assertEquals(MUTATION, entry.getKey().event);
+        assertEquals(i, entry.getKey().seq);
+        assertEquals(new Text(String.format("row%05d", i)),
+            new Text(entry.getValue().mutations.get(0).getRow()));
+      }
+      assertFalse(rli.hasNext());
+    }
+  }
+
   private void createRecoveryDir(Map<String,KeyValue[]> logs, ArrayList<Path> dirs,
       boolean FinishMarker) throws IOException {
 
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.metrics;
+
+import static org.apache.accumulo.core.metrics.MetricsProducer.METRICS_MAJC_TIME_DECODE;
+import static org.apache.accumulo.core.metrics.MetricsProducer.METRICS_MAJC_TIME_ITERATOR;
+import static org.apache.accumulo.core.metrics.MetricsProducer.METRICS_MAJC_TIME_WRITE_IO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.spi.compaction.CompactionExecutorId;
+import org.apache.accumulo.core.spi.compaction.CompactionServiceId;
+import org.apache.accumulo.core.util.compaction.CompactionExecutorIdImpl;
+import org.apache.accumulo.server.compaction.CompactionStats;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class CompactionExecutorsMetricsTest {
+
+  @Test
+  public void testRecordCompaction() {
+    CompactionExecutorsMetrics metrics = new CompactionExecutorsMetrics() {
+      @Override
+      protected void startUpdateThread() {}
+    };
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    metrics.registerMetrics(registry);
+
+    CompactionExecutorId ceid =
+        CompactionExecutorIdImpl.internalId(CompactionServiceId.of("cs1"), "small");
+    CompactionStats stats = new CompactionStats(10, 10);
+    stats.setTimes(100, 20, 300);
+    stats.setIoTimes(40, 50);
+    metrics.recordCompaction(ceid, TableId.of("1"), stats);
+    metrics.recordCompaction(ceid, TableId.of("1"), stats);
+
+    assertEquals(120, registry.get(METRICS_MAJC_TIME_DECODE).tag("id", ceid.canonical())
+        .tag("table", "1").timer().totalTime(TimeUnit.NANOSECONDS));
+    assertEquals(40, registry.get(METRICS_MAJC_TIME_ITERATOR).tag("id", ceid.canonical())
+        .tag("table", "1").timer().totalTime(TimeUnit.NANOSECONDS));
+    assertEquals(2, registry.get(METRICS_MAJC_TIME_WRITE_IO).tag("id", ceid.canonical())
+        .tag("table", "1").timer().count());
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.accumulo.tserver.tablet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.TableId;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.dataImpl.KeyExtent;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.accumulo.server.conf.TableConfiguration;
+import org.apache.accumulo.tserver.scan.ScanParameters;
+import org.easymock.EasyMock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ScanResultCacheTest {
+
+  private TabletBase tablet;
+  private long dataVersion;
+  private boolean enabled;
+
+  @BeforeEach
+  public void setup() {
+    dataVersion = 1;
+    enabled = true;
+
+    TableConfiguration tableConf = EasyMock.createMock(TableConfiguration.class);
+    EasyMock.expect(tableConf.getUpdateCount()).andReturn(1L).anyTimes();
+    EasyMock.expect(tableConf.getBoolean(Property.TABLE_SCAN_RESULTS_CACHE_ENABLED))
+        .andAnswer(() -> enabled).anyTimes();
+
+    tablet = EasyMock.createMock(TabletBase.class);
+    EasyMock.expect(tablet.getExtent()).andReturn(new KeyExtent(TableId.of("1"), null, null))
+        .anyTimes();
+    EasyMock.expect(tablet.getTableConfiguration()).andReturn(tableConf).anyTimes();
+    EasyMock.expect(tablet.getDataVersion()).andAnswer(() -> dataVersion).anyTimes();
+    EasyMock.replay(tableConf, tablet);
+  }
+
+  private static ScanParameters params(String auths, boolean isolated) {
+    return new ScanParameters(1000, new Authorizations(auths), Set.of(), List.of(), Map.of(),
+        isolated, null, 0, null);
+  }
+
+  private static Batch batch(String... rows) {
+    List<KVEntry> results = new ArrayList<>();
+    for (String row : rows) {
+      results.add(new KVEntry(new Key(row), new Value("v")));
+    }
+    return new Batch(false, results, null, 0);
+  }
+
+  @Test
+  public void testBatch() {
+    ScanResultCache cache = new ScanResultCache(1 << 20);
+    Range range = new Range("a", "z");
+
+    var key = cache.batchKey(tablet, range, params("A", false), 1000);
+    assertNull(cache.getBatch(key));
+    Batch batch = batch("b", "c");
+    cache.putBatch(tablet, key, batch);
+
+    assertSame(batch, cache.getBatch(cache.batchKey(tablet, range, params("A", false), 1000)));
+    // anything that determines the results is part of the key
+    assertNull(cache.getBatch(cache.batchKey(tablet, range, params("B", false), 1000)));
+    assertNull(cache.getBatch(cache.batchKey(tablet, range, params("A", false), 2000)));
+    assertNull(
+        cache.getBatch(cache.batchKey(tablet, new Range("a", "y"), params("A", false), 1000)));
+
+    // writes, compactions and bulk imports change the data version
+    dataVersion++;
+    assertNull(cache.getBatch(cache.batchKey(tablet, range, params("A", false), 1000)));
+  }
+
+  @Test
+  public void testDataChangedDuringRead() {
+    ScanResultCache cache = new ScanResultCache(1 << 20);
+    Range range = new Range("a", "z");
+
+    var key = cache.batchKey(tablet, range, params("A", false), 1000);
+    dataVersion++;
+    cache.putBatch(tablet, key, batch("b"));
+    assertNull(cache.getBatch(key));
+  }
+
+  @Test
+  public void testNotCacheable() {
+    ScanResultCache cache = new ScanResultCache(1 << 20);
+    Range range = new Range("a", "z");
+
+    assertNull(cache.batchKey(tablet, range, params("A", true), 1000));
+    assertNull(cache.lookupKey(tablet, List.of(range), params("A", true)));
+
+    enabled = false;
+    assertNull(cache.batchKey(tablet, range, params("A", false), 1000));
+    assertNull(cache.lookupKey(tablet, List.of(range), params("A", false)));
+  }
+
+  @Test
+  public void testLookup() {
+    ScanResultCache cache = new ScanResultCache(1 << 20);
+    List<Range> ranges = List.of(new Range("a", "c"), new Range("x", "z"));
+
+    var key = cache.lookupKey(tablet, ranges, params("A", false));
+    List<KVEntry> results = new ArrayList<>();
+    assertNull(cache.getLookup(key, results, 1000));
+
+    Tablet.LookupResult lookupResult = new Tablet.LookupResult();
+    lookupResult.bytesAdded = 600;
+    lookupResult.dataSize = 20;
+    cache.putLookup(tablet, key, lookupResult, batch("b", "y").getResults());
+
+    // results from other tablets are kept
+    results.add(new KVEntry(new Key("0"), new Value("v")));
+    Tablet.LookupResult cached =
+        cache.getLookup(cache.lookupKey(tablet, ranges, params("A", false)), results, 1000);
+    assertNotNull(cached);
+    assertEquals(600, cached.bytesAdded);
+    assertEquals(20, cached.dataSize);
+    assertEquals(3, results.size());
+    assertEquals(new Key("y"), results.get(2).getKey());
+
+    // a lookup with less room for results would not have finished, so it must run
+    assertNull(cache.getLookup(key, new ArrayList<>(), 500));
+
+    // lookups that did not read all of their ranges are not cached
+    var key2 = cache.lookupKey(tablet, List.of(new Range("d", "e")), params("A", false));
+    lookupResult = new Tablet.LookupResult();
+    lookupResult.unfinishedRanges.add(new Range("d", "e"));
+    cache.putLookup(tablet, key2, lookupResult, List.of());
+    assertNull(cache.getLookup(key2, new ArrayList<>(), 1000));
+  }
+}
@@ -249,6 +249,8 @@ public class AccumuloVFSClassLoader {
           }
 
         }
+        // another thread may have created the loader while this one waited for the lock
+        localLoader = loader;
       }
     }
 